@@ -45,6 +45,17 @@ public interface Aggregator<R, T> extends Closeable {
             return null;
         }
 
+        /**
+         * Returns true if the {@code Aggregator} instances support the {@link
+         * Aggregator#combine combine} method, which permits aggregation to be performed in
+         * parallel. False is returned by default.
+         *
+         * @see org.cojen.tupl.Query#parallel Query.parallel
+         */
+        default boolean isCombinable() {
+            return false;
+        }
+
         /**
          * Override this method to customize the aggregator's query plan.
          *
@@ -82,6 +93,22 @@ public interface Aggregator<R, T> extends Closeable {
      */
     T finish(T target) throws IOException;
 
+    /**
+     * Is called to merge the partial results of another aggregator into this one, in support
+     * of parallel aggregation. Both aggregators have begun the same group, but they've
+     * accumulated disjoint sets of source rows, in no particular order. The other aggregator
+     * is closed after this method returns, and then {@code finish} is called on this one.
+     *
+     * <p>This method must be overridden when the {@link Factory#isCombinable isCombinable}
+     * method returns true.
+     *
+     * @param other never null
+     * @throws UnsupportedOperationException by default
+     */
+    default void combine(Aggregator<R, T> other) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Is called when this {@code Aggregator} instance is no longer needed.
      */
@@ -0,0 +1,42 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl;
+
+/**
+ * Defines the policy for selecting which cached nodes are evicted when the cache is full.
+ *
+ * @author Brian S O'Neill
+ * @see DatabaseConfig#cacheReplacementPolicy
+ */
+public enum CacheReplacementPolicy {
+    /**
+     * Policy which evicts the approximately least recently used node. This is the default
+     * policy, and it performs well when the working set fits in the cache. A large scan can
+     * evict the entire working set, however.
+     */
+    LRU,
+
+    /**
+     * Policy which admits newly loaded nodes into a probationary segment of the cache, and
+     * nodes are only promoted into the protected segment when used again. Nodes which are
+     * touched only once, by a full scan or a bulk load for example, are evicted before any
+     * protected nodes. Approximately a quarter of the cache is reserved for the probationary
+     * segment.
+     */
+    SCAN_RESISTANT
+}
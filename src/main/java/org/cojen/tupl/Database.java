@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import java.util.concurrent.TimeUnit;
+
 import java.util.concurrent.locks.Lock;
 
 import java.net.SocketAddress;
@@ -569,6 +571,34 @@ public interface Database extends CauseCloseable, Flushable {
      */
     public boolean failover() throws IOException;
 
+    /**
+     * Returns a replication log position which can be passed to the {@link #awaitPosition
+     * awaitPosition} method of any member of the replication group. If the database instance
+     * is the leader, then the position covers all the transactions which have committed. If a
+     * replica, then the position covers all the changes which are known to be committed by
+     * the replication group. Returns zero if the database isn't replicated.
+     */
+    public long replicationPosition();
+
+    /**
+     * Waits until all the replicated changes before the given position have been applied
+     * locally. Once this method returns true, a reader observes all the changes which were
+     * committed before the position, even when the database instance is a replica.
+     *
+     * <p>For reading your own writes from a replica, pass the position which was obtained
+     * from the leader after committing. For reading with bounded staleness, pass the
+     * position which was obtained from the local replica, which catches up to what the
+     * replication group has committed, and specify a timeout which bounds the wait. If the
+     * database isn't replicated, this method returns true immediately.
+     *
+     * @param position position which was obtained from the {@link #replicationPosition
+     * replicationPosition} method
+     * @param timeout maximum time to wait; pass negative for infinite timeout
+     * @param unit timeout unit
+     * @return false if timed out
+     */
+    public boolean awaitPosition(long position, long timeout, TimeUnit unit) throws IOException;
+
     /**
      * Closes the database, ensuring durability of committed transactions. No
      * checkpoint is performed by this method, and so non-transactional
@@ -131,6 +131,21 @@ public class DatabaseConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * Enable io_uring for the data files on Linux, which allows checkpoints to write batches
+     * of dirty pages with a single system call. Ignored if not supported by the platform, or
+     * if the data files are memory mapped. Batches are also written when pages are encrypted
+     * or checksummed, and when the data files are striped. When pages are {@linkplain
+     * #compressPages compressed}, only the underlying storage of the compressed pages writes
+     * batches.
+     *
+     * @see OpenOption#IO_URING
+     */
+    public DatabaseConfig ioUring(boolean enabled) {
+        mLauncher.ioUring(enabled);
+        return this;
+    }
+
     /**
      * Use a custom storage layer instead of the default data file.
      */
@@ -180,6 +195,31 @@ public class DatabaseConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * Set the cache replacement policy, which is {@link CacheReplacementPolicy#LRU LRU} if not
+     * overridden.
+     */
+    public DatabaseConfig cacheReplacementPolicy(CacheReplacementPolicy policy) {
+        mLauncher.cacheReplacementPolicy(policy);
+        return this;
+    }
+
+    /**
+     * Enable or disable key prefix compression for leaf nodes, which is disabled by default.
+     * When enabled, a common prefix shared by all keys in a leaf node is stored just once,
+     * which improves node capacity when keys have long common prefixes. The maximum entry
+     * size is slightly reduced when the option is enabled, and so the option should be
+     * enabled consistently for the lifetime of the database.
+     *
+     * <p>Enabling the option changes the file format. Once enabled, the database can still be
+     * opened with the option disabled, but it can no longer be opened by earlier versions
+     * which don't support key prefix compression. There's no way to downgrade.
+     */
+    public DatabaseConfig keyPrefixCompression(boolean enabled) {
+        mLauncher.keyPrefixCompression(enabled);
+        return this;
+    }
+
     /**
      * Set the default transaction durability mode, which is {@link
      * DurabilityMode#SYNC SYNC} if not overridden. If database itself is
@@ -190,6 +230,21 @@ public class DatabaseConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * Set the maximum amount of time that a {@link DurabilityMode#SYNC SYNC} commit waits for
+     * other concurrent commits to share the same redo log sync. Default is zero, and
+     * concurrent commits always share syncs when possible. A small delay can increase
+     * throughput when many threads are committing, at the cost of added commit latency. The
+     * delay only applies when other commits are waiting for a sync, and it has no effect for
+     * replicated databases.
+     *
+     * @param unit required unit if delay is more than zero
+     */
+    public DatabaseConfig groupCommitDelay(long delay, TimeUnit unit) {
+        mLauncher.groupCommitDelay(delay, unit);
+        return this;
+    }
+
     /**
      * Set the default lock upgrade rule, which is {@link LockUpgradeRule#STRICT STRICT} if not
      * overridden.
@@ -245,6 +300,22 @@ public class DatabaseConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * Set the rate at which automatic {@linkplain Database#checkpoint checkpoints} write dirty
+     * pages, spreading the writes out over time instead of issuing them all at once. This
+     * reduces the impact of checkpoints on the latency of concurrent reads, but checkpoints
+     * take longer to complete. The rate is raised automatically when the redo log grows
+     * faster than the given rate, and explicitly requested checkpoints are never paced. By
+     * default, checkpoints aren't paced.
+     *
+     * @param bytesPerSecond target write rate; pass zero to disable pacing
+     * @see org.cojen.tupl.diag.EventType#CHECKPOINT_PROGRESS
+     */
+    public DatabaseConfig checkpointPaceRate(long bytesPerSecond) {
+        mLauncher.checkpointPaceRate(bytesPerSecond);
+        return this;
+    }
+
     /**
      * Specify the maximum number of threads for performing checkpointing, to speed it up. This
      * option is most useful when combined with the {@link #syncWrites syncWrites} option, or
@@ -316,6 +387,51 @@ public class DatabaseConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * Set the maximum number of threads which concurrently load nodes when applying a cache
+     * priming set. By default, eight threads per available processor are used.
+     *
+     * @see Database#applyCachePrimer
+     */
+    public DatabaseConfig cachePrimingThreads(int threads) {
+        mLauncher.cachePrimingThreads(threads);
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of data to load into the cache when applying a cache priming
+     * set. Internal nodes are loaded before leaf nodes, and so the most heavily used nodes
+     * are loaded first. By default, the limit is the maximum cache size.
+     *
+     * @see Database#applyCachePrimer
+     */
+    public DatabaseConfig cachePrimingLimit(long bytes) {
+        mLauncher.cachePrimingLimit(bytes);
+        return this;
+    }
+
+    /**
+     * Set a cache quota for an index, which applies whenever the index is open. The minimum
+     * amount is reserved for the index, preventing other indexes from evicting its nodes.
+     * When the index uses more than the maximum amount, its nodes are evicted before those
+     * of other indexes. Optionally, the internal nodes of the index can be pinned, preventing
+     * them from being evicted at all. The total amount of reservations and pinned nodes
+     * should be kept well below the cache size.
+     *
+     * @param indexName name of the index, as passed to {@link Database#openIndex(String)}
+     * @param minBytes amount of cache to reserve; pass 0 for none
+     * @param maxBytes maximum amount of cache to use; pass {@code Long.MAX_VALUE} for no limit
+     * @param pinInternalNodes pass true to keep the internal nodes in the cache
+     * @throws IllegalArgumentException if minBytes is negative or more than maxBytes
+     * @see org.cojen.tupl.diag.DatabaseStats#indexCachePages
+     */
+    public DatabaseConfig cacheQuota(String indexName, long minBytes, long maxBytes,
+                                     boolean pinInternalNodes)
+    {
+        mLauncher.cacheQuota(indexName, minBytes, maxBytes, pinInternalNodes);
+        return this;
+    }
+
     /**
      * When the process is cleanly shutdown, attempt to issue a full database shutdown. This
      * ensures full durability of all modifications. Setting this option prevents the process
@@ -358,6 +474,20 @@ public class DatabaseConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * If replication is enabled, specify whether independent changes should be assigned to
+     * the replica threads by index and key, rather than by load. Changes to the same key are
+     * always applied by the same thread and in order, and the changes made by a transaction
+     * are applied by one thread, preserving the commit boundary. Partitioning spreads the
+     * work evenly over all the threads, which can reduce the {@linkplain
+     * org.cojen.tupl.diag.DatabaseStats#replicationBacklog backlog} when the leader performs
+     * many small transactions. Default is false.
+     */
+    public DatabaseConfig partitionReplicaApply(boolean partition) {
+        mLauncher.partitionReplicaApply(partition);
+        return this;
+    }
+
     public DatabaseConfig enableJMX(boolean enable) {
         mLauncher.enableJMX(enable);
         return this;
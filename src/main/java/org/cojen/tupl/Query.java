@@ -25,6 +25,7 @@ import org.cojen.tupl.diag.QueryPlan;
 
 import org.cojen.tupl.io.Utils;
 
+import org.cojen.tupl.table.ParallelQuery;
 import org.cojen.tupl.table.RowUtils;
 
 import static org.cojen.tupl.table.RowUtils.NO_ARGS;
@@ -146,6 +147,28 @@ public interface Query<R> {
         return newStream(txn, NO_ARGS);
     }
 
+    /**
+     * Returns a query which produces the same rows as this one, but its scanners and streams
+     * divide the work among multiple threads. The key range is partitioned, and each
+     * partition is scanned and filtered in parallel by a {@link
+     * java.util.concurrent.ForkJoinPool ForkJoinPool}. Rows are produced in the same order
+     * as they would be by this query. When aggregating, partial aggregates are computed in
+     * parallel if the {@link Aggregator.Factory#isCombinable Aggregator} supports it.
+     *
+     * <p>Parallel execution requires that the transaction be null or {@link
+     * Transaction#BOGUS BOGUS}, because a transaction cannot be shared by multiple threads.
+     * Otherwise, the query executes serially, with the usual locking behavior. Updaters
+     * always execute serially, and parallel execution is also skipped when the query cannot
+     * be partitioned.
+     *
+     * @param parallelism maximum number of threads to use
+     * @return a parallel query, or this query if the parallelism is one
+     * @throws IllegalArgumentException if the parallelism isn't positive
+     */
+    default Query<R> parallel(int parallelism) {
+        return ParallelQuery.make(this, parallelism);
+    }
+
     /**
      * Deletes all rows specified by this query.
      *
@@ -65,6 +65,37 @@ public interface Scanner<R> extends Spliterator<R>, Closeable {
      */
     R step(R row) throws IOException;
 
+    /**
+     * Copies the current row and up to {@code rows.length - 1} of the rows which follow it
+     * into the given array, and then steps to the row after the last one copied. Fewer rows
+     * might be copied even when more remain, but at least one row is always copied unless
+     * the scanner is finished. Row instances which are already in the array are reused when
+     * possible, except for the first one, which is always replaced with the current row. The
+     * scanner is then positioned at a new row instance, which doesn't refer to any row in the
+     * array.
+     *
+     * <p>Fetching rows in batches reduces per-row overhead, and reusing row instances
+     * reduces garbage. Note that when this method is called on an {@link Updater}, the rows
+     * in the batch cannot be updated or deleted, because the updater has moved past them.
+     *
+     * @param rows non-empty array to fill, starting at index zero
+     * @return the number of rows copied, which is zero only if no more rows remain and the
+     * scanner has been closed
+     */
+    default int stepBatch(R[] rows) throws IOException {
+        R row = row();
+        int num = 0;
+        while (row != null) {
+            rows[num++] = row;
+            if (num >= rows.length) {
+                step();
+                break;
+            }
+            row = step(rows[num]);
+        }
+        return num;
+    }
+
     /**
      * {@inheritDoc}
      */
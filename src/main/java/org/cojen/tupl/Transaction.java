@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.cojen.tupl.core.LocalTransaction;
@@ -133,6 +134,34 @@ public interface Transaction extends Flushable, Closeable {
      */
     void commit() throws IOException;
 
+    /**
+     * Commits all modifications made within the current transaction scope, without waiting
+     * for the commit to become durable. The returned future completes when the commit has the
+     * strength of the transaction's {@linkplain #durabilityMode durability mode}. In {@link
+     * DurabilityMode#SYNC SYNC} mode, this is when the commit is durable locally, or when it
+     * has been confirmed by the replication group. Commits in weaker modes are never waited
+     * for, and so the returned future is already completed, even though the commit isn't
+     * durable yet.
+     *
+     * <p>Locks might be released before the future completes, but other transactions cannot
+     * durably commit changes which depend on this commit before this commit is durable
+     * itself. Exceptions which are thrown while writing the commit are thrown directly, and
+     * not by the future. If the commit cannot be made durable after its locks have been
+     * released, the database is closed and the future completes exceptionally.
+     *
+     * <p>Only a commit of the outermost scope can be durable, and so the future returned for
+     * a nested scope commit is always already completed. The default implementation calls
+     * {@link #commit commit} and returns a completed future.
+     *
+     * @return a future which completes when the commit has the strength of the durability
+     * mode
+     * @see CommitCallback
+     */
+    default CompletableFuture<Void> commitAsync() throws IOException {
+        commit();
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Commits and exits all transaction scopes.
      *
@@ -149,6 +149,21 @@ public interface View {
         return ViewUtils.count(this, false, lowKey, lowInclusive, highKey, highInclusive ? 1 : 0);
     }
 
+    /**
+     * Non-transactionally selects a key which approximately divides the given range in half,
+     * for supporting parallel scans over independent sub ranges. The key isn't required to
+     * exist in the view, and the split is based on the structure of the underlying storage
+     * rather than on an exact count. Null is returned if the range is too small to be split,
+     * or if splitting isn't supported.
+     *
+     * @param lowKey inclusive lowest key in the range; pass null for open range
+     * @param highKey exclusive highest key in the range; pass null for open range
+     * @return a key which is greater than lowKey and less than or equal to highKey, or null
+     */
+    public default byte[] splitKey(byte[] lowKey, byte[] highKey) throws IOException {
+        return null;
+    }
+
     /**
      * Returns a copy of the value for the given key, or null if no matching entry exists.
      *
@@ -172,6 +187,51 @@ public interface View {
         }
     }
 
+    /**
+     * Returns copies of the values for a batch of keys. The keys are visited in sorted order
+     * using a single cursor, which is typically more efficient than calling {@link #load
+     * load} for each key.
+     *
+     * <p>If the entries must be locked, ownership of the key instances is transferred. The
+     * keys must not be modified after calling this method.
+     *
+     * @param txn optional transaction; pass null for {@link LockMode#READ_COMMITTED
+     * READ_COMMITTED} locking behavior
+     * @param keys non-null keys, in any order
+     * @return copies of the values, in the same order as the keys; an element is null if the
+     * entry doesn't exist
+     * @throws NullPointerException if any key is null
+     * @throws IllegalStateException if transaction belongs to another database instance
+     */
+    public default byte[][] loadAll(Transaction txn, byte[][] keys) throws IOException {
+        return loadAll(txn, keys, false);
+    }
+
+    /**
+     * Returns copies of the values for a batch of keys. The keys are visited in sorted order
+     * using a single cursor, which is typically more efficient than calling {@link #load
+     * load} for each key.
+     *
+     * <p>If the entries must be locked, ownership of the key instances is transferred. The
+     * keys must not be modified after calling this method.
+     *
+     * @param txn optional transaction; pass null for {@link LockMode#READ_COMMITTED
+     * READ_COMMITTED} locking behavior
+     * @param keys non-null keys, in any order
+     * @param prefetch pass true to concurrently read in any pages which aren't cached,
+     * which can reduce latency when many of the entries aren't cached; ignored if not
+     * supported
+     * @return copies of the values, in the same order as the keys; an element is null if the
+     * entry doesn't exist
+     * @throws NullPointerException if any key is null
+     * @throws IllegalStateException if transaction belongs to another database instance
+     */
+    public default byte[][] loadAll(Transaction txn, byte[][] keys, boolean prefetch)
+        throws IOException
+    {
+        return ViewUtils.loadAll(this, txn, keys, ViewUtils.sortedOrder(this, keys));
+    }
+
     /**
      * Checks if an entry for the given key exists. This method should be called only if the
      * value doesn't need to be loaded or stored &mdash; calling exists and then calling a load
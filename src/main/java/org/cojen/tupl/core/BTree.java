@@ -70,6 +70,9 @@ sealed class BTree implements Index {
         PREPARED_TXNS_ID = 4,
         SCHEMATA_ID = 5;
 
+    // Minimum number of keys to be found by each loadAll prefetch task.
+    private static final int PREFETCH_MIN_KEYS = 16;
+
     static boolean isInternal(long id) {
         return (id & ~0xff) == 0;
     }
@@ -223,6 +226,62 @@ sealed class BTree implements Index {
         }
     }
 
+    @Override
+    public byte[] splitKey(byte[] lowKey, byte[] highKey) throws IOException {
+        if (lowKey != null && highKey != null && compareUnsigned(lowKey, highKey) >= 0) {
+            return null;
+        }
+
+        Node node = mRoot;
+        node.acquireShared();
+
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        // Descend until the range spans more than one child node, and then choose the middle
+        // separator key. Ranges which are confined to a single leaf node aren't split.
+
+        while (!node.isLeaf()) {
+            int lowPos, highPos;
+            try {
+                lowPos = lowKey == null ? 0 : Node.internalPos(node.binarySearch(lowKey));
+                highPos = highKey == null ? node.highestInternalPos()
+                    : Node.internalPos(node.binarySearch(highKey));
+                if (highPos > lowPos) {
+                    // Keys between the two children are at positions [lowPos, highPos - 2].
+                    int pos = (((lowPos + highPos) >> 1) - 1) & ~1;
+                    byte[] key = node.retrieveKey(pos);
+                    node.releaseShared();
+                    return key;
+                }
+            } catch (Throwable e) {
+                node.releaseShared();
+                throw e;
+            }
+
+            long childId = node.childId(lowPos);
+            Node childNode = mDatabase.nodeMapGetShared(childId);
+
+            if (childNode != null) {
+                node.releaseShared();
+                node = childNode;
+                node.used(rnd);
+            } else {
+                node = node.loadChild(mDatabase, childId, Node.OPTION_PARENT_RELEASE_SHARED);
+            }
+
+            if (node.mSplit != null) {
+                if (lowKey == null) {
+                    node.releaseShared();
+                    return null;
+                }
+                node = node.mSplit.selectNode(node, lowKey);
+            }
+        }
+
+        node.releaseShared();
+        return null;
+    }
+
     @Override
     public final byte[] load(Transaction txn, byte[] key) throws IOException {
         LocalTransaction local = check(txn);
@@ -280,10 +339,22 @@ sealed class BTree implements Index {
 
         search: try {
             final long pageAddr = node.mPageAddr;
-            final int keyLen = key.length;
             int lowPos = node.searchVecStart();
             int highPos = node.searchVecEnd();
 
+            final int keyOff = p_ubyteGet(pageAddr, 1);
+            if (keyOff != 0) {
+                int cmp = Node.compareKeyPrefix(pageAddr, keyOff, key);
+                if (cmp != 0) {
+                    // Not found, and so skip the search.
+                    if (cmp > 0) {
+                        lowPos = highPos + 2;
+                    }
+                    highPos = lowPos - 2;
+                }
+            }
+            final int keyLen = key.length - keyOff;
+
             // TODO: Using this feature reduces performance for small keys. Is the potential
             // benefit for large keys worth it?
             //int lowMatch = 0, highMatch = 0;
@@ -308,7 +379,7 @@ sealed class BTree implements Index {
                                 .reconstructKey(pageAddr, compareLoc, compareLen);
 
                             int fullCompareLen = compareKey.length;
-                            int minLen = Math.min(fullCompareLen, keyLen);
+                            int minLen = Math.min(fullCompareLen, key.length);
                             int cmp = compareUnsigned(compareKey, 0, minLen, key, 0, minLen);
 
                             if (cmp != 0) {
@@ -325,6 +396,7 @@ sealed class BTree implements Index {
                             // Update compareLen and compareLoc for use by the code after the
                             // current scope. The compareLoc is completely bogus at this point,
                             // but it's corrected when the value is retrieved below.
+                            fullCompareLen -= keyOff;
                             compareLoc += compareLen - fullCompareLen;
                             compareLen = fullCompareLen;
 
@@ -338,7 +410,7 @@ sealed class BTree implements Index {
 
                     for (; i < minLen8; i += 8) {
                         long cv = p_longGetBE(pageAddr, compareLoc + i);
-                        long kv = Utils.decodeLongBE(key, i);
+                        long kv = Utils.decodeLongBE(key, keyOff + i);
                         int cmp = Long.compareUnsigned(cv, kv);
                         if (cmp != 0) {
                             if (cmp < 0) {
@@ -354,7 +426,7 @@ sealed class BTree implements Index {
 
                     for (; i < minLen; i++) {
                         byte cb = p_byteGet(pageAddr, compareLoc + i);
-                        byte kb = key[i];
+                        byte kb = key[keyOff + i];
                         if (cb != kb) {
                             if ((cb & 0xff) < (kb & 0xff)) {
                                 lowPos = midPos + 2;
@@ -447,6 +519,61 @@ sealed class BTree implements Index {
         }
     }
 
+    @Override
+    public final byte[][] loadAll(Transaction txn, byte[][] keys, boolean prefetch)
+        throws IOException
+    {
+        Integer[] order = ViewUtils.sortedOrder(this, keys);
+        if (prefetch) {
+            prefetch(keys, order);
+        }
+        return ViewUtils.loadAll(this, txn, keys, order);
+    }
+
+    /**
+     * Starts background tasks which load the nodes needed for finding the given keys, without
+     * locking or loading any values. The first group of keys isn't prefetched, since the
+     * caller is about to find them anyhow.
+     *
+     * @param order array indexes of the keys, in sorted order
+     */
+    private void prefetch(byte[][] keys, Integer[] order) {
+        int taskCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                                 keys.length / PREFETCH_MIN_KEYS);
+        if (taskCount <= 1) {
+            return;
+        }
+
+        int groupSize = (keys.length + taskCount - 1) / taskCount;
+
+        for (int start = groupSize; start < keys.length; start += groupSize) {
+            int from = start;
+            int to = Math.min(keys.length, start + groupSize);
+            try {
+                Runner.start(() -> prefetch(keys, order, from, to));
+            } catch (Throwable e) {
+                // Prefetch is only a hint.
+                return;
+            }
+        }
+    }
+
+    private void prefetch(byte[][] keys, Integer[] order, int from, int to) {
+        try {
+            BTreeCursor c = newCursor(Transaction.BOGUS);
+            try {
+                c.autoload(false);
+                for (int i=from; i<to; i++) {
+                    c.findNearby(keys[order[i]]);
+                }
+            } finally {
+                c.reset();
+            }
+        } catch (Throwable e) {
+            // Prefetch is only a hint, and any real problem is reported by the caller.
+        }
+    }
+
     @Override
     public final boolean exists(Transaction txn, byte[] key) throws IOException {
         LocalTransaction local = check(txn);
@@ -1249,11 +1376,7 @@ sealed class BTree implements Index {
                 if (leftNode.isLeaf()) {
                     // See BTreeCursor.mergeLeaf method.
 
-                    int leftAvail = leftNode.availableLeafBytes();
-                    int rightAvail = rightNode.availableLeafBytes();
-
-                    int remaining = leftAvail
-                        + rightAvail - survivor.pageSize() + Node.TN_HEADER_SIZE;
+                    int remaining = Node.leafMergeRemaining(leftNode, rightNode);
 
                     if (remaining < 0) {
                         // No room to merge.
@@ -1322,11 +1445,11 @@ sealed class BTree implements Index {
         do {
             if (frame == stop) {
                 Node node = frame.mNode;
-                node.type((byte) (node.type() & mask));
+                node.retype((byte) (node.type() & mask));
                 break;
             }
             Node node = frame.acquireExclusive();
-            node.type((byte) (node.type() & mask));
+            node.retype((byte) (node.type() & mask));
             node.releaseExclusive();
             frame = frame.mParentFrame;
         } while (frame != null);
@@ -1456,6 +1579,106 @@ sealed class BTree implements Index {
         new Primer(this, din).run();
     }
 
+    /**
+     * Writes the identifiers of all loaded nodes, along with a key which can find each node.
+     *
+     * @see NodePrimer
+     */
+    final void writeNodePrimer(final DataOutput dout) throws IOException {
+        byte[] name = mName;
+        dout.writeInt(name.length);
+        dout.write(name);
+
+        traverseLoaded((node) -> {
+            int type;
+            long nodeId;
+            byte[] key;
+            try {
+                if (node == mRoot) {
+                    // Root node is always loaded.
+                    return;
+                }
+                nodeId = node.id();
+                int numKeys = node.numKeys();
+                if (node.isLeaf()) {
+                    type = NodePrimer.LEAF;
+                    if (numKeys > 1) {
+                        int highPos = numKeys & ~1;
+                        key = node.midKey(highPos - 2, node, highPos);
+                    } else if (numKeys == 1) {
+                        key = node.retrieveKey(0);
+                    } else {
+                        return;
+                    }
+                } else {
+                    type = NodePrimer.INTERNAL;
+                    if (numKeys <= 0) {
+                        return;
+                    }
+                    // Any key in an internal node leads to it.
+                    key = node.retrieveKey(numKeys & ~1);
+                }
+            } finally {
+                node.releaseShared();
+            }
+
+            // Omit entries with very large keys.
+            if (key.length < 0xffff) {
+                dout.writeByte(type);
+                dout.writeLong(nodeId);
+                dout.writeShort(key.length);
+                dout.write(key);
+            }
+        });
+
+        // Terminator.
+        dout.writeByte(NodePrimer.END);
+    }
+
+    /**
+     * Searches towards the given key, loading any nodes which aren't cached, but without
+     * locking or loading any values. The search stops at the node with the given identifier
+     * or at a leaf node. When not priming a leaf node, the search stops at the bottom
+     * internal node.
+     *
+     * @return the number of nodes which were loaded
+     */
+    final int primeNode(byte[] key, long nodeId, boolean leaf) throws IOException {
+        Node node = mRoot;
+        node.acquireShared();
+
+        int loaded = 0;
+
+        while (node.id() != nodeId && !node.isLeaf() && (leaf || !node.isBottomInternal())) {
+            int childPos;
+            try {
+                childPos = Node.internalPos(node.binarySearch(key));
+            } catch (Throwable e) {
+                node.releaseShared();
+                throw e;
+            }
+
+            long childId = node.childId(childPos);
+            Node childNode = mDatabase.nodeMapGetShared(childId);
+
+            if (childNode != null) {
+                node.releaseShared();
+                node = childNode;
+            } else {
+                node = node.loadChild(mDatabase, childId, Node.OPTION_PARENT_RELEASE_SHARED);
+                loaded++;
+            }
+
+            if (node.mSplit != null) {
+                node = node.mSplit.selectNode(node, key);
+            }
+        }
+
+        node.releaseShared();
+
+        return loaded;
+    }
+
     static void skipCachePrimer(DataInput din) throws IOException {
         while (true) {
             int len = din.readUnsignedShort();
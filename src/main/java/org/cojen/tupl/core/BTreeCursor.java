@@ -4097,7 +4097,7 @@ public class BTreeCursor extends CoreValueAccessor implements Cursor {
         frame.mNode = next;
         frame.mNodePos = 0;
         next.mLastCursorFrame = frame;
-        next.type((byte) (next.type() | Node.LOW_EXTREMITY));
+        next.retype((byte) (next.type() | Node.LOW_EXTREMITY));
         next.releaseExclusive();
 
         db.finishDeleteNode(node);
@@ -4231,7 +4231,7 @@ public class BTreeCursor extends CoreValueAccessor implements Cursor {
         frame.mNode = previous;
         frame.mNodePos = previous.highestPos();
         previous.mLastCursorFrame = frame;
-        previous.type((byte) (previous.type() | Node.HIGH_EXTREMITY));
+        previous.retype((byte) (previous.type() | Node.HIGH_EXTREMITY));
         previous.releaseExclusive();
 
         db.finishDeleteNode(node);
@@ -4641,20 +4641,8 @@ public class BTreeCursor extends CoreValueAccessor implements Cursor {
             Node tnode = notSplitDirty(tleaf);
 
             try {
-                final var spageAddr = source.mPageAddr;
-                final int sloc = p_ushortGetLE(spageAddr, source.searchVecStart());
-                final int encodedLen = Node.leafEntryLengthAtLoc(spageAddr, sloc);
-
-                final int tpos = tleaf.mNodePos;
-                // Pass a null frame to disable rebalancing. It's not useful here, and it
-                // interferes with the neighboring subtrees.
-                final int tloc = tnode.createLeafEntry(null, mTree, tpos, encodedLen);
-
-                if (tloc < 0) {
-                    tnode.splitLeafAscendingAndCopyEntry(mTree, source, 0, encodedLen);
+                if (tnode.transferLeafEntry(mTree, tleaf.mNodePos, source, 0)) {
                     tnode = mTree.finishSplitCritical(tleaf, tnode);
-                } else {
-                    p_copy(spageAddr, sloc, tnode.mPageAddr, tloc, encodedLen);
                 }
 
                 // Prepare for next append.
@@ -4704,16 +4692,8 @@ public class BTreeCursor extends CoreValueAccessor implements Cursor {
                     final int sloc = p_ushortGetLE(spageAddr, snode.searchVecStart() + spos);
                     final int encodedLen = Node.leafEntryLengthAtLoc(spageAddr, sloc);
 
-                    final int tpos = tleaf.mNodePos;
-                    // Pass a null frame to disable rebalancing. It's not useful here, and it
-                    // interferes with the neighboring subtrees.
-                    final int tloc = tnode.createLeafEntry(null, mTree, tpos, encodedLen);
-
-                    if (tloc < 0) {
-                        tnode.splitLeafAscendingAndCopyEntry(mTree, snode, spos, encodedLen);
+                    if (tnode.transferLeafEntry(mTree, tleaf.mNodePos, snode, spos)) {
                         tnode = mTree.finishSplitCritical(tleaf, tnode);
-                    } else {
-                        p_copy(spageAddr, sloc, tnode.mPageAddr, tloc, encodedLen);
                     }
 
                     // Prepare for next append.
@@ -5743,7 +5723,8 @@ public class BTreeCursor extends CoreValueAccessor implements Cursor {
                     rightAvail = nodeAvail;
                 }
 
-                int rem = leftAvail + rightAvail - pageSize() + Node.TN_HEADER_SIZE;
+                int rem = (leftNode == null || rightNode == null) ? -1
+                    : Node.leafMergeRemaining(leftNode, rightNode);
 
                 if (rem >= 0) {
                     // Enough space will remain in the selected node, so proceed with merge.
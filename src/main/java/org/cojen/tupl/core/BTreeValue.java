@@ -73,10 +73,15 @@ final class BTreeValue {
             header = p_byteGet(pageAddr, loc++);
             if (header >= 0) {
                 // Not fragmented.
-                return pos >= (header + 1) ? -2 : -1;
+                return pos >= (node.keyPrefixLength() + header + 1) ? -2 : -1;
             }
 
             len = ((header & 0x3f) << 8) | p_ubyteGet(pageAddr, loc++);
+
+            if ((header & Node.ENTRY_FRAGMENTED) == 0) {
+                // Not fragmented, and the stored key doesn't include the key prefix.
+                return pos >= (node.keyPrefixLength() + len) ? -2 : -1;
+            }
         } else {
             // Skip the key.
             loc += Node.keyLengthAtLoc(pageAddr, loc);
@@ -499,9 +504,8 @@ final class BTreeValue {
                                 BTree tree = cursor.mTree;
                                 if (txn != null) {
                                     // Copy whole entry into undo log.
-                                    txn.pushUndoStore(tree.mId, UndoLog.OP_UNUPDATE,
-                                                      pageAddr, kHeaderLoc,
-                                                      loc + vLen - kHeaderLoc);
+                                    node.txnPushUndoStore(txn, tree.mId, UndoLog.OP_UNUPDATE,
+                                                          kHeaderLoc, loc + vLen - kHeaderLoc);
                                 }
                                 node.updateLeafValue(tree, nodePos, 0, b);
                             } catch (Throwable e) {
@@ -1801,8 +1805,10 @@ final class BTreeValue {
         throws IOException
     {
         final int fOffset = fHeaderLoc - kHeaderLoc;
-        final long newEntryLen = fOffset + vLen + growth;
         final Node node = frame.mNode;
+        // The maximum entry size applies to the full key, with the key prefix restored.
+        final long newEntryLen = fOffset + vLen + growth
+            + Node.keyPrefixGrowth(node.mPageAddr, kHeaderLoc, 0);
 
         if (newEntryLen > node.getDatabase().mMaxFragmentedEntrySize) {
             compactDirectFormat(cursor, frame, kHeaderLoc, vHeaderLoc, vLen, fHeaderLoc);
@@ -1889,8 +1895,10 @@ final class BTreeValue {
         throws IOException
     {
         int fOffset = fHeaderLoc - kHeaderLoc;
-        final long newEntryLen = fOffset + vLen + growth;
         final Node node = frame.mNode;
+        // The maximum entry size applies to the full key, with the key prefix restored.
+        final long newEntryLen = fOffset + vLen + growth
+            + Node.keyPrefixGrowth(node.mPageAddr, kHeaderLoc, 0);
 
         if (newEntryLen > node.getDatabase().mMaxFragmentedEntrySize) {
             compactDirectFormat(cursor, frame, kHeaderLoc, vHeaderLoc, vLen, fHeaderLoc);
@@ -1998,7 +2006,8 @@ final class BTreeValue {
                 byte[] newValue;
                 try {
                     byte[] fullValue = db.reconstruct(pageAddr, fHeaderLoc, vLen);
-                    int max = db.mMaxFragmentedEntrySize - (vHeaderLoc - kHeaderLoc);
+                    int max = db.mMaxFragmentedEntrySize - (vHeaderLoc - kHeaderLoc)
+                        - Node.keyPrefixGrowth(pageAddr, kHeaderLoc, 0);
                     // Encode it this time without any inline content.
                     newValue = db.fragment(fullValue, fullValue.length, max, 0);
                 } catch (Throwable e) {
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Tracks the amount of cached nodes which belong to an index, in order to enforce a minimum
+ * and maximum share of the cache. Nodes are assigned the quota of the node which they were
+ * loaded from, starting with the root node, and so only the nodes of the index are counted.
+ *
+ * <p>The minimum is enforced by passing over the nodes of the index when selecting a node
+ * to evict, as long as the index isn't using more than the minimum. Pinned internal nodes
+ * are always passed over. The maximum is enforced by moving new nodes to the least recently
+ * used position, and so the nodes of an index which is over the quota are evicted first.
+ *
+ * @author Brian S O'Neill
+ * @see NodeGroup#tryAllocLatchedNode
+ */
+final class CacheQuota {
+    /**
+     * Quota settings as configured, before the page size is known.
+     */
+    record Spec(long minBytes, long maxBytes, boolean pinInternal) { }
+
+    private static final VarHandle cSizeHandle;
+
+    static {
+        try {
+            cSizeHandle = MethodHandles.lookup().findVarHandle
+                (CacheQuota.class, "mSize", long.class);
+        } catch (Throwable e) {
+            throw Utils.rethrow(e);
+        }
+    }
+
+    private final long mMinNodes, mMaxNodes;
+    private final boolean mPinInternal;
+
+    // Is false when the index is closed, which releases the reservation.
+    private volatile boolean mOpen;
+
+    // Count of cached nodes, updated atomically.
+    private long mSize;
+
+    CacheQuota(Spec spec, int pageSize) {
+        mMinNodes = spec.minBytes() / pageSize;
+        mMaxNodes = spec.maxBytes() / pageSize;
+        mPinInternal = spec.pinInternal();
+    }
+
+    void opened() {
+        mOpen = true;
+    }
+
+    void closed() {
+        mOpen = false;
+    }
+
+    void added() {
+        cSizeHandle.getAndAdd(this, 1L);
+    }
+
+    void removed() {
+        cSizeHandle.getAndAdd(this, -1L);
+    }
+
+    /**
+     * Returns the current count of cached nodes.
+     */
+    long size() {
+        return (long) cSizeHandle.getOpaque(this);
+    }
+
+    /**
+     * Returns true if the given node must not be evicted. Caller must hold a latch on the
+     * node.
+     */
+    boolean retain(Node node) {
+        return mOpen && ((mPinInternal && node.isInternal()) || size() <= mMinNodes);
+    }
+
+    /**
+     * Returns true if the index is using more than its maximum share of the cache.
+     */
+    boolean isOver() {
+        return size() > mMaxNodes;
+    }
+}
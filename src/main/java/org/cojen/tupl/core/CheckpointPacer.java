@@ -0,0 +1,196 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cojen.tupl.diag.DatabaseStats;
+import org.cojen.tupl.diag.EventListener;
+import org.cojen.tupl.diag.EventType;
+
+/**
+ * Limits the rate at which automatic checkpoints flush dirty nodes, spreading the writes out
+ * over time instead of issuing them all at once. The rate is raised to match the rate at
+ * which the redo log grew since the previous checkpoint, so that checkpoints keep up with
+ * the write load. Pacing is abandoned when another checkpoint is requested explicitly, or
+ * when the flushing thread is interrupted.
+ *
+ * @author Brian S O'Neill
+ * @see org.cojen.tupl.DatabaseConfig#checkpointPaceRate
+ */
+final class CheckpointPacer {
+    // Minimum time between progress events.
+    private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long mTargetRate;
+    private final EventListener mEventListener;
+
+    // The remaining fields are guarded by synchronization.
+
+    private long mLastStartNanos;
+    private long mLastRedoPos;
+
+    // Count of unpaced checkpoints which are running or waiting for the current one to finish.
+    private int mHurry;
+
+    // Current rate in bytes per second, or 0 if not pacing.
+    private long mRate;
+    private long mStartNanos;
+    private long mDirtyPages;
+    private long mFlushedPages;
+    private long mFlushedBytes;
+    private long mDelayNanos;
+    private long mLastProgressNanos;
+
+    /**
+     * @param targetRate minimum rate in bytes per second
+     * @param listener optional
+     */
+    CheckpointPacer(long targetRate, EventListener listener) {
+        mTargetRate = targetRate;
+        mEventListener = listener;
+    }
+
+    /**
+     * Called when a checkpoint is about to flush dirty nodes.
+     *
+     * @param paced false if the flush should run at full speed
+     * @param dirtyPages estimated amount of pages to flush
+     * @param redoPos current redo log position
+     */
+    synchronized void begin(boolean paced, long dirtyPages, long redoPos) {
+        long now = System.nanoTime();
+
+        long rate = 0;
+
+        if (paced && mTargetRate > 0 && mHurry == 0) {
+            rate = mTargetRate;
+            long elapsed = now - mLastStartNanos;
+            if (mLastStartNanos != 0 && redoPos > mLastRedoPos && elapsed > 0) {
+                double redoRate = (redoPos - mLastRedoPos) * 1_000_000_000.0 / elapsed;
+                rate = Math.max(rate, (long) Math.min(redoRate, Long.MAX_VALUE));
+            }
+        }
+
+        mLastStartNanos = now;
+        mLastRedoPos = redoPos;
+
+        mRate = rate;
+        mStartNanos = now;
+        mDirtyPages = dirtyPages;
+        mFlushedPages = 0;
+        mFlushedBytes = 0;
+        mDelayNanos = 0;
+        mLastProgressNanos = now;
+    }
+
+    /**
+     * Called when the checkpoint flush has finished.
+     */
+    synchronized void end() {
+        mRate = 0;
+    }
+
+    /**
+     * Stop pacing the current checkpoint, allowing it to finish as soon as possible. Pacing
+     * remains disabled until a matching call to endHurry is made.
+     */
+    synchronized void hurry() {
+        mRate = 0;
+        mHurry++;
+        notifyAll();
+    }
+
+    /**
+     * Called when an unpaced checkpoint has finished, whether or not it flushed anything.
+     */
+    synchronized void endHurry() {
+        mHurry--;
+    }
+
+    /**
+     * Called after pages have been written, and delays the caller if the pages were written
+     * too soon. Caller must not hold any latches.
+     */
+    void flushed(int pages, long bytes) {
+        long delayNanos, rate, flushedPages, dirtyPages;
+        boolean progress;
+
+        synchronized (this) {
+            flushedPages = mFlushedPages += pages;
+            mFlushedBytes += bytes;
+
+            rate = mRate;
+            if (rate <= 0) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            long dueNanos = mStartNanos + (long) (mFlushedBytes * 1_000_000_000.0 / rate);
+            delayNanos = dueNanos - now;
+
+            if (progress = (now - mLastProgressNanos) >= PROGRESS_NANOS) {
+                mLastProgressNanos = now;
+            }
+
+            dirtyPages = Math.max(flushedPages, mDirtyPages);
+        }
+
+        if (progress && mEventListener != null) {
+            mEventListener.notify(EventType.CHECKPOINT_PROGRESS,
+                                  "Checkpoint flushed %1$d of %2$d pages at %3$d bytes/second",
+                                  flushedPages, dirtyPages, rate);
+        }
+
+        if (delayNanos > 0) {
+            delay(delayNanos);
+        }
+    }
+
+    private void delay(long delayNanos) {
+        long start = System.nanoTime();
+        long end = start + delayNanos;
+
+        synchronized (this) {
+            while (mRate > 0) {
+                long remaining = end - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    // Database is closing, so finish without any more delays. Don't restore
+                    // the interrupt status, since it can cause file channels to be closed.
+                    mRate = 0;
+                    break;
+                }
+            }
+            mDelayNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Adds the pacing statistics of the current or last checkpoint.
+     */
+    synchronized void addStats(DatabaseStats stats) {
+        stats.checkpointPaceRate = mRate;
+        stats.checkpointFlushedPages = mFlushedPages;
+        stats.checkpointPaceDelay = mDelayNanos / 1_000_000;
+    }
+}
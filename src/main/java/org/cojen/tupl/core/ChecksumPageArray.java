@@ -86,6 +86,11 @@ abstract class ChecksumPageArray extends TransformedPageArray {
         mSource.expandPageCount(count);
     }
 
+    @Override
+    public int batchSize() {
+        return mSource.batchSize();
+    }
+
     @Override
     public void sync(boolean metadata) throws IOException {
         mSource.sync(metadata);
@@ -170,6 +175,64 @@ abstract class ChecksumPageArray extends TransformedPageArray {
             }
         }
 
+        @Override
+        public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+            int length = pageSize();
+            long fullLength = length + 4;
+
+            try (Arena a = Arena.ofConfined()) {
+                MemorySegment batch = a.allocate(fullLength * count);
+                var srcAddrs = new long[count];
+                for (int i=0; i<count; i++) {
+                    srcAddrs[i] = batch.address() + i * fullLength;
+                }
+
+                mSource.readPages(indexes, srcAddrs, count);
+
+                LocalPool.Entry<BufRef> e = mBufRefPool.access();
+                try {
+                    Checksum checksum = e.get().mChecksum;
+                    for (int i=0; i<count; i++) {
+                        MemorySegment page = batch.asSlice(i * fullLength, fullLength);
+                        checksum.reset();
+                        checksum.update(page.asByteBuffer().limit(length));
+                        check(indexes[i], page.get(INT_LE, length), checksum);
+                        MemorySegment.copy(page, 0, DirectMemory.ALL, dstAddrs[i], length);
+                    }
+                } finally {
+                    e.release();
+                }
+            }
+        }
+
+        @Override
+        public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+            int length = pageSize();
+            long fullLength = length + 4;
+
+            try (Arena a = Arena.ofConfined()) {
+                MemorySegment batch = a.allocate(fullLength * count);
+                var batchAddrs = new long[count];
+
+                LocalPool.Entry<BufRef> e = mBufRefPool.access();
+                try {
+                    Checksum checksum = e.get().mChecksum;
+                    for (int i=0; i<count; i++) {
+                        MemorySegment page = batch.asSlice(i * fullLength, fullLength);
+                        MemorySegment.copy(DirectMemory.ALL, srcAddrs[i], page, 0, length);
+                        checksum.reset();
+                        checksum.update(page.asByteBuffer().limit(length));
+                        page.set(INT_LE, length, (int) checksum.getValue());
+                        batchAddrs[i] = page.address();
+                    }
+                } finally {
+                    e.release();
+                }
+
+                mSource.writePages(indexes, batchAddrs, count);
+            }
+        }
+
         /**
          * @param length must be equal to pageSize (which is source pageSize - 4)
          */
@@ -227,16 +290,10 @@ abstract class ChecksumPageArray extends TransformedPageArray {
                 }
             } else {
                 // Assume that the caller has provided a buffer sized to match the direct page.
-                int pageSize = mAbsPageSize;
-                mSource.readPage(index, dstAddr, offset, pageSize);
-                MemorySegment ms = MemorySegment.ofAddress(dstAddr + offset).reinterpret(pageSize);
-                int storedChecksum = ms.get(INT_LE, length);
+                mSource.readPage(index, dstAddr, offset, mAbsPageSize);
                 LocalPool.Entry<? extends Checksum> entry = mLocalChecksum.access();
                 try {
-                    Checksum checksum = entry.get();
-                    checksum.reset();
-                    checksum.update(ms.asByteBuffer().limit(length));
-                    check(index, storedChecksum, checksum);
+                    verify(entry.get(), index, dstAddr + offset);
                 } finally {
                     entry.release();
                 }
@@ -246,19 +303,61 @@ abstract class ChecksumPageArray extends TransformedPageArray {
         @Override
         public void writePage(long index, long srcAddr, int offset) throws IOException {
             // Assume that the caller has provided a buffer sized to match the direct page.
-            int pageSize = mAbsPageSize;
-            MemorySegment ms = MemorySegment.ofAddress(srcAddr + offset).reinterpret(pageSize);
-            pageSize -= 4;
             LocalPool.Entry<? extends Checksum> entry = mLocalChecksum.access();
             try {
-                Checksum checksum = entry.get();
-                checksum.reset();
-                checksum.update(ms.asByteBuffer().limit(pageSize));
-                ms.set(INT_LE, pageSize, (int) checksum.getValue());
+                applyChecksum(entry.get(), srcAddr + offset);
             } finally {
                 entry.release();
             }
             mSource.writePage(index, srcAddr, offset);
         }
+
+        @Override
+        public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+            // Assume that the caller has provided buffers sized to match the direct page.
+            mSource.readPages(indexes, dstAddrs, count);
+            LocalPool.Entry<? extends Checksum> entry = mLocalChecksum.access();
+            try {
+                Checksum checksum = entry.get();
+                for (int i=0; i<count; i++) {
+                    verify(checksum, indexes[i], dstAddrs[i]);
+                }
+            } finally {
+                entry.release();
+            }
+        }
+
+        @Override
+        public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+            // Assume that the caller has provided buffers sized to match the direct page.
+            LocalPool.Entry<? extends Checksum> entry = mLocalChecksum.access();
+            try {
+                Checksum checksum = entry.get();
+                for (int i=0; i<count; i++) {
+                    applyChecksum(checksum, srcAddrs[i]);
+                }
+            } finally {
+                entry.release();
+            }
+            mSource.writePages(indexes, srcAddrs, count);
+        }
+
+        private void verify(Checksum checksum, long index, long pageAddr)
+            throws ChecksumException
+        {
+            int length = mAbsPageSize - 4;
+            MemorySegment ms = MemorySegment.ofAddress(pageAddr).reinterpret(mAbsPageSize);
+            checksum.reset();
+            checksum.update(ms.asByteBuffer().limit(length));
+            check(index, ms.get(INT_LE, length), checksum);
+        }
+
+        private void applyChecksum(Checksum checksum, long pageAddr) {
+            int length = mAbsPageSize - 4;
+            MemorySegment ms = MemorySegment.ofAddress(pageAddr).reinterpret(mAbsPageSize);
+            checksum.reset();
+            checksum.update(ms.asByteBuffer().limit(length));
+            ms.set(INT_LE, length, (int) checksum.getValue());
+        }
     }
 }
@@ -19,6 +19,9 @@ package org.cojen.tupl.core;
 
 import java.io.IOException;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
 import java.nio.channels.ClosedChannelException;
 
 import java.security.GeneralSecurityException;
@@ -143,6 +146,42 @@ final class CryptoPageArray extends TransformedPageArray implements Supplier<Lon
         }
     }
 
+    @Override
+    public int batchSize() {
+        return mSource.batchSize();
+    }
+
+    @Override
+    public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+        mSource.readPages(indexes, dstAddrs, count);
+        try {
+            for (int i=0; i<count; i++) {
+                mCrypto.decryptPage(indexes[i], pageSize(), dstAddrs[i], 0);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new CorruptDatabaseException(e);
+        }
+    }
+
+    @Override
+    public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+        int pageSize = pageSize();
+
+        // It's unknown if the source contents can be destroyed, so encrypt into a copy.
+        try (Arena a = Arena.ofConfined()) {
+            MemorySegment batch = a.allocate((long) pageSize * count, SysInfo.pageSize());
+            var encryptedAddrs = new long[count];
+            for (int i=0; i<count; i++) {
+                long encryptedAddr = batch.address() + (long) pageSize * i;
+                mCrypto.encryptPage(indexes[i], pageSize, srcAddrs[i], 0, encryptedAddr, 0);
+                encryptedAddrs[i] = encryptedAddr;
+            }
+            mSource.writePages(indexes, encryptedAddrs, count);
+        } catch (GeneralSecurityException e) {
+            throw new CorruptDatabaseException(e);
+        }
+    }
+
     @Override
     public long evictPage(long index, long bufAddr) throws IOException {
         try {
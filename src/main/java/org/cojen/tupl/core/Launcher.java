@@ -33,6 +33,7 @@ import java.util.function.Supplier;
 
 import java.util.zip.Checksum;
 
+import org.cojen.tupl.CacheReplacementPolicy;
 import org.cojen.tupl.DatabaseException;
 import org.cojen.tupl.DurabilityMode;
 import org.cojen.tupl.LockUpgradeRule;
@@ -69,25 +70,34 @@ public final class Launcher implements Cloneable {
     boolean mMkdirs;
     File[] mDataFiles;
     boolean mMapDataFiles;
+    boolean mIoUring;
     PageArray mDataPageArray;
     long mMinCacheBytes;
     long mMaxCacheBytes;
+    CacheReplacementPolicy mCacheReplacementPolicy;
+    boolean mKeyPrefixCompression;
     DurabilityMode mDurabilityMode;
+    long mGroupCommitDelayNanos;
     LockUpgradeRule mLockUpgradeRule;
     long mLockTimeoutNanos;
     long mCheckpointRateNanos;
     long mCheckpointSizeThreshold;
     long mCheckpointDelayThresholdNanos;
     int mMaxCheckpointThreads;
+    long mCheckpointPaceRate;
     EventListener mEventListener;
     boolean mFileSync;
     boolean mReadOnly;
     int mPageSize;
     boolean mCachePriming;
+    int mCachePrimingThreads;
+    long mCachePrimingLimit;
+    Map<String, CacheQuota.Spec> mCacheQuotas;
     boolean mCleanShutdown;
     ReplicatorConfig mReplConfig;
     StreamReplicator mRepl;
     int mMaxReplicaThreads;
+    boolean mPartitionReplicaApply;
     boolean mEnableJMX;
     Crypto mDataCrypto;
     Crypto mRedoCrypto;
@@ -122,6 +132,7 @@ public final class Launcher implements Cloneable {
 
     public Launcher() {
         createFilePath(true);
+        cacheReplacementPolicy(null);
         durabilityMode(null);
         lockTimeout(1, TimeUnit.SECONDS);
         checkpointRate(1, TimeUnit.SECONDS);
@@ -150,6 +161,10 @@ public final class Launcher implements Cloneable {
         mMapDataFiles = mapped;
     }
 
+    public void ioUring(boolean enabled) {
+        mIoUring = enabled;
+    }
+
     public void dataPageArray(PageArray array) {
         mDataPageArray = array;
         if (array != null) {
@@ -171,6 +186,17 @@ public final class Launcher implements Cloneable {
         mMaxCacheBytes = maxBytes;
     }
 
+    public void cacheReplacementPolicy(CacheReplacementPolicy policy) {
+        if (policy == null) {
+            policy = CacheReplacementPolicy.LRU;
+        }
+        mCacheReplacementPolicy = policy;
+    }
+
+    public void keyPrefixCompression(boolean enabled) {
+        mKeyPrefixCompression = enabled;
+    }
+
     public void durabilityMode(DurabilityMode durabilityMode) {
         if (durabilityMode == null) {
             durabilityMode = DurabilityMode.SYNC;
@@ -178,6 +204,10 @@ public final class Launcher implements Cloneable {
         mDurabilityMode = durabilityMode;
     }
 
+    public void groupCommitDelay(long delay, TimeUnit unit) {
+        mGroupCommitDelayNanos = toNanos(delay, unit);
+    }
+
     public void lockUpgradeRule(LockUpgradeRule lockUpgradeRule) {
         if (lockUpgradeRule == null) {
             lockUpgradeRule = LockUpgradeRule.STRICT;
@@ -205,6 +235,10 @@ public final class Launcher implements Cloneable {
         mMaxCheckpointThreads = num;
     }
 
+    public void checkpointPaceRate(long bytesPerSecond) {
+        mCheckpointPaceRate = bytesPerSecond;
+    }
+
     public void eventListener(EventListener listener) {
         mEventListener = listener;
     }
@@ -236,6 +270,30 @@ public final class Launcher implements Cloneable {
         mCachePriming = priming;
     }
 
+    public void cachePrimingThreads(int threads) {
+        mCachePrimingThreads = threads;
+    }
+
+    public void cachePrimingLimit(long bytes) {
+        mCachePrimingLimit = bytes;
+    }
+
+    public void cacheQuota(String indexName, long minBytes, long maxBytes,
+                           boolean pinInternalNodes)
+    {
+        if (minBytes < 0 || maxBytes < minBytes) {
+            throw new IllegalArgumentException
+                ("Illegal cache quota: " + minBytes + ", " + maxBytes);
+        }
+        // Copy the map, since it's shared with any clones.
+        var quotas = new HashMap<String, CacheQuota.Spec>();
+        if (mCacheQuotas != null) {
+            quotas.putAll(mCacheQuotas);
+        }
+        quotas.put(indexName, new CacheQuota.Spec(minBytes, maxBytes, pinInternalNodes));
+        mCacheQuotas = quotas;
+    }
+
     public void cleanShutdown(boolean shutdown) {
         mCleanShutdown = shutdown;
     }
@@ -254,6 +312,10 @@ public final class Launcher implements Cloneable {
         mMaxReplicaThreads = num;
     }
 
+    public void partitionReplicaApply(boolean partition) {
+        mPartitionReplicaApply = partition;
+    }
+
     public void enableJMX(boolean enable) {
         mEnableJMX = enable;
     }
@@ -386,6 +448,9 @@ public final class Launcher implements Cloneable {
         if (mMapDataFiles) {
             options.add(OpenOption.MAPPED);
         }
+        if (mIoUring) {
+            options.add(OpenOption.IO_URING);
+        }
         if (mMkdirs) {
             options.add(OpenOption.CREATE);
         }
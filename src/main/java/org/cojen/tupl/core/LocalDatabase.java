@@ -48,6 +48,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
@@ -108,6 +109,7 @@ import org.cojen.tupl.io.PageArray;
 
 import org.cojen.tupl.repl.StreamReplicator;
 
+import org.cojen.tupl.table.QueryPlanCache;
 import org.cojen.tupl.table.RowStore;
 
 import org.cojen.tupl.util.Latch;
@@ -131,6 +133,7 @@ public final class LocalDatabase implements Database {
     private static final int MIN_CACHE_NODES = 5;
 
     private static final long PRIMER_MAGIC_NUMBER = 4943712973215968399L;
+    private static final long NODE_PRIMER_MAGIC_NUMBER = 4943712973215968400L;
 
     private static final String LOCK_FILE_SUFFIX = ".lock";
     static final String PRIMER_FILE_SUFFIX = ".primer";
@@ -188,7 +191,8 @@ public final class LocalDatabase implements Database {
     private static final int MINIMUM_PAGE_SIZE = 512;
     private static final int MAXIMUM_PAGE_SIZE = 65536;
 
-    private final int mEncodingVersion;
+    // Is only changed when opening, if the database was written with key prefix compression.
+    private int mEncodingVersion;
 
     final EventListener mEventListener;
 
@@ -261,6 +265,16 @@ public final class LocalDatabase implements Database {
     final int mMaxKeySize;
     final int mMaxEntrySize;
     final int mMaxFragmentedEntrySize;
+    final int mMaxKeyPrefixLength;
+
+    // Limits which are applied when loading nodes from a cache primer.
+    private final int mCachePrimingThreads;
+    private final long mCachePrimingLimit;
+
+    // Maps index names to cache quotas, or is null if none.
+    private final Map<String, CacheQuota> mCacheQuotas;
+
+    final CheckpointPacer mCheckpointPacer;
 
     // Fragmented values which are transactionally deleted go here.
     private BTree mFragmentedTrash;
@@ -300,6 +314,8 @@ public final class LocalDatabase implements Database {
 
     private RowStore mRowStore;
 
+    private final QueryPlanCache mQueryPlanCache;
+
     private volatile Servers mServers;
 
     private volatile int mClosed;
@@ -390,7 +406,7 @@ public final class LocalDatabase implements Database {
             throw new IllegalArgumentException("Page size must be even: " + pageSize);
         }
 
-        mEncodingVersion = launcher.mBasicMode ? 20130113 : 20130112;
+        mEncodingVersion = encodingVersion(launcher.mBasicMode, launcher.mKeyPrefixCompression);
 
         launcher.mEventListener = mEventListener = 
             SafeEventListener.makeSafe(launcher.mEventListener);
@@ -406,6 +422,8 @@ public final class LocalDatabase implements Database {
         mPrepareHandlers = Launcher.mapClone(launcher.mPrepareHandlers);
         mPrepareHandlersById = Launcher.newByIdMap(mPrepareHandlers);
 
+        mQueryPlanCache = new QueryPlanCache();
+
         mBaseFile = launcher.mBaseFile;
         mReadOnly = launcher.mReadOnly;
         final File[] dataFiles = launcher.dataFiles();
@@ -534,6 +552,24 @@ public final class LocalDatabase implements Database {
                 maxCache = Math.max(MIN_CACHE_NODES, maxCache);
             }
 
+            mCachePrimingThreads = launcher.mCachePrimingThreads > 0
+                ? launcher.mCachePrimingThreads : Runtime.getRuntime().availableProcessors() * 8;
+
+            // Loading more than the cache can hold would just evict the primed nodes.
+            mCachePrimingLimit = Math.min(maxCache * (long) pageSize,
+                launcher.mCachePrimingLimit > 0 ? launcher.mCachePrimingLimit : Long.MAX_VALUE);
+
+            if (launcher.mCacheQuotas == null) {
+                mCacheQuotas = null;
+            } else {
+                mCacheQuotas = new HashMap<>();
+                for (var e : launcher.mCacheQuotas.entrySet()) {
+                    mCacheQuotas.put(e.getKey(), new CacheQuota(e.getValue(), pageSize));
+                }
+            }
+
+            mCheckpointPacer = new CheckpointPacer(launcher.mCheckpointPaceRate, mEventListener);
+
             // Pre-allocate nodes. They are automatically added to the node group usage lists,
             // and so nothing special needs to be done to allow them to get used. Since the
             // initial state is clean, evicting these nodes does nothing.
@@ -604,7 +640,8 @@ public final class LocalDatabase implements Database {
                         size++;
                         rem--;
                     }
-                    groups[i] = new NodeGroup(this, usedRate, size);
+                    groups[i] = new NodeGroup
+                        (this, usedRate, size, launcher.mCacheReplacementPolicy);
                 }
 
                 stripeSize = minCache / stripes;
@@ -714,12 +751,22 @@ public final class LocalDatabase implements Database {
                 cursorRegistry = openInternalTree(BTree.CURSOR_REGISTRY_ID, false, launcher);
             }
 
+            // Leaf node key prefixes are limited to 1/16 of the page size, and the space
+            // they might occupy isn't usable by entries.
+            int usable = pageSize - Node.TN_HEADER_SIZE;
+            if (launcher.mKeyPrefixCompression) {
+                mMaxKeyPrefixLength = Math.min(255, pageSize >> 4);
+                usable -= (mMaxKeyPrefixLength + 1) & ~1;
+            } else {
+                mMaxKeyPrefixLength = 0;
+            }
+
             // Limit maximum non-fragmented entry size to 0.75 of usable node size.
-            mMaxEntrySize = ((pageSize - Node.TN_HEADER_SIZE) * 3) >> 2;
+            mMaxEntrySize = (usable * 3) >> 2;
 
             // Limit maximum fragmented entry size to guarantee that 2 entries fit. Each also
             // requires 2 bytes for pointer and up to 3 bytes for value length field.
-            mMaxFragmentedEntrySize = (pageSize - Node.TN_HEADER_SIZE - (2 + 3 + 2 + 3)) >> 1;
+            mMaxFragmentedEntrySize = (usable - (2 + 3 + 2 + 3)) >> 1;
 
             // Limit the maximum key size to allow enough room for a fragmented value. It might
             // require up to 11 bytes for fragment encoding (when length is >= 65536), and
@@ -817,7 +864,7 @@ public final class LocalDatabase implements Database {
                         base = java.util.UUID.randomUUID().toString();
                     }
 
-                    org.cojen.tupl.jmx.Registration.register(this, base);
+                    org.cojen.tupl.jmx.Registration.register(this, base, mQueryPlanCache);
                 }
 
                 // Must tag the trashed trees before starting replication and recovery.
@@ -844,7 +891,8 @@ public final class LocalDatabase implements Database {
                         }
                     } else {
                         var engine = new ReplEngine
-                            (repl, launcher.mMaxReplicaThreads, this, txns, cursors);
+                            (repl, launcher.mMaxReplicaThreads, launcher.mPartitionReplicaApply,
+                             this, txns, cursors);
                         mRedoWriter = engine.initWriter(redoNum);
 
                         // Cannot start recovery until constructor is finished and final field
@@ -2463,13 +2511,13 @@ public final class LocalDatabase implements Database {
             dout = new DataOutputStream(out);
         }
 
-        dout.writeLong(PRIMER_MAGIC_NUMBER);
+        dout.writeLong(NODE_PRIMER_MAGIC_NUMBER);
 
         for (BTreeRef treeRef : mOpenTrees.values()) {
             BTree tree = treeRef.get();
             // TODO: Doesn't work for anonymous indexes. The written name is empty and useless.
             if (tree != null && !BTree.isInternal(tree.id())) {
-                tree.writeCachePrimer(dout);
+                tree.writeNodePrimer(dout);
             }
         }
 
@@ -2494,6 +2542,22 @@ public final class LocalDatabase implements Database {
             }
 
             long magic = din.readLong();
+
+            if (magic == NODE_PRIMER_MAGIC_NUMBER) {
+                var primer = new NodePrimer();
+                while (true) {
+                    int len = din.readInt();
+                    if (len < 0) {
+                        break;
+                    }
+                    var name = new byte[len];
+                    din.readFully(name);
+                    primer.read(openTree(name, false), din);
+                }
+                primer.run(mCachePrimingThreads, mCachePrimingLimit / mPageSize);
+                return;
+            }
+
             if (magic != PRIMER_MAGIC_NUMBER) {
                 throw new DatabaseException("Wrong cache primer magic number: " + magic);
             }
@@ -2603,7 +2667,18 @@ public final class LocalDatabase implements Database {
             if (group != null) { // is null if closed
                 stats.cachePages += group.nodeCount();
                 stats.dirtyPages += group.dirtyCount();
+                stats.cacheHits += group.hitCount();
+                stats.cacheMisses += group.missCount();
+            }
+        }
+
+        Map<String, CacheQuota> quotas = mCacheQuotas;
+        if (quotas != null) {
+            var pages = new TreeMap<String, Long>();
+            for (var e : quotas.entrySet()) {
+                pages.put(e.getKey(), e.getValue().size());
             }
+            stats.indexCachePages = pages;
         }
 
         if (stats.dirtyPages > stats.totalPages) {
@@ -2611,6 +2686,7 @@ public final class LocalDatabase implements Database {
         }
 
         stats.checkpointDuration = mLastCheckpointDurationNanos / 1_000_000;
+        mCheckpointPacer.addStats(stats);
 
         RedoWriter redo = mRedoWriter;
         if (redo != null) {
@@ -2717,7 +2793,7 @@ public final class LocalDatabase implements Database {
      * Called by Checkpointer task.
      */
     boolean checkpoint(long sizeThreshold, long delayThresholdNanos) throws IOException {
-        return checkpoint(0, sizeThreshold, delayThresholdNanos);
+        return checkpoint(0, sizeThreshold, delayThresholdNanos, true);
     }
 
     private boolean forceCheckpoint() throws IOException {
@@ -2730,39 +2806,61 @@ public final class LocalDatabase implements Database {
     private boolean checkpoint(int force, long sizeThreshold, long delayThresholdNanos)
         throws IOException
     {
-        while (!isClosed() && !isCacheOnly() && mCheckpointer != null) {
-            // Checkpoint lock ensures consistent state between page store and logs.
-            mCheckpointLock.lock();
-            try {
-                return doCheckpoint(force, sizeThreshold, delayThresholdNanos);
-            } catch (Throwable e) {
-                if (!isRecoverable(e)) {
-                    // Panic.
-                    closeQuietly(this, e);
-                    throw e;
-                }
+        return checkpoint(force, sizeThreshold, delayThresholdNanos, false);
+    }
+
+    /**
+     * @param force 0: no force, 1: force if not closed, -1: force even if closed
+     * @param paced true if the checkpoint flush can be paced
+     */
+    private boolean checkpoint(int force, long sizeThreshold, long delayThresholdNanos,
+                               boolean paced)
+        throws IOException
+    {
+        if (!paced) {
+            // Don't wait for a paced checkpoint to finish slowly.
+            mCheckpointPacer.hurry();
+        }
 
+        try {
+            while (!isClosed() && !isCacheOnly() && mCheckpointer != null) {
+                // Checkpoint lock ensures consistent state between page store and logs.
+                mCheckpointLock.lock();
                 try {
-                    cleanupMasterUndoLog();
-                } catch (Throwable e2) {
-                    // Panic.
-                    closeQuietly(this, e2);
-                    suppress(e2, e);
-                    throw e2;
-                }
+                    return doCheckpoint(force, sizeThreshold, delayThresholdNanos, paced);
+                } catch (Throwable e) {
+                    if (!isRecoverable(e)) {
+                        // Panic.
+                        closeQuietly(this, e);
+                        throw e;
+                    }
 
-                // Retry and don't rethrow if leadership was lost.
-                if (!(e instanceof UnmodifiableReplicaException)) {
-                    throw e;
+                    try {
+                        cleanupMasterUndoLog();
+                    } catch (Throwable e2) {
+                        // Panic.
+                        closeQuietly(this, e2);
+                        suppress(e2, e);
+                        throw e2;
+                    }
+
+                    // Retry and don't rethrow if leadership was lost.
+                    if (!(e instanceof UnmodifiableReplicaException)) {
+                        throw e;
+                    }
+                } finally {
+                    mCheckpointLock.unlock();
                 }
-            } finally {
-                mCheckpointLock.unlock();
+
+                Thread.yield();
             }
 
-            Thread.yield();
+            return false;
+        } finally {
+            if (!paced) {
+                mCheckpointPacer.endHurry();
+            }
         }
-
-        return false;
     }
 
     @Override
@@ -3061,6 +3159,19 @@ public final class LocalDatabase implements Database {
         return mRedoWriter != null && mRedoWriter.failover();
     }
 
+    @Override
+    public long replicationPosition() {
+        return mRedoWriter == null ? 0 : mRedoWriter.replicationPosition();
+    }
+
+    @Override
+    public boolean awaitPosition(long position, long timeout, TimeUnit unit) throws IOException {
+        if (mRedoWriter == null) {
+            return true;
+        }
+        return mRedoWriter.awaitPosition(position, timeout < 0 ? -1 : unit.toNanos(timeout));
+    }
+
     @Override
     public void close(Throwable cause) throws IOException {
         close(cause, false);
@@ -3183,6 +3294,8 @@ public final class LocalDatabase implements Database {
                         trees.add((BTree) mRowStore.schemata());
                         mRowStore = null;
                     }
+
+                    mQueryPlanCache.clear();
                 } finally {
                     mOpenTreesLatch.releaseExclusive();
                     if (lock != null) {
@@ -3197,9 +3310,10 @@ public final class LocalDatabase implements Database {
                 }
 
                 if (shutdown) {
+                    mCheckpointPacer.hurry();
                     mCheckpointLock.lock();
                     try {
-                        doCheckpoint(-1, 0, 0); // force even if closed
+                        doCheckpoint(-1, 0, 0, false); // force even if closed
                     } catch (Throwable e) {
                         if (shutdown) {
                             // Cannot safely delete the redo log files, and so the shutdown
@@ -3208,6 +3322,7 @@ public final class LocalDatabase implements Database {
                         }
                     } finally {
                         mCheckpointLock.unlock();
+                        mCheckpointPacer.endHurry();
                     }
                 }
 
@@ -3360,6 +3475,7 @@ public final class LocalDatabase implements Database {
                     ref.clear();
                     if (tree.mName != null) {
                         mOpenTrees.remove(tree.mName);
+                        cacheQuotaClosed(tree.mName);
                     }
                     mOpenTreesById.remove(tree.mId);
                 }
@@ -3583,6 +3699,13 @@ public final class LocalDatabase implements Database {
         return rowStore(true);
     }
 
+    /**
+     * @return a non-null QueryPlanCache instance, which is shared by all tables
+     */
+    public QueryPlanCache queryPlanCache() {
+        return mQueryPlanCache;
+    }
+
     /**
      * @param create pass true to create if necessary
      * @return null if create is false and RowStore doesn't exist
@@ -3668,6 +3791,19 @@ public final class LocalDatabase implements Database {
         }
     }
 
+    /**
+     * Returns the encoding version which is written into the database header. Leaf nodes with
+     * compressed key prefixes require a distinct version, which causes older releases to
+     * refuse opening the database rather than failing when such a node is read.
+     */
+    private static int encodingVersion(boolean basicMode, boolean keyPrefixCompression) {
+        if (keyPrefixCompression) {
+            return basicMode ? 20261017 : 20261016;
+        } else {
+            return basicMode ? 20130113 : 20130112;
+        }
+    }
+
     /**
      * Loads the root registry node, or creates one if store is new. Root node
      * is not eligible for eviction.
@@ -3686,7 +3822,15 @@ public final class LocalDatabase implements Database {
             mInitialReadState = CACHED_DIRTY_0;
         } else {
             if (version != mEncodingVersion) {
-                throw new CorruptDatabaseException("Unknown encoding version: " + version);
+                if (version == encodingVersion(launcher.mBasicMode, true)) {
+                    // Leaf nodes can have compressed key prefixes, even though the option
+                    // isn't enabled now. Keep the encoding version which indicates this.
+                    mEncodingVersion = version;
+                } else if (version != encodingVersion(launcher.mBasicMode, false)) {
+                    // Note that when key prefix compression is enabled for the first time,
+                    // the new encoding version is written by the next checkpoint.
+                    throw new CorruptDatabaseException("Unknown encoding version: " + version);
+                }
             }
 
             rootId = decodeLongLE(header, I_ROOT_PAGE_ID);
@@ -4045,9 +4189,35 @@ public final class LocalDatabase implements Database {
             tree = new BTree(this, id, idBytes, root);
         }
         tree.mName = name;
+
+        CacheQuota quota = cacheQuota(name);
+        if (quota != null) {
+            // Nodes loaded from the root inherit the quota.
+            root.acquireExclusive();
+            root.quota(quota);
+            root.releaseExclusive();
+            quota.opened();
+        }
+
         return tree;
     }
 
+    /**
+     * @return null if the named index has no cache quota
+     */
+    private CacheQuota cacheQuota(byte[] name) {
+        Map<String, CacheQuota> quotas = mCacheQuotas;
+        return quotas == null || name == null ? null
+            : quotas.get(new String(name, StandardCharsets.UTF_8));
+    }
+
+    private void cacheQuotaClosed(byte[] name) {
+        CacheQuota quota = cacheQuota(name);
+        if (quota != null) {
+            quota.closed();
+        }
+    }
+
     /**
      * @param type RK_NEXT_TREE_ID or RK_NEXT_TEMP_ID
      */
@@ -4144,6 +4314,7 @@ public final class LocalDatabase implements Database {
                 }
                 if (ref.mName != null) {
                     mOpenTrees.remove(ref.mName);
+                    cacheQuotaClosed(ref.mName);
                 }
                 mOpenTreesById.remove(ref.mId);
                 root.makeEvictableNow();
@@ -4260,6 +4431,14 @@ public final class LocalDatabase implements Database {
         return name.length == 0 && !mRegistryKeyMap.exists(txn, newKey(RK_INDEX_NAME, name));
     }
 
+    /**
+     * Returns true if changes can be applied by a replication stream, bypassing any table
+     * triggers.
+     */
+    public boolean isReplicated() {
+        return mRedoWriter instanceof ReplWriter;
+    }
+
     /**
      * Add a listener which observes incoming replication operations.
      *
@@ -5378,6 +5557,8 @@ public final class LocalDatabase implements Database {
                 node.id(-id);
             }
 
+            node.clearQuota();
+
             // When node is re-allocated, it will be evicted. Ensure that eviction
             // doesn't write anything.
             node.mCachedState = CACHED_CLEAN;
@@ -6160,6 +6341,7 @@ public final class LocalDatabase implements Database {
         }
 
         node.id(id);
+        node.mGroup.missed();
 
         // NOTE: If initial state is clean, an optimization is possible, but it's a bit
         // tricky. Too many pages are allocated when evictions are high, write rate is high,
@@ -6326,8 +6508,10 @@ public final class LocalDatabase implements Database {
      * Caller must hold mCheckpointLock.
      *
      * @param force 0: no force, 1: force if not closed, -1: force even if closed
+     * @param paced true if the checkpoint flush can be paced
      */
-    private boolean doCheckpoint(int force, long sizeThreshold, long delayThresholdNanos)
+    private boolean doCheckpoint(int force, long sizeThreshold, long delayThresholdNanos,
+                                 boolean paced)
         throws IOException
     {
         if (force >= 0 && isClosed()) {
@@ -6534,7 +6718,7 @@ public final class LocalDatabase implements Database {
 
             mCommitHeaderAddr = headerAddr;
 
-            mPageDb.commit(resume, headerAddr, this::checkpointFlush);
+            mPageDb.commit(resume, headerAddr, (r, h) -> checkpointFlush(r, h, paced));
         } catch (Throwable e) {
             if (mCommitHeaderAddr != headerAddr) {
                 p_delete(headerAddr);
@@ -6618,8 +6802,12 @@ public final class LocalDatabase implements Database {
     /**
      * Method is invoked with exclusive commit lock and shared root node latch held. Both are
      * released by this method.
+     *
+     * @param paced true if the flush can be paced
      */
-    private void checkpointFlush(boolean resume, long headerAddr) throws IOException {
+    private void checkpointFlush(boolean resume, long headerAddr, boolean paced)
+        throws IOException
+    {
         int stateToFlush = mCommitState;
 
         if (resume) {
@@ -6649,6 +6837,15 @@ public final class LocalDatabase implements Database {
             mEventListener.notify(EventType.CHECKPOINT_FLUSH, "Flushing all dirty nodes");
         }
 
+        long dirtyPages = 0;
+        for (NodeGroup group : mNodeGroups) {
+            dirtyPages += group.dirtyCount();
+        }
+
+        long redoPos = p_longGetLE(headerAddr, mPageDb.extraCommitDataOffset() + I_REDO_POSITION);
+
+        mCheckpointPacer.begin(paced, dirtyPages, redoPos);
+
         try {
             mCheckpointer.flushDirty(mNodeGroups, stateToFlush);
 
@@ -6657,6 +6854,7 @@ public final class LocalDatabase implements Database {
             }
         } finally {
             mCheckpointFlushState = CHECKPOINT_NOT_FLUSHING;
+            mCheckpointPacer.end();
         }
 
         if (mEventListener != null) {
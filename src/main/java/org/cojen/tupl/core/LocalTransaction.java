@@ -19,6 +19,7 @@ package org.cojen.tupl.core;
 
 import java.io.IOException;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.cojen.tupl.DatabaseException;
@@ -74,6 +75,9 @@ public final class LocalTransaction extends Locker implements CoreTransaction {
 
     private Object mAttachment;
 
+    // Is non-null while committing via commitAsync, until the future is handed off.
+    CompletableFuture<Void> mCommitFuture;
+
     // Is an exception if transaction is borked, BOGUS if bogus.
     private Object mBorked;
 
@@ -251,7 +255,7 @@ public final class LocalTransaction extends Locker implements CoreTransaction {
                                 // Pending.
                                 return;
                             }
-                            mRedo.txnCommitSync(commitPos);
+                            txnCommitSync(commitPos);
                         }
                     }
                     super.scopeUnlockAll();
@@ -284,7 +288,7 @@ public final class LocalTransaction extends Locker implements CoreTransaction {
                         try {
                             // Durably sync the redo log after releasing the commit lock,
                             // preventing additional blocking.
-                            mRedo.txnCommitSync(commitPos);
+                            txnCommitSync(commitPos);
                         } catch (Throwable e) {
                             commitSyncFailed(e, commitPos);
                             throw e;
@@ -334,6 +338,82 @@ public final class LocalTransaction extends Locker implements CoreTransaction {
         }
     }
 
+    @Override
+    public final CompletableFuture<Void> commitAsync() throws IOException {
+        var future = new CompletableFuture<Void>();
+        mCommitFuture = future;
+
+        try {
+            commit();
+        } catch (Throwable e) {
+            mCommitFuture = null;
+            throw e;
+        }
+
+        if (mCommitFuture != null) {
+            // Commit didn't need to wait for anything.
+            mCommitFuture = null;
+            future.complete(null);
+        }
+
+        return future;
+    }
+
+    /**
+     * Waits for the commit to be durable, unless called by commitAsync.
+     */
+    private void txnCommitSync(long commitPos) throws IOException {
+        CompletableFuture<Void> future = mCommitFuture;
+        if (future == null) {
+            mRedo.txnCommitSync(commitPos);
+        } else {
+            mCommitFuture = null;
+            mRedo.txnCommitSyncAsync(new AsyncCommit(this, commitPos, future));
+        }
+    }
+
+    /**
+     * Tracks a commit made by commitAsync which is waiting for the redo log to be durable.
+     */
+    static final class AsyncCommit {
+        final long mCommitPos;
+
+        private final LocalDatabase mDatabase;
+        private final RedoWriter mRedo;
+        private final CompletableFuture<Void> mFuture;
+
+        AsyncCommit(LocalTransaction txn, long commitPos, CompletableFuture<Void> future) {
+            mCommitPos = commitPos;
+            mDatabase = txn.mDatabase;
+            mRedo = txn.mRedo;
+            mFuture = future;
+        }
+
+        void completed() {
+            mFuture.complete(null);
+        }
+
+        /**
+         * Handles a sync failure like commitSyncFailed does, and then completes the future
+         * exceptionally. The transaction has already released its locks and truncated its
+         * undo log, and so a commit which cannot be uncommitted or left pending must close
+         * the database instead.
+         */
+        void failed(Throwable e) {
+            if (!isRecoverable(e) || e instanceof UnmodifiableReplicaException
+                || mRedo instanceof ReplWriter)
+            {
+                try {
+                    Utils.closeOnFailure(mDatabase, e);
+                } catch (Throwable e2) {
+                    // Ignore.
+                }
+            }
+
+            mFuture.completeExceptionally(e);
+        }
+    }
+
     private void commitSyncFailed(Throwable e, long commitPos) {
         if (!isRecoverable(e)) {
             panic(e);
@@ -1673,6 +1753,23 @@ public final class LocalTransaction extends Locker implements CoreTransaction {
         }
     }
 
+    /**
+     * Caller must hold commit lock.
+     *
+     * @param op OP_UNUPDATE or OP_UNDELETE
+     * @param payload Node-encoded key/value entry
+     */
+    final void pushUndoStore(long indexId, byte op, byte[] payload, int off, int len)
+        throws IOException
+    {
+        check();
+        try {
+            undoLog().pushNodeEncoded(indexId, op, payload, off, len);
+        } catch (Throwable e) {
+            borked(e);
+        }
+    }
+
     /**
      * Caller must hold commit lock.
      */
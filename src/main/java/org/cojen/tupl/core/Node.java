@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 
+import java.util.Arrays;
+
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.cojen.tupl.CorruptDatabaseException;
@@ -103,6 +105,9 @@ final class Node extends Clutch implements DatabaseAccess {
     Node mMoreUsed; // points to more recently used node
     Node mLessUsed; // points to less recently used node
 
+    // Is true when linked within the probationary usage list, guarded by NodeGroup.
+    boolean mProbation;
+
     // Links within dirty list, guarded by NodeGroup.
     Node mNextDirty;
     Node mPrevDirty;
@@ -113,7 +118,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
       +----------------------------------------+
       | byte:   node type                      |  header
-      | byte:   reserved (must be 0)           |
+      | byte:   reserved (leaf key prefix len) |
       -                                        -
 
       There are two types of tree nodes, having a similar structure and
@@ -123,13 +128,15 @@ final class Node extends Clutch implements DatabaseAccess {
 
       +----------------------------------------+
       | byte:   node type                      |  header
-      | byte:   reserved (must be 0)           |
+      | byte:   key prefix length              |
       | ushort: garbage in segments            |
       | ushort: pointer to left segment tail   |
       | ushort: pointer to right segment tail  |
       | ushort: pointer to search vector start |
       | ushort: pointer to search vector end   |
       +----------------------------------------+
+      | key prefix (leaf only, even length)    |
+      +----------------------------------------+
       | left segment                           |
       -                                        -
       |                                        |
@@ -193,6 +200,13 @@ final class Node extends Clutch implements DatabaseAccess {
       fragmented fashion, which is also used by large values. The encoding format is defined by
       LocalDatabase.fragment.
 
+      Leaf nodes can have a key prefix, which is shared by all keys in the node. The length of
+      the prefix (0..255) is stored in the second header byte, and the prefix itself
+      immediately follows the header, padded to an even length. The left segment starts after
+      the padded prefix. Normal keys are stored with the prefix stripped off, and so the key
+      header encodes the length of the remaining suffix. Fragmented keys are always stored
+      whole. Internal nodes never have a key prefix, and the second header byte is always 0.
+
       The value follows the key, and its header encodes the entry length:
 
       0b0xxx_xxxx: value is 0..127 bytes
@@ -272,6 +286,9 @@ final class Node extends Clutch implements DatabaseAccess {
     // Set by a partially completed split.
     Split mSplit;
 
+    // Optional cache quota of the index which this node belongs to. Guarded by node latch.
+    CacheQuota mQuota;
+
     Node(NodeGroup group, long pageAddr) {
         mGroup = group;
         mPageAddr = pageAddr;
@@ -394,6 +411,8 @@ final class Node extends Clutch implements DatabaseAccess {
         var newNode = new Node(mGroup, mPageAddr);
         newNode.id(id());
         newNode.mCachedState = mCachedState;
+        newNode.mQuota = mQuota;
+        mQuota = null;
         return newNode;
     }
 
@@ -434,7 +453,13 @@ final class Node extends Clutch implements DatabaseAccess {
      * most recently used.
      */
     void makeEvictable() {
-        mGroup.makeEvictable(this);
+        CacheQuota quota = mQuota;
+        if (quota != null && quota.isOver()) {
+            // Evict nodes of this index before those of other indexes.
+            mGroup.makeEvictableNow(this);
+        } else {
+            mGroup.makeEvictable(this);
+        }
     }
 
     /**
@@ -452,6 +477,34 @@ final class Node extends Clutch implements DatabaseAccess {
         mGroup.makeUnevictable(this);
     }
 
+    /**
+     * Assign a cache quota to this node, which is typically the quota of a parent or sibling
+     * node. Caller must hold exclusive latch.
+     *
+     * @param quota can be null
+     */
+    void quota(CacheQuota quota) {
+        if (quota != mQuota) {
+            clearQuota();
+            if (quota != null) {
+                quota.added();
+                mQuota = quota;
+            }
+        }
+    }
+
+    /**
+     * Stop counting this node against its cache quota, if it has one. Caller must hold
+     * exclusive latch.
+     */
+    void clearQuota() {
+        CacheQuota quota = mQuota;
+        if (quota != null) {
+            mQuota = null;
+            quota.removed();
+        }
+    }
+
     /**
      * Options for loadChild. Caller must latch parent as shared or exclusive, which can be
      * retained (default) or released if shared. Child node is latched shared (default) or
@@ -540,6 +593,15 @@ final class Node extends Clutch implements DatabaseAccess {
                 throw e;
             }
 
+            CacheQuota quota = mQuota;
+            if (quota != null) {
+                childNode.quota(quota);
+                if (quota.isOver()) {
+                    // Evict nodes of this index before those of other indexes.
+                    childNode.mGroup.demote(childNode);
+                }
+            }
+
             if ((options & OPTION_CHILD_ACQUIRE_EXCLUSIVE) == 0){
                 childNode.downgrade();
             }
@@ -604,6 +666,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
         LocalDatabase db = mGroup.mDatabase;
         Node child = db.allocDirtyNode();
+        child.quota(mQuota);
         db.nodeMapPut(child);
 
         long newRootPageAddr;
@@ -717,7 +780,8 @@ final class Node extends Clutch implements DatabaseAccess {
             }
         }
 
-        if (p_byteGet(pageAddr, 1) != 0) {
+        if (p_byteGet(pageAddr, 1) != 0 && type >= 0) {
+            // Only leaf nodes can have a key prefix.
             throw new IllegalStateException
                 ("Illegal reserved byte in node: " + p_byteGet(pageAddr, 1) + ", id: " + id());
         }
@@ -735,7 +799,7 @@ final class Node extends Clutch implements DatabaseAccess {
         }
     }
 
-    private long prepareWrite() {
+    long prepareWrite() {
         if (mSplit != null) {
             throw new AssertionError("Cannot write partially split node");
         }
@@ -797,6 +861,10 @@ final class Node extends Clutch implements DatabaseAccess {
                 //type(TYPE_NONE);
             }
 
+            // Only stop counting the node against its quota once it's actually evicted. If
+            // the write fails, the node remains cached and must still be counted.
+            clearQuota();
+
             return true;
         } catch (Throwable e) {
             releaseExclusive();
@@ -900,6 +968,37 @@ final class Node extends Clutch implements DatabaseAccess {
         p_shortPutLE(mPageAddr, 0, type & 0xff); // clear reserved byte too
     }
 
+    /**
+     * Set the node type, but without clearing the key prefix length. Should be used when
+     * only the extremity bits are changing.
+     */
+    void retype(byte type) {
+        p_bytePut(mPageAddr, 0, type);
+    }
+
+    /**
+     * Get the length of the key prefix which is shared by all keys in this leaf node, which
+     * is zero if none. Internal nodes never have a key prefix.
+     */
+    int keyPrefixLength() {
+        return p_ubyteGet(mPageAddr, 1);
+    }
+
+    /**
+     * Returns the start of the left segment in an empty or compacted leaf node.
+     */
+    private int leftSegStart() {
+        return leftSegStart(keyPrefixLength());
+    }
+
+    /**
+     * Returns the start of the left segment for the given key prefix length. The prefix is
+     * padded to an even length, to preserve search vector alignment.
+     */
+    private static int leftSegStart(int plen) {
+        return TN_HEADER_SIZE + ((plen + 1) & ~1);
+    }
+
     /**
      * Get the node garbage size.
      */
@@ -1156,11 +1255,20 @@ final class Node extends Clutch implements DatabaseAccess {
      */
     int binarySearch(byte[] key) throws IOException {
         final long pageAddr = mPageAddr;
-        final int keyLen = key.length;
         final int startPos = searchVecStart();
         int lowPos = startPos;
         int highPos = searchVecEnd();
 
+        // Normal keys are stored without the key prefix, and so compare against the suffix.
+        final int keyOff = p_ubyteGet(pageAddr, 1);
+        if (keyOff != 0) {
+            int cmp = compareKeyPrefix(pageAddr, keyOff, key);
+            if (cmp != 0) {
+                return cmp < 0 ? ~0 : ~(highPos + 2 - startPos);
+            }
+        }
+        final int keyLen = key.length - keyOff;
+
         // TODO: Using this feature reduces performance for small keys. Is the potential
         // benefit for large keys worth it?
         // int lowMatch = 0, highMatch = 0;
@@ -1183,8 +1291,9 @@ final class Node extends Clutch implements DatabaseAccess {
                         byte[] compareKey = getDatabase()
                             .reconstructKey(pageAddr, compareLoc, compareLen);
 
-                        compareLen = compareKey.length;
-                        int minLen = Math.min(compareLen, keyLen);
+                        // Fragmented keys are stored whole, and so compare the full key.
+                        compareLen = compareKey.length - keyOff;
+                        int minLen = Math.min(compareKey.length, key.length);
                         int cmp = compareUnsigned(compareKey, 0, minLen, key, 0, minLen);
 
                         if (cmp != 0) {
@@ -1208,7 +1317,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
                 for (; i < minLen8; i += 8) {
                     long cv = p_longGetBE(pageAddr, compareLoc + i);
-                    long kv = Utils.decodeLongBE(key, i);
+                    long kv = Utils.decodeLongBE(key, keyOff + i);
                     int cmp = Long.compareUnsigned(cv, kv);
                     if (cmp != 0) {
                         if (cmp < 0) {
@@ -1224,7 +1333,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
                 for (; i < minLen; i++) {
                     byte cb = p_byteGet(pageAddr, compareLoc + i);
-                    byte kb = key[i];
+                    byte kb = key[keyOff + i];
                     if (cb != kb) {
                         if ((cb & 0xff) < (kb & 0xff)) {
                             lowPos = midPos + 2;
@@ -1261,14 +1370,23 @@ final class Node extends Clutch implements DatabaseAccess {
         if (lowPos > highPos) {
             return -1;
         }
+        final long pageAddr = mPageAddr;
+
+        // Normal keys are stored without the key prefix, and so compare against the suffix.
+        final int keyOff = p_ubyteGet(pageAddr, 1);
+        if (keyOff != 0) {
+            int cmp = compareKeyPrefix(pageAddr, keyOff, key);
+            if (cmp != 0) {
+                return cmp < 0 ? ~0 : ~(highPos + 2 - startPos);
+            }
+        }
+        final int keyLen = key.length - keyOff;
+
         midPos += lowPos;
         if (midPos > highPos) {
             midPos = highPos;
         }
 
-        final long pageAddr = mPageAddr;
-        final int keyLen = key.length;
-
         // TODO: Using this feature reduces performance for small keys. Is the potential
         // benefit for large keys worth it?
         // int lowMatch = 0, highMatch = 0;
@@ -1291,8 +1409,9 @@ final class Node extends Clutch implements DatabaseAccess {
                             byte[] compareKey = getDatabase()
                                 .reconstructKey(pageAddr, compareLoc, compareLen);
 
-                            compareLen = compareKey.length;
-                            int minLen = Math.min(compareLen, keyLen);
+                            // Fragmented keys are stored whole, and so compare the full key.
+                            compareLen = compareKey.length - keyOff;
+                            int minLen = Math.min(compareKey.length, key.length);
                             int cmp = compareUnsigned(compareKey, 0, minLen, key, 0, minLen);
 
                             if (cmp != 0) {
@@ -1316,7 +1435,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
                     for (; i < minLen8; i += 8) {
                         long cv = p_longGetBE(pageAddr, compareLoc + i);
-                        long kv = Utils.decodeLongBE(key, i);
+                        long kv = Utils.decodeLongBE(key, keyOff + i);
                         int cmp = Long.compareUnsigned(cv, kv);
                         if (cmp != 0) {
                             if (cmp < 0) {
@@ -1332,7 +1451,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
                     for (; i < minLen; i++) {
                         byte cb = p_byteGet(pageAddr, compareLoc + i);
-                        byte kb = key[i];
+                        byte kb = key[keyOff + i];
                         if (cb != kb) {
                             if ((cb & 0xff) < (kb & 0xff)) {
                                 lowPos = midPos + 2;
@@ -1365,6 +1484,44 @@ final class Node extends Clutch implements DatabaseAccess {
         return ~(lowPos - startPos);
     }
 
+    /**
+     * Compares the given key against the key prefix of a leaf node.
+     *
+     * @param plen non-zero key prefix length
+     * @return zero if the key starts with the prefix, negative if the key is lower than all
+     * keys in the node, or positive if higher
+     */
+    static int compareKeyPrefix(long pageAddr, int plen, byte[] key) {
+        return -p_compareKeysPageToArray(pageAddr, TN_HEADER_SIZE, plen,
+                                         key, 0, Math.min(plen, key.length));
+    }
+
+    /**
+     * Returns the amount of leading key bytes which match the key prefix of a leaf node.
+     */
+    private static int matchKeyPrefix(long pageAddr, int plen, byte[] key) {
+        int len = Math.min(plen, key.length);
+        for (int i=0; i<len; i++) {
+            if (p_byteGet(pageAddr, TN_HEADER_SIZE + i) != key[i]) {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Returns a new full key, composed of the key prefix and the given suffix.
+     *
+     * @param loc location of key suffix
+     * @param len length of key suffix
+     */
+    private static byte[] prefixedKey(long pageAddr, int plen, int loc, int len) {
+        var key = new byte[plen + len];
+        p_copy(pageAddr, TN_HEADER_SIZE, key, 0, plen);
+        p_copy(pageAddr, loc, key, plen, len);
+        return key;
+    }
+
     /**
      * Ensure binary search position is positive, for internal node.
      */
@@ -1390,7 +1547,15 @@ final class Node extends Clutch implements DatabaseAccess {
                 return compareUnsigned(leftKey, rightKey);
             }
         }
-        return p_compareKeysPageToArray(pageAddr, loc, keyLen, rightKey, 0, rightKey.length);
+        int plen = p_ubyteGet(pageAddr, 1);
+        if (plen != 0) {
+            int cmp = compareKeyPrefix(pageAddr, plen, rightKey);
+            if (cmp != 0) {
+                return -cmp;
+            }
+        }
+        return p_compareKeysPageToArray(pageAddr, loc, keyLen,
+                                        rightKey, plen, rightKey.length - plen);
     }
 
     /**
@@ -1403,6 +1568,12 @@ final class Node extends Clutch implements DatabaseAccess {
         final long leftPageAddr = left.mPageAddr;
         final long rightPageAddr = right.mPageAddr;
 
+        if ((p_byteGet(leftPageAddr, 1) | p_byteGet(rightPageAddr, 1)) != 0) {
+            // Note: An optimized version wouldn't need to copy the whole keys.
+            return compareUnsigned(left.retrieveKeyAtLoc(leftPageAddr, leftLoc),
+                                   right.retrieveKeyAtLoc(rightPageAddr, rightLoc));
+        }
+
         int leftLen = p_byteGet(leftPageAddr, leftLoc++);
         int rightLen = p_byteGet(rightPageAddr, rightLoc++);
 
@@ -1488,7 +1659,7 @@ final class Node extends Clutch implements DatabaseAccess {
             }
         }
 
-        stats[0] = keyLen;
+        stats[0] = p_ubyteGet(pageAddr, 1) + keyLen;
         stats[1] = 0;
     }
 
@@ -1497,21 +1668,33 @@ final class Node extends Clutch implements DatabaseAccess {
      */
     byte[] retrieveKey(int pos) throws IOException {
         final long pageAddr = mPageAddr;
-        return retrieveKeyAtLoc(this, pageAddr, p_ushortGetLE(pageAddr, searchVecStart() + pos));
+        return retrieveKeyAtLoc(pageAddr, p_ushortGetLE(pageAddr, searchVecStart() + pos));
     }
 
     /**
+     * @param pageAddr tree node page, which might have a key prefix
      * @param loc absolute location of entry
      */
     byte[] retrieveKeyAtLoc(final long pageAddr, int loc) throws IOException {
-        return retrieveKeyAtLoc(this, pageAddr, loc);
+        return retrieveKeyAtLoc(this, pageAddr, p_ubyteGet(pageAddr, 1), loc);
     }
 
     /**
-     * @param loc absolute location of entry
+     * @param loc absolute location of entry, which isn't within a tree node page
      */
     static byte[] retrieveKeyAtLoc(DatabaseAccess dbAccess, final long pageAddr, int loc)
         throws IOException
+    {
+        return retrieveKeyAtLoc(dbAccess, pageAddr, 0, loc);
+    }
+
+    /**
+     * @param plen key prefix length; pass 0 if none
+     * @param loc absolute location of entry
+     */
+    private static byte[] retrieveKeyAtLoc(DatabaseAccess dbAccess,
+                                           final long pageAddr, int plen, int loc)
+        throws IOException
     {
         int keyLen = p_byteGet(pageAddr, loc++);
         if (keyLen >= 0) {
@@ -1523,6 +1706,9 @@ final class Node extends Clutch implements DatabaseAccess {
                 return dbAccess.getDatabase().reconstructKey(pageAddr, loc, keyLen);
             }
         }
+        if (plen != 0) {
+            return prefixedKey(pageAddr, plen, loc, keyLen);
+        }
         var key = new byte[keyLen];
         p_copy(pageAddr, loc, key, 0, keyLen);
         return key;
@@ -1593,20 +1779,30 @@ final class Node extends Clutch implements DatabaseAccess {
         final long pageAddr = mPageAddr;
         int loc = p_ushortGetLE(pageAddr, searchVecStart() + pos);
         int keyLen = p_byteGet(pageAddr, loc++);
+        byte[] key = null;
         if (keyLen >= 0) {
             keyLen++;
         } else {
             int header = keyLen;
             keyLen = ((keyLen & 0x3f) << 8) | p_ubyteGet(pageAddr, loc++);
-
             if ((header & ENTRY_FRAGMENTED) != 0) {
-                byte[] key = getDatabase().reconstructKey(pageAddr, loc, keyLen);
-                int cmp = compareUnsigned(key, limitKey);
-                if (cmp == 0) {
-                    return limitKey;
-                } else {
-                    return (cmp ^ limitMode) < 0 ? key : null;
-                }
+                key = getDatabase().reconstructKey(pageAddr, loc, keyLen);
+            }
+        }
+
+        if (key == null) {
+            int plen = p_ubyteGet(pageAddr, 1);
+            if (plen != 0) {
+                key = prefixedKey(pageAddr, plen, loc, keyLen);
+            }
+        }
+
+        if (key != null) {
+            int cmp = compareUnsigned(key, limitKey);
+            if (cmp == 0) {
+                return limitKey;
+            } else {
+                return (cmp ^ limitMode) < 0 ? key : null;
             }
         }
 
@@ -1614,7 +1810,7 @@ final class Node extends Clutch implements DatabaseAccess {
         if (cmp == 0) {
             return limitKey;
         } else if ((cmp ^ limitMode) < 0) {
-            var key = new byte[keyLen];
+            key = new byte[keyLen];
             p_copy(pageAddr, loc, key, 0, keyLen);
             return key;
         } else {
@@ -1706,7 +1902,7 @@ final class Node extends Clutch implements DatabaseAccess {
         final long lowPageAddr = mPageAddr;
         int lowLoc = p_ushortGetLE(lowPageAddr, searchVecStart() + lowPos);
         int lowKeyLen = p_byteGet(lowPageAddr, lowLoc);
-        if (lowKeyLen < 0) {
+        if (lowKeyLen < 0 || p_byteGet(lowPageAddr, 1) != 0) {
             // Note: An optimized version wouldn't need to copy the whole key.
             return Utils.midKey(retrieveKeyAtLoc(lowPageAddr, lowLoc), highKey);
         } else {
@@ -1723,7 +1919,7 @@ final class Node extends Clutch implements DatabaseAccess {
         final long highPageAddr = mPageAddr;
         int highLoc = p_ushortGetLE(highPageAddr, searchVecStart() + highPos);
         int highKeyLen = p_byteGet(highPageAddr, highLoc);
-        if (highKeyLen < 0) {
+        if (highKeyLen < 0 || p_byteGet(highPageAddr, 1) != 0) {
             // Note: An optimized version wouldn't need to copy the whole key.
             return Utils.midKey(lowKey, retrieveKeyAtLoc(highPageAddr, highLoc));
         } else {
@@ -1740,7 +1936,7 @@ final class Node extends Clutch implements DatabaseAccess {
         final long lowPageAddr = mPageAddr;
         int lowLoc = p_ushortGetLE(lowPageAddr, searchVecStart() + lowPos);
         int lowKeyLen = p_byteGet(lowPageAddr, lowLoc);
-        if (lowKeyLen < 0) {
+        if (lowKeyLen < 0 || p_byteGet(lowPageAddr, 1) != 0) {
             // Note: An optimized version wouldn't need to copy the whole key.
             return highNode.midKey(retrieveKeyAtLoc(lowPageAddr, lowLoc), highPos);
         }
@@ -1751,9 +1947,9 @@ final class Node extends Clutch implements DatabaseAccess {
         final long highPageAddr = highNode.mPageAddr;
         int highLoc = p_ushortGetLE(highPageAddr, highNode.searchVecStart() + highPos);
         int highKeyLen = p_byteGet(highPageAddr, highLoc);
-        if (highKeyLen < 0) {
+        if (highKeyLen < 0 || p_byteGet(highPageAddr, 1) != 0) {
             // Note: An optimized version wouldn't need to copy the whole key.
-            byte[] highKey = retrieveKeyAtLoc(highPageAddr, highLoc);
+            byte[] highKey = highNode.retrieveKeyAtLoc(highPageAddr, highLoc);
             return p_midKeyLowPage(lowPageAddr, lowLoc, lowKeyLen, highKey, 0);
         }
 
@@ -1873,6 +2069,11 @@ final class Node extends Clutch implements DatabaseAccess {
                     break copyKey;
                 }
             }
+            int plen = p_ubyteGet(pageAddr, 1);
+            if (plen != 0) {
+                key = prefixedKey(pageAddr, plen, loc, keyLen);
+                break copyKey;
+            }
             key = new byte[keyLen];
             p_copy(pageAddr, loc, key, 0, keyLen);
         }
@@ -1957,17 +2158,14 @@ final class Node extends Clutch implements DatabaseAccess {
 
                 if ((header & ENTRY_FRAGMENTED) != 0) {
                     int valueStartLoc = valueHeaderLoc + 2 + ((header & 0x20) >> 5);
-                    FragmentedTrash.add
-                        (tree.mDatabase.fragmentedTrash(),
-                         txn, tree.mId, pageAddr,
-                         entryLoc, valueHeaderLoc - entryLoc,  // keyStart, keyLen
-                         valueStartLoc, loc - valueStartLoc);  // valueStart, valueLen
+                    trashFragmentedValue(txn, tree, pageAddr, entryLoc,
+                                         valueHeaderLoc, valueStartLoc, loc);
                     break doUndo;
                 }
             }
 
             // Copy whole entry into undo log.
-            txn.pushUndoStore(tree.mId, UndoLog.OP_UNDELETE, pageAddr, entryLoc, loc - entryLoc);
+            txnPushUndoStore(txn, tree.mId, UndoLog.OP_UNDELETE, entryLoc, loc - entryLoc);
         }
 
         frame.bind(this, pos);
@@ -2021,11 +2219,8 @@ final class Node extends Clutch implements DatabaseAccess {
 
                 if ((header & ENTRY_FRAGMENTED) != 0) {
                     int valueStartLoc = valueHeaderLoc + 2 + ((header & 0x20) >> 5);
-                    FragmentedTrash.add
-                        (tree.mDatabase.fragmentedTrash(),
-                         txn, tree.mId, pageAddr,
-                         entryLoc, valueHeaderLoc - entryLoc,  // keyStart, keyLen
-                         valueStartLoc, loc - valueStartLoc);  // valueStart, valueLen
+                    trashFragmentedValue(txn, tree, pageAddr, entryLoc,
+                                         valueHeaderLoc, valueStartLoc, loc);
                     // Clearing the fragmented bit prevents the update from double-deleting the
                     // fragments, and it also allows the old entry slot to be re-used.
                     p_bytePut(pageAddr, valueHeaderLoc, header & ~ENTRY_FRAGMENTED);
@@ -2035,7 +2230,98 @@ final class Node extends Clutch implements DatabaseAccess {
         }
 
         // Copy whole entry into undo log.
-        txn.pushUndoStore(tree.mId, UndoLog.OP_UNUPDATE, pageAddr, entryLoc, loc - entryLoc);
+        txnPushUndoStore(txn, tree.mId, UndoLog.OP_UNUPDATE, entryLoc, loc - entryLoc);
+    }
+
+    /**
+     * Copies an entry into the undo log, with the key prefix restored. Caller must hold
+     * commit lock and exclusive latch on node.
+     *
+     * @param op OP_UNUPDATE or OP_UNDELETE
+     * @param entryLoc location of leaf entry
+     * @param len length of leaf entry
+     */
+    void txnPushUndoStore(LocalTransaction txn, long indexId, byte op, int entryLoc, int len)
+        throws IOException
+    {
+        final long pageAddr = mPageAddr;
+        int plen = p_ubyteGet(pageAddr, 1);
+        if (plen == 0 || (p_byteGet(pageAddr, entryLoc) & 0xc0) == 0xc0) {
+            txn.pushUndoStore(indexId, op, pageAddr, entryLoc, len);
+        } else {
+            byte[] entry = expandLeafEntry(pageAddr, plen, entryLoc, len);
+            txn.pushUndoStore(indexId, op, entry, 0, entry.length);
+        }
+    }
+
+    /**
+     * Copies a fragmented value to the trash and pushes an entry to the undo log, with the
+     * key prefix restored.
+     *
+     * @param entryLoc location of leaf entry
+     * @param valueHeaderLoc location of value header
+     * @param valueStartLoc location of fragmented value, after the header
+     * @param endLoc location just past the end of the entry
+     */
+    private static void trashFragmentedValue(LocalTransaction txn, BTree tree, long pageAddr,
+                                             int entryLoc, int valueHeaderLoc,
+                                             int valueStartLoc, int endLoc)
+        throws IOException
+    {
+        BTree trash = tree.mDatabase.fragmentedTrash();
+
+        int plen = p_ubyteGet(pageAddr, 1);
+        if (plen == 0 || (p_byteGet(pageAddr, entryLoc) & 0xc0) == 0xc0) {
+            FragmentedTrash.add(trash, txn, tree.mId, pageAddr,
+                                entryLoc, valueHeaderLoc - entryLoc,  // keyStart, keyLen
+                                valueStartLoc, endLoc - valueStartLoc); // valueStart, valueLen
+            return;
+        }
+
+        byte[] entry = expandLeafEntry(pageAddr, plen, entryLoc, endLoc - entryLoc);
+        int growth = entry.length - (endLoc - entryLoc);
+        long entryAddr = p_transfer(entry);
+        try {
+            FragmentedTrash.add(trash, txn, tree.mId, entryAddr,
+                                0, valueHeaderLoc - entryLoc + growth,
+                                valueStartLoc - entryLoc + growth, endLoc - valueStartLoc);
+        } finally {
+            p_delete(entryAddr);
+        }
+    }
+
+    /**
+     * Returns a copy of a leaf entry which has a normal key, with the key prefix restored.
+     *
+     * @param plen non-zero key prefix length
+     * @param entryLoc location of leaf entry
+     * @param len length of leaf entry
+     */
+    private static byte[] expandLeafEntry(long pageAddr, int plen, int entryLoc, int len) {
+        int loc = entryLoc;
+        int keyLen = p_byteGet(pageAddr, loc++);
+        if (keyLen >= 0) {
+            keyLen++;
+        } else {
+            keyLen = ((keyLen & 0x3f) << 8) | p_ubyteGet(pageAddr, loc++);
+        }
+
+        int fullKeyLen = plen + keyLen;
+        int headerLen = calculateKeyLength(fullKeyLen) - fullKeyLen;
+        int restLen = entryLoc + len - loc;
+        var entry = new byte[headerLen + plen + restLen];
+
+        if (headerLen == 1) {
+            entry[0] = (byte) (fullKeyLen - 1);
+        } else {
+            entry[0] = (byte) (0x80 | (fullKeyLen >> 8));
+            entry[1] = (byte) fullKeyLen;
+        }
+
+        p_copy(pageAddr, TN_HEADER_SIZE, entry, headerLen, plen);
+        p_copy(pageAddr, loc, entry, headerLen + plen, restLen);
+
+        return entry;
     }
 
     /**
@@ -2141,7 +2427,13 @@ final class Node extends Clutch implements DatabaseAccess {
             }
 
             try {
-                int entryLoc = createLeafEntry(frame, tree, pos, encodedLen);
+                int plen = prepareKeyPrefix(okey, encodedLen);
+                if (plen > 0 && okey == akey) {
+                    // Key is stored without the prefix.
+                    encodedLen += calculateKeyLength(okey.length - plen) - encodedKeyLen;
+                }
+
+                int entryLoc = plen < 0 ? -1 : createLeafEntry(frame, tree, pos, encodedLen);
 
                 if (entryLoc < 0) {
                     splitLeafAndCreateEntry(tree, okey, akey, vfrag, value, encodedLen, pos, true);
@@ -2206,7 +2498,13 @@ final class Node extends Clutch implements DatabaseAccess {
             }
 
             try {
-                int entryLoc = createLeafEntry(frame, tree, pos, encodedLen);
+                int plen = prepareKeyPrefix(okey, encodedLen);
+                if (plen > 0 && okey == akey) {
+                    // Key is stored without the prefix.
+                    encodedLen += calculateKeyLength(okey.length - plen) - encodedKeyLen;
+                }
+
+                int entryLoc = plen < 0 ? -1 : createLeafEntry(frame, tree, pos, encodedLen);
 
                 if (entryLoc < 0) {
                     splitLeafAndCreateEntry(tree, okey, akey, vfrag, value, encodedLen, pos, true);
@@ -2250,7 +2548,13 @@ final class Node extends Clutch implements DatabaseAccess {
         try {
             int encodedLen = encodedKeyLen + calculateFragmentedValueLength(value);
 
-            int entryLoc = createLeafEntry(frame, tree, pos, encodedLen);
+            int plen = prepareKeyPrefix(okey, encodedLen);
+            if (plen > 0 && okey == akey) {
+                // Key is stored without the prefix.
+                encodedLen += calculateKeyLength(okey.length - plen) - encodedKeyLen;
+            }
+
+            int entryLoc = plen < 0 ? -1 : createLeafEntry(frame, tree, pos, encodedLen);
 
             if (entryLoc < 0) {
                 splitLeafAndCreateEntry
@@ -2410,6 +2714,11 @@ final class Node extends Clutch implements DatabaseAccess {
     private int tryRebalanceLeaf(BTree tree, CursorFrame parentFrame,
                                  int pos, int insertLen, int minAmount)
     {
+        if (keyPrefixLength() != 0) {
+            // Entries are moved as-is, which requires that no key prefix be present.
+            return 0;
+        }
+
         int result;
         // "Randomly" choose left or right node first.
         if ((id() & 1) == 0) {
@@ -2514,7 +2823,7 @@ final class Node extends Clutch implements DatabaseAccess {
         check: {
             try {
                 int leftAvail = left.availableLeafBytes();
-                if (leftAvail >= moveAmount) {
+                if (leftAvail >= moveAmount && left.keyPrefixLength() == 0) {
                     // Parent search key will be updated, so verify that it has room.
                     int highPos = lastSearchVecLoc - searchVecStart();
                     newKey = midKey(highPos - 2, this, highPos);
@@ -2705,7 +3014,7 @@ final class Node extends Clutch implements DatabaseAccess {
         check: {
             try {
                 int rightAvail = right.availableLeafBytes();
-                if (rightAvail >= moveAmount) {
+                if (rightAvail >= moveAmount && right.keyPrefixLength() == 0) {
                     // Parent search key will be updated, so verify that it has room.
                     int highPos = firstSearchVecLoc - searchVecStart();
                     newKey = midKey(highPos - 2, this, highPos);
@@ -3620,14 +3929,18 @@ final class Node extends Clutch implements DatabaseAccess {
 
         final int vfragOriginal = vfrag;
 
+        // The maximum entry sizes apply to the full key, with the key prefix restored.
+        final int keyGrowth = keyPrefixGrowth(pageAddr, start, 0);
+
         int encodedLen;
         if (vfrag != 0) {
             encodedLen = keyLen + calculateFragmentedValueLength(value);
         } else {
             LocalDatabase db = tree.mDatabase;
             encodedLen = keyLen + calculateLeafValueLength(value);
-            if (encodedLen > db.mMaxEntrySize) {
-                value = db.fragment(value, value.length, db.mMaxFragmentedEntrySize - keyLen);
+            if (encodedLen + keyGrowth > db.mMaxEntrySize) {
+                value = db.fragment(value, value.length,
+                                    db.mMaxFragmentedEntrySize - keyGrowth - keyLen);
                 if (value == null) {
                     throw new AssertionError();
                 }
@@ -3657,7 +3970,16 @@ final class Node extends Clutch implements DatabaseAccess {
                     if (mSplit == null) {
                         // TODO: use frame for rebalancing
                         // Node is full, so split it.
-                        byte[] okey = isOriginal ? akey : retrieveKeyAtLoc(this, pageAddr, start);
+                        byte[] okey;
+                        if (!isOriginal) {
+                            okey = retrieveKeyAtLoc(this, pageAddr, start);
+                        } else {
+                            if (keyGrowth != 0) {
+                                // Split needs the full key, with the key prefix restored.
+                                akey = retrieveKeyAtLoc(pageAddr, start);
+                            }
+                            okey = akey;
+                        }
                         splitLeafAndCreateEntry
                             (tree, okey, akey, vfrag, value, encodedLen, pos, false);
                         return;
@@ -3669,7 +3991,7 @@ final class Node extends Clutch implements DatabaseAccess {
                         throw new DatabaseException("Fragmented entry doesn't fit");
                     }
                     LocalDatabase db = tree.mDatabase;
-                    int max = Math.min(db.mMaxFragmentedEntrySize,
+                    int max = Math.min(db.mMaxFragmentedEntrySize - keyGrowth,
                                        garbage + leftSpace + rightSpace);
                     value = db.fragment(value, value.length, max - keyLen);
                     if (value == null) {
@@ -4006,6 +4328,68 @@ final class Node extends Clutch implements DatabaseAccess {
         } while ((frame = frame.mPrevCousin) != null);
     }
 
+    /**
+     * Returns the amount of space which would remain in the left leaf node after moving all
+     * the entries from the right node into it. If negative, the entries don't fit. Caller
+     * must hold latches on both nodes.
+     */
+    static int leafMergeRemaining(Node left, Node right) {
+        int remaining = left.availableLeafBytes() + right.availableLeafBytes()
+            - left.pageSize() + TN_HEADER_SIZE;
+
+        final int leftPlen = left.keyPrefixLength();
+        final int rightPlen = right.keyPrefixLength();
+
+        if ((leftPlen | rightPlen) != 0) {
+            // Account for the change in key prefix areas, and the growth of keys which no
+            // longer share as much of the prefix.
+            final int plen = mergedKeyPrefixLength(left, right);
+            remaining += leftSegStart(leftPlen) + leftSegStart(rightPlen)
+                - leftSegStart(plen) - TN_HEADER_SIZE;
+            remaining -= left.keyPrefixGrowth(plen) + right.keyPrefixGrowth(plen);
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Returns the key prefix length to use when merging the right leaf node into the left.
+     */
+    private static int mergedKeyPrefixLength(Node left, Node right) {
+        final int leftPlen = left.keyPrefixLength();
+        if (!right.hasKeys()) {
+            return leftPlen;
+        }
+        final int plen = Math.min(leftPlen, right.keyPrefixLength());
+        final long leftPageAddr = left.mPageAddr;
+        final long rightPageAddr = right.mPageAddr;
+        for (int i=0; i<plen; i++) {
+            if (p_byteGet(leftPageAddr, TN_HEADER_SIZE + i)
+                != p_byteGet(rightPageAddr, TN_HEADER_SIZE + i))
+            {
+                return i;
+            }
+        }
+        return plen;
+    }
+
+    /**
+     * Returns the total growth of all the keys in this leaf node, if they were re-encoded
+     * for a different key prefix length.
+     */
+    private int keyPrefixGrowth(int newPlen) {
+        final long pageAddr = mPageAddr;
+        if (p_ubyteGet(pageAddr, 1) == newPlen) {
+            return 0;
+        }
+        int growth = 0;
+        final int searchVecEnd = searchVecEnd();
+        for (int vecLoc = searchVecStart(); vecLoc <= searchVecEnd; vecLoc += 2) {
+            growth += keyPrefixGrowth(pageAddr, p_ushortGetLE(pageAddr, vecLoc), newPlen);
+        }
+        return growth;
+    }
+
     /**
      * Moves all the entries from the right node into the tail of the given
      * left node, and then deletes the right node node. Caller must ensure that
@@ -4018,6 +4402,12 @@ final class Node extends Clutch implements DatabaseAccess {
     {
         tree.mDatabase.prepareToDelete(rightNode);
 
+        // The merged node has the key prefix which is common to both nodes.
+        final int plen = mergedKeyPrefixLength(leftNode, rightNode);
+        if (plen != leftNode.keyPrefixLength() && !leftNode.rewriteKeyPrefix(null, plen, 0)) {
+            throw new AssertionError();
+        }
+
         final long rightPageAddr = rightNode.mPageAddr;
         final int searchVecEnd = rightNode.searchVecEnd();
         final int leftEndPos = leftNode.highestLeafPos() + 2;
@@ -4025,11 +4415,11 @@ final class Node extends Clutch implements DatabaseAccess {
         int searchVecStart = rightNode.searchVecStart();
         while (searchVecStart <= searchVecEnd) {
             int entryLoc = p_ushortGetLE(rightPageAddr, searchVecStart);
-            int encodedLen = leafEntryLengthAtLoc(rightPageAddr, entryLoc);
+            int encodedLen = rightNode.leafEntryLengthAtLoc(entryLoc, plen);
             int leftEntryLoc = leftNode.createLeafEntry
                 (null, tree, leftNode.highestLeafPos() + 2, encodedLen);
             // Note: Must access left page each time, since compaction can replace it.
-            p_copy(rightPageAddr, entryLoc, leftNode.mPageAddr, leftEntryLoc, encodedLen);
+            rightNode.copyLeafEntry(entryLoc, leftNode.mPageAddr, leftEntryLoc, plen);
             searchVecStart += 2;
         }
 
@@ -4043,7 +4433,7 @@ final class Node extends Clutch implements DatabaseAccess {
         }
 
         // If right node was high extremity, left node now is.
-        leftNode.type((byte) (leftNode.type() | (rightNode.type() & HIGH_EXTREMITY)));
+        leftNode.retype((byte) (leftNode.type() | (rightNode.type() & HIGH_EXTREMITY)));
 
         tree.mDatabase.finishDeleteNode(rightNode);
     }
@@ -4112,7 +4502,7 @@ final class Node extends Clutch implements DatabaseAccess {
         }
 
         // If right node was high extremity, left node now is.
-        leftNode.type((byte) (leftNode.type() | (rightNode.type() & HIGH_EXTREMITY)));
+        leftNode.retype((byte) (leftNode.type() | (rightNode.type() & HIGH_EXTREMITY)));
 
         tree.mDatabase.finishDeleteNode(rightNode);
     }
@@ -4360,10 +4750,53 @@ final class Node extends Clutch implements DatabaseAccess {
      * fragmented. Fragmented keys always lead with a 2-byte header.
      */
     static int calculateKeyLength(byte[] key) {
-        int len = key.length - 1;
+        return calculateKeyLength(key.length);
+    }
+
+    /**
+     * Calculate encoded key length, including header, for a key or key suffix of the given
+     * length. Key must fit in the node and hasn't been fragmented.
+     */
+    static int calculateKeyLength(int len) {
+        len--;
         return len + ((len & ~(SMALL_KEY_LIMIT - 1)) == 0 ? 2 : 3);
     }
 
+    /**
+     * Returns the amount that the encoded length of a normal key is reduced by when the key
+     * prefix is stripped off.
+     */
+    private static int keyPrefixGrowth(byte[] key, int plen) {
+        return plen == 0 ? 0 : (calculateKeyLength(key.length)
+                                - calculateKeyLength(key.length - plen));
+    }
+
+    /**
+     * Returns the change in encoded key length if the key at the given location was
+     * re-encoded for a different key prefix length. Fragmented keys are stored whole, and so
+     * they never change.
+     *
+     * @param pageAddr leaf node page
+     * @param loc location of key header
+     * @param newPlen new key prefix length; pass 0 to compute the full key length growth
+     */
+    static int keyPrefixGrowth(long pageAddr, int loc, int newPlen) {
+        int plen = p_ubyteGet(pageAddr, 1);
+        if (plen == newPlen) {
+            return 0;
+        }
+        int header = p_byteGet(pageAddr, loc);
+        int len;
+        if (header >= 0) {
+            len = header + 1;
+        } else if ((header & ENTRY_FRAGMENTED) == 0) {
+            len = ((header & 0x3f) << 8) | p_ubyteGet(pageAddr, loc + 1);
+        } else {
+            return 0;
+        }
+        return calculateKeyLength(len + plen - newPlen) - calculateKeyLength(len);
+    }
+
     /**
      * Calculate encoded value length for leaf, including header. Value must fit in the node
      * and hasn't been fragmented.
@@ -4403,17 +4836,35 @@ final class Node extends Clutch implements DatabaseAccess {
      * @return updated pageLoc
      */
     static int encodeNormalKey(final byte[] key, final long pageAddr, int pageLoc) {
-        final int keyLen = key.length;
+        return encodeNormalKey(key, 0, pageAddr, pageLoc);
+    }
+
+    /**
+     * @param key unencoded key
+     * @param off offset into the key, which skips over the key prefix
+     * @param pageAddr destination for encoded key, with room for key header
+     * @return updated pageLoc
+     */
+    static int encodeNormalKey(final byte[] key, int off, final long pageAddr, int pageLoc) {
+        final int keyLen = key.length - off;
+        pageLoc = encodeNormalKeyHeader(keyLen, pageAddr, pageLoc);
+        p_copy(key, off, pageAddr, pageLoc, keyLen);
+        return pageLoc + keyLen;
+    }
 
+    /**
+     * @param keyLen unencoded key length
+     * @param pageAddr destination for encoded key header
+     * @return updated pageLoc
+     */
+    private static int encodeNormalKeyHeader(int keyLen, final long pageAddr, int pageLoc) {
         if (keyLen <= SMALL_KEY_LIMIT && keyLen > 0) {
             p_bytePut(pageAddr, pageLoc++, keyLen - 1);
         } else {
             p_bytePut(pageAddr, pageLoc++, 0x80 | (keyLen >> 8));
             p_bytePut(pageAddr, pageLoc++, keyLen);
         }
-        p_copy(key, 0, pageAddr, pageLoc, keyLen);
-
-        return pageLoc + keyLen;
+        return pageLoc;
     }
 
     /**
@@ -4456,7 +4907,7 @@ final class Node extends Clutch implements DatabaseAccess {
      */
     private void copyToLeafEntry(byte[] okey, byte[] akey, int vfrag, byte[] value, int entryLoc) {
         final long pageAddr = mPageAddr;
-        int vloc = okey == akey ? encodeNormalKey(akey, pageAddr, entryLoc)
+        int vloc = okey == akey ? encodeNormalKey(akey, keyPrefixLength(), pageAddr, entryLoc)
             : encodeFragmentedKey(akey, pageAddr, entryLoc);
         copyToLeafValue(pageAddr, vfrag, value, vloc);
     }
@@ -4490,6 +4941,213 @@ final class Node extends Clutch implements DatabaseAccess {
         return vloc;
     }
 
+    /**
+     * Called before inserting a key into a leaf node. If the node has a key prefix which
+     * the key doesn't start with, an attempt is made to shrink the prefix.
+     *
+     * @param key full key to insert
+     * @param encodedLen length of new entry to allocate, when encoded with the full key
+     * @return key prefix length, or -1 if the key doesn't start with the key prefix
+     */
+    private int prepareKeyPrefix(byte[] key, int encodedLen) {
+        final long pageAddr = mPageAddr;
+        int plen = p_ubyteGet(pageAddr, 1);
+        if (plen != 0) {
+            int match = matchKeyPrefix(pageAddr, plen, key);
+            if (match < plen) {
+                // Only shrink the prefix if the new entry will fit too. Otherwise, the key
+                // is inserted by splitting the node, and the prefix doesn't need to change.
+                if (!rewriteKeyPrefix(key, match, encodedLen + 2)) {
+                    return -1;
+                }
+                plen = match;
+            }
+        }
+        return plen;
+    }
+
+    /**
+     * Attempts to grow the key prefix of this leaf node, to make room for a new entry instead
+     * of splitting. The key prefix is limited to what's shared by all keys in the node,
+     * including the new key, which is allocated if the prefix was grown.
+     *
+     * @param okey original key, which must start with the current key prefix
+     * @param akey key to actually store
+     * @param encodedLen length of new entry to allocate, encoded for the current prefix
+     * @param pos normalized search vector position of entry to insert
+     * @return location for newly allocated entry, or -1 if the prefix wasn't grown
+     */
+    private int tryGrowKeyPrefix(BTree tree, byte[] okey, byte[] akey, int encodedLen, int pos)
+        throws IOException
+    {
+        final int maxPlen = tree.mDatabase.mMaxKeyPrefixLength;
+        final int plen = keyPrefixLength();
+        if (maxPlen <= plen || !hasKeys()) {
+            return -1;
+        }
+
+        int highPos = highestLeafPos();
+        if (isFragmentedKey(0) || isFragmentedKey(highPos)) {
+            return -1;
+        }
+
+        byte[] lowKey = retrieveKey(0);
+        int newPlen = Math.min(commonPrefixLength(lowKey, retrieveKey(highPos)),
+                               commonPrefixLength(lowKey, okey));
+        newPlen = Math.min(newPlen, maxPlen);
+
+        if (newPlen <= plen) {
+            return -1;
+        }
+
+        int newEncodedLen = encodedLen;
+        if (okey == akey) {
+            newEncodedLen += calculateKeyLength(okey.length - newPlen)
+                - calculateKeyLength(okey.length - plen);
+        }
+
+        // Quick check before doing the real work. The amount of space freed is overestimated
+        // when some keys are fragmented.
+        if ((newPlen - plen) * numKeys() + availableLeafBytes() < newEncodedLen + 2
+            || !rewriteKeyPrefix(okey, newPlen, newEncodedLen + 2))
+        {
+            return -1;
+        }
+
+        return createLeafEntry(null, tree, pos, newEncodedLen);
+    }
+
+    private static int commonPrefixLength(byte[] a, byte[] b) {
+        int i = Arrays.mismatch(a, b);
+        return i < 0 ? a.length : i;
+    }
+
+    /**
+     * Rewrites this leaf node with a different key prefix, which must be shared by all of the
+     * keys. All garbage is reclaimed as a side effect.
+     *
+     * @param key provides the new prefix bytes when the prefix is growing
+     * @param newPlen new key prefix length
+     * @param extra amount of space which must be available after the rewrite
+     * @return false if not enough space is available
+     */
+    private boolean rewriteKeyPrefix(byte[] key, int newPlen, int extra) {
+        long pageAddr = mPageAddr;
+        final int pageSize = pageSize();
+        final int searchVecStart = searchVecStart();
+        final int searchVecEnd = searchVecEnd();
+        final int vecLen = searchVecEnd - searchVecStart + 2;
+
+        int size = leftSegStart(newPlen) + vecLen + extra;
+        for (int vecLoc = searchVecStart; vecLoc <= searchVecEnd; vecLoc += 2) {
+            size += leafEntryLengthAtLoc(p_ushortGetLE(pageAddr, vecLoc), newPlen);
+            if (size > pageSize) {
+                return false;
+            }
+        }
+
+        long destAddr = mGroup.acquireSparePageAddr();
+
+        // Set type, key prefix length, and garbage.
+        p_intPutLE(destAddr, 0, (type() & 0xff) | (newPlen << 8));
+
+        if (newPlen > keyPrefixLength()) {
+            p_copy(key, 0, destAddr, TN_HEADER_SIZE, newPlen);
+        } else {
+            p_copy(pageAddr, TN_HEADER_SIZE, destAddr, TN_HEADER_SIZE, newPlen);
+        }
+
+        int destLoc = leftSegStart(newPlen);
+
+        // Center the search vector in the remaining space, ensuring proper alignment.
+        int endLoc = size - vecLen - extra;
+        int newSearchVecStart = (endLoc + 1 + ((pageSize - endLoc - vecLen) >> 1)) & ~1;
+        int newSearchVecLoc = newSearchVecStart;
+
+        for (int vecLoc = searchVecStart; vecLoc <= searchVecEnd; vecLoc += 2) {
+            p_shortPutLE(destAddr, newSearchVecLoc, destLoc);
+            newSearchVecLoc += 2;
+            destLoc += copyLeafEntry(p_ushortGetLE(pageAddr, vecLoc), destAddr, destLoc, newPlen);
+        }
+
+        if (getDatabase().mFullyMapped) {
+            // Copy rewritten entries to original page and recycle spare page buffer.
+            p_copy(destAddr, 0, pageAddr, 0, pageSize);
+            mGroup.releaseSparePageAddr(destAddr);
+        } else {
+            // Recycle old page buffer and swap in rewritten page.
+            mGroup.releaseSparePageAddr(pageAddr);
+            mPageAddr = destAddr;
+        }
+
+        leftSegTail(destLoc);
+        rightSegTail(pageSize - 1);
+        searchVecStart(newSearchVecStart);
+        searchVecEnd(newSearchVecStart + vecLen - 2);
+
+        return true;
+    }
+
+    /**
+     * Returns the length of the leaf entry at the given location, if it was re-encoded for a
+     * different key prefix length.
+     */
+    private int leafEntryLengthAtLoc(int loc, int newPlen) {
+        final long pageAddr = mPageAddr;
+        return leafEntryLengthAtLoc(pageAddr, loc) + keyPrefixGrowth(pageAddr, loc, newPlen);
+    }
+
+    /**
+     * Copies the leaf entry at the given location into another page, re-encoding the key for
+     * a different key prefix length. The key must start with the new prefix.
+     *
+     * @param dstAddr destination page, which can be for another node
+     * @return length of the copied entry
+     */
+    private int copyLeafEntry(int loc, long dstAddr, int dstLoc, int newPlen) {
+        final long pageAddr = mPageAddr;
+        final int len = leafEntryLengthAtLoc(pageAddr, loc);
+        final int plen = p_ubyteGet(pageAddr, 1);
+        final int header = p_byteGet(pageAddr, loc);
+
+        if (plen == newPlen || (header & 0xc0) == 0xc0) {
+            // Same encoding, or the key is fragmented and is stored whole.
+            p_copy(pageAddr, loc, dstAddr, dstLoc, len);
+            return len;
+        }
+
+        final int endLoc = loc + len;
+        final int dstStart = dstLoc;
+
+        int keyLen;
+        if (header >= 0) {
+            keyLen = header + 1;
+            loc++;
+        } else {
+            keyLen = ((header & 0x3f) << 8) | p_ubyteGet(pageAddr, loc + 1);
+            loc += 2;
+        }
+
+        dstLoc = encodeNormalKeyHeader(keyLen + plen - newPlen, dstAddr, dstLoc);
+
+        if (newPlen < plen) {
+            // Restore the bytes which are no longer part of the prefix.
+            int amt = plen - newPlen;
+            p_copy(pageAddr, TN_HEADER_SIZE + newPlen, dstAddr, dstLoc, amt);
+            dstLoc += amt;
+        } else {
+            // Drop the bytes which are now part of the prefix.
+            int amt = newPlen - plen;
+            loc += amt;
+        }
+
+        // Copy the rest of the key and the value.
+        int amt = endLoc - loc;
+        p_copy(pageAddr, loc, dstAddr, dstLoc, amt);
+
+        return dstLoc + amt - dstStart;
+    }
+
     /**
      * Compact leaf by reclaiming garbage and moving search vector towards
      * tail. Caller is responsible for ensuring that new entry will fit after
@@ -4519,14 +5177,17 @@ final class Node extends Clutch implements DatabaseAccess {
 
         // Copy into a fresh buffer.
 
-        int destLoc = TN_HEADER_SIZE;
+        final int plen = keyPrefixLength();
+        int destLoc = leftSegStart(plen);
         int newSearchVecLoc = newSearchVecStart;
         int newLoc = 0;
         final int searchVecEnd = searchVecEnd();
 
         long destAddr = mGroup.acquireSparePageAddr();
 
-        p_intPutLE(destAddr, 0, type() & 0xff); // set type, reserved byte, and garbage
+        // Set type, key prefix length, and garbage.
+        p_intPutLE(destAddr, 0, (type() & 0xff) | (plen << 8));
+        p_copy(pageAddr, TN_HEADER_SIZE, destAddr, TN_HEADER_SIZE, plen);
 
         for (; searchVecLoc <= searchVecEnd; searchVecLoc += 2, newSearchVecLoc += 2) {
             if (searchVecLoc == pos) {
@@ -4580,15 +5241,56 @@ final class Node extends Clutch implements DatabaseAccess {
         }
     }
 
+    /**
+     * Non-transactionally copies an entry from another leaf node into this one, as the
+     * highest entry. If this node has a key prefix which the source key doesn't start with,
+     * an attempt is made to shrink the prefix. If the entry doesn't fit, this node is split.
+     *
+     * @param pos complement of position as provided by binarySearch; must be positive
+     * @param snode source node to copy entry from
+     * @param spos source position to copy entry from
+     * @return true if this node was split
+     */
+    boolean transferLeafEntry(BTree tree, int pos, Node snode, int spos) throws IOException {
+        final long spageAddr = snode.mPageAddr;
+        final int sloc = p_ushortGetLE(spageAddr, snode.searchVecStart() + spos);
+
+        final long pageAddr = mPageAddr;
+        int plen = p_ubyteGet(pageAddr, 1);
+
+        if (plen != 0 && (p_ubyteGet(spageAddr, 1) < plen ||
+                          p_compareKeysPageToPage(spageAddr, TN_HEADER_SIZE, plen,
+                                                  pageAddr, TN_HEADER_SIZE, plen) != 0))
+        {
+            // Need to examine the full key to determine if the key prefix matches.
+            plen = prepareKeyPrefix(snode.retrieveKeyAtLoc(spageAddr, sloc),
+                                    snode.leafEntryLengthAtLoc(sloc, 0));
+        }
+
+        if (plen >= 0) {
+            int encodedLen = snode.leafEntryLengthAtLoc(sloc, plen);
+            // Pass a null frame to disable rebalancing. It's not useful here, and it
+            // interferes with the neighboring subtrees.
+            int loc = createLeafEntry(null, tree, pos, encodedLen);
+            if (loc >= 0) {
+                snode.copyLeafEntry(sloc, mPageAddr, loc, plen);
+                return false;
+            }
+        }
+
+        splitLeafAscendingAndCopyEntry(tree, snode, spos);
+        return true;
+    }
+
     /**
      * Split leaf for ascending order, and copy an entry from another page. The source entry
-     * must be ordered higher than all the entries of this target leaf node.
+     * must be ordered higher than all the entries of this target leaf node. The new node
+     * has no key prefix.
      *
      * @param snode source node to copy entry from
      * @param spos source position to copy entry from
-     * @param encodedLen length of new entry to allocate
      */
-    void splitLeafAscendingAndCopyEntry(BTree tree, Node snode, int spos, int encodedLen)
+    private void splitLeafAscendingAndCopyEntry(BTree tree, Node snode, int spos)
         throws IOException
     {
         // Note: This method is a specialized variant of the splitLeafAndCreateEntry method.
@@ -4601,6 +5303,7 @@ final class Node extends Clutch implements DatabaseAccess {
         checkClosedIndexException(pageAddr);
 
         Node newNode = tree.mDatabase.allocDirtyNode(NodeGroup.MODE_UNEVICTABLE);
+        newNode.quota(mQuota);
         tree.mDatabase.nodeMapPut(newNode);
 
         long newPageAddr = newNode.mPageAddr;
@@ -4628,7 +5331,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
         final long spageAddr = snode.mPageAddr;
         final int sloc = p_ushortGetLE(spageAddr, snode.searchVecStart() + spos);
-        p_copy(spageAddr, sloc, newPageAddr, TN_HEADER_SIZE, encodedLen);
+        int encodedLen = snode.copyLeafEntry(sloc, newPageAddr, TN_HEADER_SIZE, 0);
         p_shortPutLE(newPageAddr, pageSize() - 2, TN_HEADER_SIZE);
 
         newNode.leftSegTail(TN_HEADER_SIZE + encodedLen);
@@ -4639,7 +5342,8 @@ final class Node extends Clutch implements DatabaseAccess {
      * @param okey original key
      * @param akey key to actually store
      * @param vfrag 0 or ENTRY_FRAGMENTED
-     * @param encodedLen length of new entry to allocate
+     * @param encodedLen length of new entry to allocate; the key is encoded without the key
+     * prefix, unless the key doesn't start with it
      * @param pos normalized search vector position of entry to insert/update
      */
     private void splitLeafAndCreateEntry(BTree tree, byte[] okey, byte[] akey,
@@ -4662,13 +5366,42 @@ final class Node extends Clutch implements DatabaseAccess {
         long pageAddr = mPageAddr;
         checkClosedIndexException(pageAddr);
 
+        int plen = p_ubyteGet(pageAddr, 1);
+        if (plen != 0 && matchKeyPrefix(pageAddr, plen, okey) < plen) {
+            // The key sorts before or after all the keys in this node, and so only the new
+            // entry goes into the new node, without any key prefix.
+            if (!forInsert || (pos != 0 && pos != highestLeafPos() + 2)) {
+                throw new AssertionError("Key doesn't start with the key prefix");
+            }
+            plen = 0;
+        } else if (forInsert) {
+            // Growing the key prefix might free up enough space to avoid a split.
+            int entryLoc = tryGrowKeyPrefix(tree, okey, akey, encodedLen, pos);
+            if (entryLoc >= 0) {
+                copyToLeafEntry(okey, akey, vfrag, value, entryLoc);
+                return;
+            }
+        }
+
         Node newNode = tree.mDatabase.allocDirtyNode(NodeGroup.MODE_UNEVICTABLE);
+        newNode.quota(mQuota);
         tree.mDatabase.nodeMapPut(newNode);
 
         long newPageAddr = newNode.mPageAddr;
 
         p_intPutLE(newPageAddr, 0, 0); // set type (fixed later), reserved byte, and garbage
 
+        // The new node has the same key prefix as this node, unless the key doesn't match.
+        if (plen != 0) {
+            p_bytePut(newPageAddr, 1, plen);
+            p_copy(pageAddr, TN_HEADER_SIZE, newPageAddr, TN_HEADER_SIZE, plen);
+        }
+
+        final int newStart = leftSegStart(plen);
+
+        // Amount that the key grows by if the prefix is restored, for fragmenting values.
+        final int keyGrowth = okey == akey ? keyPrefixGrowth(okey, plen) : 0;
+
         if (forInsert && pos == 0) {
             // Inserting into left edge of node, possibly because inserts are
             // descending. Split into new left node, but only the new entry
@@ -4688,13 +5421,13 @@ final class Node extends Clutch implements DatabaseAccess {
 
             // Position search vector at extreme left, allowing new entries to
             // be placed in a natural descending order.
-            newNode.leftSegTail(TN_HEADER_SIZE);
-            newNode.searchVecStart(TN_HEADER_SIZE);
-            newNode.searchVecEnd(TN_HEADER_SIZE);
+            newNode.leftSegTail(newStart);
+            newNode.searchVecStart(newStart);
+            newNode.searchVecEnd(newStart);
 
             int destLoc = pageSize() - encodedLen;
             newNode.copyToLeafEntry(okey, akey, vfrag, value, destLoc);
-            p_shortPutLE(newPageAddr, TN_HEADER_SIZE, destLoc);
+            p_shortPutLE(newPageAddr, newStart, destLoc);
 
             newNode.rightSegTail(destLoc - 1);
             newNode.releaseExclusive();
@@ -4731,10 +5464,10 @@ final class Node extends Clutch implements DatabaseAccess {
             newNode.searchVecStart(newSearchVecStart);
             newNode.searchVecEnd(newSearchVecStart);
 
-            newNode.copyToLeafEntry(okey, akey, vfrag, value, TN_HEADER_SIZE);
-            p_shortPutLE(newPageAddr, pageSize() - 2, TN_HEADER_SIZE);
+            newNode.copyToLeafEntry(okey, akey, vfrag, value, newStart);
+            p_shortPutLE(newPageAddr, pageSize() - 2, newStart);
 
-            newNode.leftSegTail(TN_HEADER_SIZE + encodedLen);
+            newNode.leftSegTail(newStart + encodedLen);
             newNode.releaseExclusive();
 
             return;
@@ -4745,7 +5478,7 @@ final class Node extends Clutch implements DatabaseAccess {
 
         int garbageAccum = 0;
         int newLoc = 0;
-        int newAvail = pageSize() - TN_HEADER_SIZE;
+        int newAvail = pageSize() - newStart;
 
         // Guess which way to split by examining search position. This doesn't take into
         // consideration the variable size of the entries. If the guess is wrong, the new
@@ -4755,7 +5488,7 @@ final class Node extends Clutch implements DatabaseAccess {
             // Split into new left node.
 
             int destLoc = pageSize();
-            int newSearchVecLoc = TN_HEADER_SIZE;
+            int newSearchVecLoc = newStart;
 
             // Is assigned if value needed to be fragmented. Used by exception handler below.
             byte[] fv = null;
@@ -4779,6 +5512,7 @@ final class Node extends Clutch implements DatabaseAccess {
                         params.value = value;
                         params.encodedLen = encodedLen;
                         params.available = newAvail;
+                        params.keyGrowth = keyGrowth;
 
                         try {
                             fragmentValueForSplit(tree, params);
@@ -4829,8 +5563,8 @@ final class Node extends Clutch implements DatabaseAccess {
                 avail += entryLen + 2;
             }
 
-            newNode.leftSegTail(TN_HEADER_SIZE);
-            newNode.searchVecStart(TN_HEADER_SIZE);
+            newNode.leftSegTail(newStart);
+            newNode.searchVecStart(newStart);
             newNode.searchVecEnd(newSearchVecLoc - 2);
 
             // Prune off the left end of this node.
@@ -4847,7 +5581,8 @@ final class Node extends Clutch implements DatabaseAccess {
                 if (newLoc == 0) {
                     // Unable to insert new entry into left node. Insert it
                     // into the right node, which should have space now.
-                    fv = storeIntoSplitLeaf(tree, okey, akey, vfrag, value, encodedLen, forInsert);
+                    fv = storeIntoSplitLeaf
+                        (tree, okey, akey, vfrag, value, encodedLen, keyGrowth, forInsert);
                 } else {
                     // Create new entry and point to it.
                     destLoc -= encodedLen;
@@ -4871,7 +5606,7 @@ final class Node extends Clutch implements DatabaseAccess {
         } else {
             // Split into new right node.
 
-            int destLoc = TN_HEADER_SIZE;
+            int destLoc = newStart;
             int newSearchVecLoc = pageSize() - 2;
 
             // Is assigned if value needed to be fragmented. Used by exception handler below.
@@ -4897,6 +5632,7 @@ final class Node extends Clutch implements DatabaseAccess {
                             params.value = value;
                             params.encodedLen = encodedLen;
                             params.available = newAvail;
+                            params.keyGrowth = keyGrowth;
 
                             try {
                                 fragmentValueForSplit(tree, params);
@@ -4934,6 +5670,7 @@ final class Node extends Clutch implements DatabaseAccess {
                             params.value = value;
                             params.encodedLen = encodedLen;
                             params.available = newAvail;
+                            params.keyGrowth = keyGrowth;
 
                             try {
                                 fragmentValueForSplit(tree, params);
@@ -4993,7 +5730,8 @@ final class Node extends Clutch implements DatabaseAccess {
                 if (newLoc == 0) {
                     // Unable to insert new entry into new right node. Insert it into the
                     // left node, which should have space now.
-                    fv = storeIntoSplitLeaf(tree, okey, akey, vfrag, value, encodedLen, forInsert);
+                    fv = storeIntoSplitLeaf
+                        (tree, okey, akey, vfrag, value, encodedLen, keyGrowth, forInsert);
                 } else {
                     // Create new entry and point to it.
                     newNode.copyToLeafEntry(okey, akey, vfrag, value, destLoc);
@@ -5024,6 +5762,7 @@ final class Node extends Clutch implements DatabaseAccess {
         byte[] value;   // in: unfragmented value;  out: fragmented value
         int encodedLen; // in: entry encoded length;  out: updated entry encoded length
         int available;  // in: available bytes in the target leaf node;  out: updated
+        int keyGrowth;  // in: amount the encoded key grows by if the key prefix is restored
     }
 
     /**
@@ -5040,8 +5779,9 @@ final class Node extends Clutch implements DatabaseAccess {
 
         // Maximum allowed size for fragmented value is limited by available node space
         // (accounting for the entry pointer), the maximum allowed fragmented entry size, and
-        // the space occupied by the key.
-        int max = Math.min(params.available - 2, db.mMaxFragmentedEntrySize) - encodedKeyLen;
+        // the space occupied by the key. The maximum entry size applies to the full key.
+        int max = Math.min(params.available - 2,
+                           db.mMaxFragmentedEntrySize - params.keyGrowth) - encodedKeyLen;
 
         value = db.fragment(value, value.length, max);
 
@@ -5068,11 +5808,12 @@ final class Node extends Clutch implements DatabaseAccess {
      * @param okey original key
      * @param akey key to actually store
      * @param vfrag 0 or ENTRY_FRAGMENTED
+     * @param keyGrowth amount the encoded key grows by if the key prefix is restored
      * @return non-null if value got fragmented
      */
     private byte[] storeIntoSplitLeaf(BTree tree, byte[] okey, byte[] akey,
                                       int vfrag, byte[] value,
-                                      int encodedLen, boolean forInsert)
+                                      int encodedLen, int keyGrowth, boolean forInsert)
         throws IOException
     {
         int pos = binarySearch(okey);
@@ -5101,6 +5842,7 @@ final class Node extends Clutch implements DatabaseAccess {
             params.value = value;
             params.encodedLen = encodedLen;
             params.available = ~entryLoc;
+            params.keyGrowth = keyGrowth;
 
             fragmentValueForSplit(tree, params);
 
@@ -5151,6 +5893,7 @@ final class Node extends Clutch implements DatabaseAccess {
             }
         }
 
+        newNode.quota(mQuota);
         db.nodeMapPut(newNode);
 
         final long newPageAddr = newNode.mPageAddr;
@@ -5610,16 +6353,16 @@ final class Node extends Clutch implements DatabaseAccess {
     private Split newSplitLeft(Node newNode) {
         var split = new Split(false, newNode);
         // New left node cannot be a high extremity, and this node cannot be a low extremity.
-        newNode.type((byte) (type() & ~HIGH_EXTREMITY));
-        type((byte) (type() & ~LOW_EXTREMITY));
+        newNode.retype((byte) (type() & ~HIGH_EXTREMITY));
+        retype((byte) (type() & ~LOW_EXTREMITY));
         return split;
     }
 
     private Split newSplitRight(Node newNode) {
         var split = new Split(true, newNode);
         // New right node cannot be a low extremity, and this node cannot be a high extremity.
-        newNode.type((byte) (type() & ~LOW_EXTREMITY));
-        type((byte) (type() & ~HIGH_EXTREMITY));
+        newNode.retype((byte) (type() & ~LOW_EXTREMITY));
+        retype((byte) (type() & ~HIGH_EXTREMITY));
         return split;
     }
 
@@ -5974,6 +6717,7 @@ final class Node extends Clutch implements DatabaseAccess {
             ", cachedState=" + mCachedState +
             ", isSplit=" + (mSplit != null) +
             ", availableBytes=" + availableBytes() +
+            ", keyPrefixLength=" + keyPrefixLength() +
             ", extremity=" + new String(extremity) +
             ", latchState=" + super.toString() +
             '}';
@@ -6014,8 +6758,16 @@ final class Node extends Clutch implements DatabaseAccess {
 
         final long pageAddr = mPageAddr;
 
+        final int plen = keyPrefixLength();
+        if (plen != 0 && !isLeaf()) {
+            return verifyFailed(level, observer, "Key prefix length: " + plen);
+        }
+
+        // Location of first entry, after the header and key prefix.
+        final int start = leftSegStart(plen);
+
         if (!fix) {
-            if (leftSegTail() < TN_HEADER_SIZE) {
+            if (leftSegTail() < start) {
                 return verifyFailed(level, observer, "Left segment tail: " + leftSegTail());
             }
 
@@ -6054,8 +6806,8 @@ final class Node extends Clutch implements DatabaseAccess {
             }
         }
 
-        int used = TN_HEADER_SIZE;
-        int leftTail = TN_HEADER_SIZE;
+        int used = start;
+        int leftTail = start;
         int rightTail = pageSize(); // compute as inclusive
         int largeKeyCount = 0;
         int largeValueCount = 0;
@@ -6065,7 +6817,7 @@ final class Node extends Clutch implements DatabaseAccess {
             final int keyLoc = p_ushortGetLE(pageAddr, i);
             int loc = keyLoc;
 
-            if (loc < TN_HEADER_SIZE || loc >= pageSize() ||
+            if (loc < start || loc >= pageSize() ||
                 (!fix && loc >= leftSegTail() && loc <= rightSegTail()))
             {
                 return verifyFailed(level, observer, "Entry location: " + loc);
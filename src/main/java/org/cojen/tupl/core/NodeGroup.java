@@ -19,9 +19,14 @@ package org.cojen.tupl.core;
 
 import java.io.IOException;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 import java.util.concurrent.ThreadLocalRandom;
 
+import org.cojen.tupl.CacheReplacementPolicy;
 import org.cojen.tupl.DatabaseException;
+import org.cojen.tupl.WriteFailureException;
 
 import org.cojen.tupl.util.Clutch;
 import org.cojen.tupl.util.Latch;
@@ -38,6 +43,14 @@ import static org.cojen.tupl.core.PageOps.*;
  * maintains a list of dirty nodes, which must be written when evicted, or as part of a
  * checkpoint.
  *
+ * <p>When the {@linkplain CacheReplacementPolicy#SCAN_RESISTANT scan resistant} policy is
+ * selected, a second probationary usage list is maintained. Newly allocated nodes are added
+ * to the probationary list, and they're only moved to the main (protected) list when used
+ * again. Nodes are always evicted from the probationary list first, and so nodes which are
+ * touched only once, by a large scan for example, don't displace the working set. The size
+ * of the protected list is capped, and excess nodes are demoted back to the probationary
+ * list, in most recently used order.
+ *
  * <p>Nodes are guarded by latches, and they use the Clutch class to more efficiently handle
  * high contention. The NodeGroup extends Clutch.Pack, which serves as the contention tracking
  * structure shared by all Nodes in the group. Using a Pack for each Node would consume much
@@ -62,6 +75,18 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
     // counter slots for more cores.
     private static final int PACK_SLOTS = 64;
 
+    private static final VarHandle cHitCountHandle, cMissCountHandle;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            cHitCountHandle = lookup.findVarHandle(NodeGroup.class, "mHitCount", long.class);
+            cMissCountHandle = lookup.findVarHandle(NodeGroup.class, "mMissCount", long.class);
+        } catch (Throwable e) {
+            throw Utils.rethrow(e);
+        }
+    }
+
     final LocalDatabase mDatabase;
     private final int mPageSize;
     private final long mUsedRate;
@@ -72,6 +97,19 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
     private Node mMostRecentlyUsed;
     private Node mLeastRecentlyUsed;
 
+    // The probationary usage list is only used when scan resistant. The protected size is
+    // the number of nodes in the main usage list, and it's also only maintained when scan
+    // resistant.
+    private final boolean mScanResistant;
+    private Node mMostRecentProbation;
+    private Node mLeastRecentProbation;
+    private int mProtectedSize;
+    private int mMaxProtectedSize;
+
+    // Estimated counts, updated atomically.
+    private long mHitCount;
+    private long mMissCount;
+
     // Linked list of dirty nodes, guarded by synchronization.
     private Node mFirstDirty;
     private Node mLastDirty;
@@ -90,8 +128,9 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
      * ordering is less critical, and the cost of updating the ordering is also higher. Hence,
      * a larger used rate value is recommended. Passing a value of -1 effectively disables node
      * movement (probability is extremely low).
+     * @param policy cache replacement policy; LRU if null
      */
-    NodeGroup(LocalDatabase db, long usedRate, int maxSize) {
+    NodeGroup(LocalDatabase db, long usedRate, int maxSize, CacheReplacementPolicy policy) {
         super(PACK_SLOTS);
         if (maxSize <= 0) {
             throw new IllegalArgumentException();
@@ -99,9 +138,12 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
         mDatabase = db;
         mPageSize = db.pageSize();
         mUsedRate = usedRate;
+        mScanResistant = policy == CacheReplacementPolicy.SCAN_RESISTANT;
 
         acquireExclusive();
         mMaxSize = maxSize;
+        // Reserve a quarter of the group for the probationary list.
+        mMaxProtectedSize = maxSize - (maxSize >> 2);
         releaseExclusive();
 
         mSparePageLatch = new Latch();
@@ -154,7 +196,12 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
 
         int limit = mSize;
         do {
-            Node node = mLeastRecentlyUsed;
+            Node node = mLeastRecentProbation;
+            if (node == null || (node.mMoreUsed == null && mLeastRecentlyUsed != null)) {
+                // Only select from the main list when the probationary list is nearly empty.
+                // This is always the case when not scan resistant.
+                node = mLeastRecentlyUsed;
+            }
             Node moreUsed;
             if (node == null || (moreUsed = node.mMoreUsed) == null) {
                 // Grow the cache if possible.
@@ -163,6 +210,11 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
                 } else if (node == null) {
                     break;
                 }
+            } else if (mScanResistant) {
+                // Move node to the most recently used probationary position. If the node was
+                // protected, then this demotes it.
+                unlink(node);
+                linkMostProbation(node);
             } else {
                 // Move node to the most recently used position.
                 moreUsed.mLessUsed = null;
@@ -176,9 +228,16 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
                 continue;
             }
 
+            CacheQuota quota = node.mQuota;
+            if (quota != null && quota.retain(node)) {
+                // Node is reserved or pinned, and it has been moved out of the way.
+                node.releaseExclusive();
+                continue;
+            }
+
             if (trial == 1) {
                 if (node.mCachedState != CACHED_CLEAN) {
-                    if (mSize < mMaxSize) {
+                    if (mSize < mMaxSize && (quota == null || !quota.isOver())) {
                         // Grow the cache instead of evicting.
                         node.releaseExclusive();
                         return doAllocLatchedNode(null, mode);
@@ -256,7 +315,11 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
             node.acquireExclusive();
             mSize++;
 
-            if ((mode & MODE_UNEVICTABLE) == 0) {
+            if ((mode & MODE_UNEVICTABLE) != 0) {
+                // Not in any usage list.
+            } else if (mScanResistant) {
+                linkMostProbation(node);
+            } else {
                 Node most = mMostRecentlyUsed;
                 node.mLessUsed = most;
                 if (most == null) {
@@ -288,12 +351,34 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
         // is popular, it will get more chances to be identified as most recently used. This
         // strategy works well enough because cache eviction is always a best-guess approach.
 
-        if ((rnd.nextLong() & mUsedRate) == 0 && tryAcquireExclusive()) {
-            doUsed(node);
+        if ((rnd.nextLong() & mUsedRate) == 0) {
+            // Only a sample of hits is observed, so scale up the count.
+            cHitCountHandle.getAndAdd(this, mUsedRate + 1);
+            if (tryAcquireExclusive()) {
+                doUsed(node);
+            }
         }
     }
 
     private void doUsed(final Node node) {
+        if (mScanResistant) {
+            if (node.mProbation) {
+                // Used again, and so promote it.
+                unlink(node);
+                linkMostProtected(node);
+                while (mProtectedSize > mMaxProtectedSize) {
+                    Node least = mLeastRecentlyUsed;
+                    unlink(least);
+                    linkMostProbation(least);
+                }
+            } else if (node.mMoreUsed != null) {
+                unlink(node);
+                linkMostProtected(node);
+            }
+            releaseExclusive();
+            return;
+        }
+
         Node moreUsed = node.mMoreUsed;
         if (moreUsed != null) {
             Node lessUsed = node.mLessUsed;
@@ -329,7 +414,14 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
 
         try {
             Node lessUsed = node.mLessUsed;
-            if (lessUsed != null) {
+            if (mScanResistant) {
+                if (mMaxSize != 0) {
+                    if (isLinked(node)) {
+                        unlink(node);
+                    }
+                    linkLeastProbation(node);
+                }
+            } else if (lessUsed != null) {
                 Node moreUsed = node.mMoreUsed;
                 lessUsed.mMoreUsed = moreUsed;
                 if (moreUsed == null) {
@@ -353,6 +445,27 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
         }
     }
 
+    /**
+     * Move an evictable node to the least recently used position, allowing it to be recycled
+     * before other nodes. Caller must hold exclusive latch on node, which is retained.
+     */
+    void demote(final Node node) {
+        acquireExclusive();
+        try {
+            if (mScanResistant) {
+                if (mMaxSize != 0 && isLinked(node)) {
+                    unlink(node);
+                    linkLeastProbation(node);
+                }
+            } else if (mMaxSize != 0 && (node.mMoreUsed != null || node == mMostRecentlyUsed)) {
+                doMakeUnevictable(node);
+                doMakeEvictableNow(node);
+            }
+        } finally {
+            releaseExclusive();
+        }
+    }
+
     /**
      * Allow a Node which was allocated as unevictable to be evictable, starting off as the
      * most recently used.
@@ -363,7 +476,11 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
             // Only insert if not closed and if not already in the list. The node latch doesn't
             // need to be held, and so a concurrent call to the unused method might insert the
             // node sooner.
-            if (mMaxSize != 0 && node.mMoreUsed == null) {
+            if (mScanResistant) {
+                if (mMaxSize != 0 && !isLinked(node)) {
+                    linkMostProbation(node);
+                }
+            } else if (mMaxSize != 0 && node.mMoreUsed == null) {
                 Node most = mMostRecentlyUsed;
                 if (node != most) {
                     node.mLessUsed = most;
@@ -388,7 +505,11 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
         acquireExclusive();
         try {
             // See comment in the makeEvictable method.
-            if (mMaxSize != 0 && node.mLessUsed == null) {
+            if (mScanResistant) {
+                if (mMaxSize != 0 && !isLinked(node)) {
+                    linkLeastProbation(node);
+                }
+            } else if (mMaxSize != 0 && node.mLessUsed == null) {
                 doMakeEvictableNow(node);
             }
         } finally {
@@ -431,6 +552,13 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
      * Caller must hold latch.
      */
     private void doMakeUnevictable(final Node node) {
+        if (mScanResistant) {
+            if (isLinked(node)) {
+                unlink(node);
+            }
+            return;
+        }
+
         final Node lessUsed = node.mLessUsed;
         final Node moreUsed = node.mMoreUsed;
 
@@ -455,6 +583,97 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
         }
     }
 
+    /**
+     * Returns true if the node is within the main or probationary usage list. Caller must
+     * hold latch.
+     */
+    private boolean isLinked(final Node node) {
+        return node.mLessUsed != null || node.mMoreUsed != null
+            || node == mLeastRecentlyUsed || node == mLeastRecentProbation;
+    }
+
+    /**
+     * Remove the node from the usage list it's in. Caller must hold latch, and the node must
+     * be linked.
+     */
+    private void unlink(final Node node) {
+        final Node lessUsed = node.mLessUsed;
+        final Node moreUsed = node.mMoreUsed;
+
+        if (lessUsed == null) {
+            if (node.mProbation) {
+                mLeastRecentProbation = moreUsed;
+            } else {
+                mLeastRecentlyUsed = moreUsed;
+            }
+        } else {
+            lessUsed.mMoreUsed = moreUsed;
+            node.mLessUsed = null;
+        }
+
+        if (moreUsed == null) {
+            if (node.mProbation) {
+                mMostRecentProbation = lessUsed;
+            } else {
+                mMostRecentlyUsed = lessUsed;
+            }
+        } else {
+            moreUsed.mLessUsed = lessUsed;
+            node.mMoreUsed = null;
+        }
+
+        if (node.mProbation) {
+            node.mProbation = false;
+        } else {
+            mProtectedSize--;
+        }
+    }
+
+    /**
+     * Caller must hold latch, and the node must not be linked.
+     */
+    private void linkMostProtected(final Node node) {
+        Node most = mMostRecentlyUsed;
+        node.mLessUsed = most;
+        if (most == null) {
+            mLeastRecentlyUsed = node;
+        } else {
+            most.mMoreUsed = node;
+        }
+        mMostRecentlyUsed = node;
+        mProtectedSize++;
+    }
+
+    /**
+     * Caller must hold latch, and the node must not be linked.
+     */
+    private void linkMostProbation(final Node node) {
+        Node most = mMostRecentProbation;
+        node.mLessUsed = most;
+        if (most == null) {
+            mLeastRecentProbation = node;
+        } else {
+            most.mMoreUsed = node;
+        }
+        mMostRecentProbation = node;
+        node.mProbation = true;
+    }
+
+    /**
+     * Caller must hold latch, and the node must not be linked.
+     */
+    private void linkLeastProbation(final Node node) {
+        Node least = mLeastRecentProbation;
+        node.mMoreUsed = least;
+        if (least == null) {
+            mMostRecentProbation = node;
+        } else {
+            least.mLessUsed = node;
+        }
+        mLeastRecentProbation = node;
+        node.mProbation = true;
+    }
+
     /**
      * Move or add node to the end of the dirty list.
      *
@@ -532,11 +751,154 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
     @Override
     public void flushDirty(final int dirtyState) throws IOException {
         final PageDb pageDb = mDatabase.mPageDb;
+        final CheckpointPacer pacer = mDatabase.mCheckpointPacer;
 
         synchronized (this) {
             mFlushNext = mFirstDirty;
         }
 
+        int batchSize = pageDb.batchSize();
+        if (batchSize > 1) {
+            flushDirty(pageDb, pacer, dirtyState, batchSize);
+            return;
+        }
+
+        Node node;
+        while ((node = nextFlush(dirtyState)) != null) {
+            node.acquireExclusive();
+            int state = node.mCachedState;
+            if (state != dirtyState) {
+                // Node state is now clean or the new dirty state, so don't write it.
+                node.releaseExclusive();
+                continue;
+            }
+
+            node.downgrade();
+            try {
+                node.write(pageDb);
+                // Clean state must be set after write completes. Although the latch has been
+                // downgraded to shared, modifying the state is safe because no other thread
+                // could have changed it. This is because the exclusive latch was acquired
+                // first. Releasing the shared latch performs a volatile assignment, and so the
+                // state change gets propagated correctly. This holds true even when using the
+                // Clutch instead of a plain Latch. Exclusive acquisition always disables
+                // contended mode, and it cannot flip back until after the downgraded latch has
+                // been fully released.
+                node.mCachedState = Node.CACHED_CLEAN;
+            } catch (Throwable e) {
+                // Add it back to the list for flushing again later.
+                addDirty(node, (byte) state);
+                throw e;
+            } finally {
+                node.releaseShared();
+            }
+
+            pacer.flushed(1, mPageSize);
+        }
+    }
+
+    /**
+     * Variant of flushDirty which writes nodes in batches. Nodes in the batch remain latched
+     * shared until the batch is written, and so no thread waits for a node latch while
+     * holding any others.
+     */
+    private void flushDirty(PageDb pageDb, CheckpointPacer pacer, int dirtyState, int batchSize)
+        throws IOException
+    {
+        var nodes = new Node[batchSize];
+        var ids = new long[batchSize];
+        var addrs = new long[batchSize];
+        int count = 0;
+
+        try {
+            Node node;
+            while ((node = nextFlush(dirtyState)) != null) {
+                if (count == 0) {
+                    node.acquireExclusive();
+                } else if (!node.tryAcquireExclusive()) {
+                    int n = count;
+                    count = 0;
+                    writeBatch(pageDb, pacer, dirtyState, nodes, ids, addrs, n);
+                    node.acquireExclusive();
+                }
+
+                if (node.mCachedState != dirtyState) {
+                    // Node state is now clean or the new dirty state, so don't write it.
+                    node.releaseExclusive();
+                    continue;
+                }
+
+                node.downgrade();
+                try {
+                    addrs[count] = node.prepareWrite();
+                } catch (Throwable e) {
+                    // Add it back to the list for flushing again later.
+                    addDirty(node, (byte) dirtyState);
+                    node.releaseShared();
+                    throw e;
+                }
+                ids[count] = node.id();
+                nodes[count++] = node;
+
+                if (count >= batchSize) {
+                    int n = count;
+                    count = 0;
+                    writeBatch(pageDb, pacer, dirtyState, nodes, ids, addrs, n);
+                }
+            }
+        } catch (Throwable e) {
+            // Add any unwritten nodes back to the list for flushing again later.
+            for (int i=0; i<count; i++) {
+                Node node = nodes[i];
+                addDirty(node, (byte) dirtyState);
+                node.releaseShared();
+            }
+            throw e;
+        }
+
+        if (count > 0) {
+            writeBatch(pageDb, pacer, dirtyState, nodes, ids, addrs, count);
+        }
+    }
+
+    /**
+     * Writes a batch of nodes which are latched shared, marks them clean, and releases the
+     * latches. If the write fails, the nodes are added back to the dirty list.
+     */
+    private void writeBatch(PageDb pageDb, CheckpointPacer pacer, int dirtyState,
+                            Node[] nodes, long[] ids, long[] addrs, int count)
+        throws WriteFailureException
+    {
+        try {
+            pageDb.writePages(ids, addrs, count);
+            // See comments in the flushDirty method regarding the clean state assignment.
+            for (int i=0; i<count; i++) {
+                nodes[i].mCachedState = Node.CACHED_CLEAN;
+            }
+        } catch (Throwable e) {
+            // Add them back to the list for flushing again later.
+            for (int i=0; i<count; i++) {
+                addDirty(nodes[i], (byte) dirtyState);
+            }
+            if (e instanceof IOException ioe) {
+                throw WriteFailureException.from(ioe);
+            }
+            throw Utils.rethrow(e);
+        } finally {
+            for (int i=0; i<count; i++) {
+                nodes[i].releaseShared();
+                nodes[i] = null;
+            }
+        }
+
+        pacer.flushed(count, (long) count * mPageSize);
+    }
+
+    /**
+     * Returns the next node to be flushed, removing it from the dirty list. Clean nodes are
+     * skipped, and null is returned when all done flushing.
+     */
+    private Node nextFlush(int dirtyState) {
         while (true) {
             Node node;
             int state;
@@ -544,7 +906,7 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
             synchronized (this) {
                 node = mFlushNext;
                 if (node == null) {
-                    return;
+                    return null;
                 }
 
                 state = node.mCachedState;
@@ -552,7 +914,7 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
                 if (state == (dirtyState ^ 1)) {
                     // Now seeing nodes with new dirty state, so all done flushing.
                     mFlushNext = null;
-                    return;
+                    return null;
                 }
 
                 mFlushNext = node.mNextDirty;
@@ -578,39 +940,12 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
                 mDirtyCount--;
             }
 
-            if (state == Node.CACHED_CLEAN) {
-                // Don't write clean nodes. There's no need to latch and double-check the node
-                // state, since the next valid state can only be the new dirty state.
-                continue;
-            }
-
-            node.acquireExclusive();
-            state = node.mCachedState;
-            if (state != dirtyState) {
-                // Node state is now clean or the new dirty state, so don't write it.
-                node.releaseExclusive();
-                continue;
+            if (state != Node.CACHED_CLEAN) {
+                return node;
             }
 
-            node.downgrade();
-            try {
-                node.write(pageDb);
-                // Clean state must be set after write completes. Although the latch has been
-                // downgraded to shared, modifying the state is safe because no other thread
-                // could have changed it. This is because the exclusive latch was acquired
-                // first. Releasing the shared latch performs a volatile assignment, and so the
-                // state change gets propagated correctly. This holds true even when using the
-                // Clutch instead of a plain Latch. Exclusive acquisition always disables
-                // contended mode, and it cannot flip back until after the downgraded latch has
-                // been fully released.
-                node.mCachedState = Node.CACHED_CLEAN;
-            } catch (Throwable e) {
-                // Add it back to the list for flushing again later.
-                addDirty(node, (byte) state);
-                throw e;
-            } finally {
-                node.releaseShared();
-            }
+            // Don't write clean nodes. There's no need to latch and double-check the node
+            // state, since the next valid state can only be the new dirty state.
         }
     }
 
@@ -618,6 +953,25 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
         return mDirtyCount;
     }
 
+    /**
+     * Called when a node had to be read in because it wasn't in the cache.
+     */
+    void missed() {
+        cMissCountHandle.getAndAdd(this, 1L);
+    }
+
+    /**
+     * Returns an estimate of the number of cache hits, based on sampled calls to the used
+     * method.
+     */
+    long hitCount() {
+        return (long) cHitCountHandle.getOpaque(this);
+    }
+
+    long missCount() {
+        return (long) cMissCountHandle.getOpaque(this);
+    }
+
     long acquireSparePageAddr() {
         mSparePageLatch.acquireExclusive();
         return mSparePageAddr;
@@ -641,17 +995,14 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
             Node node = mLeastRecentlyUsed;
             mLeastRecentlyUsed = null;
             mMostRecentlyUsed = null;
+            deleteAll(node);
 
-            while (node != null) {
-                Node next = node.mMoreUsed;
-                node.mLessUsed = null;
-                node.mMoreUsed = null;
-
-                // Free memory and make node appear to be evicted.
-                node.delete(mDatabase);
+            node = mLeastRecentProbation;
+            mLeastRecentProbation = null;
+            mMostRecentProbation = null;
+            deleteAll(node);
 
-                node = next;
-            }
+            mProtectedSize = 0;
         } finally {
             releaseExclusive();
         }
@@ -678,4 +1029,23 @@ final class NodeGroup extends Clutch.Pack implements Checkpointer.DirtySet {
             mSparePageLatch.releaseExclusive();
         }
     }
+
+    /**
+     * Caller must hold latch.
+     *
+     * @param node least recently used node in a usage list
+     */
+    private void deleteAll(Node node) {
+        while (node != null) {
+            Node next = node.mMoreUsed;
+            node.mLessUsed = null;
+            node.mMoreUsed = null;
+            node.mProbation = false;
+
+            // Free memory and make node appear to be evicted.
+            node.delete(mDatabase);
+
+            node = next;
+        }
+    }
 }
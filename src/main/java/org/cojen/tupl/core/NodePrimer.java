@@ -0,0 +1,189 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.io.DataInput;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.cojen.tupl.util.Runner;
+
+/**
+ * Decodes a cache primer stream which identifies the loaded nodes of each index, and then
+ * loads them in waves. Internal nodes are loaded first, since they're the most heavily used,
+ * and then the leaf nodes are loaded. Within each wave, nodes are loaded in physical order
+ * by multiple threads, and priming stops when the byte limit is reached.
+ *
+ * <p>Nodes are always loaded by searching from the root, using a key which was recorded
+ * along with the node identifier. If the index has changed since the primer was created,
+ * then some nodes won't be found, but priming never loads anything which isn't a node.
+ *
+ * @author Brian S O'Neill
+ * @see BTree#writeNodePrimer
+ */
+final class NodePrimer {
+    static final int END = 0, INTERNAL = 1, LEAF = 2;
+
+    private record Entry(BTree tree, long nodeId, byte[] key) { }
+
+    private final List<Entry> mInternal, mLeaf;
+
+    private Entry[] mEntries;
+    private boolean mLeafWave;
+    private int mNext;
+    private long mRemaining;
+    private int mTaskCount;
+    private IOException mEx;
+
+    NodePrimer() {
+        mInternal = new ArrayList<>();
+        mLeaf = new ArrayList<>();
+    }
+
+    /**
+     * Reads the entries for one index, up to the terminator.
+     *
+     * @param tree pass null to skip the entries
+     */
+    void read(BTree tree, DataInput din) throws IOException {
+        while (true) {
+            int type = din.readUnsignedByte();
+            if (type == END) {
+                return;
+            }
+            long nodeId = din.readLong();
+            var key = new byte[din.readUnsignedShort()];
+            din.readFully(key);
+            if (tree != null) {
+                (type == INTERNAL ? mInternal : mLeaf).add(new Entry(tree, nodeId, key));
+            }
+        }
+    }
+
+    /**
+     * Loads the nodes for all the entries which were read.
+     *
+     * @param threads maximum number of threads which load nodes concurrently
+     * @param limit maximum number of nodes to load
+     */
+    void run(int threads, long limit) throws IOException {
+        mRemaining = limit;
+
+        if (runWave(mInternal, false, threads)) {
+            runWave(mLeaf, true, threads);
+        }
+    }
+
+    /**
+     * @return false if the limit has been reached
+     */
+    private boolean runWave(List<Entry> list, boolean leaf, int threads) throws IOException {
+        Entry[] entries = list.toArray(new Entry[list.size()]);
+        list.clear();
+
+        // Load in physical order, which is the same as the node identifier order.
+        Arrays.sort(entries, Comparator.comparingLong(Entry::nodeId));
+
+        synchronized (this) {
+            mEntries = entries;
+            mLeafWave = leaf;
+            mNext = 0;
+            mTaskCount = 1;
+        }
+
+        int spawn = Math.min(threads, entries.length) - 1;
+
+        for (int i=0; i<spawn; i++) {
+            synchronized (this) {
+                mTaskCount++;
+            }
+            try {
+                Runner.start(this::prime);
+            } catch (Throwable e) {
+                synchronized (this) {
+                    mTaskCount--;
+                }
+                break;
+            }
+        }
+
+        prime();
+
+        // Wait for other task threads to finish.
+        synchronized (this) {
+            while (true) {
+                if (mEx != null) {
+                    throw mEx;
+                }
+                if (mTaskCount <= 0) {
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            mEntries = null;
+
+            return mRemaining > 0;
+        }
+    }
+
+    private void prime() {
+        try {
+            while (true) {
+                Entry entry;
+                boolean leaf;
+
+                synchronized (this) {
+                    if (mEx != null || mRemaining <= 0 || mNext >= mEntries.length) {
+                        return;
+                    }
+                    entry = mEntries[mNext++];
+                    leaf = mLeafWave;
+                }
+
+                int loaded = entry.tree().primeNode(entry.key(), entry.nodeId(), leaf);
+
+                if (loaded != 0) {
+                    synchronized (this) {
+                        mRemaining -= loaded;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (mEx == null) {
+                    mEx = e;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                mTaskCount--;
+                notifyAll();
+            }
+        }
+    }
+}
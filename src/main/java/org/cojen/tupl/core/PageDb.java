@@ -178,6 +178,28 @@ abstract class PageDb implements CauseCloseable {
      */
     public abstract long evictPage(long id, long pageAddr) throws IOException;
 
+    /**
+     * Returns the maximum number of pages which can be efficiently written as a single batch.
+     * Returns 1 if batching isn't supported.
+     */
+    public int batchSize() {
+        return 1;
+    }
+
+    /**
+     * Writes a batch of allocated pages, but doesn't commit them. Same as calling writePage
+     * for each page.
+     *
+     * @param ids previously allocated page ids
+     * @param pageAddrs data to write, one address per page
+     * @param count number of pages to write
+     */
+    public void writePages(long[] ids, long[] pageAddrs, int count) throws IOException {
+        for (int i=0; i<count; i++) {
+            writePage(ids[i], pageAddrs[i]);
+        }
+    }
+
     /**
      * Deletes a page, but doesn't commit it. Deleted pages are not used for
      * new writes, and they are still readable until after a commit. Caller
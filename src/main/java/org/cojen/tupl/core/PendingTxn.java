@@ -22,7 +22,10 @@ import java.lang.invoke.VarHandle;
 
 import java.io.IOException;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.cojen.tupl.CommitCallback;
+import org.cojen.tupl.ConfirmationFailureException;
 
 import org.cojen.tupl.diag.EventListener;
 import org.cojen.tupl.diag.EventType;
@@ -40,6 +43,9 @@ final class PendingTxn extends Locker implements Runnable {
 
     private final Object mAttachment;
 
+    // Is non-null when committed by Transaction.commitAsync.
+    private final CompletableFuture<Void> mCommitFuture;
+
     private volatile long mCommitPos;
     private static final VarHandle cCommitPosHandle;
 
@@ -65,9 +71,11 @@ final class PendingTxn extends Locker implements Runnable {
         mHasState = from.mHasState;
         Object att = from.attachment();
         mAttachment = att;
+        mCommitFuture = from.mCommitFuture;
 
         from.transferExclusive(this);
 
+        from.mCommitFuture = null;
         from.mUndoLog = null;
         from.mHasState = 0;
         from.mTxnId = 0;
@@ -181,6 +189,18 @@ final class PendingTxn extends Locker implements Runnable {
     }
 
     private void finished(Object status) {
+        CompletableFuture<Void> future = mCommitFuture;
+        if (future != null) {
+            if (status == null) {
+                future.complete(null);
+            } else if (status instanceof Throwable e) {
+                future.completeExceptionally(e);
+            } else {
+                future.completeExceptionally
+                    (new ConfirmationFailureException(String.valueOf(status)));
+            }
+        }
+
         if (mAttachment instanceof CommitCallback callback) {
             try {
                 callback.finished(mTxnId, status);
@@ -0,0 +1,476 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+
+import java.lang.reflect.Constructor;
+
+import java.net.SocketAddress;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.util.zip.CRC32C;
+
+import org.cojen.tupl.io.PageArray;
+
+import org.cojen.tupl.repl.SnapshotReceiver;
+import org.cojen.tupl.repl.StreamReplicator;
+
+import org.cojen.tupl.util.Runner;
+
+import static org.cojen.tupl.core.PageOps.*;
+import static org.cojen.tupl.core.Utils.*;
+
+/**
+ * Receives a snapshot as page ranges, over several connections to the sender. Each page is
+ * followed by a CRC32C checksum, which is verified as the page arrives. If a connection fails
+ * or if a page is corrupt, a new connection is opened which resumes from the page which
+ * wasn't received.
+ *
+ * <p>The stream can be read sequentially, but the restore process only reads the header
+ * pages this way. The remaining pages are transferred in parallel by the {@link #restorePages
+ * restorePages} method.
+ *
+ * @author Brian S O'Neill
+ * @see ReplUtils#restoreRequest
+ */
+final class RangedSnapshotInputStream extends InputStream {
+    // Maximum number of connections to open for transferring pages in parallel.
+    private static final int MAX_CONNECTIONS = 4;
+
+    // Ranges are split into at least this many chunks per connection, which balances the
+    // load when some connections are faster than others.
+    private static final int CHUNKS_PER_CONNECTION = 16;
+
+    private static final int MIN_CHUNK_PAGES = 1024;
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final StreamReplicator mRepl;
+    private final SocketAddress mSender;
+    private final String mId;
+    private final int mPageSize;
+    private final long mPageCount;
+
+    // Is null if not compressed.
+    private final Constructor<?> mLz4Input;
+
+    private final AtomicLong mReceived;
+
+    private volatile boolean mFinished;
+    private volatile Throwable mFailure;
+
+    // Sequential reading state.
+    private final byte[] mPage;
+    private int mPagePos;
+    private long mPagesRead;
+    private long mNextIndex;
+    private Range mRange;
+
+    private boolean mClosed;
+
+    /**
+     * @param grant the initial snapshot response; is closed by this constructor
+     * @param lz4Input is non-null if pages should be decompressed
+     */
+    RangedSnapshotInputStream(StreamReplicator repl, SnapshotReceiver grant,
+                              Constructor<?> lz4Input)
+        throws IOException
+    {
+        try (grant) {
+            Map<String, String> options = grant.options();
+
+            mRepl = repl;
+            mSender = grant.senderAddress();
+            mId = options.get("snapshot");
+
+            try {
+                mPageSize = Integer.parseInt(options.get("pageSize"));
+            } catch (NumberFormatException e) {
+                throw new IOException("Illegal page size: " + options.get("pageSize"));
+            }
+
+            long length = grant.length();
+            if (mPageSize <= 0 || length < 0 || length % mPageSize != 0) {
+                throw new IOException("Illegal snapshot length: " + length);
+            }
+
+            mPageCount = length / mPageSize;
+            mLz4Input = lz4Input;
+        }
+
+        mReceived = new AtomicLong();
+
+        mPage = new byte[mPageSize];
+        mPagePos = mPageSize;
+    }
+
+    SocketAddress senderAddress() {
+        return mSender;
+    }
+
+    /**
+     * Returns the amount of page bytes received.
+     */
+    long received() {
+        return mReceived.get();
+    }
+
+    boolean isFinished() {
+        return mFinished;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (mPagePos >= mPageSize && !nextPage()) {
+            return -1;
+        }
+        return mPage[mPagePos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (mPagePos >= mPageSize && !nextPage()) {
+            return -1;
+        }
+        int amt = Math.min(len, mPageSize - mPagePos);
+        System.arraycopy(mPage, mPagePos, b, off, amt);
+        mPagePos += amt;
+        return amt;
+    }
+
+    @Override
+    public int available() {
+        return mPageSize - mPagePos;
+    }
+
+    /**
+     * Transfers all the remaining pages in parallel, writing them directly into the given
+     * array. All pages which were read sequentially must have been fully consumed.
+     *
+     * @param index the index of the first page to transfer, which is the number of pages
+     * which were read sequentially
+     */
+    void restorePages(PageArray rawArray, long index) throws IOException {
+        if (rawArray.pageSize() != mPageSize) {
+            throw new IOException
+                ("Mismatched page size: " + rawArray.pageSize() + " != " + mPageSize);
+        }
+
+        if (mClosed) {
+            throw new IOException("Closed");
+        }
+
+        if (mPagePos < mPageSize || index != mPagesRead) {
+            throw new IllegalStateException();
+        }
+
+        // Finish the range which was started by the sequential reads.
+        Range range = mRange;
+        if (range != null) {
+            mRange = null;
+            long addr = p_transferPage(mPage, rawArray.directPageSize());
+            try (range) {
+                while (true) {
+                    long pageIndex = range.index();
+                    if (!range.readPage(mPage)) {
+                        break;
+                    }
+                    rawArray.writePage(pageIndex, p_transferArrayToPage(mPage, addr));
+                }
+            } finally {
+                p_delete(addr);
+            }
+        }
+
+        long remaining = mPageCount - mNextIndex;
+
+        if (remaining > 0) {
+            int numConnections = (int) Math.min
+                (MAX_CONNECTIONS, (remaining + MIN_CHUNK_PAGES - 1) / MIN_CHUNK_PAGES);
+            long chunkPages = Math.max
+                (MIN_CHUNK_PAGES, remaining / (numConnections * (long) CHUNKS_PER_CONNECTION));
+
+            var next = new AtomicLong(mNextIndex);
+
+            var tasks = new Future[numConnections - 1];
+            for (int i=0; i<tasks.length; i++) {
+                tasks[i] = Runner.current().submit(() -> transfer(rawArray, next, chunkPages));
+            }
+
+            transfer(rawArray, next, chunkPages);
+
+            for (var task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    failed(e);
+                    throw new InterruptedIOException();
+                } catch (ExecutionException e) {
+                    failed(e.getCause());
+                }
+            }
+
+            Throwable failure = mFailure;
+            if (failure != null) {
+                throw rethrow(failure);
+            }
+        }
+
+        mNextIndex = mPageCount;
+        mPagesRead = mPageCount;
+        mFinished = true;
+    }
+
+    /**
+     * Is called by each connection task, which claims and transfers chunks of pages until
+     * none are left.
+     */
+    private void transfer(PageArray rawArray, AtomicLong next, long chunkPages) {
+        var page = new byte[mPageSize];
+        long addr = p_transferPage(page, rawArray.directPageSize());
+
+        try {
+            long start;
+            while (mFailure == null && (start = next.getAndAdd(chunkPages)) < mPageCount) {
+                try (var range = new Range(start, Math.min(mPageCount, start + chunkPages))) {
+                    while (mFailure == null) {
+                        long index = range.index();
+                        if (!range.readPage(page)) {
+                            break;
+                        }
+                        rawArray.writePage(index, p_transferArrayToPage(page, addr));
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            failed(e);
+        } finally {
+            p_delete(addr);
+        }
+    }
+
+    private synchronized void failed(Throwable e) {
+        if (mFailure == null) {
+            mFailure = e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+
+        mClosed = true;
+        mFinished = true;
+        failed(new IOException("Closed"));
+
+        Range range = mRange;
+        if (range != null) {
+            mRange = null;
+            range.close();
+        }
+
+        // Release the snapshot, allowing the sender to close it without waiting for it to
+        // time out.
+        var options = new HashMap<String, String>();
+        options.put("snapshot", mId);
+        options.put("release", "true");
+
+        try {
+            mRepl.requestSnapshot(mSender, options).close();
+        } catch (IOException e) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * @return false if no pages remain
+     */
+    private boolean nextPage() throws IOException {
+        if (mClosed) {
+            throw new IOException("Closed");
+        }
+
+        while (true) {
+            Range range = mRange;
+
+            if (range == null) {
+                long start = mNextIndex;
+                if (start >= mPageCount) {
+                    mFinished = true;
+                    return false;
+                }
+                long end = Math.min(mPageCount, start + MIN_CHUNK_PAGES);
+                mRange = range = new Range(start, end);
+                mNextIndex = end;
+            }
+
+            if (range.readPage(mPage)) {
+                mPagePos = 0;
+                mPagesRead++;
+                return true;
+            }
+
+            mRange = null;
+        }
+    }
+
+    /**
+     * Receives a range of pages over one connection at a time.
+     */
+    private final class Range implements Closeable {
+        private final long mEnd;
+        private long mIndex;
+
+        private SnapshotReceiver mReceiver;
+        private InputStream mIn;
+
+        private final CRC32C mCrc;
+        private final byte[] mCrcBuf;
+
+        Range(long start, long end) {
+            mIndex = start;
+            mEnd = end;
+            mCrc = new CRC32C();
+            mCrcBuf = new byte[4];
+        }
+
+        /**
+         * Returns the index of the next page to be read.
+         */
+        long index() {
+            return mIndex;
+        }
+
+        /**
+         * Reads the next page into the given buffer, opening a new connection if the current
+         * one fails or if the page is corrupt.
+         *
+         * @return false if no pages remain in the range
+         */
+        boolean readPage(byte[] page) throws IOException {
+            if (mIndex >= mEnd) {
+                close();
+                return false;
+            }
+
+            int attempts = 0;
+
+            while (true) {
+                try {
+                    if (mIn == null) {
+                        connect();
+                    }
+
+                    readFully(mIn, page, 0, page.length);
+                    readFully(mIn, mCrcBuf, 0, mCrcBuf.length);
+
+                    mCrc.reset();
+                    mCrc.update(page);
+
+                    if ((int) mCrc.getValue() != decodeIntLE(mCrcBuf, 0)) {
+                        throw new IOException("Checksum mismatch for page: " + mIndex);
+                    }
+
+                    mIndex++;
+                    mReceived.addAndGet(page.length);
+
+                    return true;
+                } catch (InterruptedIOException e) {
+                    close();
+                    throw e;
+                } catch (IOException e) {
+                    close();
+                    if (++attempts >= MAX_ATTEMPTS || mFailure != null) {
+                        throw e;
+                    }
+                }
+
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            mIn = null;
+            SnapshotReceiver receiver = mReceiver;
+            if (receiver != null) {
+                mReceiver = null;
+                closeQuietly(receiver);
+            }
+        }
+
+        private void connect() throws IOException {
+            var options = new HashMap<String, String>();
+            options.put("snapshot", mId);
+            options.put("start", String.valueOf(mIndex));
+            options.put("end", String.valueOf(mEnd));
+            if (mLz4Input != null) {
+                options.put("compress", "LZ4Frame");
+            }
+
+            SnapshotReceiver receiver = mRepl.requestSnapshot(mSender, options);
+
+            try {
+                Map<String, String> granted = receiver.options();
+
+                if (!mId.equals(granted.get("snapshot"))
+                    || receiver.length() != (mEnd - mIndex) * (mPageSize + 4L))
+                {
+                    throw new IOException("Mismatched snapshot range: " + receiver);
+                }
+
+                InputStream in = receiver.inputStream();
+
+                if ("LZ4Frame".equals(granted.get("compress"))) {
+                    try {
+                        in = (InputStream) mLz4Input.newInstance(in);
+                    } catch (Throwable e) {
+                        throw new IOException("Unable to decompress", e);
+                    }
+                }
+
+                mReceiver = receiver;
+                mIn = in;
+            } catch (Throwable e) {
+                closeQuietly(receiver);
+                throw e;
+            }
+        }
+    }
+}
@@ -56,7 +56,7 @@ class RedoEventPrinter implements RedoVisitor {
             System.out.println(String.format(message, messageArgs));
         };
 
-        new RedoLog(crypto, baseFile, logId, 0, null)
+        new RedoLog(crypto, baseFile, logId, 0, 0, null)
             .replay(true, new RedoEventPrinter(listener, EventType.DEBUG), null, null, null);
     }
 
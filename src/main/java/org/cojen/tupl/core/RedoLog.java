@@ -28,14 +28,18 @@ import java.io.OutputStream;
 
 import java.nio.channels.ClosedChannelException;
 
+import java.util.ArrayList;
 import java.util.TreeMap;
 
+import java.util.concurrent.locks.LockSupport;
+
 import java.security.GeneralSecurityException;
 
 import org.cojen.tupl.DatabaseException;
 import org.cojen.tupl.DurabilityMode;
 import org.cojen.tupl.WriteFailureException;
 
+import org.cojen.tupl.diag.DatabaseStats;
 import org.cojen.tupl.diag.EventListener;
 import org.cojen.tupl.diag.EventType;
 
@@ -43,6 +47,9 @@ import org.cojen.tupl.ext.Crypto;
 
 import org.cojen.tupl.io.FileIO;
 
+import org.cojen.tupl.util.Latch;
+import org.cojen.tupl.util.Runner;
+
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 
@@ -62,12 +69,15 @@ final class RedoLog extends RedoWriter {
     private static final long MAGIC_NUMBER = 431399725605778814L;
     private static final int ENCODING_VERSION = 20130106;
 
-    private static final VarHandle cOldFileIOHandle;
+    private static final VarHandle cOldFileIOHandle, cSyncCommitCountHandle, cSyncWaitersHandle;
 
     static {
         try {
             var lookup = MethodHandles.lookup();
             cOldFileIOHandle = lookup.findVarHandle(RedoLog.class, "mOldFileIO", FileIO.class);
+            cSyncCommitCountHandle = lookup.findVarHandle
+                (RedoLog.class, "mSyncCommitCount", long.class);
+            cSyncWaitersHandle = lookup.findVarHandle(RedoLog.class, "mSyncWaiters", int.class);
         } catch (Throwable e) {
             throw Utils.rethrow(e);
         }
@@ -97,13 +107,30 @@ final class RedoLog extends RedoWriter {
 
     private long mDeleteLogId;
 
+    // Group commit state. Only one thread at a time performs a sync on behalf of SYNC
+    // commits, and all commits which were written before the sync began are released
+    // together. The sync counters are only modified while holding the sync latch.
+    private final long mGroupCommitDelayNanos;
+    private final Latch mSyncLatch;
+    private volatile long mSyncedPosition;
+    private volatile int mSyncWaiters;
+    private volatile long mSyncCommitCount;
+    private volatile long mRedoSyncCount;
+    private volatile long mRedoSyncNanos;
+
+    // Commits which are waiting for an asynchronous sync. Access while synchronized on the list.
+    private final ArrayList<LocalTransaction.AsyncCommit> mAsyncSyncs;
+    private long mAsyncSyncPosition;
+    private boolean mAsyncSyncActive;
+
     /**
      * Open for replay.
      *
      * @param logId first log id to create
      */
     RedoLog(Launcher launcher, long logId, long redoPos) throws IOException {
-        this(launcher.mRedoCrypto, launcher.mBaseFile, logId, redoPos, null);
+        this(launcher.mRedoCrypto, launcher.mBaseFile, logId, redoPos,
+             launcher.mGroupCommitDelayNanos, null);
     }
 
     /**
@@ -115,15 +142,17 @@ final class RedoLog extends RedoWriter {
         throws IOException
     {
         this(launcher.mRedoCrypto, launcher.mBaseFile,
-             replayed.mLogId, replayed.mPosition, context);
+             replayed.mLogId, replayed.mPosition, launcher.mGroupCommitDelayNanos, context);
     }
 
     /**
      * @param crypto optional
      * @param logId first log id to create
+     * @param groupCommitDelayNanos maximum delay for sharing a sync with other commits
      * @param context used for creating next log file; pass null for replay mode
      */
-    RedoLog(Crypto crypto, File baseFile, long logId, long redoPos, TransactionContext context)
+    RedoLog(Crypto crypto, File baseFile, long logId, long redoPos,
+            long groupCommitDelayNanos, TransactionContext context)
         throws IOException
     {
         mCrypto = crypto;
@@ -132,6 +161,10 @@ final class RedoLog extends RedoWriter {
 
         mBuffer = new byte[8192];
 
+        mGroupCommitDelayNanos = groupCommitDelayNanos;
+        mSyncLatch = new Latch();
+        mAsyncSyncs = new ArrayList<>();
+
         acquireExclusive();
         mLogId = logId;
         mPosition = redoPos;
@@ -336,13 +369,126 @@ final class RedoLog extends RedoWriter {
 
     @Override
     void txnCommitSync(long commitPos) throws IOException {
+        cSyncCommitCountHandle.getAndAdd(this, 1L);
+
+        if (commitPos <= mSyncedPosition) {
+            // Another thread already performed a sync which covers this commit.
+            return;
+        }
+
+        cSyncWaitersHandle.getAndAdd(this, 1);
+        mSyncLatch.acquireExclusive();
         try {
-            sync(false, -1);
+            if (commitPos > mSyncedPosition) {
+                groupSync();
+            }
         } catch (IOException e) {
             throw rethrow(e, mCloseCause);
+        } finally {
+            mSyncLatch.releaseExclusive();
+            cSyncWaitersHandle.getAndAdd(this, -1);
         }
     }
 
+    @Override
+    void txnCommitSyncAsync(LocalTransaction.AsyncCommit commit) {
+        cSyncCommitCountHandle.getAndAdd(this, 1L);
+
+        long commitPos = commit.mCommitPos;
+        if (commitPos <= mSyncedPosition) {
+            commit.completed();
+            return;
+        }
+
+        synchronized (mAsyncSyncs) {
+            mAsyncSyncs.add(commit);
+            mAsyncSyncPosition = Math.max(mAsyncSyncPosition, commitPos);
+            if (mAsyncSyncActive) {
+                return;
+            }
+            mAsyncSyncActive = true;
+        }
+
+        Runner.start(this::asyncSync);
+    }
+
+    /**
+     * Performs syncs on behalf of asynchronous commits until none remain. Only one thread at
+     * a time runs this method.
+     */
+    private void asyncSync() {
+        while (true) {
+            ArrayList<LocalTransaction.AsyncCommit> commits;
+            long position;
+            synchronized (mAsyncSyncs) {
+                if (mAsyncSyncs.isEmpty()) {
+                    mAsyncSyncActive = false;
+                    return;
+                }
+                commits = new ArrayList<>(mAsyncSyncs);
+                mAsyncSyncs.clear();
+                position = mAsyncSyncPosition;
+            }
+
+            Throwable failure = null;
+
+            cSyncWaitersHandle.getAndAdd(this, 1);
+            mSyncLatch.acquireExclusive();
+            try {
+                if (position > mSyncedPosition) {
+                    groupSync();
+                }
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                mSyncLatch.releaseExclusive();
+                cSyncWaitersHandle.getAndAdd(this, -1);
+            }
+
+            for (LocalTransaction.AsyncCommit commit : commits) {
+                if (failure == null) {
+                    commit.completed();
+                } else {
+                    // Closes the database if the failure isn't recoverable, preventing a
+                    // later sync from reporting success over the lost commits.
+                    commit.failed(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs a sync which covers all commits written so far, including those of threads
+     * which are waiting to acquire the sync latch. Caller must hold the sync latch.
+     */
+    private void groupSync() throws IOException {
+        long delay = mGroupCommitDelayNanos;
+        if (delay > 0 && mSyncWaiters > 1) {
+            // Other commits are waiting, so give more a chance to join this sync.
+            LockSupport.parkNanos(this, delay);
+        }
+
+        // Any commit at or below this position was written by the committing thread before
+        // it called txnCommitSync, and so the sync will cover it.
+        acquireShared();
+        long position = mPosition;
+        releaseShared();
+
+        long start = System.nanoTime();
+        sync(false, -1);
+        mRedoSyncNanos += System.nanoTime() - start;
+        mRedoSyncCount++;
+
+        mSyncedPosition = position;
+    }
+
+    @Override
+    void addStats(DatabaseStats stats) {
+        stats.syncCommitCount = mSyncCommitCount;
+        stats.redoSyncCount = mRedoSyncCount;
+        stats.redoSyncDuration = mRedoSyncNanos / 1000;
+    }
+
     @Override
     final long encoding() {
         return 0;
@@ -38,7 +38,7 @@ final class RedoLogApplier extends ReplEngine {
                    LHashTable.Obj<BTreeCursor> cursors)
         throws IOException
     {
-        super(null, maxThreads, db, txns, cursors);
+        super(null, maxThreads, false, db, txns, cursors);
     }
 
     /**
@@ -74,6 +74,24 @@ abstract class RedoWriter extends Latch implements Closeable, Flushable {
         return false;
     }
 
+    /**
+     * Returns a replication position which covers all committed changes, or zero if not
+     * replicated.
+     */
+    long replicationPosition() {
+        return 0;
+    }
+
+    /**
+     * Waits until all the replicated changes before the given position have been applied.
+     *
+     * @param nanosTimeout pass negative for infinite timeout
+     * @return false if timed out
+     */
+    boolean awaitPosition(long position, long nanosTimeout) throws IOException {
+        return true;
+    }
+
     void addStats(DatabaseStats stats) {
     }
 
@@ -84,6 +102,22 @@ abstract class RedoWriter extends Latch implements Closeable, Flushable {
      */
     abstract void txnCommitSync(long commitPos) throws IOException;
 
+    /**
+     * Called after redoCommitFinal instead of txnCommitSync, when the caller doesn't wait.
+     * The given commit is completed when its commit position is durable.
+     */
+    void txnCommitSyncAsync(LocalTransaction.AsyncCommit commit) {
+        Runner.start(() -> {
+            try {
+                txnCommitSync(commit.mCommitPos);
+            } catch (Throwable e) {
+                commit.failed(e);
+                return;
+            }
+            commit.completed();
+        });
+    }
+
     abstract long encoding();
 
     /**
@@ -20,10 +20,14 @@ package org.cojen.tupl.core;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 
+import java.io.InterruptedIOException;
 import java.io.IOException;
 
 import java.util.Objects;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.cojen.tupl.ConfirmationFailureException;
 import org.cojen.tupl.ConfirmationTimeoutException;
 import org.cojen.tupl.DatabaseException;
@@ -74,9 +78,13 @@ final class ReplController extends ReplWriter {
 
     private long mCheckpointNum;
 
+    // Snapshots which are being sent as page ranges.
+    private final SharedSnapshots mSharedSnapshots;
+
     ReplController(ReplEngine engine) {
         super(engine, null);
         mRepl = engine.mRepl;
+        mSharedSnapshots = new SharedSnapshots();
         // Use this instance for replica mode.
         mTxnRedoWriter = this;
         mUnmodifiable = true;
@@ -122,7 +130,7 @@ final class ReplController extends ReplWriter {
         // Can now accept snapshot requests.
         mRepl.snapshotRequestAcceptor(sender -> {
             try {
-                ReplUtils.sendSnapshot(db, sender);
+                ReplUtils.sendSnapshot(db, mSharedSnapshots, sender);
             } catch (Throwable e) {
                 Utils.closeQuietly(sender);
                 if (e instanceof DatabaseException || !(e instanceof IOException)) {
@@ -339,6 +347,9 @@ final class ReplController extends ReplWriter {
 
     @Override
     void addStats(DatabaseStats stats) {
+        mRepl.addStats(stats);
+        mEngine.addStats(stats);
+
         if (!isLeader()) {
             try {
                 // Capture this first, to avoid reporting a negative backlog.
@@ -351,11 +362,69 @@ final class ReplController extends ReplWriter {
         }
     }
 
+    @Override
+    public void close() throws IOException {
+        mSharedSnapshots.close();
+        super.close();
+    }
+
     @Override
     boolean isLeader() {
         return !mTxnRedoWriter.mUnmodifiable;
     }
 
+    @Override
+    long replicationPosition() {
+        StreamReplicator.Writer writer = mTxnRedoWriter.mReplWriter;
+        return writer == null ? mRepl.commitPosition() : writer.position();
+    }
+
+    @Override
+    boolean awaitPosition(long position, long nanosTimeout) throws IOException {
+        long end = nanosTimeout < 0 ? 0 : (System.nanoTime() + nanosTimeout);
+        long delayMillis = 1;
+        CountDownLatch fence = null;
+
+        try {
+            while (true) {
+                StreamReplicator.Writer writer = mTxnRedoWriter.mReplWriter;
+                if (writer != null) {
+                    // When the leader, all the changes which were received as a replica have
+                    // been applied, and the position only advances with local changes.
+                    if (writer.position() >= position) {
+                        return true;
+                    }
+                } else if (fence != null || (fence = mEngine.applyFence(position)) != null) {
+                    if (fence.getCount() == 0) {
+                        return true;
+                    }
+                }
+
+                mEngine.mDatabase.checkClosed();
+
+                if (nanosTimeout >= 0) {
+                    long remainingMillis = (end - System.nanoTime()) / 1_000_000;
+                    if (remainingMillis <= 0) {
+                        return false;
+                    }
+                    delayMillis = Math.min(delayMillis, remainingMillis);
+                }
+
+                // Delay and double each time, up to 10 millis. Like the ReplDecoder catchup
+                // method, this avoids adding notification logic to the decoder.
+                if (fence == null) {
+                    Thread.sleep(delayMillis);
+                } else {
+                    fence.await(delayMillis, TimeUnit.MILLISECONDS);
+                }
+
+                delayMillis = Math.min(delayMillis << 1, 10);
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
     @Override
     void uponLeader(Runnable acquired, Runnable lost) {
         acquireExclusive();
@@ -28,7 +28,10 @@ import java.lang.invoke.VarHandle;
 
 import java.lang.ref.SoftReference;
 
+import java.util.Arrays;
+
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -40,6 +43,7 @@ import org.cojen.tupl.Index;
 import org.cojen.tupl.Transaction;
 import org.cojen.tupl.UnmodifiableReplicaException;
 
+import org.cojen.tupl.diag.DatabaseStats;
 import org.cojen.tupl.diag.EventListener;
 import org.cojen.tupl.diag.EventType;
 
@@ -67,6 +71,9 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
     private static final int MAX_QUEUE_SIZE = 1000;
     private static final int MAX_KEEP_ALIVE_MILLIS = 60_000;
     static final long INFINITE_TIMEOUT = -1L;
+
+    // Maximum time to wait for the decode latch when enqueuing apply fences.
+    private static final long FENCE_LATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
     static final String ATTACHMENT = "replication";
 
     private static final VarHandle cDecodeExceptionHandle;
@@ -106,6 +113,9 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
 
     private final WorkerGroup mWorkerGroup;
 
+    // When true, independent changes are assigned to workers by index and key.
+    private final boolean mPartitioned;
+
     private final Latch mDecodeLatch;
 
     private final TxnTable mTransactions;
@@ -128,10 +138,11 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
     private volatile CopyOnWriteArrayList<RedoListener> mRedoListeners;
 
     /**
+     * @param partitioned pass true to assign independent changes to workers by index and key
      * @param txns recovered transactions; can be null; cleared as a side-effect; keyed by
      * unscrambled id
      */
-    ReplEngine(StreamReplicator repl, int maxThreads,
+    ReplEngine(StreamReplicator repl, int maxThreads, boolean partitioned,
                LocalDatabase db, LHashTable.Obj<LocalTransaction> txns,
                LHashTable.Obj<BTreeCursor> cursors)
         throws IOException
@@ -164,6 +175,8 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
                                             this); // ThreadFactory
         }
 
+        mPartitioned = partitioned && mWorkerGroup != null;
+
         final TxnTable txnTable;
         if (txns == null) {
             txnTable = new TxnTable(16);
@@ -489,7 +502,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
 
         locker.doTryLockUpgradable(indexId, key, INFINITE_TIMEOUT);
 
-        runTaskAnywhere(new Worker.Task() {
+        runTaskKeyed(indexId, key, new Worker.Task() {
             public void run() throws IOException {
                 try {
                     // Full exclusive lock is required.
@@ -693,7 +706,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
             // Acquire the lock on behalf of the transaction, but push it using the correct thread.
             Lock lock = txn.doLockUpgradableNoPush(indexId, key);
 
-            runTask(te, new Worker.Task() {
+            runTask(te, indexId, key, new Worker.Task() {
                 public void run() throws IOException {
                     txn.push(lock);
                     doStore(txn, indexId, key, value);
@@ -710,7 +723,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
             // Acquire locks on behalf of the transaction, but push them using the correct thread.
             Object locks = mDatabase.rowStore().acquireLocksNoPush(txn, indexId, key, value);
 
-            runTask(te, new Worker.Task() {
+            runTask(te, indexId, key, new Worker.Task() {
                 public void run() throws IOException {
                     txn.enter();
                     pushPredicateLocks(txn, locks);
@@ -724,7 +737,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
         // Acquire the lock on behalf of the transaction, but push it using the correct thread.
         Lock lock = txn.doLockUpgradableNoPush(indexId, key);
 
-        runTask(te, new Worker.Task() {
+        runTask(te, indexId, key, new Worker.Task() {
             public void run() throws IOException {
                 txn.enter();
                 if (lock != null) {
@@ -748,7 +761,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
             // Acquire locks on behalf of the transaction, but push them using the correct thread.
             Object locks = mDatabase.rowStore().acquireLocksNoPush(txn, indexId, key, value);
 
-            runTask(te, new Worker.Task() {
+            runTask(te, indexId, key, new Worker.Task() {
                 public void run() throws IOException {
                     pushPredicateLocks(txn, locks);
                     doStore(txn, indexId, key, value);
@@ -761,7 +774,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
         // Acquire the lock on behalf of the transaction, but push it using the correct thread.
         Lock lock = txn.doLockUpgradableNoPush(indexId, key);
 
-        runTask(te, new Worker.Task() {
+        runTask(te, indexId, key, new Worker.Task() {
             public void run() throws IOException {
                 if (lock != null) {
                     txn.push(lock);
@@ -788,7 +801,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
                 // thread.
                 Object locks = mDatabase.rowStore().acquireLocksNoPush(txn, indexId, key, value);
 
-                runTask(te, new Worker.Task() {
+                runTask(te, indexId, key, new Worker.Task() {
                     public void run() throws IOException {
                         pushPredicateLocks(txn, locks);
                         doStore(txn, indexId, key, value);
@@ -803,7 +816,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
         // Acquire the lock on behalf of the transaction, but push it using the correct thread.
         Lock lock = txn.doLockUpgradableNoPush(indexId, key);
 
-        runTask(te, new Worker.Task() {
+        runTask(te, indexId, key, new Worker.Task() {
             public void run() throws IOException {
                 if (lock != null) {
                     txn.push(lock);
@@ -829,7 +842,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
             // Acquire the lock on behalf of the transaction, but push it using the correct thread.
             Lock lock = txn.doLockUpgradableNoPush(indexId, key);
 
-            runTaskAnywhere(new Worker.Task() {
+            runTaskKeyed(indexId, key, new Worker.Task() {
                 public void run() throws IOException {
                     txn.push(lock);
                     // Manually lock and store with a bogus transaction to avoid creating an
@@ -849,7 +862,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
             // Acquire locks on behalf of the transaction, but push them using the correct thread.
             Object locks = mDatabase.rowStore().acquireLocksNoPush(txn, indexId, key, value);
 
-            runTask(te, new Worker.Task() {
+            runTask(te, indexId, key, new Worker.Task() {
                 public void run() throws IOException {
                     pushPredicateLocks(txn, locks);
                     // Manually lock and store with a bogus transaction to avoid creating an
@@ -866,7 +879,7 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
         // Acquire the lock on behalf of the transaction, but push it using the correct thread.
         Lock lock = txn.doLockUpgradableNoPush(indexId, key);
 
-        runTask(te, new Worker.Task() {
+        runTask(te, indexId, key, new Worker.Task() {
             public void run() throws IOException {
                 if (lock != null) {
                     txn.push(lock);
@@ -1372,6 +1385,73 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
         return decoder().decodePositionOpaque();
     }
 
+    /**
+     * Returns a latch which is released once all the operations before the given position
+     * have been applied, or else returns null if they haven't all been decoded yet. The
+     * decode thread only acquires upgradable locks, and so readers which acquire shared locks
+     * don't observe the changes until the worker threads have applied them.
+     */
+    CountDownLatch applyFence(long position) throws InterruptedException {
+        ReplDecoder decoder = mDecoder;
+        if (decoder == null || decoder.decodePositionOpaque() < position) {
+            return null;
+        }
+
+        // Enqueuing tasks requires the decode latch. Don't wait indefinitely for it, since the
+        // decode thread might be waiting for a lock which is held by the caller.
+        if (!mDecodeLatch.tryAcquireExclusiveNanos(FENCE_LATCH_NANOS)) {
+            return null;
+        }
+
+        try {
+            WorkerGroup group = mWorkerGroup;
+            if (group == null) {
+                // The decode thread applies the operations itself.
+                return new CountDownLatch(0);
+            }
+
+            // Tasks run in the order they were enqueued, and so the fence tasks run after
+            // all the operations which were decoded so far.
+            int count = group.workerCount();
+            var fence = new CountDownLatch(count);
+            for (int i=0; i<count; i++) {
+                group.worker(i).enqueue(new Worker.Task() {
+                    @Override
+                    public void run() {
+                        fence.countDown();
+                    }
+                });
+            }
+
+            return fence;
+        } finally {
+            mDecodeLatch.releaseExclusive();
+        }
+    }
+
+    /**
+     * Adds the queue depth and the amount of tasks run by each worker.
+     */
+    void addStats(DatabaseStats stats) {
+        WorkerGroup group = mWorkerGroup;
+        if (group == null) {
+            return;
+        }
+
+        var counts = new long[group.workerCount()];
+        long depth = 0, total = 0;
+
+        for (int i=0; i<counts.length; i++) {
+            Worker w = group.worker(i);
+            depth += w.size();
+            total += counts[i] = w.completedCount();
+        }
+
+        stats.replicationApplyQueueDepth = depth;
+        stats.replicationApplyCount = total;
+        stats.replicationApplyWorkerCounts = counts;
+    }
+
     private ReplDecoder decoder() {
         ReplDecoder decoder = mDecoder;
         if (decoder == null) {
@@ -1592,6 +1672,34 @@ class ReplEngine implements RedoVisitor, ThreadFactory {
         }
     }
 
+    /**
+     * Only to be called from decode thread. Selects a worker for the first task against the
+     * given transaction, and then uses the same worker for subsequent tasks. When partitioned,
+     * the worker is selected by the index and key of the first change.
+     */
+    private void runTask(TxnEntry te, long indexId, byte[] key, Worker.Task task) {
+        Worker w = te.mWorker;
+        if (w == null) {
+            te.mWorker = runTaskKeyed(indexId, key, task);
+        } else {
+            w.enqueue(task);
+        }
+    }
+
+    /**
+     * Only to be called from decode thread. When partitioned, tasks against the same index
+     * and key are always enqueued into the same worker, and so they're spread evenly over all
+     * the workers, and they run in the same order as they were decoded. Locks acquired by the
+     * decode thread still order the changes with respect to other transactions.
+     */
+    private Worker runTaskKeyed(long indexId, byte[] key, Worker.Task task) {
+        if (!mPartitioned) {
+            return runTaskAnywhere(task);
+        }
+        int hash = (int) scramble(indexId * 31 + Arrays.hashCode(key));
+        return mWorkerGroup.enqueue(hash, task);
+    }
+
     private Worker runTaskAnywhere(Worker.Task task) {
         if (mWorkerGroup == null) {
             try {
@@ -26,6 +26,9 @@ import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
 
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
 import java.util.zip.CheckedOutputStream;
 import java.util.zip.Checksum;
 import java.util.zip.CRC32C;
@@ -42,6 +45,8 @@ import org.cojen.tupl.repl.SnapshotReceiver;
 import org.cojen.tupl.repl.SnapshotSender;
 import org.cojen.tupl.repl.StreamReplicator;
 
+import static org.cojen.tupl.core.PageOps.*;
+
 /**
  * Replication utility methods.
  *
@@ -55,6 +60,9 @@ final class ReplUtils extends Utils {
      * snapshot from a replication peer. If null is returned, the database will try to start
      * reading replication data at the lowest position.
      *
+     * <p>If the sender supports it, the snapshot pages are transferred as ranges over several
+     * connections. Otherwise, the snapshot is transferred as a single stream.
+     *
      * @param listener optional restore event listener
      * @return null if no snapshot could be found
      * @throws IOException if a snapshot was found, but requesting it failed
@@ -74,6 +82,11 @@ final class ReplUtils extends Utils {
             lz4Input = null;
         }
 
+        if (repl.isSnapshotSenderSelectable()) {
+            // Ranged transfer requires connecting to the selected sender again.
+            options.put("ranged", "CRC32C");
+        }
+
         SnapshotReceiver receiver = repl.restore(options);
 
         if (receiver == null) {
@@ -83,10 +96,33 @@ final class ReplUtils extends Utils {
         InputStream in;
 
         try {
-            in = receiver.inputStream();
             options = receiver.options();
             long length = receiver.length();
 
+            if (options.get("snapshot") != null) {
+                if (!"CRC32C".equals(options.get("ranged"))) {
+                    throw new IOException("Unknown ranged option: " + options.get("ranged"));
+                }
+
+                if (!"LZ4Frame".equals(options.get("compress"))) {
+                    lz4Input = null;
+                }
+
+                var rin = new RangedSnapshotInputStream(repl, receiver, lz4Input);
+
+                if (listener != null) {
+                    listener.notify(EventType.REPLICATION_RESTORE,
+                                    "Receiving snapshot as page ranges: %1$,d bytes from %2$s",
+                                    length, rin.senderAddress());
+
+                    new Progress(listener, rin::received, rin::isFinished, length).start();
+                }
+
+                return rin;
+            }
+
+            in = receiver.inputStream();
+
             String compressOption = options.get("compress");
 
             if (compressOption != null) {
@@ -119,7 +155,7 @@ final class ReplUtils extends Utils {
                                 "Receiving snapshot: %1$,d bytes from %2$s",
                                 length, receiver.senderAddress());
 
-                new Progress(listener, rin, length).start();
+                new Progress(listener, rin::received, rin::isFinished, length).start();
             }
         } catch (Throwable e) {
             closeQuietly(receiver);
@@ -131,25 +167,29 @@ final class ReplUtils extends Utils {
 
     private static final class Progress extends Thread {
         private final EventListener mListener;
-        private final RestoreInputStream mRestore;
+        private final LongSupplier mReceived;
+        private final BooleanSupplier mFinished;
         private final long mLength;
 
         private long mLastTimeMillis = Long.MIN_VALUE;
         private long mLastReceived;
 
-        Progress(EventListener listener, RestoreInputStream in, long length) {
+        Progress(EventListener listener, LongSupplier received, BooleanSupplier finished,
+                 long length)
+        {
             mListener = listener;
-            mRestore = in;
+            mReceived = received;
+            mFinished = finished;
             mLength = length;
             setDaemon(true);
         }
 
         @Override
         public void run() {
-            while (!mRestore.isFinished()) {
+            while (!mFinished.getAsBoolean()) {
                 long now = System.currentTimeMillis();
 
-                long received = mRestore.received();
+                long received = mReceived.getAsLong();
                 double percent = 100.0 * (received / (double) mLength);
                 long progress = received - mLastReceived;
 
@@ -191,9 +231,28 @@ final class ReplUtils extends Utils {
         }
     }
 
-    public static void sendSnapshot(Database db, SnapshotSender sender) throws IOException {
+    /**
+     * Called when a snapshot is requested by a new group member.
+     *
+     * @param shared holds the snapshots which are being sent as page ranges; pass null if
+     * page ranges aren't supported
+     */
+    public static void sendSnapshot(Database db, SharedSnapshots shared, SnapshotSender sender)
+        throws IOException
+    {
         Map<String, String> requestedOptions = sender.options();
 
+        String id = requestedOptions.get("snapshot");
+        if (id != null) {
+            if (shared == null) {
+                // Closing the sender without beginning indicates that the request failed.
+                sender.close();
+            } else {
+                sendRange(shared, id, sender);
+            }
+            return;
+        }
+
         var options = new HashMap<String, String>();
 
         Checksum checksum = null;
@@ -206,13 +265,39 @@ final class ReplUtils extends Utils {
 
         Constructor lz4Output = null;
         if (snapshot.isCompressible() && "LZ4Frame".equals(requestedOptions.get("compress"))) {
-            try {
-                Class<?> clazz = Class.forName("net.jpountz.lz4.LZ4FrameOutputStream");
-                lz4Output = clazz.getConstructor(OutputStream.class);
+            lz4Output = lz4Output();
+            if (lz4Output != null) {
                 options.put("compress", "LZ4Frame");
+            }
+        }
+
+        if (shared != null && "CRC32C".equals(requestedOptions.get("ranged"))
+            && snapshot instanceof ReadableSnapshot rs)
+        {
+            // Grant the snapshot without sending any pages. The receiver requests the pages
+            // as ranges, over several connections.
+            try {
+                id = shared.register(rs);
             } catch (Throwable e) {
-                // Not supported.
+                closeQuietly(snapshot);
+                throw e;
             }
+
+            try {
+                var grant = new HashMap<String, String>();
+                grant.put("ranged", "CRC32C");
+                grant.put("snapshot", id);
+                grant.put("pageSize", String.valueOf(rs.pageSize()));
+                if (lz4Output != null) {
+                    grant.put("compress", "LZ4Frame");
+                }
+                sender.begin(rs.length(), rs.position(), grant).close();
+            } catch (Throwable e) {
+                shared.close(id);
+                throw e;
+            }
+
+            return;
         }
 
         OutputStream out = sender.begin(snapshot.length(), snapshot.position(), options);
@@ -241,4 +326,103 @@ final class ReplUtils extends Utils {
             out.close();
         }
     }
+
+    /**
+     * Sends a range of pages from a shared snapshot, or releases the snapshot. Each page is
+     * followed by a CRC32C checksum.
+     */
+    private static void sendRange(SharedSnapshots shared, String id, SnapshotSender sender)
+        throws IOException
+    {
+        Map<String, String> requestedOptions = sender.options();
+
+        ReadableSnapshot snapshot = shared.acquire(id);
+
+        if (snapshot == null) {
+            // Unknown or expired snapshot. Closing the sender without beginning indicates
+            // that the request failed.
+            sender.close();
+            return;
+        }
+
+        var options = new HashMap<String, String>();
+        options.put("snapshot", id);
+
+        try {
+            if ("true".equals(requestedOptions.get("release"))) {
+                sender.begin(0, snapshot.position(), options).close();
+                return;
+            }
+
+            int pageSize = snapshot.pageSize();
+
+            long start, end;
+            try {
+                start = Long.parseLong(requestedOptions.get("start"));
+                end = Long.parseLong(requestedOptions.get("end"));
+            } catch (NumberFormatException e) {
+                throw new IOException("Illegal range");
+            }
+
+            if (start < 0 || start > end || end > snapshot.pageCount()) {
+                throw new IOException("Illegal range: " + start + ".." + end);
+            }
+
+            Constructor lz4Output = null;
+            if (snapshot.isCompressible()
+                && "LZ4Frame".equals(requestedOptions.get("compress")))
+            {
+                lz4Output = lz4Output();
+                if (lz4Output != null) {
+                    options.put("compress", "LZ4Frame");
+                }
+            }
+
+            OutputStream out = sender.begin
+                ((end - start) * (pageSize + 4L), snapshot.position(), options);
+
+            long pageAddr = p_allocPage(-pageSize);
+            try {
+                if (lz4Output != null) {
+                    try {
+                        out = (OutputStream) lz4Output.newInstance(out);
+                    } catch (Throwable e) {
+                        throw new IOException("Unable to compress", e);
+                    }
+                }
+
+                var page = new byte[pageSize + 4];
+                var checksum = new CRC32C();
+
+                for (long index = start; index < end; index++) {
+                    snapshot.readPage(index, pageAddr, 0, pageSize);
+                    p_copy(pageAddr, 0, page, 0, pageSize);
+                    checksum.reset();
+                    checksum.update(page, 0, pageSize);
+                    encodeIntLE(page, pageSize, (int) checksum.getValue());
+                    out.write(page);
+                }
+            } finally {
+                p_delete(pageAddr);
+                out.close();
+            }
+        } finally {
+            shared.release(id);
+            if ("true".equals(requestedOptions.get("release"))) {
+                shared.close(id);
+            }
+        }
+    }
+
+    /**
+     * @return null if not supported
+     */
+    private static Constructor lz4Output() {
+        try {
+            Class<?> clazz = Class.forName("net.jpountz.lz4.LZ4FrameOutputStream");
+            return clazz.getConstructor(OutputStream.class);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.cojen.tupl.util.Runner;
+
+import static org.cojen.tupl.core.Utils.*;
+
+/**
+ * Holds the snapshots which are being sent as page ranges, over several connections. A
+ * shared snapshot is closed when the receiver releases it, or when it hasn't been used for a
+ * while.
+ *
+ * @author Brian S O'Neill
+ * @see ReplUtils#sendSnapshot
+ */
+final class SharedSnapshots implements Runnable {
+    private static final long IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    // Is true when the reaper thread is running.
+    private boolean mReaping;
+
+    private boolean mClosed;
+
+    /**
+     * @return a new identifier for the snapshot
+     * @throws IllegalStateException if closed
+     */
+    synchronized String register(ReadableSnapshot snapshot) {
+        if (mClosed) {
+            throw new IllegalStateException("Closed");
+        }
+
+        String id;
+        do {
+            id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        } while (mEntries.containsKey(id));
+
+        mEntries.put(id, new Entry(snapshot));
+
+        if (!mReaping) {
+            mReaping = true;
+            Runner.start("SharedSnapshots", this);
+        }
+
+        return id;
+    }
+
+    /**
+     * Acquire a registered snapshot, which must be released when done using it.
+     *
+     * @return null if not found or if closed
+     */
+    synchronized ReadableSnapshot acquire(String id) {
+        Entry e = mEntries.get(id);
+        if (e == null || e.mClosing) {
+            return null;
+        }
+        e.mActive++;
+        return e.mSnapshot;
+    }
+
+    void release(String id) {
+        Entry e;
+        synchronized (this) {
+            e = mEntries.get(id);
+            if (e == null) {
+                return;
+            }
+            e.mActive--;
+            e.mLastUsedMillis = System.currentTimeMillis();
+            if (!e.mClosing || e.mActive > 0) {
+                return;
+            }
+            mEntries.remove(id);
+        }
+        closeQuietly(e.mSnapshot);
+    }
+
+    /**
+     * Unregister and close a snapshot. If the snapshot is acquired, then the close is
+     * deferred until it's fully released.
+     */
+    void close(String id) {
+        Entry e;
+        synchronized (this) {
+            e = mEntries.get(id);
+            if (e == null || !e.closing()) {
+                return;
+            }
+            mEntries.remove(id);
+        }
+        closeQuietly(e.mSnapshot);
+    }
+
+    /**
+     * Close all the snapshots and prevent new ones from being registered. Snapshots which
+     * are acquired are closed once they're fully released.
+     */
+    void close() {
+        var closed = new ArrayList<Entry>();
+        synchronized (this) {
+            mClosed = true;
+            Iterator<Entry> it = mEntries.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (e.closing()) {
+                    it.remove();
+                    closed.add(e);
+                }
+            }
+            notifyAll();
+        }
+        for (Entry e : closed) {
+            closeQuietly(e.mSnapshot);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            var expired = new ArrayList<Entry>();
+
+            synchronized (this) {
+                if (mEntries.isEmpty()) {
+                    mReaping = false;
+                    return;
+                }
+
+                try {
+                    wait(IDLE_TIMEOUT_MILLIS >> 2);
+                } catch (InterruptedException e) {
+                    // Ignore.
+                }
+
+                long now = System.currentTimeMillis();
+                Iterator<Entry> it = mEntries.values().iterator();
+                while (it.hasNext()) {
+                    Entry e = it.next();
+                    if (e.mActive <= 0 && (now - e.mLastUsedMillis) >= IDLE_TIMEOUT_MILLIS) {
+                        it.remove();
+                        expired.add(e);
+                    }
+                }
+            }
+
+            for (Entry e : expired) {
+                closeQuietly(e.mSnapshot);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final ReadableSnapshot mSnapshot;
+        int mActive;
+        long mLastUsedMillis;
+
+        // Is true when the snapshot should be closed once it's no longer active.
+        boolean mClosing;
+
+        Entry(ReadableSnapshot snapshot) {
+            mSnapshot = snapshot;
+            mLastUsedMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * Marks the entry as closing, and returns true if it can be closed now. Caller must
+         * be synchronized on the SharedSnapshots instance.
+         */
+        boolean closing() {
+            mClosing = true;
+            return mActive <= 0;
+        }
+    }
+}
@@ -127,6 +127,24 @@ final class SnapshotPageArray extends PageArray implements Compactable {
         return mSource.evictPage(index, bufAddr);
     }
 
+    @Override
+    public int batchSize() {
+        return mSource.batchSize();
+    }
+
+    @Override
+    public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+        mSource.readPages(indexes, dstAddrs, count);
+    }
+
+    @Override
+    public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+        for (int i=0; i<count; i++) {
+            preWritePage(indexes[i]);
+        }
+        mSource.writePages(indexes, srcAddrs, count);
+    }
+
     private void preWritePage(long index) throws IOException {
         if (index < 0) {
             throw new IndexOutOfBoundsException(String.valueOf(index));
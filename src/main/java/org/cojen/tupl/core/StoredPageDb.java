@@ -531,6 +531,19 @@ final class StoredPageDb extends PageDb implements Compactable {
         return mPageArray.evictPage(id, pageAddr);
     }
 
+    @Override
+    public int batchSize() {
+        return mPageArray.batchSize();
+    }
+
+    @Override
+    public void writePages(long[] ids, long[] pageAddrs, int count) throws IOException {
+        for (int i=0; i<count; i++) {
+            checkId(ids[i]);
+        }
+        mPageArray.writePages(ids, pageAddrs, count);
+    }
+
     @Override
     public void deletePage(long id, boolean force) throws IOException {
         checkId(id);
@@ -963,15 +976,20 @@ final class StoredPageDb extends PageDb implements Compactable {
                 rawArray.expandPageCount(pageCount);
             }
 
-            long index = 2;
-            while (true) {
-                int amt = in.read(buffer);
-                if (amt < 0) {
-                    break;
+            if (in instanceof RangedSnapshotInputStream rin) {
+                // Receive the remaining pages over several connections.
+                rin.restorePages(rawArray, 2);
+            } else {
+                long index = 2;
+                while (true) {
+                    int amt = in.read(buffer);
+                    if (amt < 0) {
+                        break;
+                    }
+                    readFully(in, buffer, amt, buffer.length - amt);
+                    rawArray.writePage(index, p_transferArrayToPage(buffer, bufferPageAddr));
+                    index++;
                 }
-                readFully(in, buffer, amt, buffer.length - amt);
-                rawArray.writePage(index, p_transferArrayToPage(buffer, bufferPageAddr));
-                index++;
             }
 
             // Store proper magic number, indicating that the restore is complete. All data
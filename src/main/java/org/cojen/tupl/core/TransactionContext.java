@@ -370,7 +370,12 @@ final class TransactionContext extends Latch implements Flushable {
         RedoWriter redo = txn.mRedo;
         DurabilityMode mode = redo.opWriteCheck(txn.mDurabilityMode);
 
-        if (mode == DurabilityMode.SYNC && txn.mDurabilityMode != DurabilityMode.SYNC) {
+        if (mode == DurabilityMode.SYNC && (txn.mDurabilityMode != DurabilityMode.SYNC
+                                            || (txn.mCommitFuture != null
+                                                && redo instanceof ReplWriter)))
+        {
+            // When committing asynchronously, the PendingTxn finishes the commit after
+            // replication is confirmed, even when the durability mode is SYNC.
             PendingTxn pending = txn.preparePending();
             try {
                 acquireRedoLatch();
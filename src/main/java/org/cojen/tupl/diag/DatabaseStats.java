@@ -19,6 +19,11 @@ package org.cojen.tupl.diag;
 
 import java.io.Serializable;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
 import org.cojen.tupl.Database;
 
 import org.cojen.tupl.core.Utils;
@@ -56,6 +61,24 @@ public class DatabaseStats implements Cloneable, Serializable {
      */
     public long dirtyPages;
 
+    /**
+     * Estimated number of times that a page was found in the cache. The estimate is derived
+     * from the same sampling which maintains the cache replacement order.
+     */
+    public long cacheHits;
+
+    /**
+     * The number of times that a page was read into the cache because it wasn't found.
+     */
+    public long cacheMisses;
+
+    /**
+     * The current amount of cache used by each index which has a {@linkplain
+     * org.cojen.tupl.DatabaseConfig#cacheQuota cache quota}, in pages, keyed by index name.
+     * Is null if no quotas are configured.
+     */
+    public Map<String, Long> indexCachePages;
+
     /**
      * The amount of indexes currently open.
      */
@@ -88,16 +111,106 @@ public class DatabaseStats implements Cloneable, Serializable {
      */
     public long checkpointDuration;
 
+    /**
+     * The amount of pages written by the current checkpoint, or by the last checkpoint if
+     * none is running.
+     */
+    public long checkpointFlushedPages;
+
+    /**
+     * The rate at which the current checkpoint is writing pages, in bytes per second. If
+     * the checkpoint isn't being {@linkplain org.cojen.tupl.DatabaseConfig#checkpointPaceRate
+     * paced}, or if no checkpoint is running, then the rate is zero.
+     */
+    public long checkpointPaceRate;
+
+    /**
+     * The amount of time that the current or last checkpoint has been delayed by pacing, in
+     * milliseconds.
+     */
+    public long checkpointPaceDelay;
+
     /**
      * The amount of log bytes that a replica must apply to be fully caught up to the
      * leader. If the member is currently the leader, then the backlog is zero.
      */
     public long replicationBacklog;
 
+    /**
+     * The total amount of bytes written to replication group members before being
+     * compressed. The compression ratio is {@code replicationUncompressedBytes /
+     * replicationCompressedBytes}.
+     */
+    public long replicationUncompressedBytes;
+
+    /**
+     * The total amount of compressed bytes written to replication group members.
+     */
+    public long replicationCompressedBytes;
+
+    /**
+     * The total time spent compressing replication traffic, in microseconds.
+     */
+    public long replicationCompressDuration;
+
+    /**
+     * The total time spent decompressing replication traffic, in microseconds.
+     */
+    public long replicationDecompressDuration;
+
+    /**
+     * The amount of replicated changes which are waiting to be applied by the replica
+     * threads, or are being applied.
+     */
+    public long replicationApplyQueueDepth;
+
+    /**
+     * The total amount of replicated changes which have been applied by the replica threads.
+     * Changes which are applied by the decoding thread aren't counted.
+     */
+    public long replicationApplyCount;
+
+    /**
+     * The total amount of replicated changes which have been applied by each replica thread.
+     * The throughput of each thread can be determined by sampling the counts over time. Is
+     * null if the changes aren't applied by separate threads.
+     *
+     * @see org.cojen.tupl.DatabaseConfig#maxReplicaThreads
+     */
+    public long[] replicationApplyWorkerCounts;
+
+    /**
+     * The total amount of transactions which committed using {@link
+     * org.cojen.tupl.DurabilityMode#SYNC SYNC} durability, and which waited for the redo log
+     * to be durably written.
+     */
+    public long syncCommitCount;
+
+    /**
+     * The total amount of redo log syncs performed on behalf of {@link
+     * org.cojen.tupl.DurabilityMode#SYNC SYNC} commits. Concurrent commits share syncs, and
+     * so the average batch size is {@code syncCommitCount / redoSyncCount}.
+     */
+    public long redoSyncCount;
+
+    /**
+     * The total time spent performing redo log syncs on behalf of {@link
+     * org.cojen.tupl.DurabilityMode#SYNC SYNC} commits, in microseconds. The average sync
+     * latency is {@code redoSyncDuration / redoSyncCount}.
+     */
+    public long redoSyncDuration;
+
     @Override
     public DatabaseStats clone() {
         try {
-            return (DatabaseStats) super.clone();
+            var copy = (DatabaseStats) super.clone();
+            if (copy.indexCachePages != null) {
+                copy.indexCachePages = new TreeMap<>(copy.indexCachePages);
+            }
+            if (copy.replicationApplyWorkerCounts != null) {
+                copy.replicationApplyWorkerCounts = copy.replicationApplyWorkerCounts.clone();
+            }
+            return copy;
         } catch (CloneNotSupportedException e) {
             throw Utils.rethrow(e);
         }
@@ -123,12 +236,28 @@ public class DatabaseStats implements Cloneable, Serializable {
                 && totalPages == other.totalPages
                 && cachePages == other.cachePages
                 && dirtyPages == other.dirtyPages
+                && cacheHits == other.cacheHits
+                && cacheMisses == other.cacheMisses
+                && Objects.equals(indexCachePages, other.indexCachePages)
                 && openIndexes == other.openIndexes
                 && lockCount == other.lockCount
                 && cursorCount == other.cursorCount
                 && transactionCount == other.transactionCount
                 && checkpointDuration == other.checkpointDuration
-                && replicationBacklog == other.replicationBacklog;
+                && checkpointFlushedPages == other.checkpointFlushedPages
+                && checkpointPaceRate == other.checkpointPaceRate
+                && checkpointPaceDelay == other.checkpointPaceDelay
+                && replicationBacklog == other.replicationBacklog
+                && replicationUncompressedBytes == other.replicationUncompressedBytes
+                && replicationCompressedBytes == other.replicationCompressedBytes
+                && replicationCompressDuration == other.replicationCompressDuration
+                && replicationDecompressDuration == other.replicationDecompressDuration
+                && replicationApplyQueueDepth == other.replicationApplyQueueDepth
+                && replicationApplyCount == other.replicationApplyCount
+                && Arrays.equals(replicationApplyWorkerCounts, other.replicationApplyWorkerCounts)
+                && syncCommitCount == other.syncCommitCount
+                && redoSyncCount == other.redoSyncCount
+                && redoSyncDuration == other.redoSyncDuration;
         }
         return false;
     }
@@ -140,12 +269,30 @@ public class DatabaseStats implements Cloneable, Serializable {
             + ", totalPages=" + totalPages
             + ", cachePages=" + cachePages
             + ", dirtyPages=" + dirtyPages
+            + ", cacheHits=" + cacheHits
+            + ", cacheMisses=" + cacheMisses
+            + (indexCachePages == null ? "" : (", indexCachePages=" + indexCachePages))
             + ", openIndexes=" + openIndexes
             + ", lockCount=" + lockCount
             + ", cursorCount=" + cursorCount
             + ", transactionCount=" + transactionCount
             + ", checkpointDuration=" + checkpointDuration
+            + ", checkpointFlushedPages=" + checkpointFlushedPages
+            + ", checkpointPaceRate=" + checkpointPaceRate
+            + ", checkpointPaceDelay=" + checkpointPaceDelay
             + ", replicationBacklog=" + replicationBacklog
+            + ", replicationUncompressedBytes=" + replicationUncompressedBytes
+            + ", replicationCompressedBytes=" + replicationCompressedBytes
+            + ", replicationCompressDuration=" + replicationCompressDuration
+            + ", replicationDecompressDuration=" + replicationDecompressDuration
+            + ", replicationApplyQueueDepth=" + replicationApplyQueueDepth
+            + ", replicationApplyCount=" + replicationApplyCount
+            + (replicationApplyWorkerCounts == null ? ""
+               : (", replicationApplyWorkerCounts=" + Arrays.toString
+                  (replicationApplyWorkerCounts)))
+            + ", syncCommitCount=" + syncCommitCount
+            + ", redoSyncCount=" + redoSyncCount
+            + ", redoSyncDuration=" + redoSyncDuration
             + '}';
     }
 }
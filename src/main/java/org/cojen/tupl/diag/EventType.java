@@ -89,6 +89,8 @@ public enum EventType {
     CHECKPOINT_BEGIN(Category.CHECKPOINT, Level.INFO),
     /** Signals the checkpoint phase which flushes all dirty nodes to the main database file. */
     CHECKPOINT_FLUSH(Category.CHECKPOINT, Level.INFO),
+    /** Reports the progress of a checkpoint flush which is being paced. */
+    CHECKPOINT_PROGRESS(Category.CHECKPOINT, Level.INFO),
     /** Signals the checkpoint phase which forcibly persists changes to the main database file. */
     CHECKPOINT_SYNC(Category.CHECKPOINT, Level.INFO),
     /** Signals that checkpoint task failed with an exception. */
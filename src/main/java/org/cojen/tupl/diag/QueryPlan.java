@@ -376,6 +376,62 @@ public abstract sealed class QueryPlan implements Serializable {
         }
     }
 
+    /**
+     * Query plan node which skips over rows and stops producing rows once a limit has been
+     * reached.
+     */
+    public static final class Limit extends QueryPlan {
+        private static final long serialVersionUID = 1L;
+
+        public final String limit, offset;
+        public final QueryPlan source;
+
+        /**
+         * @param limit maximum number of rows to produce, or null if unlimited
+         * @param offset number of rows to skip, or null if none
+         * @param source child plan node
+         */
+        public Limit(String limit, String offset, QueryPlan source) {
+            this.limit = limit;
+            this.offset = offset;
+            this.source = source;
+        }
+
+        @Override
+        void appendTo(Appendable a, String in1, String in2) throws IOException {
+            a.append(in1).append("limit").append(": ");
+            if (limit == null) {
+                a.append("none");
+            } else {
+                a.append(limit);
+            }
+            if (offset != null) {
+                a.append(", offset: ").append(offset);
+            }
+            a.append('\n');
+            appendSub(a, in2, null, source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Limit limit && matches(limit);
+        }
+
+        boolean matches(Limit other) {
+            return Objects.equals(limit, other.limit)
+                && Objects.equals(offset, other.offset)
+                && Objects.equals(source, other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Objects.hashCode(limit);
+            hash = hash * 31 + Objects.hashCode(offset);
+            hash = hash * 31 + Objects.hashCode(source);
+            return hash ^ 1203577284;
+        }
+    }
+
     /**
      * Query plan node which applies custom row mapping and filtering.
      */
@@ -602,6 +658,182 @@ public abstract sealed class QueryPlan implements Serializable {
         }
     }
 
+    /**
+     * Query plan node which builds a hash table from all the rows of the source, and then
+     * finds rows by probing the hash table with an argument.
+     */
+    public static final class HashJoin extends QueryPlan {
+        private static final long serialVersionUID = 1L;
+
+        public final String expression;
+        public final QueryPlan source;
+
+        /**
+         * @param expression join column compared to the probe argument
+         * @param source child plan node which provides the rows of the hash table
+         */
+        public HashJoin(String expression, QueryPlan source) {
+            this.expression = expression;
+            this.source = source;
+        }
+
+        @Override
+        void appendTo(Appendable a, String in1, String in2) throws IOException {
+            a.append(in1).append("hash join").append(": ").append(expression).append('\n');
+            appendSub(a, in2, null, source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HashJoin join && matches(join);
+        }
+
+        boolean matches(HashJoin other) {
+            return Objects.equals(expression, other.expression)
+                && Objects.equals(source, other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Objects.hashCode(expression);
+            hash = hash * 31 + Objects.hashCode(source);
+            return hash ^ 1779033703;
+        }
+    }
+
+    /**
+     * Query plan node which puts the source rows into a hash table which is keyed by the
+     * group-by columns, and so the source rows don't need to be ordered.
+     */
+    public static final class HashGroup extends QueryPlan {
+        private static final long serialVersionUID = 1L;
+
+        public final String[] groupBy;
+        public final QueryPlan source;
+
+        /**
+         * @param groupBy group-by columns (or null if none)
+         * @param source child plan node
+         */
+        public HashGroup(String[] groupBy, QueryPlan source) {
+            this.groupBy = groupBy;
+            this.source = source;
+        }
+
+        @Override
+        void appendTo(Appendable a, String in1, String in2) throws IOException {
+            a.append(in1).append("hash group");
+            if (groupBy != null && groupBy.length != 0) {
+                a.append(": ");
+                appendArray(a, groupBy);
+            }
+            a.append('\n');
+            appendSub(a, in2, null, source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HashGroup group && matches(group);
+        }
+
+        boolean matches(HashGroup other) {
+            return Arrays.equals(groupBy, other.groupBy) && Objects.equals(source, other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Arrays.hashCode(groupBy);
+            hash = hash * 31 + Objects.hashCode(source);
+            return hash ^ -1131566851;
+        }
+    }
+
+    /**
+     * Query plan node which partitions the source by key range, and the partitions are
+     * processed by multiple threads.
+     */
+    public static final class Parallel extends QueryPlan {
+        private static final long serialVersionUID = 1L;
+
+        public final int parallelism;
+        public final QueryPlan source;
+
+        /**
+         * @param parallelism maximum number of threads
+         * @param source child plan node
+         */
+        public Parallel(int parallelism, QueryPlan source) {
+            this.parallelism = parallelism;
+            this.source = source;
+        }
+
+        @Override
+        void appendTo(Appendable a, String in1, String in2) throws IOException {
+            a.append(in1).append("parallel").append(": ")
+                .append(String.valueOf(parallelism)).append('\n');
+            appendSub(a, in2, null, source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Parallel parallel && matches(parallel);
+        }
+
+        boolean matches(Parallel other) {
+            return parallelism == other.parallelism && Objects.equals(source, other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = parallelism;
+            hash = hash * 31 + Objects.hashCode(source);
+            return hash ^ 1606273559;
+        }
+    }
+
+    /**
+     * Query plan node which finds rows by repositioning a cursor over the source, which is
+     * ordered by the join column. The outer rows are expected to be in the same order.
+     */
+    public static final class MergeJoin extends QueryPlan {
+        private static final long serialVersionUID = 1L;
+
+        public final String expression;
+        public final QueryPlan source;
+
+        /**
+         * @param expression join column compared to the probe argument
+         * @param source child plan node which scans a range for each probe
+         */
+        public MergeJoin(String expression, QueryPlan source) {
+            this.expression = expression;
+            this.source = source;
+        }
+
+        @Override
+        void appendTo(Appendable a, String in1, String in2) throws IOException {
+            a.append(in1).append("merge join").append(": ").append(expression).append('\n');
+            appendSub(a, in2, null, source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MergeJoin join && matches(join);
+        }
+
+        boolean matches(MergeJoin other) {
+            return Objects.equals(expression, other.expression)
+                && Objects.equals(source, other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Objects.hashCode(expression);
+            hash = hash * 31 + Objects.hashCode(source);
+            return hash ^ -1150833019;
+        }
+    }
+
     /**
      * Query plan node which sorts the rows.
      */
@@ -689,6 +921,50 @@ public abstract sealed class QueryPlan implements Serializable {
         }
     }
 
+    /**
+     * Query plan node which sorts the rows, but only retains the first few of them. A full
+     * sort isn't required.
+     */
+    public static final class TopSort extends Sort {
+        private static final long serialVersionUID = 1L;
+
+        public final long count;
+
+        /**
+         * @param sortColumns columns with '+' or '-' prefix
+         * @param count maximum number of rows to retain
+         * @param source child plan node
+         */
+        public TopSort(String[] sortColumns, long count, QueryPlan source) {
+            super(sortColumns, source);
+            this.count = count;
+        }
+
+        @Override
+        void appendTo(Appendable a, String in1, String in2) throws IOException {
+            a.append(in1).append("top sort").append(": ");
+            appendArray(a, sortColumns).append(", count: ").append(String.valueOf(count));
+            a.append('\n');
+            appendSub(a, in2, null, source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TopSort sort && matches(sort);
+        }
+
+        boolean matches(TopSort other) {
+            return super.equals(other) && count == other.count;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = super.hashCode();
+            hash = hash * 31 + Long.hashCode(count);
+            return hash ^ -1871025934;
+        }
+    }
+
     /**
      * Query plan node which joins a target to a source based on a common set of columns.
      */
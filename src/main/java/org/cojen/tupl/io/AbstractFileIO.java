@@ -189,6 +189,20 @@ abstract sealed class AbstractFileIO extends FileIO permits JavaFileIO, PosixFil
         access(false, pos, addr + offset, length);
     }
 
+    @Override
+    public final void readBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        accessBatch(true, positions, addrs, count, length);
+    }
+
+    @Override
+    public final void writeBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        accessBatch(false, positions, addrs, count, length);
+    }
+
     private void access(boolean read, long pos, byte[] buf, int offset, int length)
         throws IOException
     {
@@ -314,6 +328,37 @@ abstract sealed class AbstractFileIO extends FileIO permits JavaFileIO, PosixFil
         }
     }
 
+    private void accessBatch(boolean read, long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        if (count > 1) {
+            syncWait();
+
+            try {
+                mAccessLock.acquireShared();
+                try {
+                    if (mMappings == null) {
+                        if (read) {
+                            doReadBatch(positions, addrs, count, length);
+                        } else {
+                            doWriteBatch(positions, addrs, count, length);
+                        }
+                        return;
+                    }
+                } finally {
+                    mAccessLock.releaseShared();
+                }
+            } catch (IOException e) {
+                throw rethrow(e, mCause);
+            }
+        }
+
+        // Access each range individually, which also handles the mapped case.
+        for (int i=0; i<count; i++) {
+            access(read, positions[i], addrs[i], length);
+        }
+    }
+
     @Override
     public final void sync(boolean metadata) throws IOException {
         // Set the start time if there's not already an ongoing sync. Ignore
@@ -609,6 +654,24 @@ abstract sealed class AbstractFileIO extends FileIO permits JavaFileIO, PosixFil
     protected abstract void doWrite(long pos, long addr, int length)
         throws IOException;
 
+    // Called with mAccessLock held shared, and only when not mapped.
+    protected void doReadBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        for (int i=0; i<count; i++) {
+            doRead(positions[i], addrs[i], length);
+        }
+    }
+
+    // Called with mAccessLock held shared, and only when not mapped.
+    protected void doWriteBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        for (int i=0; i<count; i++) {
+            doWrite(positions[i], addrs[i], length);
+        }
+    }
+
     protected abstract Mapping openMapping(boolean readOnly, long pos, int size)
         throws IOException;
 
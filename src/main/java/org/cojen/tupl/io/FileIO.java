@@ -126,6 +126,46 @@ public abstract sealed class FileIO implements CauseCloseable permits AbstractFi
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns the maximum number of reads or writes which can be efficiently performed as a
+     * single batch. Returns 1 if batching isn't supported.
+     */
+    public int batchSize() {
+        return 1;
+    }
+
+    /**
+     * Reads a batch of equal length ranges, which might be performed concurrently.
+     *
+     * @param positions zero-based positions in file
+     * @param addrs receives read data, one address per position
+     * @param count number of ranges to read
+     * @param length amount of data to read for each range
+     */
+    public void readBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        for (int i=0; i<count; i++) {
+            read(positions[i], addrs[i], 0, length);
+        }
+    }
+
+    /**
+     * Writes a batch of equal length ranges, which might be performed concurrently.
+     *
+     * @param positions zero-based positions in file
+     * @param addrs data to write, one address per position
+     * @param count number of ranges to write
+     * @param length amount of data to write for each range
+     */
+    public void writeBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        for (int i=0; i<count; i++) {
+            write(positions[i], addrs[i], 0, length);
+        }
+    }
+
     /**
      * Maps or remaps the file into main memory, up to the current file length.
      */
@@ -110,6 +110,33 @@ public final class FilePageArray extends PageArray {
         mFio.write(index * pageSize, srcAddr, offset, pageSize);
     }
 
+    @Override
+    public int batchSize() {
+        return mFio.batchSize();
+    }
+
+    @Override
+    public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+        mFio.readBatch(positions(indexes, count), dstAddrs, count, mPageSize);
+    }
+
+    @Override
+    public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+        mFio.writeBatch(positions(indexes, count), srcAddrs, count, mPageSize);
+    }
+
+    private long[] positions(long[] indexes, int count) {
+        var positions = new long[count];
+        for (int i=0; i<count; i++) {
+            long index = indexes[i];
+            if (index < 0) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            positions[i] = index * mPageSize;
+        }
+        return positions;
+    }
+
     @Override
     public void sync(boolean metadata) throws IOException {
         mFio.sync(metadata);
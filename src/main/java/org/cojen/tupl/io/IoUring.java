@@ -0,0 +1,382 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Minimal Linux io_uring binding, which submits a batch of reads or writes with a single
+ * system call. An instance isn't thread-safe, and the submission and completion queues are
+ * always fully drained before a batch operation returns.
+ *
+ * @author Brian S O'Neill
+ */
+final class IoUring implements Closeable {
+    /** Maximum number of operations submitted at once. */
+    static final int ENTRIES = 64;
+
+    private static final int SYS_IO_URING_SETUP = 425, SYS_IO_URING_ENTER = 426;
+
+    private static final int IORING_OP_READ = 22, IORING_OP_WRITE = 23;
+
+    private static final int IORING_FEAT_SINGLE_MMAP = 1;
+    private static final int IORING_ENTER_GETEVENTS = 1;
+
+    private static final long IORING_OFF_SQ_RING = 0L;
+    private static final long IORING_OFF_CQ_RING = 0x8000000L;
+    private static final long IORING_OFF_SQES = 0x10000000L;
+
+    private static final int PROT_READ_WRITE = 3;
+    private static final int MAP_SHARED_POPULATE = 0x01 | 0x8000;
+
+    private static final int EINTR = 4, EAGAIN = 11, EBUSY = 16;
+
+    private static final int SQE_SIZE = 64, CQE_SIZE = 16;
+
+    private static final StructLayout ERROR_LAYOUT;
+    private static final VarHandle ERROR_HANDLE;
+
+    private static final MethodHandle syscall;
+
+    private static final boolean SUPPORTED;
+
+    static {
+        MethodHandle sc = null;
+        StructLayout errorLayout = null;
+        VarHandle errorHandle = null;
+
+        if (PosixFileIO.OS_TYPE == PosixFileIO.LINUX) {
+            try {
+                Linker linker = Linker.nativeLinker();
+                SymbolLookup lookup = linker.defaultLookup();
+
+                errorLayout = Linker.Option.captureStateLayout();
+                errorHandle = errorLayout.varHandle
+                    (StructLayout.PathElement.groupElement("errno"));
+
+                // All arguments are passed as longs because syscall reads them that way.
+                sc = linker.downcallHandle
+                    (lookup.find("syscall").get(),
+                     FunctionDescriptor.of
+                     (ValueLayout.JAVA_LONG,
+                      ValueLayout.JAVA_LONG,  // number
+                      ValueLayout.JAVA_LONG,  // arg1
+                      ValueLayout.JAVA_LONG,  // arg2
+                      ValueLayout.JAVA_LONG,  // arg3
+                      ValueLayout.JAVA_LONG,  // arg4
+                      ValueLayout.JAVA_LONG,  // arg5
+                      ValueLayout.JAVA_LONG), // arg6
+                     Linker.Option.firstVariadicArg(1),
+                     Linker.Option.captureCallState("errno")
+                     );
+            } catch (Throwable e) {
+                sc = null;
+            }
+        }
+
+        syscall = sc;
+        ERROR_LAYOUT = errorLayout;
+        ERROR_HANDLE = errorHandle;
+
+        boolean supported = false;
+        if (sc != null) {
+            // Probe by creating a ring, which fails when the kernel is too old or when
+            // io_uring has been disabled, perhaps by a seccomp filter.
+            try {
+                new IoUring().close();
+                supported = true;
+            } catch (Throwable e) {
+                // Not supported.
+            }
+        }
+
+        SUPPORTED = supported;
+    }
+
+    /**
+     * Returns true if io_uring is available on this platform.
+     */
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    private final Arena mArena;
+    private final MemorySegment mError;
+
+    private final int mRingFd;
+
+    private final long mSqRingAddr, mSqRingSize;
+    private final long mCqRingAddr, mCqRingSize;
+    private final long mSqesAddr, mSqesSize;
+
+    private final MemorySegment mSqRing, mCqRing, mSqes;
+
+    private final int mSqTailOff, mSqMask, mSqArrayOff;
+    private final int mCqHeadOff, mCqTailOff, mCqMask, mCqesOff;
+
+    private final int mEntries;
+
+    private boolean mClosed;
+
+    IoUring() throws IOException {
+        mArena = Arena.ofShared();
+
+        try {
+            mError = mArena.allocate(ERROR_LAYOUT);
+
+            MemorySegment params = mArena.allocate(120, 8);
+            params.fill((byte) 0);
+
+            mRingFd = (int) invoke(SYS_IO_URING_SETUP, ENTRIES, params.address(), 0, 0);
+
+            try {
+                mEntries = params.get(ValueLayout.JAVA_INT, 0);
+                int cqEntries = params.get(ValueLayout.JAVA_INT, 4);
+                int features = params.get(ValueLayout.JAVA_INT, 20);
+
+                // struct io_sqring_offsets
+                mSqTailOff = params.get(ValueLayout.JAVA_INT, 44);
+                int sqMaskOff = params.get(ValueLayout.JAVA_INT, 48);
+                mSqArrayOff = params.get(ValueLayout.JAVA_INT, 64);
+
+                // struct io_cqring_offsets
+                mCqHeadOff = params.get(ValueLayout.JAVA_INT, 80);
+                mCqTailOff = params.get(ValueLayout.JAVA_INT, 84);
+                int cqMaskOff = params.get(ValueLayout.JAVA_INT, 88);
+                mCqesOff = params.get(ValueLayout.JAVA_INT, 100);
+
+                long sqRingSize = mSqArrayOff + mEntries * 4L;
+                long cqRingSize = mCqesOff + cqEntries * (long) CQE_SIZE;
+
+                if ((features & IORING_FEAT_SINGLE_MMAP) != 0) {
+                    sqRingSize = Math.max(sqRingSize, cqRingSize);
+                    mSqRingSize = sqRingSize;
+                    mSqRingAddr = mmap(sqRingSize, IORING_OFF_SQ_RING);
+                    mCqRingAddr = mSqRingAddr;
+                    mCqRingSize = 0;
+                } else {
+                    mSqRingSize = sqRingSize;
+                    mSqRingAddr = mmap(sqRingSize, IORING_OFF_SQ_RING);
+                    mCqRingSize = cqRingSize;
+                    mCqRingAddr = mmap(cqRingSize, IORING_OFF_CQ_RING);
+                }
+
+                mSqesSize = mEntries * (long) SQE_SIZE;
+                mSqesAddr = mmap(mSqesSize, IORING_OFF_SQES);
+
+                mSqRing = MemorySegment.ofAddress(mSqRingAddr).reinterpret(sqRingSize);
+                mCqRing = MemorySegment.ofAddress(mCqRingAddr).reinterpret(cqRingSize);
+                mSqes = MemorySegment.ofAddress(mSqesAddr).reinterpret(mSqesSize);
+
+                mSqMask = mSqRing.get(ValueLayout.JAVA_INT, sqMaskOff);
+                mCqMask = mCqRing.get(ValueLayout.JAVA_INT, cqMaskOff);
+            } catch (Throwable e) {
+                try {
+                    PosixFileIO.closeFd(mRingFd);
+                } catch (IOException e2) {
+                    Utils.suppress(e, e2);
+                }
+                throw e;
+            }
+        } catch (Throwable e) {
+            mArena.close();
+            throw Utils.rethrow(e);
+        }
+    }
+
+    /**
+     * Returns the maximum number of operations which are submitted at once.
+     */
+    int entries() {
+        return mEntries;
+    }
+
+    /**
+     * Performs a batch of reads or writes against the given file descriptor, waiting for all
+     * of them to complete. The amount transferred by each operation is stored into the
+     * results array, or a negative error number is stored if the operation failed. The
+     * caller is responsible for completing any short transfers.
+     *
+     * @param write true to write, false to read
+     * @param positions zero-based positions in the file
+     * @param addrs buffer addresses, one per position
+     * @param start first array index to operate on
+     * @param count number of operations, which must not exceed the entries count
+     * @param length amount of data to transfer for each operation
+     * @param results receives the results, starting at the start index
+     */
+    void submit(boolean write, int fd, long[] positions, long[] addrs,
+                int start, int count, int length, int[] results)
+        throws IOException
+    {
+        if (count > mEntries) {
+            throw new IllegalArgumentException();
+        }
+
+        final MemorySegment sqRing = mSqRing;
+        final MemorySegment sqes = mSqes;
+        final byte opcode = (byte) (write ? IORING_OP_WRITE : IORING_OP_READ);
+
+        int tail = sqRing.get(ValueLayout.JAVA_INT, mSqTailOff);
+
+        for (int i=0; i<count; i++) {
+            int index = (tail + i) & mSqMask;
+            long sqe = index * (long) SQE_SIZE;
+            sqes.asSlice(sqe, SQE_SIZE).fill((byte) 0);
+            sqes.set(ValueLayout.JAVA_BYTE, sqe, opcode);
+            sqes.set(ValueLayout.JAVA_INT, sqe + 4, fd);
+            sqes.set(ValueLayout.JAVA_LONG, sqe + 8, positions[start + i]);
+            sqes.set(ValueLayout.JAVA_LONG, sqe + 16, addrs[start + i]);
+            sqes.set(ValueLayout.JAVA_INT, sqe + 24, length);
+            sqes.set(ValueLayout.JAVA_LONG, sqe + 32, start + i); // user_data
+            sqRing.set(ValueLayout.JAVA_INT, mSqArrayOff + index * 4L, index);
+        }
+
+        // Publish the submission queue entries before the new tail.
+        VarHandle.releaseFence();
+        sqRing.set(ValueLayout.JAVA_INT, mSqTailOff, tail + count);
+
+        int toSubmit = count;
+        int remaining = count;
+
+        while (true) {
+            long result = enter(toSubmit, remaining);
+            if (result > 0) {
+                toSubmit -= (int) Math.min(result, toSubmit);
+            }
+            remaining -= reap(results);
+            if (remaining <= 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of operations reaped
+     */
+    private int reap(int[] results) {
+        final MemorySegment cqRing = mCqRing;
+
+        int head = cqRing.get(ValueLayout.JAVA_INT, mCqHeadOff);
+        int tail = cqRing.get(ValueLayout.JAVA_INT, mCqTailOff);
+        VarHandle.acquireFence();
+
+        int reaped = 0;
+        for (; head != tail; head++, reaped++) {
+            long cqe = mCqesOff + (head & mCqMask) * (long) CQE_SIZE;
+            int ix = (int) cqRing.get(ValueLayout.JAVA_LONG, cqe); // user_data
+            results[ix] = cqRing.get(ValueLayout.JAVA_INT, cqe + 8); // res
+        }
+
+        if (reaped != 0) {
+            VarHandle.releaseFence();
+            cqRing.set(ValueLayout.JAVA_INT, mCqHeadOff, head);
+        }
+
+        return reaped;
+    }
+
+    /**
+     * @return number of operations submitted, or -1 if interrupted or busy
+     */
+    private long enter(int toSubmit, int minComplete) throws IOException {
+        try {
+            long result = (long) syscall.invokeExact
+                (mError, (long) SYS_IO_URING_ENTER, (long) mRingFd, (long) toSubmit,
+                 (long) minComplete, (long) IORING_ENTER_GETEVENTS, 0L, 0L);
+            if (result == -1) {
+                int errno = (int) ERROR_HANDLE.get(mError, 0L);
+                if (errno != EINTR && errno != EAGAIN && errno != EBUSY) {
+                    throw new IOException(PosixFileIO.errorMessage(errno));
+                }
+            }
+            return result;
+        } catch (Throwable e) {
+            throw Utils.rethrow(e);
+        }
+    }
+
+    private long invoke(int number, long arg1, long arg2, long arg3, long arg4)
+        throws IOException
+    {
+        try {
+            long result = (long) syscall.invokeExact
+                (mError, (long) number, arg1, arg2, arg3, arg4, 0L, 0L);
+            if (result == -1) {
+                int errno = (int) ERROR_HANDLE.get(mError, 0L);
+                throw new IOException(PosixFileIO.errorMessage(errno));
+            }
+            return result;
+        } catch (Throwable e) {
+            throw Utils.rethrow(e);
+        }
+    }
+
+    private long mmap(long length, long offset) throws IOException {
+        return PosixFileIO.mmapFd(length, PROT_READ_WRITE, MAP_SHARED_POPULATE, mRingFd, offset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+
+        mClosed = true;
+
+        IOException ex = null;
+
+        try {
+            PosixFileIO.munmapAddr(mSqesAddr, mSqesSize);
+            if (mCqRingSize != 0) {
+                PosixFileIO.munmapAddr(mCqRingAddr, mCqRingSize);
+            }
+            PosixFileIO.munmapAddr(mSqRingAddr, mSqRingSize);
+        } catch (IOException e) {
+            ex = e;
+        }
+
+        try {
+            PosixFileIO.closeFd(mRingFd);
+        } catch (IOException e) {
+            if (ex == null) {
+                ex = e;
+            } else {
+                Utils.suppress(ex, e);
+            }
+        }
+
+        mArena.close();
+
+        if (ex != null) {
+            throw ex;
+        }
+    }
+}
@@ -52,4 +52,10 @@ public enum OpenOption {
      * be accessed in the near future.
      */
     CLOSE_DONTNEED,
+
+    /**
+     * Use io_uring on Linux for submitting batches of reads and writes with a single system
+     * call. Ignored if not supported by the platform.
+     */
+    IO_URING,
 }
@@ -135,6 +135,45 @@ public abstract class PageArray implements CauseCloseable {
      */
     public abstract void writePage(long index, long srcAddr, int offset) throws IOException;
 
+    /**
+     * Returns the maximum number of pages which can be efficiently read or written as a
+     * single batch. Returns 1 if batching isn't supported. An implementation which wraps
+     * another page array should override this method and the batch methods, or else batching
+     * is disabled.
+     */
+    public int batchSize() {
+        return 1;
+    }
+
+    /**
+     * Reads a batch of full pages, which might be performed concurrently.
+     *
+     * @param indexes zero-based page indexes to read
+     * @param dstAddrs receives read data, one address per page
+     * @param count number of pages to read
+     * @throws IndexOutOfBoundsException if any index is negative
+     */
+    public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+        for (int i=0; i<count; i++) {
+            readPage(indexes[i], dstAddrs[i]);
+        }
+    }
+
+    /**
+     * Writes a batch of full pages, which might be performed concurrently. Same as calling
+     * {@link #writePage(long, long) writePage} for each page.
+     *
+     * @param indexes zero-based page indexes to write
+     * @param srcAddrs data to write, one address per page
+     * @param count number of pages to write
+     * @throws IndexOutOfBoundsException if any index is negative
+     */
+    public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+        for (int i=0; i<count; i++) {
+            writePage(indexes[i], srcAddrs[i]);
+        }
+    }
+
     /**
      * Same as writePage, except that the given buffer might be altered and a replacement might
      * be returned. Caller must not alter the original buffer if a replacement was provided,
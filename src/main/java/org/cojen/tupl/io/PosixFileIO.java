@@ -51,6 +51,7 @@ final class PosixFileIO extends AbstractFileIO {
     private static final int REOPEN_NON_DURABLE = 1, REOPEN_SYNC_IO = 2, REOPEN_DIRECT_IO = 4;
 
     private static final int MAX_POOL_SIZE = -4; // 4 * number of available processors
+    private static final int MAX_URING_POOL_SIZE = -1; // number of available processors
 
     static final int LINUX = 1, OSX = 2;
     static final int OS_TYPE;
@@ -223,6 +224,7 @@ final class PosixFileIO extends AbstractFileIO {
     private final int mReopenOptions;
 
     private final LocalPool<MsRef> mMsRefPool;
+    private final LocalPool<IoUring> mUringPool;
 
     private final boolean mReadahead;
     private final boolean mCloseDontNeed;
@@ -261,6 +263,12 @@ final class PosixFileIO extends AbstractFileIO {
 
         mMsRefPool = new LocalPool<>(null, MAX_POOL_SIZE);
 
+        if (options.contains(OpenOption.IO_URING) && IoUring.isSupported()) {
+            mUringPool = new LocalPool<>(null, MAX_URING_POOL_SIZE);
+        } else {
+            mUringPool = null;
+        }
+
         if (options.contains(OpenOption.MAPPED)) {
             map();
         }
@@ -330,6 +338,92 @@ final class PosixFileIO extends AbstractFileIO {
         }
     }
 
+    @Override
+    public int batchSize() {
+        return mUringPool == null ? 1 : IoUring.ENTRIES;
+    }
+
+    @Override
+    protected void doReadBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        if (mUringPool == null || !submitBatch(false, positions, addrs, count, length)) {
+            super.doReadBatch(positions, addrs, count, length);
+        }
+    }
+
+    @Override
+    protected void doWriteBatch(long[] positions, long[] addrs, int count, int length)
+        throws IOException
+    {
+        try {
+            if (mUringPool == null || !submitBatch(true, positions, addrs, count, length)) {
+                super.doWriteBatch(positions, addrs, count, length);
+            }
+        } catch (IOException ex) {
+            writeFailure(ex);
+        }
+    }
+
+    /**
+     * @return false if a ring couldn't be created
+     */
+    private boolean submitBatch(boolean write, long[] positions, long[] addrs,
+                                int count, int length)
+        throws IOException
+    {
+        int fd = fd();
+        var results = new int[count];
+
+        LocalPool.Entry<IoUring> e = mUringPool.access();
+        try {
+            IoUring ring = e.get();
+            if (ring == null) {
+                try {
+                    ring = new IoUring();
+                } catch (IOException ex) {
+                    // Probably exceeded the locked memory limit.
+                    return false;
+                }
+                e.replace(ring);
+            }
+
+            try {
+                int entries = ring.entries();
+                for (int start = 0; start < count; start += entries) {
+                    int amt = Math.min(entries, count - start);
+                    ring.submit(write, fd, positions, addrs, start, amt, length, results);
+                }
+            } catch (Throwable ex) {
+                // Operations might still be in flight, so the ring cannot be used again.
+                e.replace(null);
+                try {
+                    ring.close();
+                } catch (IOException ex2) {
+                    Utils.suppress(ex, ex2);
+                }
+                throw ex;
+            }
+        } finally {
+            e.release();
+        }
+
+        // Complete any short or failed transfers directly, which also reports any errors.
+        for (int i=0; i<count; i++) {
+            int amt = results[i];
+            if (amt != length) {
+                amt = Math.max(0, amt);
+                if (write) {
+                    pwriteFd(fd, addrs[i] + amt, length - amt, positions[i] + amt);
+                } else {
+                    preadFd(fd, addrs[i] + amt, length - amt, positions[i] + amt);
+                }
+            }
+        }
+
+        return true;
+    }
+
     private void writeFailure(IOException ex) throws IOException {
         if (isReadOnly()) {
             throw new WriteFailureException("File is read only", ex);
@@ -418,6 +512,18 @@ final class PosixFileIO extends AbstractFileIO {
         }
 
         clearMsRefPool(mMsRefPool);
+
+        if (mUringPool != null) {
+            mUringPool.clear(ring -> {
+                if (ring != null) {
+                    try {
+                        ring.close();
+                    } catch (IOException e) {
+                        // Ignore.
+                    }
+                }
+            });
+        }
     }
 
     @Override
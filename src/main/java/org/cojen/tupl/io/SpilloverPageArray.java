@@ -168,6 +168,67 @@ public class SpilloverPageArray extends PageArray {
         action(index, (pa, ix) -> pa.writePage(ix, srcAddr, offset));
     }
 
+    @Override
+    public int batchSize() {
+        return Math.max(mFirst.batchSize(), mSecond.batchSize());
+    }
+
+    @Override
+    public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+        batch(false, indexes, dstAddrs, count);
+    }
+
+    @Override
+    public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+        batch(true, indexes, srcAddrs, count);
+    }
+
+    /**
+     * Divides a batch between the two sources, and then reads or writes each portion as a
+     * batch.
+     */
+    private void batch(boolean write, long[] indexes, long[] addrs, int count)
+        throws IOException
+    {
+        var firstIndexes = new long[count];
+        var firstAddrs = new long[count];
+        var secondIndexes = new long[count];
+        var secondAddrs = new long[count];
+        int firstCount = 0, secondCount = 0;
+
+        for (int i=0; i<count; i++) {
+            long index = indexes[i];
+            if (index < 0) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            if (index < mSpilloverIndex) {
+                firstIndexes[firstCount] = index;
+                firstAddrs[firstCount] = addrs[i];
+                firstCount++;
+            } else {
+                secondIndexes[secondCount] = index - mSpilloverIndex;
+                secondAddrs[secondCount] = addrs[i];
+                secondCount++;
+            }
+        }
+
+        if (write) {
+            if (firstCount > 0) {
+                mFirst.writePages(firstIndexes, firstAddrs, firstCount);
+            }
+            if (secondCount > 0) {
+                mSecond.writePages(secondIndexes, secondAddrs, secondCount);
+            }
+        } else {
+            if (firstCount > 0) {
+                mFirst.readPages(firstIndexes, firstAddrs, firstCount);
+            }
+            if (secondCount > 0) {
+                mSecond.readPages(secondIndexes, secondAddrs, secondCount);
+            }
+        }
+    }
+
     @Override
     public long evictPage(long index, long bufAddr) throws IOException {
         PageArray pa;
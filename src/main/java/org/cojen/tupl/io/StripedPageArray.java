@@ -186,6 +186,62 @@ public class StripedPageArray extends PageArray {
         sources[(int) (index % stripes)].writePage(index / stripes, srcAddr, offset);
     }
 
+    @Override
+    public int batchSize() {
+        int size = 1;
+        for (PageArray pa : mSources) {
+            size = Math.max(size, pa.batchSize());
+        }
+        // Each batch is divided among the stripes.
+        return size <= 1 ? 1 : (int) Math.min(Integer.MAX_VALUE, (long) size * mSources.length);
+    }
+
+    @Override
+    public void readPages(long[] indexes, long[] dstAddrs, int count) throws IOException {
+        batch(false, indexes, dstAddrs, count);
+    }
+
+    @Override
+    public void writePages(long[] indexes, long[] srcAddrs, int count) throws IOException {
+        batch(true, indexes, srcAddrs, count);
+    }
+
+    /**
+     * Divides a batch among the stripes, and then reads or writes each portion as a batch.
+     */
+    private void batch(boolean write, long[] indexes, long[] addrs, int count)
+        throws IOException
+    {
+        PageArray[] sources = mSources;
+        int stripes = sources.length;
+
+        var stripeIndexes = new long[count];
+        var stripeAddrs = new long[count];
+
+        for (int s=0; s<stripes; s++) {
+            int stripeCount = 0;
+            for (int i=0; i<count; i++) {
+                long index = indexes[i];
+                if (index < 0) {
+                    throw new IndexOutOfBoundsException(String.valueOf(index));
+                }
+                if (index % stripes == s) {
+                    stripeIndexes[stripeCount] = index / stripes;
+                    stripeAddrs[stripeCount] = addrs[i];
+                    stripeCount++;
+                }
+            }
+
+            if (stripeCount > 0) {
+                if (write) {
+                    sources[s].writePages(stripeIndexes, stripeAddrs, stripeCount);
+                } else {
+                    sources[s].readPages(stripeIndexes, stripeAddrs, stripeCount);
+                }
+            }
+        }
+    }
+
     @Override
     public long evictPage(long index, long bufAddr) throws IOException {
         PageArray[] sources = mSources;
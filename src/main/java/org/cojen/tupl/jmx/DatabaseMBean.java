@@ -31,6 +31,10 @@ public interface DatabaseMBean {
 
     long getDirtyBytes();
 
+    long getCacheHits();
+
+    long getCacheMisses();
+
     int getOpenIndexes();
 
     long getLockCount();
@@ -43,6 +47,26 @@ public interface DatabaseMBean {
 
     long getReplicationBacklog();
 
+    long getReplicationUncompressedBytes();
+
+    long getReplicationCompressedBytes();
+
+    long getReplicationCompressDuration();
+
+    long getReplicationDecompressDuration();
+
+    long getReplicationApplyQueueDepth();
+
+    long getReplicationApplyCount();
+
+    long[] getReplicationApplyWorkerCounts();
+
+    long getSyncCommitCount();
+
+    long getRedoSyncCount();
+
+    long getRedoSyncDuration();
+
     boolean isLeader();
 
     void flush();
@@ -0,0 +1,49 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.jmx;
+
+/**
+ * Exposes the statistics of the query plan cache which is shared by all the tables of a
+ * database.
+ *
+ * @author Brian S O'Neill
+ */
+public interface QueryPlanCacheMBean {
+    int getSize();
+
+    int getMaxSize();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    /**
+     * Returns the total time spent compiling queries, in milliseconds.
+     */
+    long getCompileTime();
+
+    /**
+     * Returns a description of each cached plan, ordered by the number of executions, from
+     * highest to lowest.
+     */
+    String[] getPlans();
+
+    void clear();
+}
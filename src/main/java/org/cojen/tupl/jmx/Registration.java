@@ -25,6 +25,7 @@ import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 
+import java.util.List;
 import java.util.Map;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -47,6 +48,8 @@ import org.cojen.tupl.diag.VerificationObserver;
 
 import org.cojen.tupl.io.Utils;
 
+import org.cojen.tupl.table.QueryPlanCache;
+
 import org.cojen.tupl.util.Runner;
 
 /**
@@ -58,6 +61,13 @@ public class Registration {
     private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
 
     public static void register(Database db, String base) {
+        register(db, base, null);
+    }
+
+    /**
+     * @param plans optional query plan cache to register
+     */
+    public static void register(Database db, String base, QueryPlanCache plans) {
         cleanup();
         base = sanitize(base);
         var server = ManagementFactory.getPlatformMBeanServer();
@@ -68,6 +78,15 @@ public class Registration {
                 server.unregisterMBean(name);
             }
             server.registerMBean(bean, name);
+
+            if (plans != null) {
+                var plansBean = new StandardMBean(new PlansBean(plans), QueryPlanCacheMBean.class);
+                var plansName = newPlansObjectName(base);
+                if (server.isRegistered(plansName)) {
+                    server.unregisterMBean(plansName);
+                }
+                server.registerMBean(plansBean, plansName);
+            }
         } catch (JMException e) {
             throw Utils.rethrow(e);
         }
@@ -85,6 +104,12 @@ public class Registration {
         } catch (JMException e) {
             // Ignore.
         }
+
+        try {
+            server.unregisterMBean(newPlansObjectName(base));
+        } catch (JMException e) {
+            // Ignore.
+        }
     }
 
     private static void cleanup() {
@@ -104,6 +129,10 @@ public class Registration {
         return new ObjectName("org.cojen.tupl", "database", base);
     }
 
+    private static ObjectName newPlansObjectName(String base) throws JMException {
+        return new ObjectName("org.cojen.tupl:database=" + base + ",type=QueryPlanCache");
+    }
+
     private static record Listener(NotificationListener listener,
                                    NotificationFilter filter, Object handback) { }
 
@@ -255,6 +284,18 @@ public class Registration {
             return stats == null ? 0 : stats.dirtyPages * stats.pageSize;
         }
 
+        @Override
+        public long getCacheHits() {
+            var stats = stats();
+            return stats == null ? 0 : stats.cacheHits;
+        }
+
+        @Override
+        public long getCacheMisses() {
+            var stats = stats();
+            return stats == null ? 0 : stats.cacheMisses;
+        }
+
         @Override
         public int getOpenIndexes() {
             var stats = stats();
@@ -291,6 +332,68 @@ public class Registration {
             return stats == null ? 0 : stats.replicationBacklog;
         }
 
+        @Override
+        public long getReplicationUncompressedBytes() {
+            var stats = stats();
+            return stats == null ? 0 : stats.replicationUncompressedBytes;
+        }
+
+        @Override
+        public long getReplicationCompressedBytes() {
+            var stats = stats();
+            return stats == null ? 0 : stats.replicationCompressedBytes;
+        }
+
+        @Override
+        public long getReplicationCompressDuration() {
+            var stats = stats();
+            return stats == null ? 0 : stats.replicationCompressDuration;
+        }
+
+        @Override
+        public long getReplicationDecompressDuration() {
+            var stats = stats();
+            return stats == null ? 0 : stats.replicationDecompressDuration;
+        }
+
+        @Override
+        public long getReplicationApplyQueueDepth() {
+            var stats = stats();
+            return stats == null ? 0 : stats.replicationApplyQueueDepth;
+        }
+
+        @Override
+        public long getReplicationApplyCount() {
+            var stats = stats();
+            return stats == null ? 0 : stats.replicationApplyCount;
+        }
+
+        @Override
+        public long[] getReplicationApplyWorkerCounts() {
+            var stats = stats();
+            long[] counts;
+            return (stats == null || (counts = stats.replicationApplyWorkerCounts) == null)
+                ? null : counts.clone();
+        }
+
+        @Override
+        public long getSyncCommitCount() {
+            var stats = stats();
+            return stats == null ? 0 : stats.syncCommitCount;
+        }
+
+        @Override
+        public long getRedoSyncCount() {
+            var stats = stats();
+            return stats == null ? 0 : stats.redoSyncCount;
+        }
+
+        @Override
+        public long getRedoSyncDuration() {
+            var stats = stats();
+            return stats == null ? 0 : stats.redoSyncDuration;
+        }
+
         @Override
         public boolean isLeader() {
             Database db = db();
@@ -451,6 +554,72 @@ public class Registration {
         }
     }
 
+    private static class PlansBean extends WeakReference<QueryPlanCache>
+        implements QueryPlanCacheMBean
+    {
+        PlansBean(QueryPlanCache plans) {
+            super(plans);
+        }
+
+        @Override
+        public int getSize() {
+            QueryPlanCache plans = get();
+            return plans == null ? 0 : plans.size();
+        }
+
+        @Override
+        public int getMaxSize() {
+            QueryPlanCache plans = get();
+            return plans == null ? 0 : plans.maxSize();
+        }
+
+        @Override
+        public long getHits() {
+            QueryPlanCache plans = get();
+            return plans == null ? 0 : plans.hits();
+        }
+
+        @Override
+        public long getMisses() {
+            QueryPlanCache plans = get();
+            return plans == null ? 0 : plans.misses();
+        }
+
+        @Override
+        public long getEvictions() {
+            QueryPlanCache plans = get();
+            return plans == null ? 0 : plans.evictions();
+        }
+
+        @Override
+        public long getCompileTime() {
+            QueryPlanCache plans = get();
+            return plans == null ? 0 : plans.compileNanos() / 1_000_000;
+        }
+
+        @Override
+        public String[] getPlans() {
+            QueryPlanCache plans = get();
+            if (plans == null) {
+                return new String[0];
+            }
+            List<QueryPlanCache.Plan> list = plans.plans();
+            var result = new String[list.size()];
+            for (int i=0; i<result.length; i++) {
+                result[i] = list.get(i).toString();
+            }
+            return result;
+        }
+
+        @Override
+        public void clear() {
+            QueryPlanCache plans = get();
+            if (plans != null) {
+                plans.clear();
+            }
+        }
+    }
+
     @FunctionalInterface
     private static interface Op {
         Notification run(Database db);
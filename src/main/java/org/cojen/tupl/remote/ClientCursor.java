@@ -34,16 +34,49 @@ import org.cojen.tupl.Transaction;
 import org.cojen.tupl.core.Utils;
 
 /**
- * 
+ * When a cursor is stepped repeatedly in the same direction, entries are read ahead in
+ * batches which grow as the steps continue, and so the number of round trips is reduced. Read
+ * ahead is disabled when the cursor is used for updates, or when the linked transaction
+ * retains locks, since the remote cursor would lock entries before they're visited. While
+ * entries remain in the batch, the remote cursor is positioned ahead of this cursor, and so
+ * it's moved back before performing any other operation which depends on the position.
  *
  * @author Brian S O'Neill
  */
 public final class ClientCursor implements Cursor {
+    // Number of consecutive steps which must be performed before reading ahead.
+    private static final int READ_AHEAD_THRESHOLD = 2;
+
+    private static final int MIN_BATCH_SIZE = 8, MAX_BATCH_SIZE = 1000;
+
+    private static final LockResult[] LOCK_RESULTS = LockResult.values();
+
     final ClientView mView;
     RemoteCursor mRemote;
     Transaction mTxn;
     boolean mAutoload = true;
 
+    // When true, the current key and value were read ahead, and they don't need to be
+    // requested from the remote cursor.
+    private boolean mLocal;
+    private byte[] mKey;
+    private Object mValue;
+
+    // When true, the cursor has been used for updates, and so it doesn't read ahead.
+    private boolean mUpdating;
+
+    // The type and limit key of the most recent step, and the number of consecutive times
+    // that it has been performed.
+    private int mStepType;
+    private byte[] mLimitKey;
+    private int mStreak;
+
+    // Entries which have been read ahead and not yet visited, consisting of a LockResult or
+    // Throwable, a key, and a value.
+    private Object[] mBuffer;
+    private int mBufferPos, mBufferEnd;
+    private int mBatchSize;
+
     ClientCursor(ClientView view, RemoteCursor remote, Transaction txn) {
         mView = view;
         mRemote = remote;
@@ -59,6 +92,7 @@ public final class ClientCursor implements Cursor {
     public Transaction link(Transaction txn) {
         Transaction old = mTxn;
         if (txn != old) {
+            sync();
             mRemote.link(mView.mDb.remoteTransaction(txn));
             mTxn = txn;
         }
@@ -72,12 +106,12 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public byte[] key() {
-        return mRemote.key();
+        return mLocal ? mKey : mRemote.key();
     }
 
     @Override
     public byte[] value() {
-        Object value = mRemote.value();
+        Object value = mLocal ? mValue : mRemote.value();
         if (value == null) {
             return null;
         } else if (value instanceof byte[] bytes) {
@@ -104,6 +138,10 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public int compareKeyTo(byte[] rkey) {
+        byte[] key;
+        if (mLocal && (key = mKey) != null) {
+            return Arrays.compareUnsigned(key, rkey);
+        }
         return remote().compareKeyTo(rkey);
     }
 
@@ -124,11 +162,13 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public LockResult first() throws IOException {
+        discard();
         return remoteTxn().first();
     }
 
     @Override
     public LockResult last() throws IOException {
+        discard();
         return remoteTxn().last();
     }
 
@@ -144,86 +184,97 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public LockResult next() throws IOException {
-        return remoteTxn().next();
+        return step(RemoteCursor.STEP_NEXT, null);
     }
 
     @Override
     public LockResult nextLe(byte[] limitKey) throws IOException {
-        return remoteTxn().nextLe(limitKey);
+        return step(RemoteCursor.STEP_NEXT_LE, limitKey);
     }
 
     @Override
     public LockResult nextLt(byte[] limitKey) throws IOException {
-        return remoteTxn().nextLt(limitKey);
+        return step(RemoteCursor.STEP_NEXT_LT, limitKey);
     }
 
     @Override
     public LockResult previous() throws IOException {
-        return remoteTxn().previous();
+        return step(RemoteCursor.STEP_PREVIOUS, null);
     }
 
     @Override
     public LockResult previousGe(byte[] limitKey) throws IOException {
-        return remoteTxn().previousGe(limitKey);
+        return step(RemoteCursor.STEP_PREVIOUS_GE, limitKey);
     }
 
     @Override
     public LockResult previousGt(byte[] limitKey) throws IOException {
-        return remoteTxn().previousGt(limitKey);
+        return step(RemoteCursor.STEP_PREVIOUS_GT, limitKey);
     }
 
     @Override
     public LockResult find(byte[] key) throws IOException {
+        discard();
         return remoteTxn().find(key);
     }
 
     @Override
     public LockResult findGe(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findGe(key);
     }
 
     @Override
     public LockResult findGt(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findGt(key);
     }
 
     @Override
     public LockResult findLe(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findLe(key);
     }
 
     @Override
     public LockResult findLt(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findLt(key);
     }
 
     @Override
     public LockResult findNearby(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findNearby(key);
     }
 
     @Override
     public LockResult findNearbyGe(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findNearbyGe(key);
     }
 
     @Override
     public LockResult findNearbyGt(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findNearbyGt(key);
     }
 
     @Override
     public LockResult findNearbyLe(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findNearbyLe(key);
     }
 
     @Override
     public LockResult findNearbyLt(byte[] key) throws IOException {
+        discard();
         return remoteTxn().findNearbyLt(key);
     }
 
     @Override
     public LockResult random(byte[] lowKey, byte[] highKey) throws IOException {
+        discard();
         return remoteTxn().random(lowKey, highKey);
     }
 
@@ -231,6 +282,7 @@ public final class ClientCursor implements Cursor {
     public LockResult random(byte[] lowKey, boolean lowInclusive,
                              byte[] highKey, boolean highInclusive) throws IOException
     {
+        discard();
         return remoteTxn().random(lowKey, lowInclusive, highKey, highInclusive);
     }
 
@@ -241,6 +293,7 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public LockResult lock() throws IOException {
+        mUpdating = true;
         return remoteTxn().lock();
     }
 
@@ -251,16 +304,19 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public void store(byte[] value) throws IOException {
+        mUpdating = true;
         remoteTxn().store(value);
     }
 
     @Override
     public void delete() throws IOException {
+        mUpdating = true;
         remoteTxn().delete();
     }
 
     @Override
     public void commit(byte[] value) throws IOException {
+        mUpdating = true;
         remote().commit(value);
     }
 
@@ -273,6 +329,12 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public void reset() {
+        discard();
+        mLocal = false;
+        mKey = null;
+        mValue = null;
+        mUpdating = false;
+
         RemoteCursor remote = mRemote;
         if (remote != null) {
             remote.reset();
@@ -287,6 +349,7 @@ public final class ClientCursor implements Cursor {
 
     @Override
     public void valueLength(long length) throws IOException {
+        mUpdating = true;
         remoteValue().valueLength(length);
     }
 
@@ -322,6 +385,7 @@ public final class ClientCursor implements Cursor {
         posCheck(pos);
         Objects.checkFromIndexSize(off, len, buf.length);
 
+        mUpdating = true;
         Pipe pipe = remoteValue().valueWrite(pos, len, null);
         Object result;
         try {
@@ -344,6 +408,7 @@ public final class ClientCursor implements Cursor {
         if (length < 0) {
             throw new IllegalArgumentException();
         }
+        mUpdating = true;
         remoteValue().valueClear(pos, length);
     }
 
@@ -367,6 +432,7 @@ public final class ClientCursor implements Cursor {
     @Override
     public OutputStream newValueOutputStream(long pos, int bufferSize) throws IOException {
         posCheck(pos);
+        mUpdating = true;
         return new ValueOutputStream(this, remoteValue().valueWriteTransfer(pos, null), bufferSize);
     }
 
@@ -395,21 +461,31 @@ public final class ClientCursor implements Cursor {
      */
     private RemoteCursor remote() {
         RemoteCursor remote = mRemote;
-        return remote != null ? remote : resurrect();
+        if (remote == null) {
+            return resurrect();
+        }
+        sync();
+        return remote;
     }
 
     /**
      * Ensures that the RemoteCursor is active and that the transaction is active too.
      */
     private RemoteCursor remoteTxn() {
+        sync();
+        return activeRemote();
+    }
+
+    /**
+     * Ensures that the RemoteCursor is active and that the transaction is active too, but
+     * doesn't check if the RemoteCursor is ahead.
+     */
+    private RemoteCursor activeRemote() {
         RemoteCursor remote = mRemote;
         if (remote == null) {
             remote = resurrect();
         } else {
-            Transaction txn = mTxn;
-            if (txn instanceof ClientTransaction ct) {
-                ct.activeTxn(this);
-            }
+            activeTxn();
         }
         return remote;
     }
@@ -423,14 +499,167 @@ public final class ClientCursor implements Cursor {
         if (remote == null) {
             throw new IllegalStateException();
         } else {
-            Transaction txn = mTxn;
-            if (txn instanceof ClientTransaction ct) {
-                ct.activeTxn(this);
-            }
+            activeTxn();
+            sync();
         }
         return remote;
     }
 
+    private void activeTxn() {
+        Transaction txn = mTxn;
+        if (txn instanceof ClientTransaction ct) {
+            ct.activeTxn(this);
+        }
+    }
+
+    /**
+     * Performs a step operation, possibly by reading ahead.
+     *
+     * @param type RemoteCursor.STEP_NEXT, etc.
+     */
+    private LockResult step(int type, byte[] limitKey) throws IOException {
+        if (type != mStepType || !Arrays.equals(limitKey, mLimitKey)) {
+            sync();
+            mStepType = type;
+            mLimitKey = limitKey;
+        } else if (mBufferPos < mBufferEnd) {
+            return consume();
+        }
+
+        // The remote cursor isn't ahead at this point.
+
+        if (++mStreak <= READ_AHEAD_THRESHOLD || !canReadAhead()) {
+            mLocal = false;
+            RemoteCursor remote = activeRemote();
+            return switch (type) {
+                case RemoteCursor.STEP_NEXT -> remote.next();
+                case RemoteCursor.STEP_NEXT_LE -> remote.nextLe(limitKey);
+                case RemoteCursor.STEP_NEXT_LT -> remote.nextLt(limitKey);
+                case RemoteCursor.STEP_PREVIOUS -> remote.previous();
+                case RemoteCursor.STEP_PREVIOUS_GE -> remote.previousGe(limitKey);
+                default -> remote.previousGt(limitKey);
+            };
+        }
+
+        int amount = mBatchSize;
+        amount = amount <= 0 ? MIN_BATCH_SIZE : Math.min(amount << 1, MAX_BATCH_SIZE);
+        mBatchSize = amount;
+
+        readAhead(type, limitKey, amount);
+
+        return consume();
+    }
+
+    private boolean canReadAhead() {
+        if (mUpdating) {
+            return false;
+        }
+        Transaction txn = mTxn;
+        return txn == null || txn.isBogus() || !txn.lockMode().isRepeatable();
+    }
+
+    private void readAhead(int type, byte[] limitKey, int amount) throws IOException {
+        Object[] buffer = mBuffer;
+        if (buffer == null || buffer.length < amount * 3) {
+            mBuffer = buffer = new Object[amount * 3];
+        }
+
+        Pipe pipe = activeRemote().readAhead(type, limitKey, amount, null);
+        int end = 0;
+        try {
+            pipe.flush();
+            while (end < amount * 3) {
+                Object key = pipe.readObject();
+                if (key instanceof Throwable) {
+                    buffer[end] = key;
+                    end += 3;
+                    break;
+                }
+                if (key == null) {
+                    buffer[end] = LockResult.UNOWNED;
+                    end += 3;
+                    break;
+                }
+                buffer[end] = LOCK_RESULTS[pipe.readByte()];
+                buffer[end + 1] = key;
+                buffer[end + 2] = pipe.readObject();
+                end += 3;
+            }
+            pipe.recycle();
+        } catch (Throwable e) {
+            Arrays.fill(buffer, 0, end, null);
+            throw Utils.fail(pipe, e);
+        }
+
+        mBufferPos = 0;
+        mBufferEnd = end;
+    }
+
+    /**
+     * Moves to the next entry which was read ahead.
+     */
+    private LockResult consume() {
+        Object[] buffer = mBuffer;
+        int pos = mBufferPos;
+        Object result = buffer[pos];
+        mKey = (byte[]) buffer[pos + 1];
+        mValue = buffer[pos + 2];
+        buffer[pos] = null;
+        buffer[pos + 1] = null;
+        buffer[pos + 2] = null;
+        mBufferPos = pos + 3;
+
+        if (result instanceof Throwable e) {
+            // The remote cursor is positioned where the step failed.
+            mLocal = false;
+            mKey = null;
+            mValue = null;
+            mStepType = 0;
+            mStreak = 0;
+            mBatchSize = 0;
+            throw Utils.rethrow(e);
+        }
+
+        mLocal = true;
+        return (LockResult) result;
+    }
+
+    /**
+     * Discards any entries which were read ahead, without moving the remote cursor.
+     */
+    private void discard() {
+        if (mBufferPos < mBufferEnd) {
+            Arrays.fill(mBuffer, mBufferPos, mBufferEnd, null);
+            mBatchSize = 0;
+        }
+        mBufferPos = 0;
+        mBufferEnd = 0;
+        mStepType = 0;
+        mStreak = 0;
+    }
+
+    /**
+     * Ensures that the remote cursor isn't ahead, moving it back to the current key if
+     * necessary. The current key and value are then requested from the remote cursor.
+     */
+    private void sync() {
+        if (mBufferPos < mBufferEnd) {
+            discard();
+            activeTxn();
+            try {
+                mRemote.findNearby(mKey);
+            } catch (IOException e) {
+                throw Utils.rethrow(e);
+            }
+        } else {
+            mStepType = 0;
+            mStreak = 0;
+        }
+        mLocal = false;
+        mKey = null;
+        mValue = null;
+    }
+
     private RemoteCursor resurrect() {
         try {
             RemoteCursor remote = mView.mRemote.newCursor(mView.mDb.remoteTransaction(mTxn));
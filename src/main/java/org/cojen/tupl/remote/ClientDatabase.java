@@ -30,6 +30,8 @@ import java.nio.channels.SocketChannel;
 
 import java.util.Objects;
 
+import java.util.concurrent.TimeUnit;
+
 import java.util.concurrent.locks.Lock;
 
 import javax.net.ssl.SSLContext;
@@ -415,6 +417,16 @@ public final class ClientDatabase implements Database {
         return mRemote.failover();
     }
 
+    @Override
+    public long replicationPosition() {
+        return mRemote.replicationPosition();
+    }
+
+    @Override
+    public boolean awaitPosition(long position, long timeout, TimeUnit unit) throws IOException {
+        return mRemote.awaitPosition(position, timeout, unit);
+    }
+
     @Override
     public void close(Throwable cause) throws IOException {
         dispose();
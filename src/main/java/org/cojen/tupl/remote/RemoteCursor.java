@@ -35,6 +35,12 @@ import org.cojen.tupl.Ordering;
  * @author Brian S O'Neill
  */
 public interface RemoteCursor extends Remote {
+    /**
+     * Step types which are supported by the readAhead method.
+     */
+    static final int STEP_NEXT = 1, STEP_NEXT_LE = 2, STEP_NEXT_LT = 3,
+        STEP_PREVIOUS = 4, STEP_PREVIOUS_GE = 5, STEP_PREVIOUS_GT = 6;
+
     @Data
     public Ordering ordering();
 
@@ -106,6 +112,16 @@ public interface RemoteCursor extends Remote {
     public LockResult random(byte[] lowKey, boolean lowInclusive,
                              byte[] highKey, boolean highInclusive) throws IOException;
 
+    /**
+     * Steps the cursor up to the given amount of times, and writes each key, lock result,
+     * and value down the pipe. A null key indicates that the end was reached, and a
+     * Throwable indicates that a step failed. In either case, nothing more is written.
+     *
+     * @param type STEP_NEXT, etc.
+     * @param limitKey is required by the step types which have a limit
+     */
+    public Pipe readAhead(int type, byte[] limitKey, int amount, Pipe pipe) throws IOException;
+
     public boolean exists() throws IOException;
 
     public LockResult lock() throws IOException;
@@ -21,6 +21,8 @@ import java.io.IOException;
 
 import java.util.Map;
 
+import java.util.concurrent.TimeUnit;
+
 import org.cojen.dirmi.Batched;
 import org.cojen.dirmi.Disposer;
 import org.cojen.dirmi.Pipe;
@@ -122,6 +124,11 @@ public interface RemoteDatabase extends Remote, Disposable {
 
     public boolean failover() throws IOException;
 
+    @RemoteFailure(declared=false)
+    public long replicationPosition();
+
+    public boolean awaitPosition(long position, long timeout, TimeUnit unit) throws IOException;
+
     @Disposer
     public void close() throws IOException;
 
@@ -211,6 +211,44 @@ final class ServerCursor implements RemoteCursor, SessionAware {
         return mCursor.random(lowKey, lowInclusive, highKey, highInclusive);
     }
 
+    @Override
+    public Pipe readAhead(int type, byte[] limitKey, int amount, Pipe pipe) {
+        try {
+            Cursor c = mCursor;
+            for (int i=0; i<amount; i++) {
+                LockResult result;
+                byte[] key;
+                try {
+                    result = switch (type) {
+                        case STEP_NEXT -> c.next();
+                        case STEP_NEXT_LE -> c.nextLe(limitKey);
+                        case STEP_NEXT_LT -> c.nextLt(limitKey);
+                        case STEP_PREVIOUS -> c.previous();
+                        case STEP_PREVIOUS_GE -> c.previousGe(limitKey);
+                        case STEP_PREVIOUS_GT -> c.previousGt(limitKey);
+                        default -> throw new IllegalArgumentException();
+                    };
+                    key = c.key();
+                } catch (Throwable e) {
+                    pipe.writeObject(e);
+                    break;
+                }
+                pipe.writeObject(key);
+                if (key == null) {
+                    break;
+                }
+                pipe.writeByte(result.ordinal());
+                pipe.writeObject(value());
+            }
+            pipe.flush();
+            pipe.recycle();
+            return null;
+        } catch (Throwable e) {
+            Utils.closeQuietly(pipe);
+            return null;
+        }
+    }
+
     @Override
     public boolean exists() throws IOException {
         return mCursor.exists();
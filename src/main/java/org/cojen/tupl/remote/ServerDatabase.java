@@ -21,6 +21,8 @@ import java.io.IOException;
 
 import java.util.Map;
 
+import java.util.concurrent.TimeUnit;
+
 import org.cojen.dirmi.Pipe;
 
 import org.cojen.tupl.Database;
@@ -211,6 +213,18 @@ public final class ServerDatabase implements RemoteDatabase {
         };
     }
 
+    @Override
+    public long replicationPosition() {
+        return mDb.replicationPosition();
+    }
+
+    @Override
+    public boolean awaitPosition(long position, long timeout, TimeUnit unit)
+        throws IOException
+    {
+        return mDb.awaitPosition(position, timeout, unit);
+    }
+
     @Override
     public boolean failover() throws IOException {
         return mDb.failover();
@@ -77,7 +77,10 @@ final class ChannelManager {
       28: Group token 1 (long)
       36: Group token 2 (long)
 
-      Connection type is TYPE_*. Bit 0 enables CRC checks for TYPE_CONTROL.
+      Connection type is TYPE_*. Bit 0 enables CRC checks for TYPE_CONTROL. Bit 8
+      (TYPE_COMPRESS) requests compression for TYPE_CONTROL, and the reply only has the bit
+      set if compression was accepted. When accepted, all data following the header is
+      compressed in both directions.
 
       Command header structure: (little endian fields)
 
@@ -95,6 +98,8 @@ final class ChannelManager {
 
     static final int TYPE_PLAIN = 0, TYPE_JOIN = 2, TYPE_CONTROL = 4, TYPE_SNAPSHOT = 6;
 
+    static final int TYPE_COMPRESS = 1 << 8;
+
     private static final int CONNECT_TIMEOUT_MILLIS = 5000;
     private static final int MIN_RECONNECT_DELAY_MILLIS = 10;
     private static final int MAX_RECONNECT_DELAY_MILLIS = 1000;
@@ -136,6 +141,8 @@ final class ChannelManager {
     private final Scheduler mScheduler;
     private final long mGroupToken1, mGroupToken2;
     private final boolean mWriteCRCs;
+    private final boolean mCompress;
+    final CompressionStats mCompressionStats;
     private final Consumer<Throwable> mUncaughtHandler;
     private final Map<SocketAddress, Peer> mPeerMap;
     private final TreeSet<Peer> mPeerSet;
@@ -161,10 +168,11 @@ final class ChannelManager {
     /**
      * @param factory optional
      * @param writeCRCs true to write CRCs for all control commands written by client connections
+     * @param compress true to compress control connections when the remote member agrees
      */
     ChannelManager(SocketFactory factory, Scheduler scheduler,
                    long groupToken1, long groupToken2, long groupId,
-                   boolean writeCRCs, Consumer<Throwable> uncaughtHandler)
+                   boolean writeCRCs, boolean compress, Consumer<Throwable> uncaughtHandler)
     {
         if (scheduler == null || uncaughtHandler == null) {
             throw new IllegalArgumentException();
@@ -174,6 +182,8 @@ final class ChannelManager {
         mGroupToken1 = groupToken1;
         mGroupToken2 = groupToken2;
         mWriteCRCs = writeCRCs;
+        mCompress = compress;
+        mCompressionStats = new CompressionStats();
         mUncaughtHandler = uncaughtHandler;
         mPeerMap = new HashMap<>();
         Comparator<Peer> cmp = (a, b) -> Long.compare(a.mMemberId, b.mMemberId);
@@ -455,7 +465,7 @@ final class ChannelManager {
 
     /**
      * @param conType initially set to the requested type, and then set to the actual
-     * type from the peer; only expected to differ in the CRC bit
+     * type from the peer; only expected to differ in the CRC and compression bits
      * @return null if peer response was malformed
      */
     Socket doConnect(Peer peer, int[] conType) throws IOException {
@@ -493,7 +503,10 @@ final class ChannelManager {
 
             int actualType = decodeIntLE(header, CONNECTION_TYPE);
 
-            if ((actualType | 1) != (conType[0] | 1)) {
+            // Note that compression cannot be accepted if it wasn't requested.
+            if ((actualType | 1 | TYPE_COMPRESS) != (conType[0] | 1 | TYPE_COMPRESS)
+                || (actualType & ~conType[0] & TYPE_COMPRESS) != 0)
+            {
                 break doConnect;
             }
 
@@ -624,7 +637,8 @@ final class ChannelManager {
             long remoteMemberId = decodeLongLE(header, MEMBER_ID);
             int connectionType = decodeIntLE(header, CONNECTION_TYPE);
             boolean checkCRCs = (connectionType & 1) != 0;
-            connectionType &= ~1;
+            boolean compress = mCompress && (connectionType & TYPE_COMPRESS) != 0;
+            connectionType &= ~(1 | TYPE_COMPRESS);
 
             Consumer<Socket> acceptor = null;
 
@@ -689,6 +703,11 @@ final class ChannelManager {
                         connectionType |= 1;
                     }
 
+                    if (compress) {
+                        // Indicate that compression was accepted.
+                        connectionType |= TYPE_COMPRESS;
+                    }
+
                     encodeIntLE(header, CONNECTION_TYPE, connectionType);
                 }
 
@@ -707,7 +726,7 @@ final class ChannelManager {
             final var fserver = server;
 
             if (acceptor == null) {
-                acceptor = sock -> fserver.accepted(sock, checkCRCs);
+                acceptor = sock -> fserver.accepted(sock, checkCRCs, compress);
             }
 
             final var facceptor = acceptor;
@@ -886,8 +905,13 @@ final class ChannelManager {
                 conType[0] |= 1;
             }
 
+            if (mCompress) {
+                conType[0] |= TYPE_COMPRESS;
+            }
+
             try {
-                connected(doConnect(mPeer, conType), conType[0] < 0);
+                Socket s = doConnect(mPeer, conType);
+                connected(s, conType[0] < 0, (conType[0] & TYPE_COMPRESS) != 0);
             } catch (JoinException e) {
                 boolean report;
                 synchronized (this) {
@@ -994,11 +1018,11 @@ final class ChannelManager {
             closeQuietly(mSocket);
         }
 
-        void accepted(Socket s, boolean checkCRCs) {
-            connected(s, checkCRCs);
+        void accepted(Socket s, boolean checkCRCs, boolean compress) {
+            connected(s, checkCRCs, compress);
         }
 
-        private void connected(Socket s, boolean checkCRCs) {
+        private void connected(Socket s, boolean checkCRCs, boolean compress) {
             Closeable toClose;
 
             apply: synchronized (this) {
@@ -1011,8 +1035,13 @@ final class ChannelManager {
                 ChannelInputStream in;
                 try {
                     out = s.getOutputStream();
+                    InputStream source = s.getInputStream();
+                    if (compress) {
+                        out = new CompressedOutputStream(out, mCompressionStats);
+                        source = new CompressedInputStream(source, mCompressionStats);
+                    }
                     // Initial buffer is probably too small, but start with something.
-                    in = new ChannelInputStream(s.getInputStream(), 128, checkCRCs);
+                    in = new ChannelInputStream(source, 128, checkCRCs);
                 } catch (Throwable e) {
                     toClose = s;
                     break apply;
@@ -1742,6 +1771,8 @@ final class ChannelManager {
                 }
                 mWriteState = 1;
                 out.write(command, offset, length);
+                // Only needed when the stream is compressed.
+                out.flush();
                 mWriteState = 0;
                 return true;
             } catch (IOException e) {
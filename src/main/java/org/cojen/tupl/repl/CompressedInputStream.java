@@ -0,0 +1,95 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.cojen.tupl.repl;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.IOException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses all data read from a stream which was written by a {@link
+ * CompressedOutputStream}.
+ *
+ * @author Brian S O'Neill
+ */
+final class CompressedInputStream extends InputStream {
+    private final InputStream mIn;
+    private final CompressionStats mStats;
+    private final Inflater mInflater;
+    private final byte[] mBuffer;
+
+    CompressedInputStream(InputStream in, CompressionStats stats) {
+        mIn = in;
+        mStats = stats;
+        mInflater = new Inflater(true);
+        mBuffer = new byte[8192];
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        return read(b, 0, 1) <= 0 ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+
+        Inflater inflater = mInflater;
+
+        while (true) {
+            int amt;
+            long start = System.nanoTime();
+            try {
+                amt = inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                mStats.mDecompressNanos.add(System.nanoTime() - start);
+            }
+
+            if (amt > 0) {
+                return amt;
+            }
+
+            if (inflater.finished() || inflater.needsDictionary()) {
+                return -1;
+            }
+
+            if (inflater.needsInput()) {
+                int n = mIn.read(mBuffer);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                inflater.setInput(mBuffer, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInflater.end();
+        mIn.close();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.cojen.tupl.repl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.zip.Deflater;
+
+/**
+ * Compresses all data written to a stream using raw deflate, and performs a sync flush when
+ * flushed. The compression dictionary carries over from one flush to the next, and so small
+ * commands which resemble earlier ones are compressed well.
+ *
+ * @author Brian S O'Neill
+ * @see CompressedInputStream
+ */
+final class CompressedOutputStream extends OutputStream {
+    private final OutputStream mOut;
+    private final CompressionStats mStats;
+    private final Deflater mDeflater;
+    private final byte[] mBuffer;
+
+    CompressedOutputStream(OutputStream out, CompressionStats stats) {
+        mOut = out;
+        mStats = stats;
+        mDeflater = new Deflater(Deflater.BEST_SPEED, true);
+        mBuffer = new byte[8192];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            mStats.mUncompressedBytes.add(len);
+            Deflater deflater = mDeflater;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                deflate(Deflater.NO_FLUSH);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        int amt;
+        do {
+            // Keep going while the buffer fills up, which indicates that more remains.
+            amt = deflate(Deflater.SYNC_FLUSH);
+        } while (amt >= mBuffer.length);
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mDeflater.end();
+        mOut.close();
+    }
+
+    /**
+     * @return the amount of compressed bytes written
+     */
+    private int deflate(int flush) throws IOException {
+        byte[] buf = mBuffer;
+        long start = System.nanoTime();
+        int amt = mDeflater.deflate(buf, 0, buf.length, flush);
+        mStats.mCompressNanos.add(System.nanoTime() - start);
+        if (amt > 0) {
+            mStats.mCompressedBytes.add(amt);
+            mOut.write(buf, 0, amt);
+        }
+        return amt;
+    }
+}
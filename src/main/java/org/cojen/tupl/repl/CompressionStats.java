@@ -0,0 +1,44 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.cojen.tupl.repl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.cojen.tupl.diag.DatabaseStats;
+
+/**
+ * Collects statistics for the compressed streams used by replication connections.
+ *
+ * @author Brian S O'Neill
+ * @see CompressedOutputStream
+ * @see CompressedInputStream
+ */
+final class CompressionStats {
+    final LongAdder mUncompressedBytes = new LongAdder();
+    final LongAdder mCompressedBytes = new LongAdder();
+    final LongAdder mCompressNanos = new LongAdder();
+    final LongAdder mDecompressNanos = new LongAdder();
+
+    void addTo(DatabaseStats stats) {
+        stats.replicationUncompressedBytes = mUncompressedBytes.sum();
+        stats.replicationCompressedBytes = mCompressedBytes.sum();
+        stats.replicationCompressDuration = mCompressNanos.sum() / 1000;
+        stats.replicationDecompressDuration = mDecompressNanos.sum() / 1000;
+    }
+}
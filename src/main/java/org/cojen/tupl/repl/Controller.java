@@ -46,6 +46,7 @@ import java.util.function.Supplier;
 import org.cojen.tupl.core.Delayed;
 import org.cojen.tupl.core.Scheduler;
 
+import org.cojen.tupl.diag.DatabaseStats;
 import org.cojen.tupl.diag.EventListener;
 import org.cojen.tupl.diag.EventType;
 
@@ -196,7 +197,7 @@ final class Controller extends Latch implements StreamReplicator, Channel {
         mScheduler = new Scheduler("Replicator", false);
         mChanMan = new ChannelManager(config.mSocketFactory, mScheduler, groupToken1, groupToken2,
                                       gf == null ? 0 : gf.groupId(), config.mChecksumSockets,
-                                      this::uncaught);
+                                      config.mCompressSockets, this::uncaught);
         mGroupFile = gf;
         mSyncCommitCondition = new Latch.Condition();
         mProxyWrites = config.mProxyWrites;
@@ -758,6 +759,11 @@ final class Controller extends Latch implements StreamReplicator, Channel {
         return mStateLog.potentialCommitPosition();
     }
 
+    @Override
+    public void addStats(DatabaseStats stats) {
+        mChanMan.mCompressionStats.addTo(stats);
+    }
+
     @Override
     public long localMemberId() {
         return mChanMan.localMemberId();
@@ -908,7 +914,15 @@ final class Controller extends Latch implements StreamReplicator, Channel {
         Collections.shuffle(results); // random selection in case of ties
         Collections.sort(results); // stable sort
 
-        Socket sock = mChanMan.connectSnapshot(results.get(0).mPeer.mAddress);
+        return requestSnapshot(results.get(0).mPeer.mAddress, options);
+    }
+
+    @Override
+    public SocketSnapshotReceiver requestSnapshot(SocketAddress sender,
+                                                  Map<String, String> options)
+        throws IOException
+    {
+        Socket sock = mChanMan.connectSnapshot(sender);
 
         try {
             return new SocketSnapshotReceiver(mGroupFile, sock, options);
@@ -918,6 +932,11 @@ final class Controller extends Latch implements StreamReplicator, Channel {
         }
     }
 
+    @Override
+    public boolean isSnapshotSenderSelectable() {
+        return true;
+    }
+
     @Override
     public void snapshotRequestAcceptor(Consumer<SnapshotSender> acceptor) {
         mChanMan.snapshotRequestAcceptor(sock -> {
@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.LongConsumer;
 
+import org.cojen.tupl.diag.DatabaseStats;
+
 import org.cojen.tupl.io.Utils;
 
 /**
@@ -111,6 +113,11 @@ final class MessageStreamReplicator implements MessageReplicator {
         return mRepl.commitPosition();
     }
 
+    @Override
+    public void addStats(DatabaseStats stats) {
+        mRepl.addStats(stats);
+    }
+
     @Override
     public void start() throws IOException {
         mRepl.start();
@@ -126,6 +133,18 @@ final class MessageStreamReplicator implements MessageReplicator {
         return mRepl.requestSnapshot(options);
     }
 
+    @Override
+    public SnapshotReceiver requestSnapshot(SocketAddress sender, Map<String, String> options)
+        throws IOException
+    {
+        return mRepl.requestSnapshot(sender, options);
+    }
+
+    @Override
+    public boolean isSnapshotSenderSelectable() {
+        return mRepl.isSnapshotSenderSelectable();
+    }
+
     @Override
     public void snapshotRequestAcceptor(Consumer<SnapshotSender> acceptor) {
         mRepl.snapshotRequestAcceptor(acceptor);
@@ -30,6 +30,8 @@ import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.LongConsumer;
 
+import org.cojen.tupl.diag.DatabaseStats;
+
 /**
  * Defines common features available to all types of replicators.
  *
@@ -77,6 +79,31 @@ public interface Replicator extends Closeable {
      */
     SnapshotReceiver requestSnapshot(Map<String, String> options) throws IOException;
 
+    /**
+     * Connect to a specific remote replication group member, for receiving a database
+     * snapshot or a portion of one. This is typically used to open additional connections to
+     * the sender which was selected by the other {@code requestSnapshot} method.
+     *
+     * @param sender address of the group member to connect to
+     * @param options requested options; can pass null if none
+     * @throws ConnectException if requesting the snapshot failed
+     * @throws UnsupportedOperationException if not supported
+     * @see #isSnapshotSenderSelectable
+     */
+    default SnapshotReceiver requestSnapshot(SocketAddress sender, Map<String, String> options)
+        throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns true if snapshots can be requested from a specific group member, by calling
+     * the {@code requestSnapshot} method which accepts a sender address.
+     */
+    default boolean isSnapshotSenderSelectable() {
+        return false;
+    }
+
     /**
      * Install a callback to be invoked when a snapshot is requested by a new group member.
      *
@@ -162,6 +189,12 @@ public interface Replicator extends Closeable {
      */
     long commitPosition();
 
+    /**
+     * Adds replicator specific statistics to the given object, if any are supported.
+     */
+    default void addStats(DatabaseStats stats) {
+    }
+
     long localMemberId();
 
     SocketAddress localAddress();
@@ -53,6 +53,7 @@ public class ReplicatorConfig implements Cloneable {
     Set<SocketAddress> mSeeds;
     boolean mProxyWrites;
     boolean mChecksumSockets;
+    boolean mCompressSockets;
     EventListener mEventListener;
     SocketFactory mSocketFactory;
     ServerSocketFactory mServerSocketFactory;
@@ -273,6 +274,17 @@ public class ReplicatorConfig implements Cloneable {
         return this;
     }
 
+    /**
+     * Pass true to compress the replication traffic between group members. Compression is
+     * negotiated for each connection, and it's only used when both members enable it. All
+     * members must be running a version which supports compression before enabling it.
+     * Default is false.
+     */
+    public ReplicatorConfig compressSockets(boolean compress) {
+        mCompressSockets = compress;
+        return this;
+    }
+
     /**
      * Set a listener which receives notifications of actions being performed by the replicator.
      */
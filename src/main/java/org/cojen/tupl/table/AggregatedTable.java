@@ -545,6 +545,19 @@ public abstract class AggregatedTable<S, T> extends WrappedTable<S, T>
         sourceQuery = sourceQuery.withOrderBy(sourceOrderBy).withFilter(sourceFilter);
         targetQuery = targetQuery.withOrderBy(targetOrderBy).withFilter(targetFilter);
 
+        // When the source is ordered just by the group-by columns, hash aggregation can be
+        // chosen instead, if ordering the source rows would require a full sort, or if the
+        // aggregation is performed in parallel. The source query for hash aggregation has no
+        // order-by, but the projection still includes the group-by columns.
+        QuerySpec hashSourceQuery = null;
+        if (mAggregatorFactory != null
+            && (sourceOrderBy == null ? 0 : sourceOrderBy.size())
+            == targetInfo.keyColumns.size())
+        {
+            hashSourceQuery = new QuerySpec
+                (sourceQuery.projection(), null, sourceQuery.filter());
+        }
+
         Class<?> baseClass = mAggregatorFactory != null ? BaseQuery.class : DistinctQuery.class;
 
         ClassMaker queryMaker = targetInfo.rowGen().beginClassMaker
@@ -555,8 +568,12 @@ public abstract class AggregatedTable<S, T> extends WrappedTable<S, T>
             var tableVar = mm.param(0);
             if (sourceQuery == null) {
                 mm.invokeSuperConstructor(tableVar);
-            } else {
+            } else if (hashSourceQuery == null) {
                 mm.invokeSuperConstructor(tableVar, sourceQuery.toString());
+            } else {
+                String groupSpec = sourceOrderBy == null ? "" : sourceOrderBy.spec();
+                mm.invokeSuperConstructor(tableVar, sourceQuery.toString(),
+                                          hashSourceQuery.toString(), groupSpec);
             }
         }
 
@@ -601,11 +618,34 @@ public abstract class AggregatedTable<S, T> extends WrappedTable<S, T>
             Variable targetScannerVar;
 
             if (mAggregatorFactory != null) {
-                var sourceScannerVar = mm.field("squery").invoke(methodName, txnVar, argsVar);
-                var aggregatorVar = tableVar.invoke("newAggregator", sourceScannerVar);
-
-                targetScannerVar = mm.new_(AggregatedScanner.class, tableVar, sourceScannerVar,
-                                           targetComparatorVar, targetRowVar, aggregatorVar);
+                final var comparatorVar = targetComparatorVar;
+                final var aggregatedScannerVar = mm.var(Scanner.class);
+                targetScannerVar = aggregatedScannerVar;
+
+                Runnable streamAggregate = () -> {
+                    var sourceScannerVar = mm.field("squery").invoke(methodName, txnVar, argsVar);
+                    var aggregatorVar = tableVar.invoke("newAggregator", sourceScannerVar);
+                    aggregatedScannerVar.set
+                        (mm.new_(AggregatedScanner.class, tableVar, sourceScannerVar,
+                                 comparatorVar, targetRowVar, aggregatorVar));
+                };
+
+                if (hashSourceQuery == null) {
+                    streamAggregate.run();
+                } else {
+                    Map<String, ColumnInfo> proj = hashSourceQuery.projection();
+                    var projectionVar = mm.var(Set.class);
+                    if (proj == null) {
+                        projectionVar.set(null);
+                    } else {
+                        projectionVar.setExact(SortedQueryLauncher.canonicalize(proj.keySet()));
+                    }
+                    mm.invoke("useHash", txnVar, argsVar).ifTrue(() -> {
+                        aggregatedScannerVar.set
+                            (mm.invoke("newHashScanner", txnVar, argsVar,
+                                       comparatorVar, projectionVar));
+                    }, streamAggregate);
+                }
             } else {
                 final var comparatorVar = targetComparatorVar;
                 assert comparatorVar != null;
@@ -659,11 +699,16 @@ public abstract class AggregatedTable<S, T> extends WrappedTable<S, T>
             var argsVar = mm.param(1);
             var tableVar = mm.field("table").get();
 
-            var planVar = mm.field("squery").invoke("scannerPlan", txnVar, argsVar);
+            Variable planVar;
 
             if (mAggregatorFactory != null) {
+                planVar = mm.invoke("sourcePlan", txnVar, argsVar);
                 planVar = tableVar.invoke("plan", mm.invoke("aggregatorPlan", null, planVar));
+                if (hashSourceQuery != null) {
+                    planVar = mm.invoke("hashSortPlan", planVar, txnVar, argsVar);
+                }
             } else {
+                planVar = mm.field("squery").invoke("scannerPlan", txnVar, argsVar);
                 planVar = mm.invoke("distinctPlan", planVar);
             }
 
@@ -688,9 +733,19 @@ public abstract class AggregatedTable<S, T> extends WrappedTable<S, T>
         return QueryFactoryCache.ctorHandle(queryMaker.finishLookup(), AggregatedTable.class);
     }
 
-    public abstract static class BaseQuery<S, T> implements Query<T> {
+    public abstract static class BaseQuery<S, T> implements Query<T>, Cloneable {
         protected final AggregatedTable<S, T> table;
-        protected final Query<S> squery;
+
+        // Is only replaced when a parallel copy of this query is made.
+        protected Query<S> squery;
+
+        // Unordered source query and group-by specification, for hash aggregation.
+        private Query<S> mHashQuery;
+        private final String mGroupSpec;
+
+        // Is set when this query is a parallel copy of a serial query.
+        private Query<T> mSerial;
+        private int mParallelism;
 
         protected BaseQuery(AggregatedTable<S, T> table) throws IOException {
             this(table, table.mSource.queryAll());
@@ -700,9 +755,141 @@ public abstract class AggregatedTable<S, T> extends WrappedTable<S, T>
             this(table, table.mSource.query(queryStr));
         }
 
+        /**
+         * @param queryStr source query which is ordered by the group-by columns
+         * @param hashQueryStr unordered source query
+         * @param groupSpec order-by specification for the group-by columns; is empty if none
+         */
+        protected BaseQuery(AggregatedTable<S, T> table, String queryStr,
+                            String hashQueryStr, String groupSpec)
+            throws IOException
+        {
+            this.table = table;
+            this.squery = table.mSource.query(queryStr);
+            mHashQuery = table.mSource.query(hashQueryStr);
+            mGroupSpec = groupSpec;
+        }
+
         protected BaseQuery(AggregatedTable<S, T> table, Query<S> squery) {
             this.table = table;
             this.squery = squery;
+            mHashQuery = null;
+            mGroupSpec = null;
+        }
+
+        /**
+         * Returns a copy of this query which executes in parallel, or returns the serial
+         * query if the parallelism is one. When the aggregator supports combining partial
+         * results, the hash aggregation itself is performed in parallel. Otherwise, the source
+         * rows are scanned in parallel, and they're aggregated by the calling thread.
+         *
+         * @param serial this query, or a query which wraps it
+         */
+        @SuppressWarnings("unchecked")
+        final Query<T> withParallelism(Query<T> serial, int parallelism) {
+            if (mSerial != null) {
+                serial = mSerial;
+            }
+
+            if (parallelism == 1) {
+                return serial;
+            }
+
+            var base = (BaseQuery<S, T>) PlanQueryLauncher.unwrap(serial);
+
+            BaseQuery<S, T> copy;
+            try {
+                copy = (BaseQuery<S, T>) base.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(e);
+            }
+
+            copy.mSerial = serial;
+            copy.mParallelism = parallelism;
+
+            Aggregator.Factory<S, T> factory = table.mAggregatorFactory;
+            if (base.mHashQuery == null || factory == null || !factory.isCombinable()) {
+                copy.squery = base.squery.parallel(parallelism);
+                if (base.mHashQuery != null) {
+                    copy.mHashQuery = base.mHashQuery.parallel(parallelism);
+                }
+                copy.mParallelism = 0;
+            }
+
+            return copy;
+        }
+
+        /**
+         * Returns true if hash aggregation is performed in parallel.
+         */
+        private boolean isParallelHash(Transaction txn) {
+            return mParallelism > 1 && ParallelScanner.isSplittable(txn);
+        }
+
+        /**
+         * Returns true if hash aggregation should be used instead of stream aggregation,
+         * which is the case when ordering the source rows would require a full sort, or when
+         * aggregation is performed in parallel. The decision for serial aggregation is based
+         * on the plan which is currently selected for the ordered source query. It isn't
+         * cached, because the plan changes when the source table's indexes change.
+         */
+        protected final boolean useHash(Transaction txn, Object... args) throws IOException {
+            if (mHashQuery == null) {
+                return false;
+            }
+            if (isParallelHash(txn)) {
+                return true;
+            }
+            return HashAggregator.isApplicable(squery.scannerPlan(txn, args));
+        }
+
+        /**
+         * Called by generated code when useHash returns true.
+         *
+         * @param comparator orders the target rows by the group-by columns; is null if none
+         * @param projection source columns to retain when spilling; null if all
+         */
+        protected final Scanner<T> newHashScanner(Transaction txn, Object[] args,
+                                                  Comparator<T> comparator,
+                                                  Set<String> projection)
+            throws IOException
+        {
+            if (isParallelHash(txn)) {
+                return HashAggregator.aggregateParallel
+                    (table, mHashQuery, txn, args, comparator, projection, mGroupSpec,
+                     mParallelism);
+            }
+            Scanner<S> source = mHashQuery.newScanner(txn, args);
+            return HashAggregator.aggregate(table, source, comparator, projection, mGroupSpec);
+        }
+
+        /**
+         * Returns the plan for the source rows which are fed into the aggregator.
+         */
+        protected final QueryPlan sourcePlan(Transaction txn, Object... args)
+            throws IOException
+        {
+            if (useHash(txn, args)) {
+                QueryPlan plan = mHashQuery.scannerPlan(txn, args);
+                if (isParallelHash(txn) && ParallelScanner.isSplittable(plan)) {
+                    plan = new QueryPlan.Parallel(mParallelism, plan);
+                }
+                return new QueryPlan.HashGroup(table.groupByColumns(), plan);
+            }
+            return squery.scannerPlan(txn, args);
+        }
+
+        /**
+         * Returns the given aggregator plan as-is, or else wraps it with a sort plan when
+         * hash aggregation is used.
+         */
+        protected final QueryPlan hashSortPlan(QueryPlan plan, Transaction txn, Object... args)
+            throws IOException
+        {
+            if (!mGroupSpec.isEmpty() && useHash(txn, args)) {
+                plan = new QueryPlan.Sort(OrderBy.splitSpec(mGroupSpec), plan);
+            }
+            return plan;
         }
 
         @Override
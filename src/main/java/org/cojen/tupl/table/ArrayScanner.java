@@ -17,6 +17,8 @@
 
 package org.cojen.tupl.table;
 
+import java.util.Arrays;
+
 import org.cojen.tupl.Scanner;
 import org.cojen.tupl.Table;
 
@@ -85,6 +87,27 @@ abstract class ArrayScanner<R> implements Scanner<R> {
         return null;
     }
 
+    /**
+     * Transfers the rows directly, and so no row instances are reused.
+     */
+    @Override
+    public final int stepBatch(R[] dst) {
+        R[] rows = mRows;
+        int pos = mPosition;
+        if (rows[pos] == null) {
+            return 0;
+        }
+        int num = Math.min(dst.length, rows.length - pos);
+        System.arraycopy(rows, pos, dst, 0, num);
+        Arrays.fill(rows, pos, pos += num, null); // help GC
+        if (pos < rows.length) {
+            mPosition = pos;
+        } else {
+            close();
+        }
+        return num;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public final void close() {
@@ -21,6 +21,7 @@ import java.io.IOException;
 
 import org.cojen.dirmi.Pipe;
 
+import org.cojen.tupl.Query;
 import org.cojen.tupl.Scanner;
 import org.cojen.tupl.Table;
 import org.cojen.tupl.Transaction;
@@ -29,6 +30,8 @@ import org.cojen.tupl.io.Utils;
 
 import org.cojen.tupl.remote.RemoteTableProxy;
 
+import org.cojen.tupl.table.expr.CompiledQuery;
+
 import org.cojen.tupl.views.ViewUtils;
 
 /**
@@ -102,4 +105,47 @@ public abstract class BaseTable<R> extends MultiCache<Object, Object, Object, IO
     public Transaction enterScope(Transaction txn) throws IOException {
         return ViewUtils.enterScope(this, txn);
     }
+
+    /**
+     * Returns the cache which tracks the query plans of this table, or else returns null if
+     * the table isn't associated with one.
+     */
+    protected QueryPlanCache queryPlanCache() {
+        return null;
+    }
+
+    /**
+     * Obtains a Query from the TYPE_1 cache, by way of the QueryPlanCache if there is one.
+     */
+    @SuppressWarnings("unchecked")
+    protected final Query<R> obtainQuery(String queryStr) throws IOException {
+        QueryPlanCache planCache = queryPlanCache();
+        if (planCache == null) {
+            return (Query<R>) cacheObtain(TYPE_1, queryStr, null);
+        }
+        return (Query<R>) planCache.obtain(this, TYPE_1, queryStr, false, plan -> {
+            return new PlanQueryLauncher<>((Query<R>) cacheObtain(TYPE_1, queryStr, null), plan);
+        });
+    }
+
+    /**
+     * Obtains a CompiledQuery from the TYPE_2 cache, by way of the QueryPlanCache if there is
+     * one. Each call counts as an execution of the plan, because it yields a new derived table.
+     *
+     * @param derivedType is null when deriving a table of unspecified row type
+     * @param key cache key which was derived from the query string and the derived type
+     */
+    @SuppressWarnings("unchecked")
+    protected final <D> CompiledQuery<D> obtainDerived(Class<D> derivedType, String queryStr,
+                                                       Object key)
+        throws IOException
+    {
+        QueryPlanCache planCache = queryPlanCache();
+        if (planCache == null) {
+            return (CompiledQuery<D>) cacheObtain(TYPE_2, key, this);
+        }
+        Object kind = derivedType == null ? TYPE_2 : derivedType;
+        return (CompiledQuery<D>) planCache.obtain
+            (this, kind, queryStr, true, p -> cacheObtain(TYPE_2, key, this));
+    }
 }
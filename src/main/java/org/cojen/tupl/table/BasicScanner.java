@@ -19,12 +19,17 @@ package org.cojen.tupl.table;
 
 import java.io.IOException;
 
+import java.util.ArrayList;
+import java.util.Spliterator;
+
 import org.cojen.tupl.Cursor;
 import org.cojen.tupl.LockResult;
 import org.cojen.tupl.Scanner;
 import org.cojen.tupl.Transaction;
 import org.cojen.tupl.UnpositionedCursorException;
 
+import static java.util.Arrays.compareUnsigned;
+
 /**
  * 
  *
@@ -39,6 +44,17 @@ class BasicScanner<R> implements Scanner<R> {
 
     R mRow;
 
+    // When non-null, the scan is confined to the current batch, and it finishes once this
+    // key is reached. Only scanners produced by trySplit have a limit key.
+    private byte[] mLimitKey;
+    private boolean mLimitReverse;
+
+    // Number of times this scanner's range has been divided in half.
+    private int mSplitDepth;
+
+    // Scanners which were split off, which are closed when this scanner is closed.
+    private ArrayList<BasicScanner<R>> mSplitScanners;
+
     BasicScanner(StoredTable<R> table, ScanController<R> controller) {
         mTable = table;
         mController = controller;
@@ -54,7 +70,7 @@ class BasicScanner<R> implements Scanner<R> {
         a: while (true) {
             beginBatch(row, mController.evaluator());
 
-            Cursor c = mController.newCursor(mTable.mSource, txn);
+            Cursor c = mController.newCursor(mTable.mSource, txn, mTable.indexFilter());
             mCursor = c;
 
             LockResult result = toFirst(c);
@@ -99,12 +115,16 @@ class BasicScanner<R> implements Scanner<R> {
 
     @Override
     public final long estimateSize() {
-        return mController.estimateSize();
+        return mController.estimateSize() >> mSplitDepth;
     }
 
     @Override
     public final int characteristics() {
-        return mController.characteristics();
+        int characteristics = mController.characteristics();
+        if (mSplitDepth != 0) {
+            characteristics &= ~(SIZED | SUBSIZED);
+        }
+        return characteristics;
     }
 
     @Override
@@ -117,41 +137,47 @@ class BasicScanner<R> implements Scanner<R> {
         return doStep(row);
     }
 
-    protected final R doStep(R row) throws IOException {
-        Cursor c = mCursor;
+    /**
+     * Evaluates and decodes rows directly into the given array, reusing the row instances
+     * which are already in it. Unlike calling step repeatedly, the cursor is accessed
+     * without any intermediate dispatch.
+     */
+    @Override
+    public int stepBatch(R[] rows) throws IOException {
+        R row = mRow;
+        if (row == null) {
+            return 0;
+        }
+
+        rows[0] = row;
+        int num = 1;
+
         try {
-            a: while (true) {
-                LockResult result = toNext(c);
-                b: while (true) {
-                    while (c.key() == null) {
-                        if (!mController.next()) {
-                            break a;
-                        }
-                        beginBatch(row, mController.evaluator());
-                        Transaction txn = c.link();
-                        mCursor = c = mController.newCursor(mTable.mSource, txn);
-                        toFirst(c);
-                    }
-                    try {
-                        R decoded = evalRow(c, result, row);
-                        if (decoded != null) {
-                            mRow = decoded;
-                            return decoded;
-                        }
-                    } catch (StoppedCursorException e) {
-                        if (result == LockResult.ACQUIRED) {
-                            c.link().unlock();
-                            unlocked();
-                        }
-                        continue b;
-                    }
-                    if (result == LockResult.ACQUIRED) {
-                        c.link().unlock();
-                        unlocked();
-                    }
-                    continue a;
+            while (true) {
+                Cursor c = mCursor;
+                if (num >= rows.length) {
+                    // Step to a new row instance, which the caller doesn't have.
+                    doStep(c, toNext(c), null);
+                    break;
                 }
+                if ((row = doStep(c, toNext(c), rows[num])) == null) {
+                    break;
+                }
+                rows[num++] = row;
             }
+        } catch (UnpositionedCursorException e) {
+            finished();
+        } catch (Throwable e) {
+            throw RowUtils.fail(this, e);
+        }
+
+        return num;
+    }
+
+    protected final R doStep(R row) throws IOException {
+        Cursor c = mCursor;
+        try {
+            return doStep(c, toNext(c), row);
         } catch (UnpositionedCursorException e) {
         } catch (Throwable e) {
             throw RowUtils.fail(this, e);
@@ -161,6 +187,142 @@ class BasicScanner<R> implements Scanner<R> {
         return null;
     }
 
+    /**
+     * @param c cursor which was just positioned
+     * @param result result of positioning the cursor
+     * @return null if no more rows remain and scanner has been finished
+     */
+    private R doStep(Cursor c, LockResult result, R row) throws IOException {
+        while (true) {
+            while (c.key() == null) {
+                if (mLimitKey != null || !mController.next()) {
+                    finished();
+                    return null;
+                }
+                beginBatch(row, mController.evaluator());
+                Transaction txn = c.link();
+                mCursor = c = mController.newCursor(mTable.mSource, txn, mTable.indexFilter());
+                toFirst(c);
+            }
+            if (mLimitKey != null && isLimitReached(c.key())) {
+                c.reset();
+                finished();
+                return null;
+            }
+            try {
+                R decoded = evalRow(c, result, row);
+                if (decoded != null) {
+                    mRow = decoded;
+                    return decoded;
+                }
+            } catch (StoppedCursorException e) {
+                if (result == LockResult.ACQUIRED) {
+                    c.link().unlock();
+                    unlocked();
+                }
+                continue;
+            }
+            if (result == LockResult.ACQUIRED) {
+                c.link().unlock();
+                unlocked();
+            }
+            result = toNext(c);
+        }
+    }
+
+    private boolean isLimitReached(byte[] key) {
+        int cmp = compareUnsigned(key, mLimitKey);
+        return mLimitReverse ? cmp <= 0 : cmp >= 0;
+    }
+
+    /**
+     * Splits off the rows from the current one up to a split key which is chosen from the
+     * structure of the underlying index, within the current scan batch. This scanner then
+     * continues at the split key. Splitting is only supported when the scan isn't performed
+     * by a transaction which acquires locks, since transactions cannot be shared by threads.
+     */
+    @Override
+    public Spliterator<R> trySplit() {
+        try {
+            return doTrySplit();
+        } catch (Throwable e) {
+            throw RowUtils.fail(this, e);
+        }
+    }
+
+    private BasicScanner<R> doTrySplit() throws IOException {
+        Cursor c = mCursor;
+        byte[] key;
+        if (mRow == null || (key = c.key()) == null) {
+            return null;
+        }
+
+        Transaction txn = c.link();
+        if (txn != null && txn != Transaction.BOGUS) {
+            return null;
+        }
+
+        // Find the highest key of the current range, which is the lowest when in reverse.
+        byte[] endKey = mLimitKey;
+        Cursor end = null;
+        if (endKey == null) {
+            end = mController.newCursor(mTable.mSource, Transaction.BOGUS);
+            end.autoload(false);
+            end.last();
+            endKey = end.key();
+            if (endKey == null) {
+                return null;
+            }
+        }
+
+        byte[] splitKey;
+        boolean reverse;
+        try {
+            int cmp = compareUnsigned(key, endKey);
+            if (cmp == 0) {
+                return null;
+            }
+            if (reverse = cmp > 0) {
+                splitKey = mTable.mSource.splitKey(endKey, key);
+                if (splitKey == null || compareUnsigned(splitKey, key) >= 0) {
+                    return null;
+                }
+            } else {
+                splitKey = mTable.mSource.splitKey(key, endKey);
+                if (splitKey == null) {
+                    return null;
+                }
+            }
+        } finally {
+            if (end != null) {
+                end.reset();
+            }
+        }
+
+        // The new scanner takes over the current position, and it finishes at the split key.
+
+        var prefix = new BasicScanner<R>(mTable, mController);
+        prefix.mCursor = c;
+        prefix.mEvaluator = mEvaluator;
+        prefix.mRow = mRow;
+        prefix.mLimitKey = splitKey;
+        prefix.mLimitReverse = reverse;
+        prefix.mSplitDepth = ++mSplitDepth;
+
+        if (mSplitScanners == null) {
+            mSplitScanners = new ArrayList<>();
+        }
+        mSplitScanners.add(prefix);
+
+        // This scanner continues at the split key.
+
+        mRow = null;
+        mCursor = c = mController.newCursor(mTable.mSource, txn, mTable.indexFilter());
+        doStep(c, c.findGe(splitKey), null);
+
+        return prefix;
+    }
+
     @SuppressWarnings("unchecked")
     protected void beginBatch(R row, RowEvaluator<R> evaluator) throws IOException {
         mEvaluator = evaluator;
@@ -177,6 +339,13 @@ class BasicScanner<R> implements Scanner<R> {
     public final void close() throws IOException {
         finished();
         mCursor.reset();
+        ArrayList<BasicScanner<R>> splits = mSplitScanners;
+        if (splits != null) {
+            mSplitScanners = null;
+            for (BasicScanner<R> scanner : splits) {
+                scanner.close();
+            }
+        }
     }
 
     protected LockResult toFirst(Cursor c) throws IOException {
@@ -20,6 +20,7 @@ package org.cojen.tupl.table;
 import java.io.IOException;
 
 import java.util.Arrays;
+import java.util.Spliterator;
 import java.util.TreeSet;
 
 import org.cojen.tupl.Cursor;
@@ -46,6 +47,14 @@ class BasicUpdater<R> extends BasicScanner<R> implements Updater<R> {
         super(table, controller);
     }
 
+    /**
+     * Updaters aren't split, because they're bound to a transaction.
+     */
+    @Override
+    public final Spliterator<R> trySplit() {
+        return null;
+    }
+
     @Override
     public final R update(R row) throws IOException {
         updateCurrent();
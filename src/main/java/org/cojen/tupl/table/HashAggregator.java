@@ -0,0 +1,540 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cojen.tupl.Aggregator;
+import org.cojen.tupl.Database;
+import org.cojen.tupl.Entry;
+import org.cojen.tupl.Query;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Sorter;
+import org.cojen.tupl.Table;
+import org.cojen.tupl.Transaction;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+/**
+ * Aggregates rows using a hash table which is keyed by the group-by columns, and so the source
+ * rows don't need to be ordered. It's used by AggregatedTable when ordering the source rows
+ * would otherwise require a full sort. A new Aggregator instance is used for each group, and
+ * the finished rows are sorted by the group-by columns, which is cheap when the amount of
+ * groups is small.
+ *
+ * <p>When the amount of groups exceeds a limit, the source rows of any new groups are fed
+ * into a Sorter, which spills to temporary indexes. After all the source rows have been
+ * consumed, the spilled rows are aggregated in order by an AggregatedScanner. The spilled
+ * groups are disjoint from the groups held in memory, and so the results are simply merged.
+ *
+ * @author Brian S O'Neill
+ * @see AggregatedTable
+ */
+final class HashAggregator {
+    private static final int LIMIT;
+
+    static {
+        int limit = 100_000;
+        String prop = System.getProperty("org.cojen.tupl.table.HashAggregateLimit");
+        if (prop != null) {
+            try {
+                limit = Integer.parseInt(prop);
+            } catch (NumberFormatException e) {
+            }
+        }
+        LIMIT = limit;
+    }
+
+    private HashAggregator() {
+    }
+
+    /**
+     * Returns true if the given plan for the ordered source rows performs a full sort, in
+     * which case hash aggregation should be used instead.
+     */
+    static boolean isApplicable(QueryPlan sourcePlan) {
+        return sourcePlan instanceof QueryPlan.Sort && !(sourcePlan instanceof QueryPlan.GroupSort);
+    }
+
+    /**
+     * @param source unordered source rows, which is always closed by this method
+     * @param comparator orders the target rows by the group-by columns
+     * @param projection source columns to retain when spilling; null if all
+     * @param groupSpec order-by specification for the group-by columns, which must be
+     * consistent with the comparator
+     */
+    static <S, T> Scanner<T> aggregate(AggregatedTable<S, T> table, Scanner<S> source,
+                                       Comparator<T> comparator,
+                                       Set<String> projection, String groupSpec)
+        throws IOException
+    {
+        return aggregate(table, source, comparator, projection, groupSpec, LIMIT);
+    }
+
+    /**
+     * @param limit maximum amount of groups to keep in memory
+     */
+    static <S, T> Scanner<T> aggregate(AggregatedTable<S, T> table, Scanner<S> source,
+                                       Comparator<T> comparator,
+                                       Set<String> projection, String groupSpec, int limit)
+        throws IOException
+    {
+        Table<S> sourceTable = table.source();
+        Class<S> sourceType = sourceTable.rowType();
+
+        SortRowCodec<S> keyCodec = keyCodec(sourceType, groupSpec);
+
+        var groups = new HashMap<Key, Group<S, T>>();
+        var kvPairs = new byte[2][];
+
+        Sorter sorter = null;
+        SortRowCodec<S> spillCodec = null;
+        byte[][] spillPairs = null;
+        int spillOffset = 0;
+        long numSpilled = 0;
+
+        // Without any group-by columns, there's only one group, and so spilling is pointless.
+        boolean canSpill = keyCodec != null;
+
+        Scanner<T> inMemory;
+
+        try {
+            try (source) {
+                for (S row = source.row(); row != null; ) {
+                    Key key = key(keyCodec, row, kvPairs);
+
+                    if (groups.size() >= limit && canSpill && !groups.containsKey(key)) {
+                        if (sorter == null) {
+                            Database db = RowUtils.findDatabase(sourceTable);
+                            if (db == null) {
+                                // Keep everything in memory.
+                                canSpill = false;
+                            } else {
+                                sorter = db.newSorter();
+                                spillCodec = SortRowCodec.find
+                                    (sourceType, projection, groupSpec);
+                                spillPairs = new byte[1000][];
+                            }
+                        }
+
+                        if (sorter != null) {
+                            spillCodec.encode(row, numSpilled++, spillPairs, spillOffset);
+                            spillOffset += 2;
+                            if (spillOffset >= spillPairs.length) {
+                                sorter.addBatch(spillPairs, 0, spillOffset >> 1);
+                                spillOffset = 0;
+                            }
+                            row = source.step(row);
+                            continue;
+                        }
+                    }
+
+                    row = source.step(accumulate(table, groups, key, row));
+                }
+            }
+
+            inMemory = finish(table, groups, comparator);
+        } catch (Throwable e) {
+            if (sorter != null) {
+                try {
+                    sorter.reset();
+                } catch (Throwable e2) {
+                    RowUtils.suppress(e, e2);
+                }
+            }
+            closeAll(groups, e);
+            throw e;
+        }
+
+        if (sorter == null) {
+            return inMemory;
+        }
+
+        Scanner<T> spilled;
+        try {
+            sorter.addBatch(spillPairs, 0, spillOffset >> 1);
+            var sourceRows = new Spilled<S>(sorter.finishScan(), spillCodec);
+            spilled = new AggregatedScanner<>(table, sourceRows, comparator, null,
+                                              table.mAggregatorFactory.newAggregator());
+        } catch (Throwable e) {
+            try {
+                sorter.reset();
+            } catch (Throwable e2) {
+                RowUtils.suppress(e, e2);
+            }
+            throw e;
+        }
+
+        return inMemory.row() == null ? spilled
+            : new MergeScanner<>(comparator, inMemory, spilled);
+    }
+
+    /**
+     * Aggregates the source rows in parallel, by splitting the source scanner into
+     * partitions. Each worker task aggregates the partitions it claims into its own hash
+     * table, and then the partial aggregates are combined. The Aggregator instances must
+     * support the combine method.
+     *
+     * <p>Partial aggregates cannot be spilled, and so the workers share a limit on the total
+     * amount of groups. When the limit is exceeded, the partial aggregates are discarded, and
+     * the source rows are aggregated again by the serial spilling path, over a parallel scan.
+     *
+     * @param source unordered source rows, which are scanned again if the limit is exceeded
+     * @param parallelism maximum number of worker tasks
+     * @see Aggregator#combine
+     */
+    static <S, T> Scanner<T> aggregateParallel(AggregatedTable<S, T> table,
+                                               Query<S> source, Transaction txn, Object[] args,
+                                               Comparator<T> comparator,
+                                               Set<String> projection, String groupSpec,
+                                               int parallelism)
+        throws IOException
+    {
+        return aggregateParallel(table, source, txn, args, comparator, projection, groupSpec,
+                                 parallelism, LIMIT);
+    }
+
+    /**
+     * @param limit maximum amount of groups to keep in memory
+     */
+    @SuppressWarnings("unchecked")
+    static <S, T> Scanner<T> aggregateParallel(AggregatedTable<S, T> table,
+                                               Query<S> source, Transaction txn, Object[] args,
+                                               Comparator<T> comparator,
+                                               Set<String> projection, String groupSpec,
+                                               int parallelism, int limit)
+        throws IOException
+    {
+        Scanner<S> scanner = source.newScanner(txn, args);
+        List<Scanner<S>> parts = ParallelScanner.split(scanner, parallelism);
+
+        if (parts.size() <= 1) {
+            return aggregate(table, scanner, comparator, projection, groupSpec, limit);
+        }
+
+        SortRowCodec<S> keyCodec = keyCodec(table.source().rowType(), groupSpec);
+        var nextPart = new AtomicInteger();
+
+        // Counts the groups of all the workers, and is null if the groups cannot be spilled.
+        AtomicInteger groupCount = null;
+        if (keyCodec != null && RowUtils.findDatabase(table.source()) != null) {
+            groupCount = new AtomicInteger();
+        }
+        AtomicInteger fGroupCount = groupCount;
+
+        int numWorkers = Math.min(parallelism, parts.size());
+        var tasks = new ForkJoinTask[numWorkers];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int i=0; i<numWorkers; i++) {
+            tasks[i] = pool.submit
+                (() -> partial(table, keyCodec, parts, nextPart, fGroupCount, limit));
+        }
+
+        Throwable failure = null;
+        boolean exceeded = false;
+        HashMap<Key, Group<S, T>> groups = null;
+        var partials = new ArrayList<HashMap<Key, Group<S, T>>>(numWorkers);
+
+        for (ForkJoinTask<?> task : tasks) {
+            var partial = (Partial<S, T>) task.join();
+            partials.add(partial.groups);
+
+            if (partial.failure != null) {
+                if (failure == null) {
+                    failure = partial.failure;
+                } else {
+                    RowUtils.suppress(failure, partial.failure);
+                }
+            }
+
+            exceeded |= partial.exceeded;
+
+            if (failure == null && !exceeded) {
+                if (groups == null) {
+                    groups = partial.groups;
+                } else {
+                    try {
+                        combine(groups, partial.groups);
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+
+        failure = ParallelScanner.closeAll(parts, failure);
+
+        if (failure == null) {
+            try {
+                if (!exceeded) {
+                    return finish(table, groups, comparator);
+                }
+                for (HashMap<Key, Group<S, T>> partial : partials) {
+                    closeAll(partial, null);
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        if (failure == null) {
+            // The limit was exceeded, so start over and spill.
+            scanner = ParallelScanner.open(source.newScanner(txn, args), parallelism);
+            return aggregate(table, scanner, comparator, projection, groupSpec, limit);
+        }
+
+        for (HashMap<Key, Group<S, T>> partial : partials) {
+            closeAll(partial, failure);
+        }
+
+        throw RowUtils.rethrow(failure);
+    }
+
+    /**
+     * Is called by a worker task to aggregate the partitions it claims.
+     *
+     * @param groupCount counts the groups of all the workers; is null if no limit applies
+     */
+    private static <S, T> Partial<S, T> partial(AggregatedTable<S, T> table,
+                                                SortRowCodec<S> keyCodec,
+                                                List<Scanner<S>> parts, AtomicInteger nextPart,
+                                                AtomicInteger groupCount, int limit)
+    {
+        var groups = new HashMap<Key, Group<S, T>>();
+
+        try {
+            var kvPairs = new byte[2][];
+            int partNum;
+            while ((partNum = nextPart.getAndIncrement()) < parts.size()) {
+                Scanner<S> part = parts.get(partNum);
+                for (S row = part.row(); row != null; ) {
+                    int size = groups.size();
+                    row = part.step(accumulate(table, groups, key(keyCodec, row, kvPairs), row));
+                    if (groupCount != null && groups.size() > size
+                        && groupCount.incrementAndGet() > limit)
+                    {
+                        // Prevent the other workers from claiming any more partitions.
+                        nextPart.set(parts.size());
+                        return new Partial<>(groups, null, true);
+                    }
+                }
+            }
+            return new Partial<>(groups, null, false);
+        } catch (Throwable e) {
+            // Prevent the other workers from claiming any more partitions.
+            nextPart.set(parts.size());
+            return new Partial<>(groups, e, false);
+        }
+    }
+
+    /**
+     * Moves all the groups from the partial hash table into the given one, combining the
+     * aggregators of matching groups.
+     */
+    private static <S, T> void combine(HashMap<Key, Group<S, T>> groups,
+                                       HashMap<Key, Group<S, T>> partial)
+        throws IOException
+    {
+        Iterator<Map.Entry<Key, Group<S, T>>> it = partial.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Group<S, T>> e = it.next();
+            Group<S, T> group = groups.get(e.getKey());
+            if (group == null) {
+                groups.put(e.getKey(), e.getValue());
+                it.remove();
+            } else {
+                Aggregator<S, T> other = e.getValue().aggregator;
+                group.aggregator.combine(other);
+                it.remove();
+                other.close();
+            }
+        }
+    }
+
+    /**
+     * Returns null if there are no group-by columns.
+     */
+    private static <S> SortRowCodec<S> keyCodec(Class<S> sourceType, String groupSpec) {
+        // Encodes just the group-by columns, for use as a hash key.
+        return groupSpec.isEmpty() ? null : SortRowCodec.find(sourceType, Set.of(), groupSpec);
+    }
+
+    /**
+     * @param keyCodec is null if there are no group-by columns
+     * @param kvPairs temporary storage for encoding the key
+     */
+    private static <S> Key key(SortRowCodec<S> keyCodec, S row, byte[][] kvPairs)
+        throws IOException
+    {
+        if (keyCodec == null) {
+            return Key.EMPTY;
+        }
+        keyCodec.encode(row, 0, kvPairs, 0);
+        return new Key(kvPairs[0]);
+    }
+
+    /**
+     * Accumulates a source row into the group for the given key, beginning a new group if
+     * necessary.
+     *
+     * @return the next source row instance to use
+     */
+    private static <S, T> S accumulate(AggregatedTable<S, T> table,
+                                       HashMap<Key, Group<S, T>> groups, Key key, S row)
+        throws IOException
+    {
+        Group<S, T> group = groups.get(key);
+        if (group != null) {
+            return group.aggregator.accumulate(row);
+        }
+        Table<S> sourceTable = table.source();
+        S header = sourceTable.newRow();
+        sourceTable.copyRow(row, header);
+        Aggregator<S, T> aggregator = table.mAggregatorFactory.newAggregator();
+        groups.put(key, new Group<>(header, aggregator));
+        return aggregator.begin(row);
+    }
+
+    /**
+     * Finishes all the groups, closes the aggregators, and returns the target rows in order.
+     */
+    @SuppressWarnings("unchecked")
+    private static <S, T> Scanner<T> finish(AggregatedTable<S, T> table,
+                                            HashMap<Key, Group<S, T>> groups,
+                                            Comparator<T> comparator)
+        throws IOException
+    {
+        var targetRows = new ArrayList<T>();
+
+        for (Group<S, T> group : groups.values()) {
+            T targetRow = group.aggregator.finish(table.newRow());
+            if (targetRow != null) {
+                table.finishTarget(group.header, targetRow);
+                targetRows.add(targetRow);
+            }
+        }
+
+        closeAll(groups, null);
+
+        if (targetRows.isEmpty()) {
+            return new Sorted<>(comparator);
+        }
+
+        var rows = (T[]) targetRows.toArray();
+        targetRows = null; // help GC
+        if (comparator != null) {
+            Arrays.sort(rows, comparator);
+        }
+        return new Sorted<>(table, rows, comparator);
+    }
+
+    /**
+     * @param ex if non-null, any exceptions are suppressed into it
+     */
+    private static <S, T> void closeAll(HashMap<Key, Group<S, T>> groups, Throwable ex)
+        throws IOException
+    {
+        Throwable first = null;
+
+        for (Group<S, T> group : groups.values()) {
+            try {
+                group.aggregator.close();
+            } catch (Throwable e) {
+                if (ex != null) {
+                    RowUtils.suppress(ex, e);
+                } else if (first == null) {
+                    first = e;
+                } else {
+                    RowUtils.suppress(first, e);
+                }
+            }
+        }
+
+        groups.clear();
+
+        if (first != null) {
+            throw RowUtils.rethrow(first);
+        }
+    }
+
+    private record Key(byte[] bytes) {
+        static final Key EMPTY = new Key(new byte[0]);
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other && Arrays.equals(bytes, other.bytes);
+        }
+    }
+
+    private record Group<S, T>(S header, Aggregator<S, T> aggregator) { }
+
+    /**
+     * @param exceeded is true if the worker stopped because the limit was exceeded
+     */
+    private record Partial<S, T>(HashMap<Key, Group<S, T>> groups, Throwable failure,
+                                 boolean exceeded)
+    { }
+
+    private static final class Sorted<R> extends ArrayScanner<R> {
+        private final Comparator<R> mComparator;
+
+        Sorted(Comparator<R> comparator) {
+            mComparator = comparator;
+        }
+
+        Sorted(Table<R> table, R[] rows, Comparator<R> comparator) {
+            super(table, rows);
+            mComparator = comparator;
+        }
+
+        @Override
+        public Comparator<R> getComparator() {
+            return mComparator;
+        }
+    }
+
+    private static final class Spilled<R> extends ScannerScanner<R> {
+        Spilled(Scanner<Entry> scanner, RowDecoder<R> decoder) throws IOException {
+            super(scanner, decoder);
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | ORDERED | IMMUTABLE;
+        }
+    }
+}
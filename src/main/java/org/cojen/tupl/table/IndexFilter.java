@@ -0,0 +1,337 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cojen.maker.Label;
+import org.cojen.maker.MethodMaker;
+
+import org.cojen.tupl.Cursor;
+import org.cojen.tupl.Index;
+
+import org.cojen.tupl.table.codec.ColumnCodec;
+
+import org.cojen.tupl.util.Runner;
+
+/**
+ * Bloom filter which is maintained for a secondary index, which can quickly prove that a key
+ * doesn't exist. Only the leading index columns are added to the filter, and so the primary
+ * key columns which are appended to a secondary key are ignored. The filter is only consulted
+ * when a scan range is confined to a single key prefix, which is typical for join probes and
+ * "in" filters.
+ *
+ * <p>Keys are added by the trigger after each secondary index entry is stored, and keys are
+ * never removed. Changes applied by recovery or by replication bypass the triggers, and so
+ * filters aren't persisted. Instead, a filter is built by scanning the index once the index
+ * is active, and it's rebuilt when it becomes too full. Until built, the filter doesn't rule
+ * anything out.
+ *
+ * @author Brian S O'Neill
+ * @see TableManager
+ */
+public final class IndexFilter implements Runnable {
+    private static final VarHandle cWordsHandle;
+
+    static {
+        cWordsHandle = MethodHandles.arrayElementVarHandle(long[].class);
+    }
+
+    // Approximately one in this many added keys is counted, for detecting when the filter is
+    // too full. Must be a power of two.
+    private static final int SAMPLE_RATE = 1024;
+
+    // The filter is sized for this many times the number of keys in the index, to permit
+    // growth before a rebuild is required.
+    private static final int HEADROOM = 2;
+
+    private static final long MIN_BITS = 1L << 12, MAX_BITS = 1L << 32;
+
+    /**
+     * Returns a new filter, or null if the index doesn't have any leading columns which can be
+     * filtered.
+     *
+     * @param bitsPerKey must be positive
+     */
+    static IndexFilter make(TableManager<?> manager, Index index,
+                            SecondaryInfo info, int bitsPerKey)
+    {
+        int numColumns = info.keyColumns.size();
+
+        if (!info.isAltKey()) {
+            // Exclude the trailing primary key columns.
+            ColumnInfo[] keyColumns = info.keyColumns.values().toArray(ColumnInfo[]::new);
+            while (numColumns > 0 && info.primaryInfo.keyColumns.containsKey
+                   (keyColumns[numColumns - 1].name))
+            {
+                numColumns--;
+            }
+        }
+
+        if (numColumns <= 0) {
+            return null;
+        }
+
+        return new IndexFilter(manager, index, makePrefixLength(info, numColumns), bitsPerKey);
+    }
+
+    /**
+     * Makes a method which computes the length of the leading key columns, returning -1 if
+     * the key is too short.
+     */
+    private static MethodHandle makePrefixLength(SecondaryInfo info, int numColumns) {
+        MethodMaker mm = MethodMaker.begin
+            (MethodHandles.lookup(), int.class, "prefixLength", byte[].class);
+
+        var keyVar = mm.param(0);
+        var offsetVar = mm.var(int.class).set(0);
+        var lengthVar = keyVar.alength();
+
+        ColumnCodec[] codecs = ColumnCodec.bind(info.rowGen().keyCodecs(), mm);
+
+        Label tooShort = mm.label();
+        for (int i=0; i<numColumns; i++) {
+            offsetVar.ifGe(lengthVar, tooShort);
+            codecs[i].decodeSkip(keyVar, offsetVar, null);
+        }
+        offsetVar.ifGt(lengthVar, tooShort);
+        mm.return_(offsetVar);
+
+        tooShort.here();
+        mm.return_(-1);
+
+        return mm.finish();
+    }
+
+    private final TableManager<?> mManager;
+    final Index mIndex;
+    private final MethodHandle mPrefixLength;
+    private final int mBitsPerKey, mNumHashes;
+
+    // Is consulted once the filter has been built.
+    private volatile Bits mBits;
+
+    // Also receives keys while the filter is being built or rebuilt.
+    private volatile Bits mBuilding;
+
+    // Is guarded by synchronization on this.
+    private boolean mBuildActive;
+
+    private IndexFilter(TableManager<?> manager, Index index,
+                        MethodHandle prefixLength, int bitsPerKey)
+    {
+        mManager = manager;
+        mIndex = index;
+        mPrefixLength = prefixLength;
+        mBitsPerKey = bitsPerKey;
+        // The optimal number of hash functions is bitsPerKey * ln(2).
+        mNumHashes = Math.max(1, Math.min(16, (int) Math.round(bitsPerKey * 0.6931)));
+    }
+
+    /**
+     * Called by the trigger after a secondary index entry has been stored.
+     *
+     * @param key secondary key
+     */
+    public void add(byte[] key) {
+        int length = prefixLength(key);
+        if (length < 0) {
+            return;
+        }
+
+        long hash = hash(key, length);
+
+        // Must check mBuilding first. When the build finishes, mBits is assigned before
+        // mBuilding is cleared, and so the key cannot be lost.
+
+        Bits building = mBuilding;
+        if (building != null) {
+            building.add(hash);
+        }
+
+        Bits bits = mBits;
+        if (bits != null && bits != building && bits.add(hash)) {
+            requestBuild();
+        }
+    }
+
+    /**
+     * Returns false if the given key definitely has no entries in the index.
+     *
+     * @param key secondary key, which need only contain the leading index columns
+     */
+    boolean mightContain(byte[] key) {
+        Bits bits = mBits;
+        if (bits == null) {
+            return true;
+        }
+        int length = prefixLength(key);
+        return length < 0 || bits.mightContain(hash(key, length));
+    }
+
+    /**
+     * Returns true if the filter has been built, and so it's being consulted.
+     */
+    boolean isBuilt() {
+        return mBits != null;
+    }
+
+    /**
+     * Starts a task to build or rebuild the filter, unless already started.
+     */
+    void requestBuild() {
+        synchronized (this) {
+            if (mBuildActive) {
+                return;
+            }
+            mBuildActive = true;
+        }
+
+        Runner.start(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            build();
+        } catch (Throwable e) {
+            mBuilding = null;
+            RowStore rs = mManager.mRowStoreRef.get();
+            if (rs != null && !rs.mDatabase.isClosed() && !mIndex.isClosed()) {
+                RowUtils.uncaught(e);
+            }
+        } finally {
+            synchronized (this) {
+                mBuildActive = false;
+            }
+        }
+    }
+
+    private void build() throws IOException {
+        long count = Math.max(0, IndexStatistics.estimateRowCount(mIndex));
+        var bits = new Bits(count * HEADROOM, mBitsPerKey, mNumHashes);
+
+        // Must be assigned before scanning, to capture keys which the scan misses.
+        mBuilding = bits;
+
+        // Use a null transaction, which waits for uncommitted deletes to be resolved. If one
+        // rolls back, the key is restored without going through the trigger.
+        try (Cursor c = mIndex.newCursor(null)) {
+            c.autoload(false);
+            byte[] key;
+            for (c.first(); (key = c.key()) != null; c.next()) {
+                int length = prefixLength(key);
+                if (length >= 0) {
+                    bits.add(hash(key, length));
+                }
+            }
+        }
+
+        mBits = bits;
+        mBuilding = null;
+    }
+
+    @Override
+    public String toString() {
+        Bits bits = mBits;
+        return getClass().getSimpleName() + "{index=" + mIndex.id() +
+            ", bits=" + (bits == null ? 0 : bits.numBits()) + ", hashes=" + mNumHashes + '}';
+    }
+
+    private int prefixLength(byte[] key) {
+        try {
+            return (int) mPrefixLength.invokeExact(key);
+        } catch (Throwable e) {
+            // Is malformed or truncated, and so it cannot be filtered.
+            return -1;
+        }
+    }
+
+    private static long hash(byte[] key, int length) {
+        // FNV-1a, which mixes each byte well enough for keys which differ only slightly.
+        long hash = 0xcbf29ce484222325L ^ length;
+        for (int i=0; i<length; i++) {
+            hash = (hash ^ (key[i] & 0xff)) * 0x100000001b3L;
+        }
+        return RowUtils.scramble(hash);
+    }
+
+    private static final class Bits {
+        private final long[] mWords;
+        private final long mMask;
+        private final int mNumHashes;
+
+        // When the number of sampled keys exceeds this threshold, the filter is too full.
+        private final long mSampleThreshold;
+        private final AtomicLong mSampled;
+
+        Bits(long capacity, int bitsPerKey, int numHashes) {
+            // Round up to a power of two.
+            long numBits = Long.highestOneBit(capacity * bitsPerKey - 1) << 1;
+            numBits = Math.min(MAX_BITS, Math.max(MIN_BITS, numBits));
+            mWords = new long[(int) (numBits >>> 6)];
+            mMask = numBits - 1;
+            mNumHashes = numHashes;
+            mSampleThreshold = Math.max(1, numBits / bitsPerKey / SAMPLE_RATE);
+            mSampled = new AtomicLong();
+        }
+
+        long numBits() {
+            return mMask + 1;
+        }
+
+        /**
+         * @return true if the filter is too full
+         */
+        boolean add(long hash) {
+            long delta = Long.rotateLeft(hash, 32) | 1;
+            long h = hash;
+            for (int i=0; i<mNumHashes; i++) {
+                long bit = h & mMask;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if (((long) cWordsHandle.getVolatile(mWords, index) & mask) == 0) {
+                    cWordsHandle.getAndBitwiseOr(mWords, index, mask);
+                }
+                h += delta;
+            }
+
+            return (hash >>> 54) == 0 && mSampled.incrementAndGet() > mSampleThreshold;
+        }
+
+        boolean mightContain(long hash) {
+            long delta = Long.rotateLeft(hash, 32) | 1;
+            long h = hash;
+            for (int i=0; i<mNumHashes; i++) {
+                long bit = h & mMask;
+                long word = (long) cWordsHandle.getVolatile(mWords, (int) (bit >>> 6));
+                if ((word & (1L << bit)) == 0) {
+                    return false;
+                }
+                h += delta;
+            }
+            return true;
+        }
+    }
+}
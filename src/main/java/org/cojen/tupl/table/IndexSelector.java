@@ -47,6 +47,14 @@ import org.cojen.tupl.table.filter.Visitor;
  * @author Brian S O'Neill
  */
 final class IndexSelector<R> {
+    // Relative cost of loading a row from the primary index, after finding it in a secondary
+    // index, as compared to scanning a row sequentially.
+    private static final double RANDOM_COST = 4;
+
+    // Cost estimates below this threshold aren't considered.
+    private static final double MIN_COST = 1000;
+
+    private final StoredTable<R> mTable;
     private final RowInfo mPrimaryInfo;
     private final QuerySpec mQuery;
     private final boolean mForUpdate;
@@ -77,6 +85,7 @@ final class IndexSelector<R> {
     IndexSelector(StoredTable<R> table, RowInfo primaryInfo, QuerySpec query, boolean forUpdate)
         throws IOException
     {
+        mTable = table;
         mPrimaryInfo = primaryInfo;
         mQuery = query;
         mForUpdate = forUpdate;
@@ -537,8 +546,17 @@ final class IndexSelector<R> {
      * @param group must be a single DNF group; no "or" filters
      */
     private int compareIndexes(RowFilter group, List<Term> terms, ColumnSet cs1, ColumnSet cs2) {
+        long score1 = keyMatchScore(terms, cs1);
+        long score2 = keyMatchScore(terms, cs2);
+
+        // Select an index based on the estimated cost, if statistics are available.
+        int cmp = compareCost(terms, cs1, score1, cs2, score2);
+        if (cmp != 0) {
+            return cmp;
+        }
+
         // Select an index based on how well the key columns match.
-        int cmp = Long.compare(keyMatchScore(terms, cs2), keyMatchScore(terms, cs1));
+        cmp = Long.compare(score2, score1);
         if (cmp != 0) {
             return cmp;
         }
@@ -572,6 +590,90 @@ final class IndexSelector<R> {
         return Integer.compare(cs1.allColumns.size(), cs2.allColumns.size());
     }
 
+    /**
+     * Returns -1 if cs1 is estimated to be much cheaper than cs2, 1 if much more expensive,
+     * or 0 if the costs are similar or unknown.
+     */
+    private int compareCost(List<Term> terms, ColumnSet cs1, long score1,
+                            ColumnSet cs2, long score2)
+    {
+        if (mTable == null || !mTable.supportsSecondaries() || mQuery.orderBy() != null
+            || (score1 == 0 && score2 == 0))
+        {
+            // When ordering is requested, the cost of sorting isn't known. When neither index
+            // has any key matches, the other rules work just fine.
+            return 0;
+        }
+
+        double cost1 = estimateCost(terms, cs1);
+        double cost2;
+        if (cost1 < 0 || (cost2 = estimateCost(terms, cs2)) < 0
+            || Math.max(cost1, cost2) < MIN_COST)
+        {
+            return 0;
+        }
+
+        // Only decide when the difference is significant, since the estimates are rough.
+        if (cost1 * 2 <= cost2) {
+            return -1;
+        } else if (cost2 * 2 <= cost1) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the estimated cost of using the given index, or -1 if unknown.
+     *
+     * @param terms must be sorted
+     */
+    private double estimateCost(List<Term> terms, ColumnSet cs) {
+        IndexStatistics stats;
+        try {
+            byte[] desc = cs == mPrimaryInfo ? RowUtils.EMPTY_BYTES
+                : RowStore.secondaryDescriptor(cs, mPrimaryInfo.alternateKeys.contains(cs));
+            stats = mTable.tableManager().statistics(desc);
+        } catch (IOException e) {
+            // Statistics aren't essential.
+            return -1;
+        }
+
+        if (stats == null) {
+            return -1;
+        }
+
+        int equalities = 0;
+        int rangeType = 0;
+
+        scan: for (ColumnInfo column : cs.keyColumns.values()) {
+            for (Term t : terms) {
+                if (t.mType > HALF_RANGE) {
+                    break scan;
+                }
+                if (t.mFilter.column().name.equals(column.name)) {
+                    if (t.mType == EQUALITY) {
+                        equalities++;
+                        continue scan;
+                    }
+                    rangeType = t.mType;
+                    break scan;
+                }
+            }
+            break;
+        }
+
+        double rows = equalities == 0 ? stats.rowCount() : stats.equalityRows(equalities);
+
+        if (rangeType == FULL_RANGE) {
+            rows *= 0.1;
+        } else if (rangeType == HALF_RANGE) {
+            rows *= (1.0 / 3);
+        }
+
+        return isCovering(terms, cs) ? rows : (rows * (1 + RANDOM_COST));
+    }
+
     /**
      * Returns a score which is higher for indexes that are better suited for key matching.
      *
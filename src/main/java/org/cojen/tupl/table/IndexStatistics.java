@@ -0,0 +1,371 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import java.util.function.Function;
+
+import org.cojen.tupl.Cursor;
+import org.cojen.tupl.Index;
+import org.cojen.tupl.Table;
+import org.cojen.tupl.Transaction;
+
+import static java.util.Arrays.compareUnsigned;
+
+import static org.cojen.tupl.table.RowUtils.*;
+
+/**
+ * Estimated statistics for a primary index, alternate key, or secondary index, which are
+ * used for making cost-based decisions. The statistics are collected by sampling, and they're
+ * persisted by the RowStore.
+ *
+ * @author Brian S O'Neill
+ * @see TableManager#statistics()
+ */
+public final class IndexStatistics {
+    // Number of random probes to perform when estimating the amount of rows.
+    private static final int PROBES = 16;
+
+    // Number of keys to sample for estimating the amount of distinct values.
+    private static final int SAMPLE_SIZE = 1000;
+
+    // Maximum number of buckets in the histogram.
+    private static final int BUCKETS = 16;
+
+    private static final byte ENCODING_VERSION = 1;
+
+    /**
+     * Returns the estimated number of rows in the given table, or -1 if unknown.
+     */
+    public static long estimateRowCount(Table<?> table) {
+        if (table instanceof StoredTable<?> stored) {
+            try {
+                IndexStatistics stats = stored.tableManager().statistics();
+                if (stats != null) {
+                    return stats.rowCount();
+                }
+            } catch (IOException e) {
+                // Statistics aren't essential.
+            }
+        }
+        return -1;
+    }
+
+    private final long mRowCount;
+
+    // Estimated number of distinct values for each leading group of key columns.
+    private final long[] mDistinct;
+
+    // Equi-depth histogram, which consists of the keys which separate the buckets.
+    private final byte[][] mBounds;
+
+    private IndexStatistics(long rowCount, long[] distinct, byte[][] bounds) {
+        mRowCount = rowCount;
+        mDistinct = distinct;
+        mBounds = bounds;
+    }
+
+    /**
+     * Returns the estimated number of rows in the index.
+     */
+    public long rowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * Returns the estimated number of distinct values for the given number of leading key
+     * columns.
+     *
+     * @param numColumns must be at least one
+     */
+    public long distinct(int numColumns) {
+        long[] distinct = mDistinct;
+        if (distinct.length == 0) {
+            return 1;
+        }
+        return distinct[Math.min(numColumns, distinct.length) - 1];
+    }
+
+    /**
+     * Returns the estimated number of rows which match an equality comparison against the
+     * given number of leading key columns.
+     *
+     * @param numColumns must be at least one
+     */
+    public double equalityRows(int numColumns) {
+        return ((double) mRowCount) / Math.max(1, distinct(numColumns));
+    }
+
+    /**
+     * Returns the estimated number of rows within the given key range.
+     *
+     * @param lowKey inclusive lowest key; pass null for open range
+     * @param highKey exclusive highest key; pass null for open range
+     */
+    public long estimateRows(byte[] lowKey, byte[] highKey) {
+        byte[][] bounds = mBounds;
+        int numBuckets = bounds.length + 1;
+
+        int start = 0;
+        if (lowKey != null) {
+            while (start < bounds.length && compareUnsigned(bounds[start], lowKey) <= 0) {
+                start++;
+            }
+        }
+
+        int end = bounds.length;
+        if (highKey != null) {
+            while (end > start && compareUnsigned(bounds[end - 1], highKey) >= 0) {
+                end--;
+            }
+        }
+
+        // Count the buckets which overlap the range. The first and last buckets are assumed
+        // to be half covered.
+        double covered = end - start + 1;
+        if (numBuckets > 1) {
+            if (lowKey != null) {
+                covered -= 0.5;
+            }
+            if (highKey != null) {
+                covered -= 0.5;
+            }
+        }
+
+        return Math.max(0, Math.round(mRowCount * covered / numBuckets));
+    }
+
+    @Override
+    public String toString() {
+        var b = new StringBuilder().append("IndexStatistics{rowCount=").append(mRowCount)
+            .append(", distinct=").append(Arrays.toString(mDistinct))
+            .append(", buckets=").append(mBounds.length + 1).append('}');
+        return b.toString();
+    }
+
+    /**
+     * Quickly estimates the number of rows in the given index.
+     */
+    static long estimateRowCount(Index ix) throws IOException {
+        double sum = 0;
+        for (int i=0; i<PROBES; i++) {
+            sum += ix.analyze(null, null).entryCount;
+        }
+        return Math.round(sum / PROBES);
+    }
+
+    /**
+     * Collects statistics by sampling the keys of the given index.
+     *
+     * @param decoder decodes the key columns of an index entry into a row
+     * @param comparators compares rows by each leading group of key columns
+     */
+    static <R> IndexStatistics collect(Index ix, Function<byte[], R> decoder,
+                                       Comparator<R>[] comparators)
+        throws IOException
+    {
+        long rowCount = estimateRowCount(ix);
+
+        var keys = new ArrayList<byte[]>();
+        boolean complete = false;
+
+        try (Cursor c = ix.newCursor(Transaction.BOGUS)) {
+            c.autoload(false);
+
+            if (rowCount <= SAMPLE_SIZE) {
+                // Small indexes are fully scanned, unless the estimate was too low.
+                for (c.first(); c.key() != null; c.next()) {
+                    if (keys.size() >= SAMPLE_SIZE * 2) {
+                        keys.clear();
+                        c.reset();
+                        break;
+                    }
+                    keys.add(c.key());
+                }
+                if (c.key() == null && !keys.isEmpty()) {
+                    complete = true;
+                    rowCount = keys.size();
+                }
+            }
+
+            if (!complete) {
+                for (int i=0; i<SAMPLE_SIZE; i++) {
+                    c.random(null, null);
+                    byte[] key = c.key();
+                    if (key == null) {
+                        break;
+                    }
+                    keys.add(key);
+                }
+            }
+        }
+
+        if (keys.isEmpty()) {
+            return new IndexStatistics(0, new long[comparators.length], new byte[0][]);
+        }
+
+        keys.sort(KEY_COMPARATOR);
+
+        if (!complete) {
+            // Random sampling can select the same entry more than once, but the estimator
+            // expects sampling without replacement.
+            int size = 1;
+            for (int i=1; i<keys.size(); i++) {
+                byte[] key = keys.get(i);
+                if (compareUnsigned(keys.get(size - 1), key) != 0) {
+                    keys.set(size++, key);
+                }
+            }
+            keys.subList(size, keys.size()).clear();
+        }
+
+        int n = keys.size();
+        var rows = new ArrayList<R>(n);
+        for (byte[] key : keys) {
+            rows.add(decoder.apply(key));
+        }
+
+        var distinct = new long[comparators.length];
+        for (int i=0; i<distinct.length; i++) {
+            distinct[i] = estimateDistinct(rows, comparators[i], rowCount, complete);
+        }
+
+        byte[][] bounds;
+        int numBuckets = Math.min(BUCKETS, n / 2);
+        if (numBuckets <= 1) {
+            bounds = new byte[0][];
+        } else {
+            List<byte[]> list = new ArrayList<>(numBuckets - 1);
+            for (int i=1; i<numBuckets; i++) {
+                byte[] bound = keys.get((int) (((long) i) * n / numBuckets));
+                if (list.isEmpty() || compareUnsigned(list.get(list.size() - 1), bound) < 0) {
+                    list.add(bound);
+                }
+            }
+            bounds = list.toArray(new byte[list.size()][]);
+        }
+
+        return new IndexStatistics(rowCount, distinct, bounds);
+    }
+
+    /**
+     * Estimates the number of distinct values using the Duj1 estimator, by Haas and Stokes.
+     *
+     * @param rows sorted sample rows
+     * @param complete true if the rows aren't a sample, but instead all the rows
+     */
+    private static <R> long estimateDistinct(List<R> rows, Comparator<R> comparator,
+                                             long rowCount, boolean complete)
+    {
+        int n = rows.size();
+        long d = 0, f1 = 0;
+
+        for (int i=0; i<n; ) {
+            R row = rows.get(i);
+            int j = i + 1;
+            while (j < n && comparator.compare(row, rows.get(j)) == 0) {
+                j++;
+            }
+            d++;
+            if (j - i == 1) {
+                f1++;
+            }
+            i = j;
+        }
+
+        if (complete || n >= rowCount) {
+            return d;
+        }
+
+        double estimate = (n * (double) d) / (n - f1 + ((double) f1) * n / rowCount);
+
+        return Math.max(d, Math.min(rowCount, Math.round(estimate)));
+    }
+
+    byte[] encode() {
+        int length = 1 + 8 + 4 + mDistinct.length * 8 + 4;
+        for (byte[] bound : mBounds) {
+            length += 4 + bound.length;
+        }
+
+        var encoded = new byte[length];
+        encoded[0] = ENCODING_VERSION;
+        int offset = 1;
+
+        encodeLongBE(encoded, offset, mRowCount);
+        offset += 8;
+
+        encodeIntBE(encoded, offset, mDistinct.length);
+        offset += 4;
+        for (long d : mDistinct) {
+            encodeLongBE(encoded, offset, d);
+            offset += 8;
+        }
+
+        encodeIntBE(encoded, offset, mBounds.length);
+        offset += 4;
+        for (byte[] bound : mBounds) {
+            encodeIntBE(encoded, offset, bound.length);
+            offset += 4;
+            System.arraycopy(bound, 0, encoded, offset, bound.length);
+            offset += bound.length;
+        }
+
+        return encoded;
+    }
+
+    /**
+     * @return null if the encoding isn't supported, in which case the statistics should be
+     * collected again
+     */
+    static IndexStatistics decode(byte[] encoded) {
+        if (encoded.length == 0 || encoded[0] != ENCODING_VERSION) {
+            return null;
+        }
+
+        int offset = 1;
+
+        long rowCount = decodeLongBE(encoded, offset);
+        offset += 8;
+
+        var distinct = new long[decodeIntBE(encoded, offset)];
+        offset += 4;
+        for (int i=0; i<distinct.length; i++) {
+            distinct[i] = decodeLongBE(encoded, offset);
+            offset += 8;
+        }
+
+        var bounds = new byte[decodeIntBE(encoded, offset)][];
+        offset += 4;
+        for (int i=0; i<bounds.length; i++) {
+            var bound = new byte[decodeIntBE(encoded, offset)];
+            offset += 4;
+            System.arraycopy(encoded, offset, bound, 0, bound.length);
+            offset += bound.length;
+            bounds[i] = bound;
+        }
+
+        return new IndexStatistics(rowCount, distinct, bounds);
+    }
+}
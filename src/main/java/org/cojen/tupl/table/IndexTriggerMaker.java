@@ -60,6 +60,7 @@ public class IndexTriggerMaker<R> {
     final Index[] mSecondaryIndexes;
     final RowPredicateLock<R>[] mSecondaryLocks;
     final IndexBackfill<R>[] mBackfills;
+    final IndexFilter[] mFilters;
 
     private ClassMaker mClassMaker;
 
@@ -77,6 +78,7 @@ public class IndexTriggerMaker<R> {
         mSecondaryIndexes = new Index[numIndexes];
         mSecondaryLocks = new RowPredicateLock[numIndexes];
         mBackfills = new IndexBackfill[numIndexes];
+        mFilters = new IndexFilter[numIndexes];
     }
 
     /**
@@ -210,17 +212,16 @@ public class IndexTriggerMaker<R> {
                 hasBackfills = true;
                 mClassMaker.addField(IndexBackfill.class, "backfill" + i).private_().final_();
             }
+
+            if (mFilters[i] != null) {
+                mClassMaker.addField(IndexFilter.class, "filter" + i).private_().final_();
+            }
         }
 
 
-        MethodType ctorMethodType;
-        if (!hasBackfills) {
-            ctorMethodType = MethodType.methodType
-                (void.class, Index[].class, RowPredicateLock[].class);
-        } else {
-            ctorMethodType = MethodType.methodType
-                (void.class, Index[].class, RowPredicateLock[].class, IndexBackfill[].class);
-        }
+        MethodType ctorMethodType = MethodType.methodType
+            (void.class, Index[].class, RowPredicateLock[].class,
+             IndexBackfill[].class, IndexFilter[].class);
 
         {
             MethodMaker mm = mClassMaker.addConstructor(ctorMethodType);
@@ -236,11 +237,15 @@ public class IndexTriggerMaker<R> {
                 }
             }
 
-            if (hasBackfills) {
-                for (int i=0; i<mBackfills.length; i++) {
-                    if (mBackfills[i] != null) {
-                        mm.field("backfill" + i).set(mm.param(2).aget(i));
-                    }
+            for (int i=0; i<mBackfills.length; i++) {
+                if (mBackfills[i] != null) {
+                    mm.field("backfill" + i).set(mm.param(2).aget(i));
+                }
+            }
+
+            for (int i=0; i<mFilters.length; i++) {
+                if (mFilters[i] != null) {
+                    mm.field("filter" + i).set(mm.param(3).aget(i));
                 }
             }
         }
@@ -275,11 +280,8 @@ public class IndexTriggerMaker<R> {
 
         try {
             var ctor = lookup.findConstructor(lookup.lookupClass(), ctorMethodType);
-            if (!hasBackfills) {
-                trigger = (Trigger<R>) ctor.invoke(mSecondaryIndexes, mSecondaryLocks);
-            } else {
-                trigger = (Trigger<R>) ctor.invoke(mSecondaryIndexes, mSecondaryLocks, mBackfills);
-            }
+            trigger = (Trigger<R>) ctor.invoke
+                (mSecondaryIndexes, mSecondaryLocks, mBackfills, mFilters);
         } catch (Throwable e) {
             throw rethrow(e);
         }
@@ -374,6 +376,11 @@ public class IndexTriggerMaker<R> {
                     ("inserted", txnVar, secondaryKeyVar, secondaryValueVar);
             }
 
+            if (mFilters[i] != null) {
+                // Must be added after the entry is stored. See IndexFilter.build.
+                mm.field("filter" + i).invoke("add", secondaryKeyVar);
+            }
+
             mm.catch_(opStart, DeletedIndexException.class, exVar -> {
                 // Index was dropped. Assume that this trigger will soon be replaced.
             });
@@ -724,6 +731,11 @@ public class IndexTriggerMaker<R> {
                     ("inserted", txnVar, secondaryKeyVar, secondaryValueVar);
             }
 
+            if (mFilters[i] != null) {
+                // Must be added after the entry is stored. See IndexFilter.build.
+                mm.field("filter" + i).invoke("add", secondaryKeyVar);
+            }
+
             // Now delete the old entry.
 
             var deleteKeyVar = otm.encode(i << 1);
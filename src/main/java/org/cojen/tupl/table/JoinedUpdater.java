@@ -20,6 +20,7 @@ package org.cojen.tupl.table;
 import java.io.IOException;
 
 import java.util.Arrays;
+import java.util.Spliterator;
 
 import org.cojen.tupl.Cursor;
 import org.cojen.tupl.Index;
@@ -61,6 +62,14 @@ final class JoinedUpdater<R> extends BasicScanner<R> implements Updater<R> {
         };
     }
 
+    /**
+     * Updaters aren't split, because they're bound to a transaction.
+     */
+    @Override
+    public final Spliterator<R> trySplit() {
+        return null;
+    }
+
     @Override
     void init(Transaction txn, R row) throws IOException {
         mPrimaryUpdater.mCursor = mPrimaryCursor = mPrimaryUpdater.mTable.mSource.newCursor(txn);
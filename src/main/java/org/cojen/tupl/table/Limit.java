@@ -0,0 +1,114 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+/**
+ * Describes the "limit" and "offset" clause of a query. Each value is either a constant or is
+ * supplied by a query argument.
+ *
+ * @param limit maximum number of rows to produce, or -1 if unlimited; is ignored if limitArg
+ * isn't zero
+ * @param limitArg argument number which supplies the limit, or 0 if constant
+ * @param offset number of rows to skip; is ignored if offsetArg isn't zero
+ * @param offsetArg argument number which supplies the offset, or 0 if constant
+ * @author Brian S O'Neill
+ * @see LimitQueryLauncher
+ */
+public record Limit(long limit, int limitArg, long offset, int offsetArg) {
+    /**
+     * Returns the maximum number of rows to produce, which is Long.MAX_VALUE if unlimited.
+     */
+    public long limit(Object... args) {
+        if (limitArg == 0) {
+            return limit < 0 ? Long.MAX_VALUE : limit;
+        }
+        Object value = arg(args, limitArg);
+        return value == null ? Long.MAX_VALUE : toLong(value);
+    }
+
+    /**
+     * Returns the number of rows to skip.
+     */
+    public long offset(Object... args) {
+        if (offsetArg == 0) {
+            return offset;
+        }
+        Object value = arg(args, offsetArg);
+        return value == null ? 0 : toLong(value);
+    }
+
+    /**
+     * Returns true if the limit is a constant zero.
+     */
+    public boolean isEmpty() {
+        return limitArg == 0 && limit == 0;
+    }
+
+    public int maxArgument() {
+        return Math.max(limitArg, offsetArg);
+    }
+
+    @Override
+    public String toString() {
+        var b = new StringBuilder();
+        appendTo(b);
+        return b.toString();
+    }
+
+    /**
+     * Appends the clause with a leading space.
+     */
+    public void appendTo(StringBuilder b) {
+        if (limitArg != 0) {
+            b.append(" limit ?").append(limitArg);
+        } else if (limit >= 0) {
+            b.append(" limit ").append(limit);
+        }
+
+        if (offsetArg != 0) {
+            b.append(" offset ?").append(offsetArg);
+        } else if (offset != 0) {
+            b.append(" offset ").append(offset);
+        }
+    }
+
+    private static Object arg(Object[] args, int argNum) {
+        if (args.length < argNum) {
+            throw RowUtils.tooFewArgumentsException(argNum, args.length);
+        }
+        return args[argNum - 1];
+    }
+
+    private static long toLong(Object value) {
+        long n;
+        if (value instanceof Long v) {
+            n = v;
+        } else if (value instanceof Integer v) {
+            n = v;
+        } else if (value instanceof Number v) {
+            n = v.longValue();
+        } else {
+            throw new IllegalArgumentException
+                ("Limit and offset must be numbers: " + value.getClass().getName());
+        }
+        if (n < 0) {
+            throw new IllegalArgumentException("Limit and offset cannot be negative: " + n);
+        }
+        return n;
+    }
+}
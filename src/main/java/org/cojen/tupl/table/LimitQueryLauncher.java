@@ -0,0 +1,171 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import org.cojen.tupl.Query;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Transaction;
+import org.cojen.tupl.Updater;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+/**
+ * Applies a limit and offset to the rows produced by another Query. When the source
+ * is an ordered index scan, the scan stops as soon as the limit is reached. When the source
+ * must sort the rows, and the limit is small, a bounded top-N sort is performed instead of a
+ * full sort.
+ *
+ * @author Brian S O'Neill
+ * @see Limit
+ */
+final class LimitQueryLauncher<R> extends QueryLauncher<R> {
+    // Top-N sorting is used when the limit plus the offset doesn't exceed this amount. A
+    // full sort is performed otherwise, which can switch to an external sort if necessary.
+    private static final long TOP_SORT_THRESHOLD = 10_000;
+
+    private final Query<R> mSource;
+    private final Limit mLimit;
+
+    /**
+     * @param source is typically a QueryLauncher, but any kind of Query is supported
+     */
+    LimitQueryLauncher(Query<R> source, Limit limit) {
+        mSource = source;
+        mLimit = limit;
+    }
+
+    @Override
+    public Class<R> rowType() {
+        return mSource.rowType();
+    }
+
+    @Override
+    public int argumentCount() {
+        return Math.max(mSource.argumentCount(), mLimit.maxArgument());
+    }
+
+    @Override
+    public Scanner<R> newScanner(R row, Transaction txn, Object... args) throws IOException {
+        long limit = mLimit.limit(args);
+        if (limit == 0) {
+            return EmptyScanner.the();
+        }
+
+        long offset = mLimit.offset(args);
+
+        Scanner<R> source;
+        if (mSource instanceof SortedQueryLauncher<R> sorted) {
+            source = sorted.newScanner(row, txn, topCount(limit, offset), args);
+        } else {
+            source = mSource.newScanner(row, txn, args);
+        }
+
+        return new LimitScanner<>(source, offset, limit);
+    }
+
+    @Override
+    public Updater<R> newUpdater(R row, Transaction txn, Object... args) throws IOException {
+        long limit = mLimit.limit(args);
+        long offset = mLimit.offset(args);
+
+        Updater<R> source;
+        if (mSource instanceof SortedQueryLauncher<R> sorted) {
+            source = sorted.newUpdater(row, txn, topCount(limit, offset), args);
+        } else {
+            source = mSource.newUpdater(row, txn, args);
+        }
+
+        return new LimitUpdater<>(source, offset, limit);
+    }
+
+    @Override
+    public void scanWrite(Transaction txn, RowWriter writer, Object... args) throws IOException {
+        writer.limit(mLimit.offset(args), mLimit.limit(args));
+        // Only queries against a StoredTable support scanWrite, and they're QueryLaunchers.
+        ((QueryLauncher<R>) mSource).scanWrite(txn, writer, args);
+    }
+
+    @Override
+    public QueryPlan scannerPlan(Transaction txn, Object... args) throws IOException {
+        QueryPlan plan;
+        if (mSource instanceof SortedQueryLauncher<R> sorted) {
+            long count = topCount(mLimit.limit(args), mLimit.offset(args));
+            plan = sorted.plan(count, sorted.mSource.scannerPlan(txn, args));
+        } else {
+            plan = mSource.scannerPlan(txn, args);
+        }
+        return plan(plan);
+    }
+
+    @Override
+    public QueryPlan updaterPlan(Transaction txn, Object... args) throws IOException {
+        QueryPlan plan;
+        if (mSource instanceof SortedQueryLauncher<R> sorted) {
+            long count = topCount(mLimit.limit(args), mLimit.offset(args));
+            plan = sorted.plan(count, sorted.mSource.updaterPlan(txn, args));
+        } else {
+            plan = mSource.updaterPlan(txn, args);
+        }
+        return plan(plan);
+    }
+
+    private QueryPlan plan(QueryPlan source) {
+        Limit lim = mLimit;
+
+        String limit = null;
+        if (lim.limitArg() != 0) {
+            limit = "?" + lim.limitArg();
+        } else if (lim.limit() >= 0) {
+            limit = String.valueOf(lim.limit());
+        }
+
+        String offset = null;
+        if (lim.offsetArg() != 0) {
+            offset = "?" + lim.offsetArg();
+        } else if (lim.offset() != 0) {
+            offset = String.valueOf(lim.offset());
+        }
+
+        return new QueryPlan.Limit(limit, offset, source);
+    }
+
+    @Override
+    protected void closeIndexes() throws IOException {
+        if (mSource instanceof QueryLauncher<R> launcher) {
+            launcher.closeIndexes();
+        }
+    }
+
+    @Override
+    protected void clearCache() {
+        if (mSource instanceof QueryLauncher<R> launcher) {
+            launcher.clearCache();
+        }
+    }
+
+    /**
+     * Returns the number of rows which a top-N sort needs to retain, or else returns -1 if a
+     * full sort should be performed instead.
+     */
+    private static long topCount(long limit, long offset) {
+        long count = limit + offset;
+        return (count < 0 || count > TOP_SORT_THRESHOLD) ? -1 : count;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import java.util.Comparator;
+
+import org.cojen.tupl.Scanner;
+
+/**
+ * Skips over an initial amount of rows, and then stops producing rows once a limit has
+ * been reached. The source scanner is closed as soon as the limit is reached, and so ordered
+ * scans stop early.
+ *
+ * @author Brian S O'Neill
+ * @see LimitQueryLauncher
+ */
+class LimitScanner<R> implements Scanner<R> {
+    protected final Scanner<R> mSource;
+
+    // Number of rows which can still be produced, including the current row.
+    private long mRemaining;
+
+    /**
+     * @param offset number of rows to skip
+     * @param limit maximum number of rows to produce
+     */
+    LimitScanner(Scanner<R> source, long offset, long limit) throws IOException {
+        mSource = source;
+
+        try {
+            R row = source.row();
+            for (; offset > 0 && row != null; offset--) {
+                row = source.step(row);
+            }
+            if (row != null && limit <= 0) {
+                source.close();
+            }
+        } catch (Throwable e) {
+            RowUtils.closeQuietly(source);
+            throw e;
+        }
+
+        mRemaining = limit;
+    }
+
+    @Override
+    public final R row() {
+        return mSource.row();
+    }
+
+    @Override
+    public final R step(R row) throws IOException {
+        if (isLast()) {
+            return finish();
+        }
+        return advanced(mSource.step(row));
+    }
+
+    @Override
+    public final void close() throws IOException {
+        mSource.close();
+    }
+
+    @Override
+    public final long estimateSize() {
+        return Math.min(mSource.estimateSize(), mRemaining);
+    }
+
+    @Override
+    public final int characteristics() {
+        return mSource.characteristics() & ~(SIZED | SUBSIZED);
+    }
+
+    @Override
+    public final Comparator<? super R> getComparator() {
+        return mSource.getComparator();
+    }
+
+    /**
+     * Returns true if the current row is the last one which can be produced.
+     */
+    protected final boolean isLast() {
+        return mRemaining <= 1;
+    }
+
+    /**
+     * Closes the source and always returns null.
+     */
+    protected final R finish() throws IOException {
+        mRemaining = 0;
+        mSource.close();
+        return null;
+    }
+
+    /**
+     * Must be called after the source has advanced to the next row.
+     */
+    protected final R advanced(R next) {
+        if (next != null) {
+            mRemaining--;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import org.cojen.tupl.Updater;
+
+/**
+ * Skips over an initial amount of rows, and then stops producing rows once a limit has
+ * been reached. Skipped rows aren't updated or deleted.
+ *
+ * @author Brian S O'Neill
+ * @see LimitQueryLauncher
+ */
+final class LimitUpdater<R> extends LimitScanner<R> implements Updater<R> {
+    /**
+     * @param offset number of rows to skip
+     * @param limit maximum number of rows to produce
+     */
+    LimitUpdater(Updater<R> source, long offset, long limit) throws IOException {
+        super(source, offset, limit);
+    }
+
+    @Override
+    public R update(R row) throws IOException {
+        var source = (Updater<R>) mSource;
+        if (isLast()) {
+            source.update(row);
+            return finish();
+        }
+        return advanced(source.update(row));
+    }
+
+    @Override
+    public R delete(R row) throws IOException {
+        var source = (Updater<R>) mSource;
+        if (isLast()) {
+            source.delete(row);
+            return finish();
+        }
+        return advanced(source.delete(row));
+    }
+}
@@ -36,13 +36,13 @@ public final class LoadOneQueryLauncher<R> extends ScanQueryLauncher<R> {
 
     @Override
     public Scanner<R> newScanner(R row, Transaction txn, Object... args) throws IOException {
-        return new LoadOneScanner<>(mTable.mSource, txn, mFactory.scanController(args), row);
+        return new LoadOneScanner<>(mTable, txn, mFactory.scanController(args), row);
     }
 
     @Override
     public void scanWrite(Transaction txn, RowWriter writer, Object... args) throws IOException {
         // The one row is written indirectly by the constructor.
-        new LoadOneScanner<>(writer, mTable.mSource, txn, mFactory.scanController(args));
+        new LoadOneScanner<>(writer, mTable, txn, mFactory.scanController(args));
     }
 
     @Override
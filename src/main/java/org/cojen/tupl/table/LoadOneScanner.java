@@ -22,7 +22,6 @@ import java.io.IOException;
 import org.cojen.tupl.LockResult;
 import org.cojen.tupl.Scanner;
 import org.cojen.tupl.Transaction;
-import org.cojen.tupl.View;
 
 /**
  * 
@@ -40,11 +39,11 @@ final class LoadOneScanner<R> implements Scanner<R>, UnsupportedCursor {
      *
      * @param row can pass null to construct a new instance
      */
-    LoadOneScanner(View source, Transaction txn, ScanController<R> controller, R row)
+    LoadOneScanner(StoredTable<R> table, Transaction txn, ScanController<R> controller, R row)
         throws IOException
     {
         byte[] key = controller.oneKey();
-        byte[] value = source.load(txn, key);
+        byte[] value = load(table, txn, key);
         if (value != null) {
             mKey = key;
             mValue = value;
@@ -57,11 +56,12 @@ final class LoadOneScanner<R> implements Scanner<R>, UnsupportedCursor {
      * Constructor used by the LoadOneQueryLauncher.scanWrite method.
      */
     @SuppressWarnings("unchecked")
-    LoadOneScanner(RowConsumer consumer, View source, Transaction txn, ScanController<R> controller)
+    LoadOneScanner(RowConsumer consumer, StoredTable<R> table, Transaction txn,
+                   ScanController<R> controller)
         throws IOException
     {
         byte[] key = controller.oneKey();
-        byte[] value = source.load(txn, key);
+        byte[] value = load(table, txn, key);
         if (value != null) {
             mKey = key;
             mValue = value;
@@ -72,6 +72,20 @@ final class LoadOneScanner<R> implements Scanner<R>, UnsupportedCursor {
         mController = controller;
     }
 
+    private static byte[] load(StoredTable<?> table, Transaction txn, byte[] key)
+        throws IOException
+    {
+        // A repeatable transaction locks the key even when it's not found, and so the filter
+        // cannot be consulted.
+        if (!RowUtils.isRepeatable(txn)) {
+            IndexFilter filter = table.indexFilter();
+            if (filter != null && !filter.mightContain(key)) {
+                return null;
+            }
+        }
+        return table.mSource.load(txn, key);
+    }
+
     @Override
     public String toString() {
         return RowUtils.scannerToString(this, mController);
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import org.cojen.tupl.Query;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Transaction;
+import org.cojen.tupl.Updater;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+/**
+ * Query which produces scanners that scan partitions of the source in parallel.
+ *
+ * @author Brian S O'Neill
+ * @see Query#parallel
+ * @see ParallelScanner
+ */
+public final class ParallelQuery<R> implements Query<R> {
+    /**
+     * @see Query#parallel
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> Query<R> make(Query<R> source, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+
+        if (source instanceof ParallelQuery<R> pq) {
+            source = pq.mSource;
+        } else if (PlanQueryLauncher.unwrap(source) instanceof AggregatedTable.BaseQuery aq) {
+            // Aggregation has its own parallel strategy.
+            return aq.withParallelism(source, parallelism);
+        }
+
+        return parallelism == 1 ? source : new ParallelQuery<>(source, parallelism);
+    }
+
+    private final Query<R> mSource;
+    private final int mParallelism;
+
+    private ParallelQuery(Query<R> source, int parallelism) {
+        mSource = source;
+        mParallelism = parallelism;
+    }
+
+    @Override
+    public Class<R> rowType() {
+        return mSource.rowType();
+    }
+
+    @Override
+    public int argumentCount() {
+        return mSource.argumentCount();
+    }
+
+    @Override
+    public Scanner<R> newScanner(R row, Transaction txn, Object... args) throws IOException {
+        Scanner<R> scanner = mSource.newScanner(row, txn, args);
+        if (ParallelScanner.isSplittable(txn)) {
+            scanner = ParallelScanner.open(scanner, mParallelism);
+        }
+        return scanner;
+    }
+
+    @Override
+    public Updater<R> newUpdater(R row, Transaction txn, Object... args) throws IOException {
+        return mSource.newUpdater(row, txn, args);
+    }
+
+    @Override
+    public long deleteAll(Transaction txn, Object... args) throws IOException {
+        return mSource.deleteAll(txn, args);
+    }
+
+    @Override
+    public boolean anyRows(Transaction txn, Object... args) throws IOException {
+        return mSource.anyRows(txn, args);
+    }
+
+    @Override
+    public boolean anyRows(R row, Transaction txn, Object... args) throws IOException {
+        return mSource.anyRows(row, txn, args);
+    }
+
+    @Override
+    public QueryPlan scannerPlan(Transaction txn, Object... args) throws IOException {
+        QueryPlan plan = mSource.scannerPlan(txn, args);
+        if (ParallelScanner.isSplittable(txn) && ParallelScanner.isSplittable(plan)) {
+            plan = new QueryPlan.Parallel(mParallelism, plan);
+        }
+        return plan;
+    }
+
+    @Override
+    public QueryPlan updaterPlan(Transaction txn, Object... args) throws IOException {
+        return mSource.updaterPlan(txn, args);
+    }
+
+    @Override
+    public Query<R> parallel(int parallelism) {
+        return make(mSource, parallelism);
+    }
+}
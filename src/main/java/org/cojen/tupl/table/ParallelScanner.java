@@ -0,0 +1,478 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import java.util.concurrent.ForkJoinPool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.function.BooleanSupplier;
+
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Transaction;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+/**
+ * Scanner which splits the source scanner into partitions, which are scanned by multiple
+ * threads. Rows are buffered in batches, and the partitions are consumed in order, and so the
+ * rows are produced in the same order as the source scanner would produce them.
+ *
+ * <p>Worker tasks claim partitions in order, and so the partition being consumed is always
+ * being scanned or is already finished. Workers which get too far ahead wait for the consumer
+ * to catch up, which bounds the number of buffered rows.
+ *
+ * @author Brian S O'Neill
+ * @see ParallelQuery
+ */
+final class ParallelScanner<R> implements Scanner<R> {
+    private static final int PARTITIONS_PER_THREAD = 4;
+    private static final int BATCH_SIZE = 100, MAX_BATCHES = 10;
+
+    /**
+     * Returns true if the given transaction can be used by multiple threads for scanning.
+     */
+    static boolean isSplittable(Transaction txn) {
+        return txn == null || txn == Transaction.BOGUS;
+    }
+
+    /**
+     * Returns true if the scanner for the given plan can likely be split.
+     */
+    static boolean isSplittable(QueryPlan plan) {
+        while (true) {
+            if (plan instanceof QueryPlan.Filter filter) {
+                plan = filter.source;
+            } else if (plan instanceof QueryPlan.NaturalJoin join) {
+                plan = join.source;
+            } else {
+                return plan instanceof QueryPlan.Scan;
+            }
+        }
+    }
+
+    /**
+     * Returns a ParallelScanner, or else returns the source scanner if it couldn't be split.
+     *
+     * @param source is closed if an exception is thrown
+     */
+    static <R> Scanner<R> open(Scanner<R> source, int parallelism) throws IOException {
+        List<Scanner<R>> parts = split(source, parallelism);
+        if (parts.size() <= 1) {
+            return source;
+        }
+        return new ParallelScanner<>(source, parts, parallelism);
+    }
+
+    /**
+     * Splits the source scanner into a list of partitions, in key order. The last partition
+     * is the source scanner itself, and so the source must be closed after all the other
+     * partitions are done with.
+     *
+     * @param source is closed if an exception is thrown
+     */
+    @SuppressWarnings("unchecked")
+    static <R> List<Scanner<R>> split(Scanner<R> source, int parallelism) throws IOException {
+        int max = Math.max(1, parallelism) * PARTITIONS_PER_THREAD;
+
+        var parts = new ArrayList<Scanner<R>>();
+        parts.add(source);
+
+        try {
+            // Each split divides a partition in half, and so splitting every partition in
+            // rounds produces partitions of roughly equal size.
+            boolean any;
+            do {
+                any = false;
+                for (int i=0; i<parts.size() && parts.size() < max; i++) {
+                    var prefix = (Scanner<R>) parts.get(i).trySplit();
+                    if (prefix != null) {
+                        parts.add(i++, prefix);
+                        any = true;
+                    }
+                }
+            } while (any && parts.size() < max);
+        } catch (Throwable e) {
+            // Closing the source also closes the scanners which were split off from it.
+            try {
+                source.close();
+            } catch (Throwable e2) {
+                RowUtils.suppress(e, e2);
+            }
+            throw e;
+        }
+
+        return parts;
+    }
+
+    private final Scanner<R> mSource;
+
+    // The last partition is the source scanner.
+    private final Scanner<R>[] mParts;
+    private final int mCharacteristics;
+    private final Comparator<? super R> mComparator;
+    private final long mEstimatedSize;
+
+    // Index of the next partition to be claimed by a worker.
+    private final AtomicInteger mNextPart;
+
+    // The remaining fields are guarded by this object's monitor.
+    private final ArrayDeque<Object[]>[] mBuffers;
+    private final boolean[] mDone;
+    private final Throwable[] mFailures;
+    private int mActive;
+    private boolean mClosed;
+
+    // Consumer state.
+    private int mCurrentPart;
+    private Object[] mBatch;
+    private int mBatchPos;
+    private R mRow;
+
+    @SuppressWarnings("unchecked")
+    private ParallelScanner(Scanner<R> source, List<Scanner<R>> parts, int parallelism)
+        throws IOException
+    {
+        mSource = source;
+        mParts = parts.toArray(new Scanner[parts.size()]);
+
+        int characteristics = source.characteristics();
+        mComparator = (characteristics & SORTED) == 0 ? null : source.getComparator();
+        mCharacteristics = characteristics & ~(SIZED | SUBSIZED);
+
+        long size = 0;
+        for (Scanner<R> part : mParts) {
+            size += part.estimateSize();
+            if (size < 0) {
+                size = Long.MAX_VALUE;
+                break;
+            }
+        }
+        mEstimatedSize = size;
+
+        mNextPart = new AtomicInteger();
+
+        int numParts = mParts.length;
+        mBuffers = new ArrayDeque[numParts];
+        for (int i=0; i<numParts; i++) {
+            mBuffers[i] = new ArrayDeque<>();
+        }
+        mDone = new boolean[numParts];
+        mFailures = new Throwable[numParts];
+
+        int numWorkers = Math.min(parallelism, numParts);
+        mActive = numWorkers;
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int i=0; i<numWorkers; i++) {
+            pool.execute(this::work);
+        }
+
+        try {
+            step();
+        } catch (Throwable e) {
+            try {
+                close();
+            } catch (Throwable e2) {
+                RowUtils.suppress(e, e2);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public R row() {
+        return mRow;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R step(R row) throws IOException {
+        // Note that the given row cannot be used, since the rows are produced by other
+        // threads.
+        if (mClosed) {
+            // Only the consumer closes the scanner, and so synchronization isn't required.
+            return null;
+        }
+
+        while (true) {
+            Object[] batch = mBatch;
+            if (batch != null && mBatchPos < batch.length) {
+                return mRow = (R) batch[mBatchPos++];
+            }
+
+            mBatch = null;
+
+            if (mCurrentPart >= mParts.length) {
+                close();
+                return null;
+            }
+
+            if ((batch = take(mCurrentPart)) == null) {
+                mCurrentPart++;
+            } else {
+                mBatch = batch;
+                mBatchPos = 0;
+            }
+        }
+    }
+
+    /**
+     * Copies the rows which remain in the current batch, and so the row instances aren't
+     * reused.
+     */
+    @Override
+    public int stepBatch(R[] rows) throws IOException {
+        R row = mRow;
+        if (row == null) {
+            return 0;
+        }
+
+        rows[0] = row;
+        int num = 1;
+
+        Object[] batch = mBatch;
+        if (batch != null) {
+            int amt = Math.min(batch.length - mBatchPos, rows.length - 1);
+            System.arraycopy(batch, mBatchPos, rows, 1, amt);
+            mBatchPos += amt;
+            num += amt;
+        }
+
+        step();
+
+        return num;
+    }
+
+    @Override
+    public long estimateSize() {
+        return mEstimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return mCharacteristics;
+    }
+
+    @Override
+    public Comparator<? super R> getComparator() {
+        if (mComparator == null) {
+            throw new IllegalStateException();
+        }
+        return mComparator;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            notifyAll();
+        }
+
+        mRow = null;
+        mBatch = null;
+
+        // Prevent any more partitions from being claimed.
+        mNextPart.getAndSet(mParts.length);
+
+        // Wait for the workers to stop, since scanners cannot be closed while being used.
+        boolean interrupted = false;
+        synchronized (this) {
+            while (mActive > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            for (ArrayDeque<Object[]> buffer : mBuffers) {
+                buffer.clear();
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable ex = closeAll(Arrays.asList(mParts), null);
+
+        if (ex != null) {
+            throw RowUtils.rethrow(ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{parts=" + mParts.length + ", source=" +
+            mSource + '}';
+    }
+
+    /**
+     * Closes all the partitions which were produced by the split method. The source scanner
+     * is closed last, because it also closes the scanners which were split off from it.
+     *
+     * @param ex if non-null, any exceptions are suppressed into it
+     * @return the given exception, or else the first exception which was thrown
+     */
+    static Throwable closeAll(List<? extends Scanner<?>> parts, Throwable ex) {
+        for (Scanner<?> part : parts) {
+            try {
+                part.close();
+            } catch (Throwable e) {
+                if (ex == null) {
+                    ex = e;
+                } else {
+                    RowUtils.suppress(ex, e);
+                }
+            }
+        }
+        return ex;
+    }
+
+    /**
+     * Called by the consumer to take the next batch from a partition, blocking if necessary.
+     *
+     * @return null if the partition is finished
+     */
+    private Object[] take(int partNum) throws IOException {
+        ArrayDeque<Object[]> buffer = mBuffers[partNum];
+
+        await(() -> !buffer.isEmpty() || mDone[partNum]);
+
+        Throwable failure;
+        Object[] batch;
+
+        synchronized (this) {
+            failure = mFailures[partNum];
+            if (failure == null) {
+                batch = buffer.poll();
+                // Wake up the worker if it's waiting for the buffer to drain.
+                notifyAll();
+            } else {
+                batch = null;
+            }
+        }
+
+        if (failure != null) {
+            try {
+                close();
+            } catch (Throwable e) {
+                RowUtils.suppress(failure, e);
+            }
+            throw RowUtils.rethrow(failure);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Is run by each worker task, which claims and scans partitions until none are left.
+     */
+    private void work() {
+        try {
+            int partNum;
+            while ((partNum = mNextPart.getAndIncrement()) < mParts.length) {
+                scan(partNum);
+            }
+        } finally {
+            synchronized (this) {
+                mActive--;
+                notifyAll();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scan(int partNum) {
+        Scanner<R> part = mParts[partNum];
+        ArrayDeque<Object[]> buffer = mBuffers[partNum];
+        Throwable failure = null;
+
+        try {
+            while (true) {
+                var batch = (R[]) new Object[BATCH_SIZE];
+                int size = part.stepBatch(batch);
+                if (size == 0) {
+                    break;
+                }
+
+                if (size < BATCH_SIZE) {
+                    batch = Arrays.copyOf(batch, size);
+                }
+
+                await(() -> mClosed || buffer.size() < MAX_BATCHES);
+
+                synchronized (this) {
+                    if (mClosed) {
+                        break;
+                    }
+                    buffer.add(batch);
+                    notifyAll();
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        synchronized (this) {
+            mDone[partNum] = true;
+            mFailures[partNum] = failure;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the given condition is true, which is evaluated while synchronized.
+     */
+    private void await(BooleanSupplier condition) throws InterruptedIOException {
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    synchronized (ParallelScanner.this) {
+                        while (!condition.getAsBoolean()) {
+                            ParallelScanner.this.wait();
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    synchronized (ParallelScanner.this) {
+                        return condition.getAsBoolean();
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+}
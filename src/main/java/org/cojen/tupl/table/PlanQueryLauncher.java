@@ -0,0 +1,148 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import java.util.stream.Stream;
+
+import org.cojen.tupl.Query;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Transaction;
+import org.cojen.tupl.Updater;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+/**
+ * Wraps a Query which is held by the QueryPlanCache, and counts the number of times that the
+ * query is executed.
+ *
+ * @author Brian S O'Neill
+ * @see QueryPlanCache
+ */
+final class PlanQueryLauncher<R> extends QueryLauncher<R> {
+    private final Query<R> mSource;
+    private final QueryPlanCache.Plan mPlan;
+
+    /**
+     * @param source is typically a QueryLauncher, but any kind of Query is supported
+     */
+    PlanQueryLauncher(Query<R> source, QueryPlanCache.Plan plan) {
+        mSource = source;
+        mPlan = plan;
+    }
+
+    /**
+     * Returns the Query which is wrapped by a PlanQueryLauncher, or else returns the given
+     * Query as-is.
+     */
+    static Query<?> unwrap(Query<?> query) {
+        return query instanceof PlanQueryLauncher<?> launcher ? launcher.mSource : query;
+    }
+
+    @Override
+    public Class<R> rowType() {
+        return mSource.rowType();
+    }
+
+    @Override
+    public int argumentCount() {
+        return mSource.argumentCount();
+    }
+
+    @Override
+    public Scanner<R> newScanner(R row, Transaction txn, Object... args) throws IOException {
+        mPlan.executed();
+        return mSource.newScanner(row, txn, args);
+    }
+
+    @Override
+    public Updater<R> newUpdater(R row, Transaction txn, Object... args) throws IOException {
+        mPlan.executed();
+        return mSource.newUpdater(row, txn, args);
+    }
+
+    @Override
+    public void scanWrite(Transaction txn, RowWriter writer, Object... args) throws IOException {
+        mPlan.executed();
+        // Only queries against a StoredTable support scanWrite, and they're QueryLaunchers.
+        ((QueryLauncher<R>) mSource).scanWrite(txn, writer, args);
+    }
+
+    @Override
+    public SeekScanner<R> newSeekScanner(Transaction txn) throws IOException {
+        if (mSource instanceof QueryLauncher<R> launcher) {
+            mPlan.executed();
+            return launcher.newSeekScanner(txn);
+        }
+        return null;
+    }
+
+    @Override
+    public Stream<R> newStream(Transaction txn, Object... args) {
+        mPlan.executed();
+        return mSource.newStream(txn, args);
+    }
+
+    @Override
+    public long deleteAll(Transaction txn, Object... args) throws IOException {
+        mPlan.executed();
+        return mSource.deleteAll(txn, args);
+    }
+
+    @Override
+    public boolean anyRows(Transaction txn, Object... args) throws IOException {
+        mPlan.executed();
+        return mSource.anyRows(txn, args);
+    }
+
+    @Override
+    public boolean anyRows(R row, Transaction txn, Object... args) throws IOException {
+        mPlan.executed();
+        return mSource.anyRows(row, txn, args);
+    }
+
+    @Override
+    public QueryPlan scannerPlan(Transaction txn, Object... args) throws IOException {
+        return mSource.scannerPlan(txn, args);
+    }
+
+    @Override
+    public QueryPlan updaterPlan(Transaction txn, Object... args) throws IOException {
+        return mSource.updaterPlan(txn, args);
+    }
+
+    @Override
+    public QueryPlan streamPlan(Transaction txn, Object... args) throws IOException {
+        return mSource.streamPlan(txn, args);
+    }
+
+    @Override
+    protected void closeIndexes() throws IOException {
+        if (mSource instanceof QueryLauncher<R> launcher) {
+            launcher.closeIndexes();
+        }
+    }
+
+    @Override
+    protected void clearCache() {
+        if (mSource instanceof QueryLauncher<R> launcher) {
+            launcher.clearCache();
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 
+import org.cojen.tupl.Query;
 import org.cojen.tupl.Table;
 
 import org.cojen.tupl.table.expr.CompiledQuery;
@@ -85,8 +86,25 @@ public final class QueryFactoryCache extends SoftCache<String, MethodHandle, Obj
             return ((ForCanonical) helperObj).makeQueryFactory();
         }
 
+        RelationExpr expr = Parser.parse(helper.table(), helper.rowType(), queryStr);
+
+        Limit limit = expr.limit();
+        if (limit == null) {
+            return newValue(queryStr, helper, expr);
+        }
+
+        // Make a factory for the query without the limit, and then wrap the queries it makes.
+        MethodHandle mh = newValue(null, helper, expr.withoutLimit());
+        MethodHandle wrapper = MethodHandles.insertArguments(WRAP_LIMIT, 1, limit);
+        wrapper = wrapper.asType(MethodType.methodType(Query.class, mh.type().returnType()));
+        return MethodHandles.filterReturnValue(mh, wrapper);
+    }
+
+    /**
+     * @param queryStr can be null if the expression wasn't parsed from a canonical string
+     */
+    private MethodHandle newValue(String queryStr, Helper helper, RelationExpr expr) {
         var rowType = helper.rowType();
-        RelationExpr expr = Parser.parse(helper.table(), rowType, queryStr);
         QuerySpec query = expr.tryQuerySpec(rowType);
 
         if (query != null) {
@@ -105,6 +123,23 @@ public final class QueryFactoryCache extends SoftCache<String, MethodHandle, Obj
         }
     }
 
+    private static final MethodHandle WRAP_LIMIT;
+
+    static {
+        try {
+            WRAP_LIMIT = MethodHandles.lookup().findStatic
+                (QueryFactoryCache.class, "wrapLimit",
+                 MethodType.methodType(Query.class, Query.class, Limit.class));
+        } catch (Throwable e) {
+            throw RowUtils.rethrow(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Query wrapLimit(Query source, Limit limit) {
+        return new LimitQueryLauncher(source, limit);
+    }
+
     private static record ForCanonical(Helper helper, QuerySpec query) {
         MethodHandle makeQueryFactory() {
             return helper.makeQueryFactory(query);
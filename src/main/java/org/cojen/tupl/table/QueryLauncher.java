@@ -52,6 +52,16 @@ public abstract class QueryLauncher<R> implements Query<R> {
     public abstract void scanWrite(Transaction txn, RowWriter writer, Object... args)
         throws IOException;
 
+    /**
+     * Returns a scanner which is positioned by calling its seek method, with arguments which
+     * are passed to this query. Returns null if not supported.
+     *
+     * @param txn null, or a transaction which doesn't acquire read locks
+     */
+    public SeekScanner<R> newSeekScanner(Transaction txn) throws IOException {
+        return null;
+    }
+
     @Override
     public abstract QueryPlan scannerPlan(Transaction txn, Object... args) throws IOException;
 
@@ -0,0 +1,422 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of compiled queries, keyed by table and normalized query text. The cache sits
+ * in front of the soft caches maintained by each table, and it keeps the most recently used
+ * query plans strongly reachable. Statistics are collected for the cache as a whole and for
+ * each plan, and they're exposed through JMX.
+ *
+ * <p>Tables are weakly referenced by the cache. The plans of a stored table are removed when
+ * the table is closed, but derived tables aren't closed explicitly. Their plans are only
+ * softly reachable, and they're removed once the table has been garbage collected.
+ *
+ * @author Brian S O'Neill
+ * @see BaseTable#queryPlanCache
+ */
+public final class QueryPlanCache {
+    private static final int DEFAULT_MAX_SIZE =
+        Integer.getInteger(QueryPlanCache.class.getName() + ".maxSize", 1000);
+
+    private final int mMaxSize;
+    private final ConcurrentHashMap<Key, Plan> mPlans;
+    private final ReferenceQueue<BaseTable<?>> mQueue;
+
+    private final LongAdder mHits, mMisses, mCompileNanos;
+    private long mEvictions;
+
+    public QueryPlanCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize maximum number of plans to retain; pass zero to only collect statistics
+     */
+    public QueryPlanCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        mMaxSize = maxSize;
+        mPlans = new ConcurrentHashMap<>(Math.min(maxSize, 64));
+        mQueue = new ReferenceQueue<>();
+        mHits = new LongAdder();
+        mMisses = new LongAdder();
+        mCompileNanos = new LongAdder();
+    }
+
+    public int maxSize() {
+        return mMaxSize;
+    }
+
+    public int size() {
+        purge();
+        return mPlans.size();
+    }
+
+    /**
+     * Returns the number of times a cached plan was found.
+     */
+    public long hits() {
+        return mHits.sum();
+    }
+
+    /**
+     * Returns the number of times a plan needed to be compiled, or at least obtained from
+     * an underlying table cache.
+     */
+    public long misses() {
+        return mMisses.sum();
+    }
+
+    public synchronized long evictions() {
+        return mEvictions;
+    }
+
+    /**
+     * Returns the total amount of time spent obtaining plans which weren't found in this
+     * cache, in nanoseconds.
+     */
+    public long compileNanos() {
+        return mCompileNanos.sum();
+    }
+
+    /**
+     * Returns a snapshot of all the cached plans, ordered by the number of executions, from
+     * highest to lowest.
+     */
+    public List<Plan> plans() {
+        purge();
+        var list = new ArrayList<Plan>(mPlans.values());
+        list.sort(Comparator.comparingLong(Plan::executions).reversed());
+        return list;
+    }
+
+    /**
+     * Removes all the cached plans, but the statistics aren't reset.
+     */
+    public void clear() {
+        mPlans.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlanCache{size=" + size() + ", maxSize=" + mMaxSize +
+            ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() +
+            ", compileNanos=" + compileNanos() + '}';
+    }
+
+    /**
+     * Removes all the cached plans which are associated with the given table, and those which
+     * are associated with any closed tables, which includes tables derived from it.
+     */
+    void removeAll(BaseTable<?> table) {
+        mPlans.keySet().removeIf(key -> {
+            BaseTable<?> keyTable = key.get();
+            return keyTable == table || keyTable == null || keyTable.isClosed();
+        });
+    }
+
+    /**
+     * Returns the value of a cached plan, or else calls the loader and caches a new plan.
+     *
+     * @param kind distinguishes different kinds of plans for the same query text
+     * @param executed true if the call counts as an execution of the plan
+     */
+    Object obtain(BaseTable<?> table, Object kind, String queryStr, boolean executed,
+                  Loader loader)
+        throws IOException
+    {
+        purge();
+
+        var key = new Key(table, kind, normalize(queryStr), mQueue);
+
+        Plan plan = mPlans.get(key);
+
+        if (plan != null) {
+            Object value = plan.value();
+            if (value != null) {
+                mHits.increment();
+                plan.used(executed);
+                return value;
+            }
+            // The soft reference was cleared, and so the plan must be obtained again.
+            mPlans.remove(key, plan);
+        }
+
+        mMisses.increment();
+
+        plan = new Plan(table.rowType().getName(), key.mQuery);
+
+        long start = System.nanoTime();
+        Object value = loader.load(plan);
+        long nanos = System.nanoTime() - start;
+
+        // The plans of stored tables are removed when the table is closed. Other tables
+        // aren't closed explicitly, and so their plans must not keep them reachable.
+        plan.value(value, table instanceof StoredTable);
+        plan.mCompileNanos = nanos;
+        plan.mLookups.increment();
+        if (executed) {
+            plan.executed();
+        }
+        mCompileNanos.add(nanos);
+
+        if (mMaxSize > 0) {
+            Plan existing = mPlans.putIfAbsent(key, plan);
+            if (existing != null) {
+                Object existingValue = existing.value();
+                if (existingValue != null) {
+                    // Lost the race. Returning the existing plan keeps the counters accurate.
+                    existing.used(executed);
+                    return existingValue;
+                }
+                mPlans.replace(key, existing, plan);
+            }
+            if (mPlans.size() > mMaxSize) {
+                evict();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes the plans of tables which have been garbage collected.
+     */
+    private void purge() {
+        Reference<? extends BaseTable<?>> ref;
+        while ((ref = mQueue.poll()) != null) {
+            mPlans.remove(ref);
+        }
+    }
+
+    /**
+     * Evicts plans using the "second chance" algorithm. To amortize the cost, the cache size
+     * is reduced by an eighth.
+     */
+    private synchronized void evict() {
+        int excess = mPlans.size() - (mMaxSize - (mMaxSize >> 3));
+
+        // The first pass clears the recently used flags, and the second pass evicts plans
+        // which are still unused.
+        for (int pass = 0; pass < 2 && excess > 0; pass++) {
+            Iterator<Plan> it = mPlans.values().iterator();
+            while (excess > 0 && it.hasNext()) {
+                Plan plan = it.next();
+                if (plan.mUsed) {
+                    plan.mUsed = false;
+                } else {
+                    it.remove();
+                    mEvictions++;
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collapses runs of whitespace outside of quoted strings into a single space, and trims
+     * the ends. Equivalent queries which only differ in formatting then share the same plan.
+     */
+    static String normalize(String queryStr) {
+        if (queryStr == null) {
+            return "";
+        }
+
+        int length = queryStr.length();
+        var b = new StringBuilder(length);
+        char quote = 0;
+        boolean space = false;
+
+        for (int i=0; i<length; i++) {
+            char c = queryStr.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (c == '\\' && i + 1 < length) {
+                    b.append(c);
+                    c = queryStr.charAt(++i);
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            } else {
+                if (c == '"' || c == '\'' || c == '`') {
+                    quote = c;
+                }
+                if (space && !b.isEmpty()) {
+                    b.append(' ');
+                }
+            }
+            b.append(c);
+            space = false;
+        }
+
+        return queryStr.contentEquals(b) ? queryStr : b.toString();
+    }
+
+    @FunctionalInterface
+    static interface Loader {
+        Object load(Plan plan) throws IOException;
+    }
+
+    private static final class Key extends WeakReference<BaseTable<?>> {
+        private final Object mKind;
+        private final String mQuery;
+        private final int mHash;
+
+        Key(BaseTable<?> table, Object kind, String query,
+            ReferenceQueue<? super BaseTable<?>> queue)
+        {
+            super(table, queue);
+            mKind = kind;
+            mQuery = query;
+            mHash = System.identityHashCode(table) * 31 + kind.hashCode() * 17 + query.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof Key other && mHash == other.mHash
+                && mKind.equals(other.mKind) && mQuery.equals(other.mQuery))
+            {
+                // A cleared key is only equal to itself.
+                BaseTable<?> table = get();
+                return table != null && table == other.get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Statistics for a cached query plan.
+     */
+    public static final class Plan {
+        private final String mTableName, mQuery;
+
+        private final LongAdder mLookups, mExecutions;
+
+        private long mCompileNanos;
+
+        // Is set when the plan is used, and it's cleared by the eviction algorithm.
+        private volatile boolean mUsed;
+
+        // Either the value itself, or a SoftReference to it.
+        private Object mValue;
+
+        private Plan(String tableName, String query) {
+            mTableName = tableName;
+            mQuery = query;
+            mLookups = new LongAdder();
+            mExecutions = new LongAdder();
+        }
+
+        /**
+         * Returns the name of the table's row type.
+         */
+        public String tableName() {
+            return mTableName;
+        }
+
+        /**
+         * Returns the normalized query text.
+         */
+        public String query() {
+            return mQuery;
+        }
+
+        /**
+         * Returns the amount of time it took to obtain the plan, in nanoseconds.
+         */
+        public long compileNanos() {
+            return mCompileNanos;
+        }
+
+        /**
+         * Returns the number of times the plan was requested.
+         */
+        public long lookups() {
+            return mLookups.sum();
+        }
+
+        /**
+         * Returns the number of times the plan was executed, which is the number of scanners
+         * and updaters created, and other operations which access rows.
+         */
+        public long executions() {
+            return mExecutions.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "table: " + mTableName + ", query: " + mQuery +
+                ", compileMillis: " + (mCompileNanos / 1_000_000.0) +
+                ", lookups: " + lookups() + ", executions: " + executions();
+        }
+
+        void executed() {
+            mExecutions.increment();
+        }
+
+        private void value(Object value, boolean strong) {
+            mValue = strong ? value : new SoftReference<>(value);
+        }
+
+        /**
+         * Returns null if the value was softly referenced and it has been cleared.
+         */
+        private Object value() {
+            Object value = mValue;
+            return value instanceof SoftReference<?> ref ? ref.get() : value;
+        }
+
+        private void used(boolean executed) {
+            mLookups.increment();
+            if (executed) {
+                mExecutions.increment();
+            }
+            if (!mUsed) {
+                mUsed = true;
+            }
+        }
+    }
+}
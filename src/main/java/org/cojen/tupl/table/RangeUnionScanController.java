@@ -89,6 +89,11 @@ final class RangeUnionScanController<R> implements ScanController<R> {
         return mCurrent.newCursor(view, txn);
     }
 
+    @Override
+    public Cursor newCursor(View view, Transaction txn, IndexFilter filter) throws IOException {
+        return mCurrent.newCursor(view, txn, filter);
+    }
+
     @Override
     public RowEvaluator<R> evaluator() {
         return mCurrent.evaluator();
@@ -23,8 +23,10 @@ import java.lang.invoke.MethodHandle;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.Set;
 
+import org.cojen.tupl.Database;
 import org.cojen.tupl.DatabaseException;
 import org.cojen.tupl.Entry;
 import org.cojen.tupl.Scanner;
@@ -83,7 +85,61 @@ final class RowSorter<R> extends ScanBatch<R> implements RowConsumer<R> {
     }
 
     /**
-     * Sorts binary rows and writes the results to a remote endpoint.
+     * Sorts rows, but only retains the first few of them. A bounded heap holds the rows
+     * which sort the lowest, and so memory usage is proportional to the count instead of
+     * to the total amount of rows.
+     *
+     * @param count maximum number of rows to retain
+     */
+    @SuppressWarnings("unchecked")
+    static <R> Scanner<R> sortTop(SortedQueryLauncher<R> launcher, long count,
+                                  Transaction txn, Object... args)
+        throws IOException
+    {
+        Comparator<R> comparator = launcher.mComparator;
+
+        if (count <= 0) {
+            return new ARS<>(comparator);
+        }
+
+        int max = (int) Math.min(count, Integer.MAX_VALUE - 8);
+
+        // The head of the heap is the highest row, which is the first to be evicted.
+        var heap = new PriorityQueue<R>(Math.min(max, 1000), comparator.reversed());
+
+        try (Scanner<R> source = launcher.mSource.newScanner(null, txn, args)) {
+            R row = source.row();
+            while (row != null) {
+                R free;
+                if (heap.size() < max) {
+                    heap.add(row);
+                    free = null;
+                } else if (comparator.compare(row, heap.peek()) < 0) {
+                    free = heap.poll();
+                    heap.add(row);
+                } else {
+                    free = row;
+                }
+                // Recycle the row which isn't retained.
+                row = source.step(free);
+            }
+        }
+
+        if (heap.isEmpty()) {
+            return new ARS<>(comparator);
+        }
+
+        var rows = (R[]) heap.toArray();
+        heap = null; // help GC
+
+        Arrays.sort(rows, comparator);
+
+        return new ARS<>(launcher.mTable, rows, comparator);
+    }
+
+    /**
+     * Sorts binary rows and writes the results to a remote endpoint. If the writer has a
+     * limit, the sort is still performed in full, but only the first rows are written.
      */
     @SuppressWarnings("unchecked")
     static <R> void sortWrite(SortedQueryLauncher<R> launcher, RowWriter writer,
@@ -115,7 +171,12 @@ final class RowSorter<R> extends ScanBatch<R> implements RowConsumer<R> {
 
         try (sorted) {
             for (Entry e = sorted.row(); e != null; e = sorted.step(e)) {
-                mh.invokeExact(writer, e.key(), e.value());
+                if (writer.isLimitReached()) {
+                    break;
+                }
+                if (writer.admit()) {
+                    mh.invokeExact(writer, e.key(), e.value());
+                }
             }
         } catch (Throwable e) {
             throw RowUtils.rethrow(e);
@@ -161,15 +222,8 @@ final class RowSorter<R> extends ScanBatch<R> implements RowConsumer<R> {
      * @return null if not supported
      */
     private static Sorter newSorter(Table<?> table) throws DatabaseException {
-        while (true) {
-            if (table instanceof MappedTable mapped) {
-                table = mapped.source();
-            } else if (table instanceof StoredTable base) {
-                return base.rowStore().mDatabase.newSorter();
-            } else {
-                return null;
-            }
-        }
+        Database db = RowUtils.findDatabase(table);
+        return db == null ? null : db.newSorter();
     }
 
     private static <R> Scanner<R> finishExternal
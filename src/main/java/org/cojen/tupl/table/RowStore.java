@@ -40,6 +40,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
 
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -98,6 +99,8 @@ public final class RowStore {
 
        (secondaryIndexId, 0, K_DROPPED) -> primaryIndexId, descriptor
 
+       (indexId, 0, K_STATISTICS, descriptor) -> encoded IndexStatistics
+
        (0L, indexId, taskType) -> ...  workflow task against an index
 
        The schemaVersion is limited to 2^31, and the hash is encoded with bit 31 set,
@@ -113,6 +116,9 @@ public final class RowStore {
 
     private final LHashTable.Obj<RowPredicateLock<?>> mIndexLocks;
 
+    // Bits per key for the filters which are maintained for secondary indexes, or 0 if none.
+    private final int mIndexFilterBits;
+
     private Object mSchemaChangeListeners;
 
     private WeakCache<TranscoderKey, Transcoder, SecondaryInfo> mSortTranscoderCache;
@@ -140,6 +146,9 @@ public final class RowStore {
     // Extended key to track secondary indexes which are being dropped.
     private static final int K_DROPPED = 3;
 
+    // Extended key to store index statistics. The descriptor is empty for the primary index.
+    private static final int K_STATISTICS = 4;
+
     private static final int TASK_DELETE_SCHEMA = 1, TASK_NOTIFY_SCHEMA = 2;
 
     public RowStore(LocalDatabase db, Index schemata) throws IOException {
@@ -149,6 +158,9 @@ public final class RowStore {
         mTableManagers = new WeakCache<>();
         mIndexLocks = new LHashTable.Obj<>(8);
 
+        mIndexFilterBits = Math.max
+            (0, Integer.getInteger("org.cojen.tupl.table.IndexFilterBits", 0));
+
         registerToUpdateSchemata();
 
         // Finish any tasks left over from when the RowStore was last used. Call this from a
@@ -163,6 +175,17 @@ public final class RowStore {
         });
     }
 
+    /**
+     * Returns the number of bits per key for the filters which are maintained for secondary
+     * indexes, or 0 if filters are disabled.
+     *
+     * @see IndexFilter
+     */
+    int indexFilterBits() {
+        // Replication applies changes without calling the triggers which maintain the filters.
+        return mDatabase.isReplicated() ? 0 : mIndexFilterBits;
+    }
+
     @SuppressWarnings("unchecked")
     public synchronized void addSchemaChangeListener(SchemaChangeListener listener) {
         Object obj = mSchemaChangeListeners;
@@ -1187,10 +1210,14 @@ public final class RowStore {
             secondaryIndexId = secondaryIndex.id();
         }
 
-        // Remove it from the cache.
+        // Remove it from the cache, and discard its statistics.
         Index primaryIndex = mDatabase.indexById(primaryIndexId);
         if (primaryIndex != null) {
-            tableManager(primaryIndex).removeFromIndexTables(secondaryIndexId);
+            TableManager<?> manager = tableManager(primaryIndex);
+            manager.removeFromIndexTables(secondaryIndexId);
+            if (descriptor != null) {
+                manager.removeStatistics(descriptor);
+            }
         }
 
         EventListener listener = mDatabase.eventListener();
@@ -1782,6 +1809,30 @@ public final class RowStore {
         return mSchemata.viewPrefix(prefix, prefix.length);
     }
 
+    /**
+     * Loads all the persisted index statistics for a table.
+     *
+     * @param consumer accepts an index descriptor and the encoded statistics
+     */
+    void loadStatistics(long indexId, BiConsumer<byte[], byte[]> consumer) throws IOException {
+        try (Cursor c = viewExtended(indexId, K_STATISTICS).newCursor(Transaction.BOGUS)) {
+            for (c.first(); c.key() != null; c.next()) {
+                consumer.accept(c.key(), c.value());
+            }
+        }
+    }
+
+    /**
+     * Persists index statistics, without durability. Statistics are stored when the next
+     * checkpoint runs, and they can be collected again if lost.
+     *
+     * @param desc index descriptor; is empty for the primary index
+     * @param encoded encoded statistics; pass null to delete
+     */
+    void storeStatistics(long indexId, byte[] desc, byte[] encoded) throws IOException {
+        viewExtended(indexId, K_STATISTICS).store(Transaction.BOGUS, desc, encoded);
+    }
+
     /**
      * Decode the known primary key, which can't change.
      *
@@ -28,9 +28,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import org.cojen.tupl.Database;
+import org.cojen.tupl.DatabaseException;
 import org.cojen.tupl.LockMode;
 import org.cojen.tupl.Query;
 import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Table;
 import org.cojen.tupl.Transaction;
 
 import org.cojen.tupl.core.RowPredicate;
@@ -860,4 +863,20 @@ public class RowUtils extends Utils {
 
         return total;
     }
+
+    /**
+     * Returns the database which the given table's rows are stored in, or null if not
+     * applicable.
+     */
+    public static Database findDatabase(Table<?> table) throws DatabaseException {
+        while (true) {
+            if (table instanceof MappedTable mapped) {
+                table = mapped.source();
+            } else if (table instanceof StoredTable base) {
+                return base.rowStore().mDatabase;
+            } else {
+                return null;
+            }
+        }
+    }
 }
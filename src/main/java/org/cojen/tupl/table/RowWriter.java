@@ -51,10 +51,46 @@ public sealed class RowWriter<R> implements RowConsumer<R> {
 
     private boolean mWrittenCharacteristics;
 
+    // Number of rows to skip, and the number of rows which can still be written.
+    private long mSkip, mRemaining = Long.MAX_VALUE;
+
     RowWriter(Pipe out) {
         mOut = out;
     }
 
+    /**
+     * Restricts the rows which are written by the accept method. Other writers must call
+     * the admit method before writing a row.
+     *
+     * @see LimitQueryLauncher
+     */
+    final void limit(long offset, long limit) {
+        mSkip = offset;
+        mRemaining = limit;
+    }
+
+    /**
+     * Returns false if the next row should be skipped due to the limit or offset.
+     */
+    final boolean admit() {
+        if (mSkip > 0) {
+            mSkip--;
+            return false;
+        }
+        if (mRemaining <= 0) {
+            return false;
+        }
+        mRemaining--;
+        return true;
+    }
+
+    /**
+     * Returns true if no more rows can be written, and so the scan can stop early.
+     */
+    final boolean isLimitReached() {
+        return mRemaining <= 0;
+    }
+
     /**
      * Must be called by QueryLaunchers which don't issue batches.
      *
@@ -89,7 +125,9 @@ public sealed class RowWriter<R> implements RowConsumer<R> {
 
     @Override
     public final void accept(byte[] key, byte[] value) throws IOException {
-        mEvaluator.writeRow(this, key, value);
+        if (admit()) {
+            mEvaluator.writeRow(this, key, value);
+        }
     }
 
     /**
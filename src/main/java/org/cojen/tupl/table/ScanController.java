@@ -68,6 +68,16 @@ public interface ScanController<R> {
      */
     Cursor newCursor(View view, Transaction txn) throws IOException;
 
+    /**
+     * Returns a new cursor for the current scan batch, which is empty if the given filter
+     * proves that the range has no entries.
+     *
+     * @param filter can be null
+     */
+    default Cursor newCursor(View view, Transaction txn, IndexFilter filter) throws IOException {
+        return newCursor(view, txn);
+    }
+
     /**
      * Returns the evaluator for the current scan batch.
      */
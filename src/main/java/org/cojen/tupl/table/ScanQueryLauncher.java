@@ -60,13 +60,28 @@ class ScanQueryLauncher<R> extends QueryLauncher<R> {
         return mTable.newUpdater(row, txn, mFactory.scanController(args));
     }
 
+    @Override
+    public SeekScanner<R> newSeekScanner(Transaction txn) throws IOException {
+        if ((txn != null && !txn.lockMode().noReadLock)
+            || mTable.joinedPrimaryTableClass() != null)
+        {
+            return null;
+        }
+        return new SeekScanner<>(mTable, mFactory, txn);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void scanWrite(Transaction txn, RowWriter writer, Object... args) throws IOException {
         // Pass the writer as if it's a row, but it's actually a RowConsumer.
         Scanner<R> scanner = newScanner((R) writer, txn, args);
         try {
-            while (scanner.step((R) writer) != null);
+            while (!writer.isLimitReached()) {
+                if (scanner.step((R) writer) == null) {
+                    return;
+                }
+            }
+            scanner.close();
         } catch (Throwable e) {
             RowUtils.closeQuietly(scanner);
             throw RowUtils.rethrow(e);
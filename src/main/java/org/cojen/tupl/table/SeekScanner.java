@@ -0,0 +1,164 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.io.IOException;
+
+import org.cojen.tupl.Cursor;
+import org.cojen.tupl.LockResult;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Transaction;
+
+/**
+ * Scanner which visits a sequence of key ranges, where each range is defined by the arguments
+ * passed to the seek method. The same cursor is used for all ranges, and it's repositioned
+ * using findNearby. When the ranges are visited in ascending order, the cursor doesn't need
+ * to descend the index from the root node each time.
+ *
+ * <p>Predicate locks aren't supported, and so a SeekScanner can only be used with a null
+ * transaction, or one which doesn't acquire read locks.
+ *
+ * @author Brian S O'Neill
+ * @see QueryLauncher#newSeekScanner
+ */
+public final class SeekScanner<R> implements Scanner<R> {
+    private final ScanControllerFactory<R> mFactory;
+    private final Cursor mCursor;
+    private final IndexFilter mFilter;
+
+    private SingleScanController<R> mController;
+    private R mRow;
+
+    SeekScanner(StoredTable<R> table, ScanControllerFactory<R> factory, Transaction txn) {
+        mFactory = factory;
+        mCursor = table.mSource.newCursor(txn);
+        mFilter = table.indexFilter();
+    }
+
+    /**
+     * Positions this scanner at the first row of the range which is defined by the given
+     * arguments. Any rows remaining in the current range are skipped.
+     *
+     * @param row initial row; can be null
+     * @return the first row of the range, or null if the range is empty
+     * @throws IllegalStateException if the range cannot be scanned by a single cursor
+     */
+    public R seek(R row, Object... args) throws IOException {
+        if (!(mFactory.scanController(args) instanceof SingleScanController<R> controller)
+            || controller.isReverse())
+        {
+            throw new IllegalStateException();
+        }
+
+        mController = controller;
+
+        if (controller.isFilteredOut(mFilter)) {
+            mRow = null;
+            return null;
+        }
+
+        Cursor c = mCursor;
+        byte[] low = controller.lowBound();
+
+        LockResult result;
+        try {
+            if (low == null) {
+                result = c.first();
+            } else if (low == ScanController.EMPTY) {
+                mRow = null;
+                return null;
+            } else if (controller.lowInclusive()) {
+                result = c.findNearbyGe(low);
+            } else {
+                result = c.findNearbyGt(low);
+            }
+        } catch (Throwable e) {
+            throw RowUtils.fail(this, e);
+        }
+
+        return doStep(c, result, row);
+    }
+
+    @Override
+    public R row() {
+        return mRow;
+    }
+
+    @Override
+    public R step(R row) throws IOException {
+        if (mRow == null) {
+            return null;
+        }
+        Cursor c = mCursor;
+        try {
+            return doStep(c, c.next(), row);
+        } catch (Throwable e) {
+            throw RowUtils.fail(this, e);
+        }
+    }
+
+    /**
+     * @param c cursor which was just positioned
+     * @param result result of positioning the cursor
+     * @return null if no more rows remain in the current range
+     */
+    private R doStep(Cursor c, LockResult result, R row) throws IOException {
+        SingleScanController<R> controller = mController;
+        while (true) {
+            byte[] key = c.key();
+            if (key == null || controller.isTooHigh(key)) {
+                mRow = null;
+                return null;
+            }
+            try {
+                R decoded = controller.evalRow(c, result, row);
+                if (decoded != null) {
+                    mRow = decoded;
+                    return decoded;
+                }
+            } catch (StoppedCursorException e) {
+                if (result == LockResult.ACQUIRED) {
+                    c.link().unlock();
+                }
+                continue;
+            } catch (Throwable e) {
+                throw RowUtils.fail(this, e);
+            }
+            if (result == LockResult.ACQUIRED) {
+                c.link().unlock();
+            }
+            result = c.next();
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | ORDERED | CONCURRENT | DISTINCT;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mRow = null;
+        mCursor.reset();
+    }
+}
@@ -19,6 +19,7 @@ package org.cojen.tupl.table;
 
 import java.io.IOException;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
 import org.cojen.tupl.Cursor;
@@ -122,6 +123,75 @@ public abstract class SingleScanController<R> implements ScanController<R>, RowE
         return view.newCursor(txn);
     }
 
+    @Override
+    public final Cursor newCursor(View view, Transaction txn, IndexFilter filter)
+        throws IOException
+    {
+        if (isFilteredOut(filter)) {
+            view = view.viewLt(EMPTY);
+        }
+        return newCursor(view, txn);
+    }
+
+    /**
+     * Returns true if the given filter proves that this controller's range has no entries.
+     * Only ranges which are confined to a single key prefix can be checked.
+     *
+     * @param filter can be null
+     */
+    final boolean isFilteredOut(IndexFilter filter) {
+        if (filter == null) {
+            return false;
+        }
+
+        byte[] low, high;
+        boolean lowInclusive, highInclusive;
+
+        if (!mReverse) {
+            low = mLowBound;
+            lowInclusive = mLowInclusive;
+            high = mHighBound;
+            highInclusive = mHighInclusive;
+        } else {
+            low = mHighBound;
+            lowInclusive = mHighInclusive;
+            high = mLowBound;
+            highInclusive = mLowInclusive;
+        }
+
+        if (low == null || low == EMPTY || !lowInclusive || high == null) {
+            return false;
+        }
+
+        if (highInclusive ? !Arrays.equals(low, high) : !isSuccessor(low, high)) {
+            return false;
+        }
+
+        return !filter.mightContain(low);
+    }
+
+    /**
+     * Returns true if the next key is the smallest key of the same length which is greater
+     * than the given key. This is how an exclusive high bound is defined when the range is
+     * confined to a single key prefix.
+     */
+    private static boolean isSuccessor(byte[] key, byte[] next) {
+        int i = key.length;
+        if (next.length != i) {
+            return false;
+        }
+        while (--i >= 0) {
+            int b = key[i] & 0xff;
+            if (b != 0xff) {
+                return (next[i] & 0xff) == b + 1 && Arrays.equals(key, 0, i, next, 0, i);
+            }
+            if (next[i] != 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     @Override
     public final RowEvaluator<R> evaluator() {
         return this;
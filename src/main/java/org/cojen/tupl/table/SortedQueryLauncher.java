@@ -106,10 +106,31 @@ final class SortedQueryLauncher<R> extends QueryLauncher<R> {
     }
 
     /**
-     * @see MappedTable.newWrappedUpdater
+     * @param count maximum number of rows to produce; pass -1 if unlimited
+     * @see LimitQueryLauncher
      */
+    Scanner<R> newScanner(R row, Transaction txn, long count, Object... args)
+        throws IOException
+    {
+        if (count < 0) {
+            return RowSorter.sort(this, txn, args);
+        } else {
+            return RowSorter.sortTop(this, count, txn, args);
+        }
+    }
+
     @Override
     public Updater<R> newUpdater(R row, Transaction txn, Object... args) throws IOException {
+        return newUpdater(row, txn, -1, args);
+    }
+
+    /**
+     * @param count maximum number of rows to produce; pass -1 if unlimited
+     * @see MappedTable.newWrappedUpdater
+     */
+    Updater<R> newUpdater(R row, Transaction txn, long count, Object... args)
+        throws IOException
+    {
         if (txn != null) {
             if (txn.lockMode() != LockMode.UNSAFE) {
                 txn.enter();
@@ -117,7 +138,7 @@ final class SortedQueryLauncher<R> extends QueryLauncher<R> {
 
             Scanner<R> scanner;
             try {
-                scanner = newScanner(row, txn, args);
+                scanner = newScanner(row, txn, count, args);
                 // Commit the transaction scope to promote and keep all the locks which were
                 // acquired by the sort operation.
                 txn.commit();
@@ -138,7 +159,7 @@ final class SortedQueryLauncher<R> extends QueryLauncher<R> {
 
         Scanner<R> scanner;
         try {
-            scanner = newScanner(row, txn, args);
+            scanner = newScanner(row, txn, count, args);
         } catch (Throwable e) {
             txn.exit();
             throw e;
@@ -156,12 +177,24 @@ final class SortedQueryLauncher<R> extends QueryLauncher<R> {
 
     @Override
     public QueryPlan scannerPlan(Transaction txn, Object... args) throws IOException {
-        return new QueryPlan.Sort(OrderBy.splitSpec(mSpec), mSource.scannerPlan(txn, args));
+        return plan(-1, mSource.scannerPlan(txn, args));
     }
 
     @Override
     public QueryPlan updaterPlan(Transaction txn, Object... args) throws IOException {
-        return new QueryPlan.Sort(OrderBy.splitSpec(mSpec), mSource.updaterPlan(txn, args));
+        return plan(-1, mSource.updaterPlan(txn, args));
+    }
+
+    /**
+     * @param count maximum number of rows to produce; pass -1 if unlimited
+     */
+    QueryPlan plan(long count, QueryPlan source) {
+        String[] sortColumns = OrderBy.splitSpec(mSpec);
+        if (count < 0) {
+            return new QueryPlan.Sort(sortColumns, source);
+        } else {
+            return new QueryPlan.TopSort(sortColumns, count, source);
+        }
     }
 
     @Override
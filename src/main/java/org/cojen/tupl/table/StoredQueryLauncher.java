@@ -69,9 +69,15 @@ final class StoredQueryLauncher<R> extends QueryLauncher<R> {
         QuerySpec query = expr.tryQuerySpec(table.rowType());
         if (query != null) {
             return new StoredQueryLauncher<>(table, queryStr, query.reduce());
-        } else {
+        }
+
+        Limit limit = expr.limit();
+        if (limit == null) {
             return expr.makeCompiledQuery(table.rowType());
         }
+
+        return new LimitQueryLauncher<>
+            (expr.withoutLimit().makeCompiledQuery(table.rowType()), limit);
     }
 
     private final StoredTable<R> mTable;
@@ -106,7 +112,10 @@ final class StoredQueryLauncher<R> extends QueryLauncher<R> {
         try {
             return forScanner().argumentCount();
         } catch (IOException e) {
-            return query().filter().maxArgument();
+            QuerySpec query = query();
+            int max = query.filter().maxArgument();
+            Limit limit = query.limit();
+            return limit == null ? max : Math.max(max, limit.maxArgument());
         }
     }
 
@@ -128,6 +137,11 @@ final class StoredQueryLauncher<R> extends QueryLauncher<R> {
         }
     }
 
+    @Override
+    public SeekScanner<R> newSeekScanner(Transaction txn) throws IOException {
+        return forScanner(txn).newSeekScanner(txn);
+    }
+
     @Override
     public void scanWrite(Transaction txn, RowWriter writer, Object... args)
         throws IOException
@@ -231,9 +245,14 @@ final class StoredQueryLauncher<R> extends QueryLauncher<R> {
             return launcher;
         }
 
+        QuerySpec query = query();
+
         if (selector == null) {
+            // The limit is applied by a LimitQueryLauncher, and so the selector doesn't need
+            // to see it.
             RowInfo rowInfo = RowInfo.find(mTable.rowType());
-            selector = new IndexSelector<R>(mTable, rowInfo, query(), (type & FOR_UPDATE) != 0);
+            selector = new IndexSelector<R>(mTable, rowInfo, query.withLimit(null),
+                                            (type & FOR_UPDATE) != 0);
         }
 
         if ((type & DOUBLE_CHECK) != 0 && selector.noJoins()) {
@@ -246,6 +265,8 @@ final class StoredQueryLauncher<R> extends QueryLauncher<R> {
                 // No special update rule is needed.
                 assert (type & FOR_UPDATE) != 0;
                 launcher = queryLauncher(type & ~FOR_UPDATE, selector);
+            } else if (query.limit() != null) {
+                launcher = new LimitQueryLauncher<>(launcher, query.limit());
             }
         }
 
@@ -281,7 +302,7 @@ final class StoredQueryLauncher<R> extends QueryLauncher<R> {
             QueryLauncher<R> newLauncher;
             try {
                 newLauncher = mTable.query(mQueryStr);
-                if (newLauncher != this) {
+                if (PlanQueryLauncher.unwrap(newLauncher) != this) {
                     // Only return the launcher if it changed.
                     return newLauncher;
                 }
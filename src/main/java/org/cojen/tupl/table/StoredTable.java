@@ -129,6 +129,13 @@ public abstract class StoredTable<R> extends BaseTable<R> implements ScanControl
         return mTableManager;
     }
 
+    /**
+     * Returns the filter which is maintained for the source index, or null if none.
+     */
+    final IndexFilter indexFilter() {
+        return mTableManager.indexFilter(mSource);
+    }
+
     @Override
     public boolean hasPrimaryKey() {
         return true;
@@ -333,24 +340,22 @@ public abstract class StoredTable<R> extends BaseTable<R> implements ScanControl
     @SuppressWarnings("unchecked")
     public final QueryLauncher<R> query(String queryStr) throws IOException {
         // See the cacheNewValue method.
-        return (QueryLauncher<R>) cacheObtain(MultiCache.TYPE_1, queryStr, null);
+        return (QueryLauncher<R>) obtainQuery(queryStr);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public final Table<Row> derive(String query, Object... args) throws IOException {
         // See the cacheNewValue method.
-        return ((CompiledQuery<Row>) cacheObtain(MultiCache.TYPE_2, query, this)).table(args);
+        return this.<Row>obtainDerived(null, query, query).table(args);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public final <D> Table<D> derive(Class<D> derivedType, String query, Object... args)
         throws IOException
     {
         // See the cacheNewValue method.
         var key = new CompiledQuery.DerivedKey(derivedType, query);
-        return ((CompiledQuery<D>) cacheObtain(MultiCache.TYPE_2, key, this)).table(args);
+        return obtainDerived(derivedType, query, key).table(args);
     }
 
     @Override
@@ -499,6 +504,11 @@ public abstract class StoredTable<R> extends BaseTable<R> implements ScanControl
     public void close() throws IOException {
         mSource.close();
 
+        QueryPlanCache planCache = queryPlanCache();
+        if (planCache != null) {
+            planCache.removeAll(this);
+        }
+
         // Secondary indexes aren't closed immediately, and so clearing the query cache forces
         // calls to be made to the checkClosed method. Explicitly closing the old launchers
         // forces any in-progress scans to abort. Scans over sorted results aren't necessarily
@@ -913,6 +923,12 @@ public abstract class StoredTable<R> extends BaseTable<R> implements ScanControl
         return mTableManager.mRowStoreRef;
     }
 
+    @Override
+    protected final QueryPlanCache queryPlanCache() {
+        RowStore rs = rowStoreRef().get();
+        return rs == null ? null : rs.mDatabase.queryPlanCache();
+    }
+
     protected abstract QueryPlan planReverse(Object... args);
 
     /**
@@ -22,7 +22,9 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -54,17 +56,39 @@ public final class TableManager<R> {
 
     private TreeMap<byte[], IndexBackfill<R>> mIndexBackfills;
 
+    // Filters for the active secondary indexes, which are replaced by the update method.
+    private volatile IndexFilter[] mIndexFilters;
+
     private volatile WeakReference<Worker> mWorkerRef;
 
     private volatile WeakCache<Object, StoredTableIndex<R>, Object> mIndexTables;
 
     private long mTableVersion;
 
+    // Maps index descriptors to statistics. The primary index has an empty descriptor.
+    private volatile ConcurrentSkipListMap<byte[], IndexStatistics> mStatistics;
+
+    // Is guarded by synchronization on this.
+    private long mStatisticsCheckNanos;
+    private boolean mStatisticsRefreshing;
+
+    private static final long STATISTICS_REFRESH_NANOS;
+
+    // Statistics are collected again when the row count changes by more than this ratio.
+    private static final double STATISTICS_CHANGE_RATIO = 0.1;
+
+    static {
+        long millis = Long.getLong("org.cojen.tupl.table.StatisticsRefreshInterval", 60_000);
+        STATISTICS_REFRESH_NANOS = millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
     TableManager(RowStore rs, Index primaryIndex) {
         mRowStoreRef = rs.ref();
         mPrimaryIndex = primaryIndex;
         mTables = new WeakClassCache<>();
         mIndexInfos = new ConcurrentSkipListMap<>(KEY_COMPARATOR);
+        // Give the table a chance to be populated before the first background refresh.
+        mStatisticsCheckNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
     }
 
     public Index primaryIndex() {
@@ -214,16 +238,20 @@ public final class TableManager<R> {
         List<StoredTable<R>> tables = mTables.copyValues();
 
         if (tables != null) {
+            List<IndexFilter> filters = rs.indexFilterBits() <= 0 ? null : new ArrayList<>();
             for (var table : tables) {
                 Class<R> rowType = table.rowType();
                 RowInfo primaryInfo = RowInfo.find(rowType);
-                update(table, rowType, primaryInfo, rs, txn, secondaries);
+                update(table, rowType, primaryInfo, rs, txn, secondaries, filters);
             }
+            installFilters(filters);
             task = () -> tables.forEach(StoredTable::clearQueryCache);
         } else {
+            // Without any tables, the filters cannot be maintained.
+            mIndexFilters = null;
             RowInfo primaryInfo = rs.decodeExisting(txn, null, mPrimaryIndex.id());
             if (primaryInfo != null) {
-                update(null, null, primaryInfo, rs, txn, secondaries);
+                update(null, null, primaryInfo, rs, txn, secondaries, null);
             }
             task = null;
         }
@@ -238,9 +266,12 @@ public final class TableManager<R> {
      * @param rowType can be null if table is null
      * @param primaryInfo required
      * @param secondaries key is secondary index descriptor, value is index id and state
+     * @param filters collects the filters for the active secondary indexes; can be null if
+     * filters are disabled
      */
     private void update(StoredTable<R> table, Class<R> rowType, RowInfo primaryInfo,
-                        RowStore rs, Transaction txn, View secondaries)
+                        RowStore rs, Transaction txn, View secondaries,
+                        List<IndexFilter> filters)
         throws IOException
     {
         int numIndexes = 0;
@@ -291,8 +322,10 @@ public final class TableManager<R> {
                     throw new CorruptDatabaseException("Secondary index is missing: " + indexId);
                 }
 
+                SecondaryInfo info = secondaryInfo(primaryInfo, desc);
+
                 maker.mSecondaryDescriptors[i] = desc;
-                maker.mSecondaryInfos[i] = secondaryInfo(primaryInfo, desc);
+                maker.mSecondaryInfos[i] = info;
                 maker.mSecondaryIndexes[i] = index;
                 maker.mSecondaryLocks[i] = rs.indexLock(index);
 
@@ -313,6 +346,8 @@ public final class TableManager<R> {
                     }
 
                     maker.mBackfills[i] = backfill;
+                } else if (filters != null) {
+                    maker.mFilters[i] = findFilter(rs, filters, index, info);
                 }
 
                 i++;
@@ -345,6 +380,70 @@ public final class TableManager<R> {
         }
     }
 
+    /**
+     * Finds or makes a filter for the given active secondary index, and adds it to the list.
+     *
+     * @return null if the index cannot be filtered
+     */
+    private IndexFilter findFilter(RowStore rs, List<IndexFilter> filters,
+                                   Index index, SecondaryInfo info)
+    {
+        for (IndexFilter filter : filters) {
+            if (filter.mIndex == index) {
+                return filter;
+            }
+        }
+
+        IndexFilter filter = indexFilter(index);
+
+        if (filter == null) {
+            filter = IndexFilter.make(this, index, info, rs.indexFilterBits());
+            if (filter == null) {
+                return null;
+            }
+        }
+
+        filters.add(filter);
+
+        return filter;
+    }
+
+    /**
+     * Is called after the update method has installed new triggers on all tables, and so the
+     * filters can now be safely built.
+     *
+     * @param filters can be null if filters are disabled
+     */
+    private void installFilters(List<IndexFilter> filters) {
+        if (filters == null || filters.isEmpty()) {
+            mIndexFilters = null;
+            return;
+        }
+
+        mIndexFilters = filters.toArray(IndexFilter[]::new);
+
+        for (IndexFilter filter : filters) {
+            if (!filter.isBuilt()) {
+                filter.requestBuild();
+            }
+        }
+    }
+
+    /**
+     * Returns the filter for the given secondary index, or null if none.
+     */
+    IndexFilter indexFilter(Index index) {
+        IndexFilter[] filters = mIndexFilters;
+        if (filters != null) {
+            for (IndexFilter filter : filters) {
+                if (filter.mIndex == index) {
+                    return filter;
+                }
+            }
+        }
+        return null;
+    }
+
     private void removeIndexBackfill(byte[] desc) {
         if (mIndexBackfills != null) {
             // When an IndexBackfill is removed, it doesn't need to be immediately closed. When
@@ -353,6 +452,207 @@ public final class TableManager<R> {
         }
     }
 
+    /**
+     * Returns the statistics for the primary index, or null if none have been collected yet.
+     * Statistics are refreshed in the background, when the amount of rows has changed
+     * significantly.
+     */
+    public IndexStatistics statistics() throws IOException {
+        return statistics(EMPTY_BYTES);
+    }
+
+    /**
+     * Returns the statistics for a primary or secondary index, or null if none have been
+     * collected yet.
+     *
+     * @param desc secondary index descriptor, or empty for the primary index
+     */
+    IndexStatistics statistics(byte[] desc) throws IOException {
+        IndexStatistics stats = statisticsMap().get(desc);
+        checkStatistics();
+        return stats;
+    }
+
+    /**
+     * Collects statistics for the primary index and all secondary indexes, waiting for the
+     * work to complete. Any query plans which were computed using old statistics are
+     * discarded.
+     */
+    public void refreshStatistics() throws IOException {
+        refreshStatistics(true);
+    }
+
+    private ConcurrentSkipListMap<byte[], IndexStatistics> statisticsMap() throws IOException {
+        ConcurrentSkipListMap<byte[], IndexStatistics> map = mStatistics;
+
+        if (map == null) {
+            synchronized (this) {
+                map = mStatistics;
+                if (map == null) {
+                    var newMap = new ConcurrentSkipListMap<byte[], IndexStatistics>
+                        (KEY_COMPARATOR);
+                    RowStore rs = mRowStoreRef.get();
+                    if (rs != null) {
+                        rs.loadStatistics(mPrimaryIndex.id(), (desc, encoded) -> {
+                            IndexStatistics stats = IndexStatistics.decode(encoded);
+                            if (stats != null) {
+                                newMap.put(desc, stats);
+                            }
+                        });
+                    }
+                    mStatistics = map = newMap;
+                }
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Removes the statistics for a secondary index which is being dropped.
+     *
+     * @param desc secondary index descriptor
+     */
+    void removeStatistics(byte[] desc) throws IOException {
+        ConcurrentSkipListMap<byte[], IndexStatistics> map = mStatistics;
+        if (map != null) {
+            map.remove(desc);
+        }
+        RowStore rs = mRowStoreRef.get();
+        if (rs != null) {
+            rs.storeStatistics(mPrimaryIndex.id(), desc, null);
+        }
+    }
+
+    /**
+     * Enqueues a background task to refresh the statistics, if it's time to do so.
+     */
+    private void checkStatistics() {
+        if (STATISTICS_REFRESH_NANOS < 0) {
+            return;
+        }
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (mStatisticsRefreshing || now - mStatisticsCheckNanos < 0) {
+                return;
+            }
+            mStatisticsCheckNanos = now + STATISTICS_REFRESH_NANOS;
+            mStatisticsRefreshing = true;
+        }
+
+        worker(true).enqueue(new Worker.Task() {
+            @Override
+            public void run() {
+                try {
+                    refreshStatistics(false);
+                } catch (Throwable e) {
+                    RowStore rs = mRowStoreRef.get();
+                    if (rs != null && !rs.mDatabase.isClosed()) {
+                        RowUtils.uncaught(e);
+                    }
+                } finally {
+                    synchronized (TableManager.this) {
+                        mStatisticsRefreshing = false;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @param force when false, only collect statistics which are missing or stale
+     */
+    private void refreshStatistics(boolean force) throws IOException {
+        RowStore rs = mRowStoreRef.get();
+        StoredTable<R> table = mostRecentTable();
+        if (rs == null || table == null) {
+            return;
+        }
+
+        ConcurrentSkipListMap<byte[], IndexStatistics> map = statisticsMap();
+
+        RowInfo info = RowInfo.find(table.rowType());
+
+        boolean changed = refreshStatistics(rs, map, force, EMPTY_BYTES, table, table, info);
+
+        for (ColumnSet cs : info.alternateKeys) {
+            changed |= refreshStatistics(rs, map, force, table, cs, true);
+        }
+
+        for (ColumnSet cs : info.secondaryIndexes) {
+            changed |= refreshStatistics(rs, map, force, table, cs, false);
+        }
+
+        if (changed) {
+            List<StoredTable<R>> tables = mTables.copyValues();
+            if (tables != null) {
+                tables.forEach(StoredTable::clearQueryCache);
+            }
+        }
+    }
+
+    private boolean refreshStatistics(RowStore rs, Map<byte[], IndexStatistics> map,
+                                      boolean force, StoredTable<R> table,
+                                      ColumnSet cs, boolean alt)
+        throws IOException
+    {
+        StoredTable<R> source;
+        try {
+            source = table.viewIndexTable(alt, alt ? cs.keySpec() : cs.fullSpec());
+        } catch (NoSuchIndexException e) {
+            // Isn't available yet.
+            return false;
+        }
+        byte[] desc = RowStore.secondaryDescriptor(cs, alt);
+        return refreshStatistics(rs, map, force, desc, table, source, cs);
+    }
+
+    /**
+     * @param table used for making comparators
+     * @param source table which decodes index keys
+     * @param cs defines the index key columns
+     * @return true if the statistics changed
+     */
+    private boolean refreshStatistics(RowStore rs, Map<byte[], IndexStatistics> map,
+                                      boolean force, byte[] desc,
+                                      StoredTable<R> table, StoredTable<R> source,
+                                      ColumnSet cs)
+        throws IOException
+    {
+        Index ix = source.mSource;
+
+        if (!force) {
+            IndexStatistics stats = map.get(desc);
+            if (stats != null) {
+                long oldCount = stats.rowCount();
+                long newCount = IndexStatistics.estimateRowCount(ix);
+                if (Math.abs(newCount - oldCount)
+                    <= Math.max(oldCount, 100) * STATISTICS_CHANGE_RATIO)
+                {
+                    return false;
+                }
+            }
+        }
+
+        // Make a comparator for each leading group of key columns.
+        @SuppressWarnings("unchecked")
+        Comparator<R>[] comparators = new Comparator[cs.keyColumns.size()];
+        var spec = new StringBuilder();
+        int i = 0;
+        for (ColumnInfo ci : cs.keyColumns.values()) {
+            spec.append(ci.isDescending() ? '-' : '+').append(ci.name);
+            comparators[i++] = table.comparator(spec.toString());
+        }
+
+        IndexStatistics stats = IndexStatistics.collect(ix, source::toRow, comparators);
+
+        map.put(desc, stats);
+        rs.storeStatistics(mPrimaryIndex.id(), desc, stats.encode());
+
+        return true;
+    }
+
     /**
      * Returns a Worker instance.
      *
@@ -72,6 +72,11 @@ public abstract class WrappedTable<S, T> extends BaseTable<T> {
         return mSource;
     }
 
+    @Override
+    protected QueryPlanCache queryPlanCache() {
+        return mSource instanceof BaseTable<S> base ? base.queryPlanCache() : null;
+    }
+
     /**
      * Is called by generated Query classes.
      */
@@ -83,25 +88,22 @@ public abstract class WrappedTable<S, T> extends BaseTable<T> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public final Query<T> query(String query) throws IOException {
-        return (Query<T>) cacheObtain(TYPE_1, query, null);
+        return obtainQuery(query);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <D> Table<D> derive(Class<D> derivedType, String query, Object... args)
         throws IOException
     {
         // See the cacheNewValue method.
         var key = new CompiledQuery.DerivedKey(derivedType, query);
-        return ((CompiledQuery<D>) cacheObtain(TYPE_2, key, this)).table(args);
+        return obtainDerived(derivedType, query, key).table(args);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Table<Row> derive(String query, Object... args) throws IOException {
         // See the cacheNewValue method.
-        return ((CompiledQuery<Row>) cacheObtain(TYPE_2, query, this)).table(args);
+        return this.<Row>obtainDerived(null, query, query).table(args);
     }
 }
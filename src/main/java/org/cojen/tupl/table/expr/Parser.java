@@ -31,6 +31,8 @@ import java.util.Set;
 import org.cojen.tupl.QueryException;
 import org.cojen.tupl.Table;
 
+import org.cojen.tupl.table.Limit;
+
 import org.cojen.tupl.table.filter.QuerySpec;
 
 import static org.cojen.tupl.table.RowMethodsMaker.unescape;
@@ -103,7 +105,7 @@ public final class Parser {
      * Attempt to parse a query into a QuerySpec, throwing a QueryException if not possible.
      */
     public static QuerySpec parseQuerySpec(Class<?> rowType, String query) throws QueryException {
-        return parse(rowType, query).querySpec();
+        return noLimit(parse(rowType, query).querySpec());
     }
 
     /**
@@ -118,13 +120,24 @@ public final class Parser {
     {
         RelationExpr from = TableExpr.make(-1, -1, rowType, availableColumns);
         try {
-            return new Parser(paramDelta, from, rowType, query).parseQueryExpr().querySpec();
+            return noLimit(new Parser(paramDelta, from, rowType, query)
+                           .parseQueryExpr().querySpec());
         } catch (IOException e) {
             // Not expected.
             throw new QueryException(e);
         }
     }
 
+    /**
+     * Callers of the parseQuerySpec methods don't support the limit clause.
+     */
+    private static QuerySpec noLimit(QuerySpec spec) {
+        if (spec.limit() != null) {
+            throw new QueryException("Limit and offset aren't supported by this query");
+        }
+        return spec;
+    }
+
     private final int mParamDelta;
     private final RelationExpr mFrom;
     private final Class<?> mRowType;
@@ -137,6 +150,8 @@ public final class Parser {
 
     private Map<String, ProjExpr> mProjectionMap;
 
+    private int mLimitEndPos;
+
     /**
      * @param paramDelta amount to add to each parameter number after being parsed
      * @param from can be null if not selecting from any table at all
@@ -182,8 +197,9 @@ public final class Parser {
     }
 
     /*
-     * QueryExpr  = Projection [ Filter ]
-     *            | Filter
+     * QueryExpr  = Projection [ Filter ] [ Limit ]
+     *            | Filter [ Limit ]
+     *            | Limit
      * Filter     = Expr
      * Projection = "{" ProjExprs [ ";" ProjExprs ] "}"
      */
@@ -193,13 +209,18 @@ public final class Parser {
         final Expr filter;
         final List<ProjExpr> projection;
         final int groupBy;
-        final int endPos;
+        int endPos;
 
         if (first.type() != T_LBRACE) {
-            filter = parseExpr();
+            if (isLimitStart()) {
+                filter = null;
+                endPos = first.startPos();
+            } else {
+                filter = parseExpr();
+                endPos = filter.endPos();
+            }
             projection = null;
             groupBy = -1;
-            endPos = filter.endPos();
         } else {
             consumePeek();
             Map<String, ProjExpr> projExprs = parseProjExprs();
@@ -217,7 +238,7 @@ public final class Parser {
                     ? "At most one group specification is allowed" : "Right brace expected";
                 throw next.queryException(message);
             }
-            if (peekTokenType() == T_EOF) {
+            if (peekTokenType() == T_EOF || isLimitStart()) {
                 filter = null;
                 endPos = next.endPos();
             } else {
@@ -226,6 +247,12 @@ public final class Parser {
             }
         }
 
+        Limit limit = null;
+        if (isLimitStart()) {
+            limit = parseLimit();
+            endPos = mLimitEndPos;
+        }
+
         Token peek = peekToken();
         if (peek.type() != T_EOF) {
             throw peek.queryException("Unexpected trailing characters");
@@ -241,7 +268,96 @@ public final class Parser {
         }
 
         return QueryExpr.make(first.startPos(), endPos, mFrom, mRowType,
-                              filter, projection, groupBy);
+                              filter, projection, groupBy, limit);
+    }
+
+    /**
+     * Returns true if the next token is a "limit" or "offset" keyword, followed by a number
+     * or an argument. These keywords aren't reserved, and so they can still be used as
+     * column names.
+     */
+    private boolean isLimitStart() throws IOException {
+        Token t = peekToken();
+
+        if (!isLimitKeyword(t)) {
+            return false;
+        }
+
+        consumePeek();
+        int nextType = peekTokenType();
+        pushbackToken(t);
+
+        return nextType == T_INT || nextType == T_LONG || nextType == T_ARG;
+    }
+
+    private static boolean isLimitKeyword(Token t) {
+        if (t.type() != T_IDENTIFIER) {
+            return false;
+        }
+        String text = ((Token.Text) t).mText;
+        return text.equals("limit") || text.equals("offset");
+    }
+
+    /*
+     * Limit      = "limit" LimitValue [ "offset" LimitValue ]
+     *            | "offset" LimitValue
+     * LimitValue = uint | ArgRef
+     */
+    private Limit parseLimit() throws IOException {
+        long limit = -1, offset = 0;
+        int limitArg = 0, offsetArg = 0;
+
+        Token t = nextToken();
+
+        if (((Token.Text) t).mText.equals("limit")) {
+            Expr value = parseLimitValue();
+            if (value instanceof ParamExpr pe) {
+                limitArg = pe.ordinal();
+            } else {
+                limit = ((Number) ((ConstantExpr) value).value()).longValue();
+            }
+
+            if (!isLimitStart()) {
+                return new Limit(limit, limitArg, offset, offsetArg);
+            }
+
+            t = nextToken();
+
+            if (!((Token.Text) t).mText.equals("offset")) {
+                throw t.queryException("Offset expected");
+            }
+        }
+
+        Expr value = parseLimitValue();
+        if (value instanceof ParamExpr pe) {
+            offsetArg = pe.ordinal();
+        } else {
+            offset = ((Number) ((ConstantExpr) value).value()).longValue();
+        }
+
+        return new Limit(limit, limitArg, offset, offsetArg);
+    }
+
+    /**
+     * Returns a ParamExpr or a ConstantExpr with a non-negative Long value.
+     */
+    private Expr parseLimitValue() throws IOException {
+        Expr value = parseEntityExpr();
+
+        mLimitEndPos = value.endPos();
+
+        if (value instanceof ParamExpr) {
+            return value;
+        }
+
+        if (value instanceof ConstantExpr ce && ce.value() instanceof Number n) {
+            long v = n.longValue();
+            if (v >= 0) {
+                return ConstantExpr.make(value.startPos(), value.endPos(), v);
+            }
+        }
+
+        throw value.queryException("Limit and offset must be non-negative integers");
     }
 
     private static void verifyNoGrouping(Expr expr) {
@@ -810,9 +926,15 @@ public final class Parser {
                 return ParamExpr.make(t.startPos(), next.endPos(), ordinal + mParamDelta);
             } else {
                 switch (next.type()) {
+                case T_IDENTIFIER:
+                    if (isLimitKeyword(next)) {
+                        // Is followed by a limit or offset clause.
+                        break;
+                    }
+                    throw next.queryException("Malformed argument number");
                 case T_ARG:
                 case T_FALSE: case T_TRUE: case T_NULL:
-                case T_IDENTIFIER: case T_STRING:
+                case T_STRING:
                 case T_INT: case T_LONG: case T_BIGINT:
                 case T_FLOAT: case T_DOUBLE: case T_BIGDEC:
                     throw next.queryException("Malformed argument number");
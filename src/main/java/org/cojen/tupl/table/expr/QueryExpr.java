@@ -35,6 +35,7 @@ import org.cojen.tupl.QueryException;
 import org.cojen.tupl.Untransformed;
 
 import org.cojen.tupl.table.ColumnInfo;
+import org.cojen.tupl.table.Limit;
 import org.cojen.tupl.table.OrderBy;
 import org.cojen.tupl.table.RowInfo;
 
@@ -67,6 +68,23 @@ public abstract sealed class QueryExpr extends RelationExpr
     public static RelationExpr make(int startPos, int endPos,
                                     RelationExpr from, Class<?> rowTypeClass,
                                     Expr filter, List<ProjExpr> projection, int groupBy)
+    {
+        return make(startPos, endPos, from, rowTypeClass, filter, projection, groupBy, null);
+    }
+
+    /**
+     * @param from can be null if not selecting from any table at all
+     * @param rowTypeClass the row type class to use, or else null to select one automatically
+     * @param filter can be null if not filtered, or else filter type must be boolean or be
+     * convertible to boolean
+     * @param projection can be null to project all columns (only when groupBy is disabled)
+     * @param groupBy number of projected columns to group by; pass -1 if disabled
+     * @param rowLimit can be null if unlimited; isn't supported when deriving new columns
+     */
+    public static RelationExpr make(int startPos, int endPos,
+                                    RelationExpr from, Class<?> rowTypeClass,
+                                    Expr filter, List<ProjExpr> projection, int groupBy,
+                                    Limit rowLimit)
     {
         if (from == null) {
             from = TableExpr.joinIdentity();
@@ -324,9 +342,20 @@ public abstract sealed class QueryExpr extends RelationExpr
             }
         }
 
+        if (rowLimit != null) {
+            if (needsMapper ||
+                (rowTypeClass != null && !rowTypeClass.isAssignableFrom(fromType.clazz())))
+            {
+                throw new QueryException("Limit and offset aren't supported when deriving " +
+                                         "new columns");
+            }
+            maxArgument = Math.max(maxArgument, rowLimit.maxArgument());
+        }
+
         // Attempt to push down filtering and projection by replacing the "from" expression
         // with an UnmappedQueryExpr. This might still be the original "from" expression.
-        from = UnmappedQueryExpr.make(-1, -1, from, unmappedRowFilter, fromProjection, maxArgument);
+        from = UnmappedQueryExpr.make(-1, -1, from, unmappedRowFilter, fromProjection,
+                                      maxArgument, rowLimit);
 
         if (!needsMapper) {
             if (rowTypeClass == null || rowTypeClass.isAssignableFrom(fromType.clazz())) {
@@ -703,6 +732,7 @@ public abstract sealed class QueryExpr extends RelationExpr
         int hash = mFrom.hashCode();
         hash = hash * 31 + mRowFilter.hashCode();
         hash = hash * 31 + Objects.hashCode(mProjection);
+        hash = hash * 31 + Objects.hashCode(limit());
         return hash;
     }
 
@@ -713,7 +743,8 @@ public abstract sealed class QueryExpr extends RelationExpr
             && getClass() == qe.getClass()
             && mFrom.equals(qe.mFrom)
             && mRowFilter.equals(qe.mRowFilter)
-            && Objects.equals(mProjection, qe.mProjection);
+            && Objects.equals(mProjection, qe.mProjection)
+            && Objects.equals(limit(), qe.limit());
     }
 
     @Override
@@ -763,5 +794,10 @@ public abstract sealed class QueryExpr extends RelationExpr
         b.append(')').append(' ');
 
         appendRowQueryString(b);
+
+        Limit limit = limit();
+        if (limit != null) {
+            limit.appendTo(b);
+        }
     }
 }
@@ -30,6 +30,7 @@ import org.cojen.tupl.PrimaryKey;
 import org.cojen.tupl.QueryException;
 import org.cojen.tupl.Row;
 
+import org.cojen.tupl.table.Limit;
 import org.cojen.tupl.table.OrderBy;
 
 import org.cojen.tupl.table.filter.QuerySpec;
@@ -138,6 +139,20 @@ public abstract sealed class RelationExpr extends Expr permits TableExpr, QueryE
      */
     public abstract QuerySpec tryQuerySpec(Class<?> rowType);
 
+    /**
+     * Returns the limit and offset clause of this relation, or null if none.
+     */
+    public Limit limit() {
+        return null;
+    }
+
+    /**
+     * Returns a RelationExpr which is the same as this one except without a limit clause.
+     */
+    public RelationExpr withoutLimit() {
+        return this;
+    }
+
     /**
      * Makes a fully functional CompiledQuery from this expression.
      */
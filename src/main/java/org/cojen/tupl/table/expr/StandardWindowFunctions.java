@@ -76,7 +76,9 @@ final class StandardWindowFunctions {
         @Override
         protected Variable compute(Variable bufferVar, Object frameStart, Object frameEnd) {
             String method;
-            if (originalType().isNullLow()) {
+            if (isSlidingFrame() && valueType().clazz().isPrimitive()) {
+                method = type().isNullable() ? "slidingMinOrNull" : "slidingMin";
+            } else if (originalType().isNullLow()) {
                 method = type().isNullable() ? "frameMinOrNullNL" : "frameMinNL";
             } else {
                 method = type().isNullable() ? "frameMinOrNull" : "frameMin";
@@ -97,7 +99,9 @@ final class StandardWindowFunctions {
         @Override
         protected Variable compute(Variable bufferVar, Object frameStart, Object frameEnd) {
             String method;
-            if (originalType().isNullLow()) {
+            if (isSlidingFrame() && valueType().clazz().isPrimitive()) {
+                method = type().isNullable() ? "slidingMaxOrNull" : "slidingMax";
+            } else if (originalType().isNullLow()) {
                 method = type().isNullable() ? "frameMaxOrNullNL" : "frameMaxNL";
             } else {
                 method = type().isNullable() ? "frameMaxOrNull" : "frameMax";
@@ -143,7 +147,8 @@ final class StandardWindowFunctions {
 
         @Override
         protected Variable compute(Variable bufferVar, Object frameStart, Object frameEnd) {
-            return bufferVar.invoke("frameSum", frameStart, frameEnd);
+            return bufferVar.invoke(isSlidingFrame() ? "slidingSum" : "frameSum",
+                                    frameStart, frameEnd);
         }
     }
 
@@ -157,7 +162,8 @@ final class StandardWindowFunctions {
 
         @Override
         protected Variable compute(Variable bufferVar, Object frameStart, Object frameEnd) {
-            String method = type().isNullable() ? "frameAverageOrNull" : "frameAverage";
+            String method = type().isNullable() ? "AverageOrNull" : "Average";
+            method = (isSlidingFrame() ? "sliding" : "frame") + method;
             return bufferVar.invoke(method, frameStart, frameEnd);
         }
     }
@@ -26,6 +26,7 @@ import java.util.Map;
 import org.cojen.tupl.QueryException;
 import org.cojen.tupl.Table;
 
+import org.cojen.tupl.table.Limit;
 import org.cojen.tupl.table.RowUtils;
 import org.cojen.tupl.table.ViewedTable;
 
@@ -48,11 +49,12 @@ final class UnmappedQueryExpr extends QueryExpr {
      *
      * @param projection must only consist of wrapped ColumnExpr instances; can be null to
      * project all columns
+     * @param limit can be null if unlimited
      * @see QueryExpr#make
      */
     static RelationExpr make(int startPos, int endPos,
                              RelationExpr from, RowFilter rowFilter, List<ProjExpr> projection,
-                             int maxArgument)
+                             int maxArgument, Limit limit)
     {
         RelationType type = from.type();
 
@@ -60,7 +62,7 @@ final class UnmappedQueryExpr extends QueryExpr {
             projection = null;
         }
 
-        if (rowFilter == TrueFilter.THE && projection == null) {
+        if (rowFilter == TrueFilter.THE && projection == null && limit == null) {
             return from;
         }
 
@@ -88,17 +90,19 @@ final class UnmappedQueryExpr extends QueryExpr {
         type = type.withCardinality(type.cardinality().filter(rowFilter));
 
         return new UnmappedQueryExpr
-            (startPos, endPos, type, from, rowFilter, projection, maxArgument, argMap);
+            (startPos, endPos, type, from, rowFilter, projection, maxArgument, argMap, limit);
     }
 
     private final Map<Object, Integer> mArgMap;
+    private final Limit mLimit;
 
     private UnmappedQueryExpr(int startPos, int endPos, RelationType type,
                               RelationExpr from, RowFilter filter, List<ProjExpr> projection,
-                              int maxArgument, Map<Object, Integer> argMap)
+                              int maxArgument, Map<Object, Integer> argMap, Limit limit)
     {
         super(startPos, endPos, type, from, filter, projection, maxArgument);
         mArgMap = argMap;
+        mLimit = limit;
     }
 
     @Override
@@ -109,17 +113,34 @@ final class UnmappedQueryExpr extends QueryExpr {
         if (mArgMap != null) {
             throw new QueryException("Query has literals");
         }
-        return super.querySpec(false);
+        return super.querySpec(false).withLimit(mLimit);
     }
 
     @Override
     public QuerySpec tryQuerySpec(Class<?> rowType) {
         if (mFrom.rowTypeClass() == rowType && mFrom instanceof TableExpr && mArgMap == null) {
-            return super.querySpec(false);
+            return super.querySpec(false).withLimit(mLimit);
         }
         return null;
     }
 
+    @Override
+    public Limit limit() {
+        return mLimit;
+    }
+
+    @Override
+    public RelationExpr withoutLimit() {
+        if (mLimit == null) {
+            return this;
+        }
+        if (mRowFilter == TrueFilter.THE && mProjection == null) {
+            return mFrom;
+        }
+        return new UnmappedQueryExpr(startPos(), endPos(), type(), mFrom, mRowFilter,
+                                     mProjection, mMaxArgument, mArgMap, null);
+    }
+
     private static final byte K_TYPE = KeyEncoder.allocType();
 
     @Override
@@ -136,12 +157,27 @@ final class UnmappedQueryExpr extends QueryExpr {
                     enc.encodeInt(e.getValue());
                 }
             }
+
+            if (mLimit == null) {
+                enc.encodeBoolean(false);
+            } else {
+                enc.encodeBoolean(true);
+                enc.encodeLong(mLimit.limit());
+                enc.encodeInt(mLimit.limitArg());
+                enc.encodeLong(mLimit.offset());
+                enc.encodeInt(mLimit.offsetArg());
+            }
         }
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public CompiledQuery<?> makeCompiledQuery() throws IOException {
+        if (mLimit != null) {
+            // The limit must be applied by the caller, using LimitQueryLauncher.
+            throw new QueryException("Limit and offset aren't supported by this query");
+        }
+
         CompiledQuery<?> source = mFrom.makeCompiledQuery();
 
         if (mRowFilter == TrueFilter.THE && mProjection == null) {
@@ -414,20 +414,7 @@ public abstract class ValueBuffer<V> {
                 countVar.ifEq(0, () -> mm.return_(null));
             }
 
-            Variable divisorVar;
-
-            if (clazz == BigDecimal.class) {
-                divisorVar = mm.var(clazz).invoke("valueOf", countVar);
-                mm.return_(sumVar.invoke("divide", divisorVar,
-                                         mm.var(MathContext.class).field("DECIMAL64")));
-            } else {
-                if (clazz == BigInteger.class) {
-                    divisorVar = mm.var(clazz).invoke("valueOf", countVar);
-                } else {
-                    divisorVar = countVar.cast(unboxed);
-                }
-                mm.return_(Arithmetic.eval(type, Token.T_DIV, sumVar, divisorVar));
-            }
+            mm.return_(divide(mm, type, sumVar, countVar));
         }
 
         {
@@ -531,6 +518,30 @@ public abstract class ValueBuffer<V> {
         }
     }
 
+    /**
+     * Generates code which divides a sum by a non-zero count, for computing an average.
+     *
+     * @param sumVar sum with the unboxed type
+     * @param countVar int count
+     */
+    static Variable divide(MethodMaker mm, Type type, Variable sumVar, Variable countVar) {
+        Class clazz = type.clazz();
+        Variable divisorVar;
+
+        if (clazz == BigDecimal.class) {
+            divisorVar = mm.var(clazz).invoke("valueOf", countVar);
+            return sumVar.invoke("divide", divisorVar,
+                                 mm.var(MathContext.class).field("DECIMAL64"));
+        } else {
+            if (clazz == BigInteger.class) {
+                divisorVar = mm.var(clazz).invoke("valueOf", countVar);
+            } else {
+                divisorVar = countVar.cast(type.unboxedType());
+            }
+            return Arithmetic.eval(type, Token.T_DIV, sumVar, divisorVar);
+        }
+    }
+
     /**
      * @param mm params must be (int from, int num)
      * @param skipNulls when true, the op never receives null values
@@ -41,10 +41,9 @@ import static org.cojen.tupl.table.filter.ColumnFilter.*;
 
 /**
  * Defines a growable circular buffer of values, which act upon moving ranges of values known
- * as frames. The implementations of the sum and average methods perform a full calculation
- * over each range rather than performing incremental calculations. Although less efficient,
- * it's more accurate. If the frame is constant, consider performing incremental calculations
- * instead.
+ * as frames. The frame methods perform a full calculation over each range, which supports
+ * frames that move arbitrarily. The sliding methods perform incremental calculations, and
+ * they should be used when the frame is constant and thus only moves forward.
  *
  * @author Brian S. O'Neill
  */
@@ -412,6 +411,92 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Same as frameSum except the sum is calculated incrementally, by adding the values which
+     * enter the frame and subtracting the values which leave it. Floating point sums use
+     * compensated summation to limit the loss of accuracy. If the frame moved backwards since
+     * the last call, or if it moved too far, then a full calculation is performed.
+     *
+     * <p>Note: A buffer instance shouldn't be used by more than one kind of sliding method,
+     * since they all share the same state.
+     *
+     * @param frameStart inclusive frame start, relative to the current row (which is zero)
+     * @param frameEnd inclusive frame end, relative to the current row (which is zero)
+     */
+    public V slidingSum(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as frameAverage except the sum is calculated incrementally.
+     *
+     * @see #slidingSum
+     */
+    public V slidingAverage(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as frameAverageOrNull except the sum is calculated incrementally.
+     *
+     * @see #slidingSum
+     */
+    public V slidingAverageOrNull(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as frameMin except a monotonic queue is maintained, which tracks the frame
+     * positions that can still become the minimum. Amortized over a moving frame, each value
+     * is examined a constant number of times. This method is only supported for primitive
+     * value types.
+     *
+     * @see #slidingSum
+     */
+    public V slidingMin(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as frameMinOrNull except a monotonic queue is maintained.
+     *
+     * @see #slidingMin
+     */
+    public V slidingMinOrNull(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as frameMax except a monotonic queue is maintained.
+     *
+     * @see #slidingMin
+     */
+    public V slidingMax(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Same as frameMaxOrNull except a monotonic queue is maintained.
+     *
+     * @see #slidingMin
+     */
+    public V slidingMaxOrNull(long frameStart, long frameEnd) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a copy of the given circular queue, with twice the capacity. The first element
+     * of the new queue is at index zero.
+     */
+    static long[] growQueue(long[] queue, int first, int size) {
+        var newQueue = new long[queue.length << 1];
+        int mask = queue.length - 1;
+        for (int i=0; i<size; i++) {
+            newQueue[i] = queue[(first + i) & mask];
+        }
+        return newQueue;
+    }
+
     private static Class generateClass(Type type) {
         Class clazz = type.clazz();
 
@@ -424,6 +509,15 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
         cm.addField(int.class, "start").private_();
         cm.addField(int.class, "end").private_();
 
+        // The sliding methods are supported by all numerical types, but BigDecimal always
+        // performs full calculations.
+        boolean sliding = type.isNumber() && clazz != BigDecimal.class;
+        String removeMethod = sliding ? "removeValues" : "remove";
+
+        if (sliding) {
+            addSlidingSupport(cm, type);
+        }
+
         {
             MethodMaker mm = cm.addConstructor(int.class).public_();
             mm.invokeSuperConstructor(mm.param(0));
@@ -432,6 +526,9 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
         {
             MethodMaker mm = cm.addMethod(null, "begin", clazz).public_().final_();
             mm.invoke("init", mm.param(0));
+            if (sliding) {
+                mm.invoke("beginSliding");
+            }
             mm.field("start").set(0);
             mm.field("end").set(0);
         }
@@ -478,7 +575,7 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
             var endVar = endField.sub(1);
  
             frameStartVar.ifGt(startVar, () -> {
-                endVar.ifGe(startVar, () -> mm.invoke("remove", 1));
+                endVar.ifGe(startVar, () -> mm.invoke(removeMethod, 1));
                 startVar.inc(1);
             });
 
@@ -489,7 +586,7 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
         {
             MethodMaker mm = cm.addMethod(null, "advanceAndRemove").public_().final_();
             mm.field("end").dec(1);
-            mm.invoke("remove", 1);
+            mm.invoke(removeMethod, 1);
         }
 
         {
@@ -508,7 +605,7 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
             var startField = mm.field("start");
             var amtVar = frameStartVar.sub(startField);
             amtVar.ifGt(0, () -> {
-                mm.invoke("remove", amtVar.cast(int.class));
+                mm.invoke(removeMethod, amtVar.cast(int.class));
                 startField.set(frameStartVar.cast(int.class));
             });
         }
@@ -1111,6 +1208,522 @@ public abstract class WindowBuffer<V> extends ValueBuffer<V> {
                 makeFrameCode(mm, null, "max");
             }
         }
+
+        addSlidingMethods(cm, type);
+    }
+
+    /**
+     * Adds the fields and private methods which the sliding methods depend on.
+     */
+    private static void addSlidingSupport(ClassMaker cm, Type type) {
+        Class clazz = type.clazz();
+        Class unboxed = type.unboxedType();
+        Class boxed = type.boxedType();
+        boolean isFloat = unboxed == float.class || unboxed == double.class;
+
+        // Define fields which track the range of values that the sliding methods have
+        // examined. Positions are absolute, as if no values were ever removed from the buffer,
+        // and the range is [slidingStart, slidingEnd).
+        cm.addField(long.class, "removed").private_();
+        cm.addField(long.class, "slidingStart").private_();
+        cm.addField(long.class, "slidingEnd").private_();
+
+        // Is true when the running sum fields are in use.
+        cm.addField(boolean.class, "summing").private_();
+
+        cm.addField(unboxed, "runningSum").private_();
+
+        if (isFloat) {
+            // Compensation term for Neumaier's variant of Kahan summation.
+            cm.addField(unboxed, "runningComp").private_();
+        }
+
+        if (!clazz.isPrimitive()) {
+            // Count of non-null values.
+            cm.addField(int.class, "runningCount").private_();
+        } else {
+            // Circular queue of absolute positions, used by slidingMin and slidingMax.
+            cm.addField(long[].class, "queue").private_();
+            cm.addField(int.class, "queueFirst").private_();
+            cm.addField(int.class, "queueSize").private_();
+        }
+
+        {
+            MethodMaker mm = cm.addMethod(null, "beginSliding").private_().final_();
+            mm.field("removed").set(0L);
+            mm.field("slidingStart").set(0L);
+            mm.field("slidingEnd").set(0L);
+            mm.field("summing").set(false);
+            if (clazz.isPrimitive()) {
+                mm.field("queueSize").set(0);
+            }
+        }
+
+        {
+            MethodMaker mm = cm.addMethod(null, "slidingClear").private_().final_();
+            var zeroVar = mm.var(unboxed);
+            Arithmetic.zero(zeroVar);
+            mm.field("runningSum").set(zeroVar);
+            if (isFloat) {
+                mm.field("runningComp").set(0);
+            }
+            if (!clazz.isPrimitive()) {
+                mm.field("runningCount").set(0);
+            }
+        }
+
+        makeSlidingOp(cm, type, isFloat, true);
+        makeSlidingOp(cm, type, isFloat, false);
+
+        {
+            MethodMaker mm = cm.addMethod(null, "removeValues", int.class).private_().final_();
+
+            /*
+              long removed = this.removed;
+              if (summing) {
+                  // Values which are part of the running sum must be subtracted before they're
+                  // removed.
+                  long pos = slidingStart;
+                  long end = Math.min(slidingEnd, removed + amount);
+                  while (pos < end) {
+                      slidingSubtract((int) (pos - removed));
+                      pos++;
+                  }
+                  slidingStart = pos;
+              }
+              this.removed = removed + amount;
+              remove(amount);
+            */
+
+            var amountVar = mm.param(0);
+            var removedVar = mm.field("removed").get();
+
+            Label cont = mm.label();
+            mm.field("summing").ifFalse(cont);
+            var posVar = mm.field("slidingStart").get();
+            var endVar = mm.var(Math.class).invoke
+                ("min", mm.field("slidingEnd"), removedVar.add(amountVar.cast(long.class)));
+            makeSlidingLoop(mm, posVar, endVar, () -> {
+                mm.invoke("slidingSubtract", posVar.sub(removedVar).cast(int.class));
+            });
+            mm.field("slidingStart").set(posVar);
+            cont.here();
+
+            mm.field("removed").set(removedVar.add(amountVar.cast(long.class)));
+            mm.invoke("remove", amountVar);
+        }
+
+        {
+            MethodMaker mm = cm.addMethod(null, "slideSum", int.class, int.class)
+                .private_().final_();
+
+            /*
+              long removed = this.removed;
+              long start = removed + from;
+              long end = start + num;
+              long pos = slidingStart;
+              long oldEnd = slidingEnd;
+              if (!summing || start < pos || end < oldEnd || (start - pos) + (end - oldEnd) >= num
+                  || !isFinite(runningSum))
+              {
+                  // Perform a full calculation, which also recovers from non-finite sums.
+                  summing = true;
+                  slidingClear();
+                  pos = start;
+                  oldEnd = start;
+              }
+              while (pos < start) {
+                  slidingSubtract((int) (pos - removed));
+                  pos++;
+              }
+              while (oldEnd < end) {
+                  slidingAdd((int) (oldEnd - removed));
+                  oldEnd++;
+              }
+              slidingStart = start;
+              slidingEnd = end;
+            */
+
+            var numVar = mm.param(1).cast(long.class);
+            var removedVar = mm.field("removed").get();
+            var startVar = removedVar.add(mm.param(0).cast(long.class));
+            var endVar = startVar.add(numVar);
+            var posVar = mm.field("slidingStart").get();
+            var oldEndVar = mm.field("slidingEnd").get();
+
+            Label full = mm.label();
+            mm.field("summing").ifFalse(full);
+            startVar.ifLt(posVar, full);
+            endVar.ifLt(oldEndVar, full);
+            startVar.sub(posVar).add(endVar.sub(oldEndVar)).ifGe(numVar, full);
+            if (isFloat) {
+                mm.var(boxed).invoke("isFinite", mm.field("runningSum")).ifFalse(full);
+            }
+            Label cont = mm.label().goto_();
+
+            full.here();
+            mm.field("summing").set(true);
+            mm.invoke("slidingClear");
+            posVar.set(startVar);
+            oldEndVar.set(startVar);
+
+            cont.here();
+
+            makeSlidingLoop(mm, posVar, startVar, () -> {
+                mm.invoke("slidingSubtract", posVar.sub(removedVar).cast(int.class));
+            });
+
+            makeSlidingLoop(mm, oldEndVar, endVar, () -> {
+                mm.invoke("slidingAdd", oldEndVar.sub(removedVar).cast(int.class));
+            });
+
+            mm.field("slidingStart").set(startVar);
+            mm.field("slidingEnd").set(endVar);
+        }
+
+        if (!clazz.isPrimitive()) {
+            return;
+        }
+
+        {
+            MethodMaker mm = cm.addMethod
+                (boolean.class, "slidingReplaces", int.class, int.class, boolean.class)
+                .private_().final_();
+
+            /*
+              Returns true if the new value is less than or equal to the old value, or is
+              greater than or equal to it when max is true. The old value can then never
+              become the extreme value.
+            */
+
+            var newVar = mm.invoke("get", mm.param(0));
+            var oldVar = mm.invoke("get", mm.param(1));
+
+            var resultVar = mm.var(clazz);
+            mm.param(2).ifTrue(() -> resultVar.set(Arithmetic.max(type, newVar, oldVar)),
+                               () -> resultVar.set(Arithmetic.min(type, newVar, oldVar)));
+
+            // Compare the bits such that NaN and negative zero are handled correctly.
+            if (clazz == float.class) {
+                var floatVar = mm.var(Float.class);
+                mm.return_(floatVar.invoke("floatToIntBits", resultVar)
+                           .eq(floatVar.invoke("floatToIntBits", newVar)));
+            } else if (clazz == double.class) {
+                var doubleVar = mm.var(Double.class);
+                mm.return_(doubleVar.invoke("doubleToLongBits", resultVar)
+                           .eq(doubleVar.invoke("doubleToLongBits", newVar)));
+            } else {
+                mm.return_(resultVar.eq(newVar));
+            }
+        }
+
+        {
+            MethodMaker mm = cm.addMethod
+                (int.class, "slideExtreme", int.class, int.class, boolean.class)
+                .private_().final_();
+
+            /*
+              long removed = this.removed;
+              long start = removed + from;
+              long end = start + num;
+              long pos = slidingEnd;
+              long[] queue = this.queue;
+              if (queue == null) {
+                  this.queue = queue = new long[8];
+              }
+              int first = queueFirst;
+              int size = queueSize;
+              if (start < slidingStart || end < pos || pos < start) {
+                  size = 0;
+                  pos = start;
+              }
+              int mask = queue.length - 1;
+
+              // Remove positions which have left the frame.
+              while (size > 0 && queue[first] < start) {
+                  first = (first + 1) & mask;
+                  size--;
+              }
+
+              // Add positions which have entered the frame, first removing all those which
+              // can never become the extreme value.
+              while (pos < end) {
+                  int index = (int) (pos - removed);
+                  while (size > 0 && slidingReplaces
+                         (index, (int) (queue[(first + size - 1) & mask] - removed), max))
+                  {
+                      size--;
+                  }
+                  if (size >= queue.length) {
+                      this.queue = queue = growQueue(queue, first, size);
+                      mask = queue.length - 1;
+                      first = 0;
+                  }
+                  queue[(first + size) & mask] = pos;
+                  size++;
+                  pos++;
+              }
+
+              slidingStart = start;
+              slidingEnd = end;
+              queueFirst = first;
+              queueSize = size;
+
+              return (int) (queue[first] - removed);
+            */
+
+            var maxVar = mm.param(2);
+            var removedVar = mm.field("removed").get();
+            var startVar = removedVar.add(mm.param(0).cast(long.class));
+            var endVar = startVar.add(mm.param(1).cast(long.class));
+            var posVar = mm.field("slidingEnd").get();
+
+            var queueVar = mm.field("queue").get();
+            queueVar.ifEq(null, () -> {
+                queueVar.set(mm.new_(long[].class, DEFAULT_MIN_CAPACITY));
+                mm.field("queue").set(queueVar);
+            });
+
+            var firstVar = mm.field("queueFirst").get();
+            var sizeVar = mm.field("queueSize").get();
+
+            Label reset = mm.label();
+            Label cont = mm.label();
+            startVar.ifLt(mm.field("slidingStart"), reset);
+            endVar.ifLt(posVar, reset);
+            posVar.ifGe(startVar, cont);
+            reset.here();
+            sizeVar.set(0);
+            posVar.set(startVar);
+            cont.here();
+
+            var maskVar = queueVar.alength().sub(1);
+
+            {
+                Label top = mm.label().here();
+                Label done = mm.label();
+                sizeVar.ifLe(0, done);
+                queueVar.aget(firstVar).ifGe(startVar, done);
+                firstVar.set(firstVar.add(1).and(maskVar));
+                sizeVar.dec(1);
+                top.goto_();
+                done.here();
+            }
+
+            makeSlidingLoop(mm, posVar, endVar, () -> {
+                var indexVar = posVar.sub(removedVar).cast(int.class);
+
+                Label top = mm.label().here();
+                Label done = mm.label();
+                sizeVar.ifLe(0, done);
+                var lastVar = queueVar.aget(firstVar.add(sizeVar).sub(1).and(maskVar));
+                mm.invoke("slidingReplaces", indexVar,
+                          lastVar.sub(removedVar).cast(int.class), maxVar).ifFalse(done);
+                sizeVar.dec(1);
+                top.goto_();
+                done.here();
+
+                sizeVar.ifGe(queueVar.alength(), () -> {
+                    queueVar.set(mm.var(WindowBuffer.class)
+                                 .invoke("growQueue", queueVar, firstVar, sizeVar));
+                    mm.field("queue").set(queueVar);
+                    maskVar.set(queueVar.alength().sub(1));
+                    firstVar.set(0);
+                });
+
+                queueVar.aset(firstVar.add(sizeVar).and(maskVar), posVar);
+                sizeVar.inc(1);
+            });
+
+            mm.field("slidingStart").set(startVar);
+            mm.field("slidingEnd").set(endVar);
+            mm.field("queueFirst").set(firstVar);
+            mm.field("queueSize").set(sizeVar);
+
+            mm.return_(queueVar.aget(firstVar).sub(removedVar).cast(int.class));
+        }
+    }
+
+    /**
+     * Generates a loop which increments a long position variable until it reaches an end.
+     */
+    private static void makeSlidingLoop(MethodMaker mm, Variable posVar, Variable endVar,
+                                        Runnable body)
+    {
+        Label top = mm.label().here();
+        Label done = mm.label();
+        posVar.ifGe(endVar, done);
+        body.run();
+        posVar.inc(1L);
+        top.goto_();
+        done.here();
+    }
+
+    /**
+     * Adds the public sliding methods, which depend on the frame methods.
+     */
+    private static void addSlidingMethods(ClassMaker cm, Type type) {
+        Class clazz = type.clazz();
+        Class unboxed = type.unboxedType();
+        Class boxed = type.boxedType();
+
+        if (clazz == BigDecimal.class) {
+            // Subtraction can produce a different scale than a full calculation would, and so
+            // a full calculation is always performed.
+            for (String suffix : new String[] {"Sum", "Average", "AverageOrNull"}) {
+                Class resultType = suffix.equals("Sum") ? unboxed : boxed;
+                MethodMaker mm = cm.addMethod
+                    (resultType, "sliding" + suffix, long.class, long.class).public_().final_();
+                mm.return_(mm.invoke("frame" + suffix, mm.param(0), mm.param(1)));
+            }
+            return;
+        }
+
+        boolean isFloat = unboxed == float.class || unboxed == double.class;
+
+        {
+            MethodMaker mm = cm.addMethod
+                (unboxed, "slidingSum", long.class, long.class).public_().final_();
+
+            var emptyResultVar = mm.var(unboxed);
+            Arithmetic.zero(emptyResultVar);
+
+            makeFrameCode(mm, emptyResultVar, (fromVar, numVar) -> {
+                mm.invoke("slideSum", fromVar, numVar);
+                return runningSum(mm, isFloat);
+            });
+        }
+
+        {
+            Class resultType;
+            Object emptyResult;
+
+            if (clazz == float.class) {
+                resultType = clazz;
+                emptyResult = Float.NaN;
+            } else if (clazz == double.class) {
+                resultType = clazz;
+                emptyResult = Double.NaN;
+            } else {
+                resultType = boxed;
+                emptyResult = null;
+            }
+
+            MethodMaker mm = cm.addMethod
+                (resultType, "slidingAverage", long.class, long.class).public_().final_();
+
+            makeSlidingAverage(mm, type, isFloat, emptyResult);
+        }
+
+        {
+            MethodMaker mm = cm.addMethod
+                (boxed, "slidingAverageOrNull", long.class, long.class).public_().final_();
+
+            if (clazz != float.class && clazz != double.class) {
+                mm.return_(mm.invoke("slidingAverage", mm.param(0), mm.param(1)));
+            } else {
+                makeSlidingAverage(mm, type, isFloat, null);
+            }
+        }
+
+        if (clazz.isPrimitive()) {
+            makeSlidingExtreme(cm, clazz, "slidingMin", Arithmetic.max(type), false);
+            makeSlidingExtreme(cm, boxed, "slidingMinOrNull", null, false);
+            makeSlidingExtreme(cm, clazz, "slidingMax", Arithmetic.min(type), true);
+            makeSlidingExtreme(cm, boxed, "slidingMaxOrNull", null, true);
+        }
+    }
+
+    /**
+     * Makes the slidingAdd or slidingSubtract method.
+     */
+    private static void makeSlidingOp(ClassMaker cm, Type type, boolean isFloat, boolean add) {
+        Class clazz = type.clazz();
+
+        MethodMaker mm = cm.addMethod(null, add ? "slidingAdd" : "slidingSubtract", int.class)
+            .private_().final_();
+
+        var valueVar = mm.invoke("get", mm.param(0));
+
+        if (!clazz.isPrimitive()) {
+            valueVar.ifEq(null, () -> mm.return_());
+        }
+
+        var sumField = mm.field("runningSum");
+
+        if (isFloat) {
+            /*
+              <unboxed> x = add ? value : -value;
+              <unboxed> sum = runningSum;
+              <unboxed> t = sum + x;
+              if (Math.abs(sum) >= Math.abs(x)) {
+                  runningComp += (sum - t) + x;
+              } else {
+                  runningComp += (x - t) + sum;
+              }
+              runningSum = t;
+            */
+
+            var xVar = clazz.isPrimitive() ? valueVar : valueVar.unbox();
+            if (!add) {
+                xVar = xVar.neg();
+            }
+            final var fxVar = xVar;
+            var sumVar = sumField.get();
+            var tVar = sumVar.add(xVar);
+            var compField = mm.field("runningComp");
+            var mathVar = mm.var(Math.class);
+            mathVar.invoke("abs", sumVar).ifGe(mathVar.invoke("abs", xVar),
+                                               () -> compField.inc(sumVar.sub(tVar).add(fxVar)),
+                                               () -> compField.inc(fxVar.sub(tVar).add(sumVar)));
+            sumField.set(tVar);
+        } else {
+            int op = add ? Token.T_PLUS : Token.T_MINUS;
+            sumField.set(Arithmetic.eval(type, op, sumField.get(), valueVar));
+        }
+
+        if (!clazz.isPrimitive()) {
+            mm.field("runningCount").inc(add ? 1 : -1);
+        }
+    }
+
+    private static Variable runningSum(MethodMaker mm, boolean isFloat) {
+        var sumVar = mm.field("runningSum").get();
+        if (isFloat) {
+            // The compensation term is garbage when the sum isn't finite.
+            mm.var(sumVar.classType().equals(float.class) ? Float.class : Double.class)
+                .invoke("isFinite", sumVar)
+                .ifTrue(() -> sumVar.set(sumVar.add(mm.field("runningComp"))));
+        }
+        return sumVar;
+    }
+
+    /**
+     * @param mm params must be (long frameStart, long frameEnd)
+     */
+    private static void makeSlidingAverage(MethodMaker mm, Type type, boolean isFloat,
+                                           Object emptyResult)
+    {
+        makeFrameCode(mm, emptyResult, (fromVar, numVar) -> {
+            mm.invoke("slideSum", fromVar, numVar);
+            Variable countVar;
+            if (type.clazz().isPrimitive()) {
+                countVar = numVar;
+            } else {
+                countVar = mm.field("runningCount").get();
+                countVar.ifEq(0, () -> mm.return_(null));
+            }
+            return ValueBuffer.divide(mm, type, runningSum(mm, isFloat), countVar);
+        });
+    }
+
+    private static void makeSlidingExtreme(ClassMaker cm, Class resultType, String name,
+                                           Object emptyResult, boolean max)
+    {
+        MethodMaker mm = cm.addMethod(resultType, name, long.class, long.class).public_().final_();
+        makeFrameCode(mm, emptyResult, (fromVar, numVar) -> {
+            return mm.invoke("get", mm.invoke("slideExtreme", fromVar, numVar, max));
+        });
     }
 
     /**
@@ -619,6 +619,15 @@ abstract class WindowFunction extends FunctionApplier.Grouped {
         return mFrame;
     }
 
+    /**
+     * Returns true if the frame start and end are constant and are measured in rows, in which
+     * case the frame only ever moves forward. The WindowBuffer sliding methods can then be
+     * used, which perform incremental calculations.
+     */
+    protected final boolean isSlidingFrame() {
+        return mMode == MODE_ROWS && mIsStartConstant && mIsEndConstant;
+    }
+
     /**
      * Returns a suitable WindowBuffer class.
      */
@@ -23,6 +23,7 @@ import java.util.Objects;
 import java.util.Set;
 
 import org.cojen.tupl.table.ColumnInfo;
+import org.cojen.tupl.table.Limit;
 import org.cojen.tupl.table.OrderBy;
 
 /**
@@ -31,9 +32,12 @@ import org.cojen.tupl.table.OrderBy;
  * @param projection can be null if projection is all columns
  * @param orderBy can be null if none; all orderBy columns must also be in the projection
  * @param filter never null
+ * @param limit can be null if none; is applied after filtering and ordering
  * @see Parser#parseQuery
  */
-public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, RowFilter filter) {
+public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, RowFilter filter,
+                        Limit limit)
+{
     public QuerySpec {
         if (orderBy != null && orderBy.isEmpty()) {
             orderBy = null;
@@ -41,8 +45,12 @@ public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, Row
         Objects.requireNonNull(filter);
     }
 
+    public QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, RowFilter filter) {
+        this(projection, orderBy, filter, null);
+    }
+
     public QuerySpec withProjection(Map<String, ColumnInfo> proj) {
-        return proj.equals(projection) ? this : new QuerySpec(proj, orderBy, filter);
+        return proj.equals(projection) ? this : new QuerySpec(proj, orderBy, filter, limit);
     }
 
     public QuerySpec withOrderBy(OrderBy ob) {
@@ -55,7 +63,7 @@ public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, Row
         }
 
         if (ob == null || projection == null || projection.keySet().containsAll(ob.keySet())) {
-            return new QuerySpec(projection, ob, filter);
+            return new QuerySpec(projection, ob, filter, limit);
         }
 
         // Expand the projection to include the additional orderBy columns.
@@ -67,11 +75,15 @@ public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, Row
             proj.putIfAbsent(column.name, column);
         }
 
-        return new QuerySpec(proj, ob, filter);
+        return new QuerySpec(proj, ob, filter, limit);
     }
 
     public QuerySpec withFilter(RowFilter rf) {
-        return rf.equals(filter) ? this : new QuerySpec(projection, orderBy, rf);
+        return rf.equals(filter) ? this : new QuerySpec(projection, orderBy, rf, limit);
+    }
+
+    public QuerySpec withLimit(Limit lim) {
+        return Objects.equals(limit, lim) ? this : new QuerySpec(projection, orderBy, filter, lim);
     }
 
     public QuerySpec reduce() {
@@ -89,7 +101,8 @@ public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, Row
      * Returns true if the effective query is "{*}".
      */
     public boolean isFullScan() {
-        return projection == null && orderBy == null && filter == TrueFilter.THE;
+        return projection == null && orderBy == null && filter == TrueFilter.THE
+            && limit == null;
     }
 
     /**
@@ -116,6 +129,15 @@ public record QuerySpec(Map<String, ColumnInfo> projection, OrderBy orderBy, Row
 
     @Override
     public String toString() {
+        if (limit == null) {
+            return toStringNoLimit();
+        }
+        var b = new StringBuilder().append(toStringNoLimit());
+        limit.appendTo(b);
+        return b.toString();
+    }
+
+    private String toStringNoLimit() {
         Set<String> names;
 
         if (projection != null) {
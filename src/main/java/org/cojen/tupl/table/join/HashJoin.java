@@ -0,0 +1,591 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table.join;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cojen.tupl.Cursor;
+import org.cojen.tupl.Database;
+import org.cojen.tupl.Index;
+import org.cojen.tupl.Query;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Table;
+import org.cojen.tupl.Transaction;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+import org.cojen.tupl.table.EmptyScanner;
+import org.cojen.tupl.table.RowUtils;
+import org.cojen.tupl.table.SortRowCodec;
+
+/**
+ * Base class for generated hash joins, which are used by a join level when the rows of the
+ * level would otherwise be found by performing a full scan for each row of the outer levels.
+ * The rows of the level are scanned once, and they're put into a hash table which is keyed
+ * by the join column. Integral keys are put into a specialized table which doesn't box them.
+ *
+ * <p>When the number of rows exceeds a limit, all the rows are transferred to a temporary
+ * index instead, which is partitioned by the hash code of the key. Each probe then scans over
+ * just one partition. The limit is a row count, which can be set with the {@code
+ * org.cojen.tupl.join.HashJoinMaxRows} system property. It doesn't account for the size of
+ * the rows, and so a table with wide rows should be given a smaller limit.
+ *
+ * @author Brian S O'Neill
+ * @see JoinQueryLauncherMaker
+ */
+public abstract class HashJoin<R> {
+    private static final int MAX_ROWS;
+
+    static {
+        int maxRows = 1_000_000;
+        String prop = System.getProperty("org.cojen.tupl.join.HashJoinMaxRows");
+        if (prop != null) {
+            try {
+                maxRows = Integer.parseInt(prop);
+            } catch (NumberFormatException e) {
+            }
+        }
+        MAX_ROWS = maxRows;
+    }
+
+    /**
+     * Returns true if the given plan performs a full scan, in which case a hash join should be
+     * used instead.
+     */
+    public static boolean isApplicable(QueryPlan plan) {
+        while (plan instanceof QueryPlan.Filter filter) {
+            plan = filter.source;
+        }
+        return plan instanceof QueryPlan.FullScan;
+    }
+
+    /**
+     * Returns the given probe plan if a hash join isn't applicable, or else returns a plan
+     * which builds a hash table.
+     *
+     * @param expression join column compared to the probe argument
+     */
+    public static QueryPlan plan(QueryPlan probePlan, String expression,
+                                 Query<?> buildQuery, Transaction txn, Object... args)
+        throws IOException
+    {
+        if (!isApplicable(probePlan)) {
+            return probePlan;
+        }
+        return new QueryPlan.HashJoin(expression, buildQuery.scannerPlan(txn, args));
+    }
+
+    private final Table<R> mTable;
+    private final boolean mLongKeys;
+
+    // Encodes the rows of the build query, which always projects the join column.
+    private final SortRowCodec<R> mCodec;
+
+    // Is non-null when the join column isn't projected, and so it must be unset after the
+    // key has been examined. Decodes rows which were encoded by mCodec.
+    private final SortRowCodec<R> mUnsetCodec;
+
+    // Rows are linked into chains, one for each distinct key, and each chain is identified
+    // by a slot number.
+    private R[] mRows;
+    private int[] mNext;
+    private int mSize;
+
+    private int[] mHeads, mTails;
+    private int mNumSlots;
+    private int mNullSlot;
+
+    private LongTable mLongTable;
+    private HashMap<Object, Integer> mObjectTable;
+
+    private final byte[][] mKvPairs;
+
+    private Database mDatabase;
+    private Index mSpill;
+    private long mSpillCount;
+
+    /**
+     * @param table table to scan and to make new rows with
+     * @param keyColumn name of the join column
+     * @param projection columns which are projected by the join level; null if all
+     * @param longKeys true if the join column is integral
+     */
+    protected HashJoin(Table<R> table, String keyColumn, String[] projection, boolean longKeys) {
+        mTable = table;
+        mLongKeys = longKeys;
+
+        Class<?> rowType = table.rowType();
+        String orderBy = '+' + keyColumn;
+
+        if (projection == null) {
+            mCodec = SortRowCodec.find(rowType, null, orderBy);
+            mUnsetCodec = null;
+        } else {
+            Set<String> projected = new HashSet<>(Arrays.asList(projection));
+            if (projected.contains(keyColumn)) {
+                mCodec = SortRowCodec.find(rowType, projected, orderBy);
+                mUnsetCodec = null;
+            } else {
+                mUnsetCodec = SortRowCodec.find(rowType, Set.copyOf(projected), orderBy);
+                projected.add(keyColumn);
+                mCodec = SortRowCodec.find(rowType, projected, orderBy);
+            }
+        }
+
+        mKvPairs = new byte[2][];
+
+        clear();
+    }
+
+    /**
+     * Returns true if the join column of the given row is null.
+     */
+    protected abstract boolean isNull(R row);
+
+    /**
+     * Returns the join column of the given row, which isn't null. Is only called when the
+     * join column is integral.
+     */
+    protected long longKey(R row) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the join column of the given row, which isn't null. Is only called when the
+     * join column isn't integral.
+     */
+    protected Object objectKey(R row) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Scans all the rows of the given query and puts them into the hash table.
+     */
+    public final void build(Query<R> query, Transaction txn, Object... args) throws IOException {
+        build(query, MAX_ROWS, txn, args);
+    }
+
+    /**
+     * @param maxRows maximum number of rows to keep in memory
+     */
+    final void build(Query<R> query, int maxRows, Transaction txn, Object... args)
+        throws IOException
+    {
+        try (Scanner<R> s = query.newScanner(txn, args)) {
+            for (R row = s.row(); row != null; row = s.step()) {
+                if (mSpill != null) {
+                    spill(row);
+                } else {
+                    add(row);
+                    if (mSize > maxRows) {
+                        spillAll();
+                    }
+                }
+            }
+        }
+
+        if (mUnsetCodec != null && mSpill == null) {
+            // The keys are no longer needed, so unset the join column of each row.
+            R[] rows = mRows;
+            byte[][] kvPairs = mKvPairs;
+            for (int i=0; i<mSize; i++) {
+                mCodec.encode(rows[i], 0, kvPairs, 0);
+                rows[i] = mUnsetCodec.decodeRow(null, kvPairs[0], kvPairs[1]);
+            }
+        }
+    }
+
+    /**
+     * Returns a scanner over the rows whose join column matches the given key.
+     *
+     * @param row row to fill in; can be null
+     * @param key probe argument, converted to the boxed join column type; can be null
+     */
+    public final Scanner<R> newScanner(R row, Object key) throws IOException {
+        R[] matches = mSpill == null ? find(key) : findSpilled(key);
+        return matches == null ? EmptyScanner.the() : new Probe(row, matches);
+    }
+
+    /**
+     * Discards the hash table and deletes any temporary index.
+     */
+    public final void close() throws IOException {
+        clear();
+        Index spill = mSpill;
+        if (spill != null) {
+            mSpill = null;
+            mDatabase.deleteIndex(spill).run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void clear() {
+        mRows = (R[]) new Object[16];
+        mNext = new int[16];
+        mSize = 0;
+        mHeads = new int[16];
+        mTails = new int[16];
+        mNumSlots = 0;
+        mNullSlot = -1;
+        mLongTable = mLongKeys ? new LongTable() : null;
+        mObjectTable = mLongKeys ? null : new HashMap<>();
+    }
+
+    private void add(R row) {
+        int slot;
+
+        if (isNull(row)) {
+            slot = mNullSlot;
+            if (slot < 0) {
+                mNullSlot = slot = newSlot();
+            }
+        } else if (mLongKeys) {
+            slot = mLongTable.putIfAbsent(longKey(row), mNumSlots);
+            if (slot == mNumSlots) {
+                newSlot();
+            }
+        } else {
+            Integer existing = mObjectTable.putIfAbsent(objectKey(row), mNumSlots);
+            if (existing != null) {
+                slot = existing;
+            } else {
+                slot = newSlot();
+            }
+        }
+
+        int index = mSize;
+        if (index >= mRows.length) {
+            mRows = Arrays.copyOf(mRows, index << 1);
+            mNext = Arrays.copyOf(mNext, index << 1);
+        }
+        mRows[index] = row;
+        mNext[index] = -1;
+        mSize = index + 1;
+
+        int tail = mTails[slot];
+        if (tail < 0) {
+            mHeads[slot] = index;
+        } else {
+            mNext[tail] = index;
+        }
+        mTails[slot] = index;
+    }
+
+    private int newSlot() {
+        int slot = mNumSlots;
+        if (slot >= mHeads.length) {
+            mHeads = Arrays.copyOf(mHeads, slot << 1);
+            mTails = Arrays.copyOf(mTails, slot << 1);
+        }
+        mHeads[slot] = -1;
+        mTails[slot] = -1;
+        mNumSlots = slot + 1;
+        return slot;
+    }
+
+    /**
+     * @return null if none
+     */
+    @SuppressWarnings("unchecked")
+    private R[] find(Object key) {
+        int slot;
+        if (key == null) {
+            slot = mNullSlot;
+        } else if (mLongKeys) {
+            slot = mLongTable.get(toLong(key));
+        } else {
+            Integer s = mObjectTable.get(key);
+            slot = s == null ? -1 : s;
+        }
+
+        if (slot < 0) {
+            return null;
+        }
+
+        int[] next = mNext;
+
+        int count = 0;
+        for (int i = mHeads[slot]; i >= 0; i = next[i]) {
+            count++;
+        }
+
+        var matches = (R[]) new Object[count];
+        R[] rows = mRows;
+
+        count = 0;
+        for (int i = mHeads[slot]; i >= 0; i = next[i]) {
+            matches[count++] = rows[i];
+        }
+
+        return matches;
+    }
+
+    /**
+     * Transfers all the rows to a temporary index, unless no database is available.
+     */
+    private void spillAll() throws IOException {
+        Database db = RowUtils.findDatabase(mTable);
+        if (db == null) {
+            // Keep everything in memory.
+            return;
+        }
+
+        mDatabase = db;
+        mSpill = db.newTemporaryIndex();
+
+        R[] rows = mRows;
+        for (int i=0; i<mSize; i++) {
+            spill(rows[i]);
+        }
+
+        clear();
+    }
+
+    private void spill(R row) throws IOException {
+        byte[][] kvPairs = mKvPairs;
+        mCodec.encode(row, mSpillCount++, kvPairs, 0);
+
+        // Prefix the key with the partition, which is the hash code of the join column.
+        byte[] key = kvPairs[0];
+        var spillKey = new byte[4 + key.length];
+        RowUtils.encodeIntBE(spillKey, 0, rowHash(row));
+        System.arraycopy(key, 0, spillKey, 4, key.length);
+
+        mSpill.store(Transaction.BOGUS, spillKey, kvPairs[1]);
+    }
+
+    /**
+     * @return null if none
+     */
+    @SuppressWarnings("unchecked")
+    private R[] findSpilled(Object key) throws IOException {
+        var prefix = new byte[4];
+        RowUtils.encodeIntBE(prefix, 0, keyHash(key));
+
+        var matches = new ArrayList<R>();
+
+        try (Cursor c = mSpill.viewPrefix(prefix, 4).newCursor(Transaction.BOGUS)) {
+            for (c.first(); c.key() != null; c.next()) {
+                R row = mCodec.decodeRow(null, c.key(), c.value());
+                // Check the key, since other keys can have the same hash code.
+                if (key == null ? isNull(row) : (!isNull(row) && matches(row, key))) {
+                    if (mUnsetCodec != null) {
+                        row = mUnsetCodec.decodeRow(null, c.key(), c.value());
+                    }
+                    matches.add(row);
+                }
+            }
+        }
+
+        return matches.isEmpty() ? null : (R[]) matches.toArray();
+    }
+
+    private boolean matches(R row, Object key) {
+        if (mLongKeys) {
+            return longKey(row) == toLong(key);
+        } else {
+            return objectKey(row).equals(key);
+        }
+    }
+
+    private int rowHash(R row) {
+        if (isNull(row)) {
+            return 0;
+        } else if (mLongKeys) {
+            return LongTable.hash(longKey(row));
+        } else {
+            return objectKey(row).hashCode();
+        }
+    }
+
+    private int keyHash(Object key) {
+        if (key == null) {
+            return 0;
+        } else if (mLongKeys) {
+            return LongTable.hash(toLong(key));
+        } else {
+            return key.hashCode();
+        }
+    }
+
+    /**
+     * Converts a probe argument to a long key. The argument has already been converted to the
+     * boxed join column type.
+     */
+    private static long toLong(Object key) {
+        return key instanceof Character c ? c : ((Number) key).longValue();
+    }
+
+    private R copy(R from, R dst) {
+        if (dst == null) {
+            dst = mTable.newRow();
+        }
+        mTable.copyRow(from, dst);
+        return dst;
+    }
+
+    /**
+     * Scans over the rows which matched a probe. Rows from the hash table are always copied,
+     * since they're shared by all probes.
+     */
+    private final class Probe implements Scanner<R> {
+        private R[] mMatches;
+        private int mPosition;
+        private R mRow;
+
+        Probe(R dst, R[] matches) {
+            mMatches = matches;
+            mRow = copy(matches[0], dst);
+        }
+
+        @Override
+        public R row() {
+            return mRow;
+        }
+
+        @Override
+        public R step(R dst) {
+            R[] matches = mMatches;
+            if (matches != null) {
+                int pos = mPosition + 1;
+                if (pos < matches.length) {
+                    mPosition = pos;
+                    return mRow = copy(matches[pos], dst);
+                }
+                close();
+            }
+            return null;
+        }
+
+        @Override
+        public void close() {
+            mMatches = null;
+            mRow = null;
+        }
+
+        @Override
+        public long estimateSize() {
+            R[] matches = mMatches;
+            return matches == null ? 0 : (matches.length - mPosition);
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | ORDERED | IMMUTABLE | SIZED;
+        }
+    }
+
+    /**
+     * Maps long keys to slots, using open addressing and linear probing.
+     */
+    static final class LongTable {
+        private long[] mKeys;
+        // Slot numbers are stored plus one, and zero means that the entry is empty.
+        private int[] mSlots;
+        private int mSize;
+
+        LongTable() {
+            mKeys = new long[16];
+            mSlots = new int[16];
+        }
+
+        static int hash(long key) {
+            long h = key * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * Returns the slot for the given key, or -1 if not found.
+         */
+        int get(long key) {
+            long[] keys = mKeys;
+            int[] slots = mSlots;
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+                int slot = slots[i];
+                if (slot == 0) {
+                    return -1;
+                }
+                if (keys[i] == key) {
+                    return slot - 1;
+                }
+            }
+        }
+
+        /**
+         * Returns the existing slot for the given key, or else puts the given slot and
+         * returns it.
+         */
+        int putIfAbsent(long key, int slot) {
+            long[] keys = mKeys;
+            int[] slots = mSlots;
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (true) {
+                int existing = slots[i];
+                if (existing == 0) {
+                    break;
+                }
+                if (keys[i] == key) {
+                    return existing - 1;
+                }
+                i = (i + 1) & mask;
+            }
+
+            keys[i] = key;
+            slots[i] = slot + 1;
+
+            if (++mSize >= (keys.length >> 1) + (keys.length >> 2)) {
+                grow();
+            }
+
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = mKeys;
+            int[] oldSlots = mSlots;
+
+            var keys = new long[oldKeys.length << 1];
+            var slots = new int[keys.length];
+            int mask = keys.length - 1;
+
+            for (int j=0; j<oldKeys.length; j++) {
+                int slot = oldSlots[j];
+                if (slot != 0) {
+                    long key = oldKeys[j];
+                    int i = hash(key) & mask;
+                    while (slots[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = key;
+                    slots[i] = slot;
+                }
+            }
+
+            mKeys = keys;
+            mSlots = slots;
+        }
+    }
+}
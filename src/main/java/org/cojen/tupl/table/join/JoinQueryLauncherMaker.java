@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.cojen.maker.ClassMaker;
@@ -54,6 +55,7 @@ import org.cojen.tupl.table.WeakCache;
 
 import org.cojen.tupl.table.expr.Parser;
 
+import org.cojen.tupl.table.filter.ColumnToArgFilter;
 import org.cojen.tupl.table.filter.FalseFilter;
 import org.cojen.tupl.table.filter.QuerySpec;
 import org.cojen.tupl.table.filter.RowFilter;
@@ -122,6 +124,8 @@ final class JoinQueryLauncherMaker {
     private JoinPlanner mPlanner;
     private ClassMaker mScannerMaker;
     private Map<String, Map<QuerySpec, MethodMaker>> mQueryMethods;
+    private Map<String, JoinScannerMaker.HashTerm> mHashTerms;
+    private Map<String, JoinScannerMaker.MergeTerm> mMergeTerms;
     private ClassMaker mClassMaker;
     private JoinSpec.Source[] mSources;
 
@@ -146,10 +150,14 @@ final class JoinQueryLauncherMaker {
             .extend(JoinQueryLauncher.class).public_().final_();
 
         mQueryMethods = new LinkedHashMap<>();
+        mHashTerms = new LinkedHashMap<>();
+        mMergeTerms = new LinkedHashMap<>();
         mScannerMaker = scannerMaker.classMaker();
-        scannerMaker.finish(mClassMaker, mQueryMethods);
+        scannerMaker.finish(mClassMaker, mQueryMethods, mHashTerms, mMergeTerms);
 
         addConstructorAndQueryMethods();
+        addHashJoinMethods(scannerMaker);
+        addMergeJoinMethods();
 
         addNewScannerMethod();
         addScanWriteMethod();
@@ -197,7 +205,7 @@ final class JoinQueryLauncherMaker {
 
             var tableVar = tablesVar.aget(arrayIndexes.get(sourceName));
 
-            if (methods.size() == 1) {
+            if (methods.size() == 1 && !mHashTerms.containsKey(sourceName)) {
                 // The Table field isn't needed if all Query instances are eagerly assigned.
             } else {
                 mClassMaker.addField(Table.class, sourceName).private_().final_();
@@ -246,6 +254,114 @@ final class JoinQueryLauncherMaker {
         }
     }
 
+    /**
+     * For each source which can be hash joined, defines a HashJoin subclass, a method which
+     * returns the Query for building the hash table, and a method which returns a new
+     * HashJoin instance if applicable.
+     */
+    private void addHashJoinMethods(JoinScannerMaker scannerMaker) {
+        for (var e : mHashTerms.entrySet()) {
+            String sourceName = e.getKey();
+            JoinScannerMaker.HashTerm hashTerm = e.getValue();
+
+            Class<?> hashClass = makeHashJoinClass(scannerMaker, hashTerm);
+
+            String buildMethod = sourceName + "_hq";
+
+            {
+                mClassMaker.addField(Query.class, buildMethod).private_();
+                MethodMaker mm = mClassMaker.addMethod(Query.class, buildMethod).private_();
+                var fieldVar = mm.field(buildMethod);
+                var queryVar = fieldVar.get();
+                queryVar.ifEq(null, () -> {
+                    queryVar.set(obtainQuery(mm.field(sourceName), hashTerm.build()));
+                    fieldVar.set(queryVar);
+                });
+                mm.return_(queryVar);
+            }
+
+            MethodMaker mm = hashTerm.method();
+
+            var txnVar = mm.param(0);
+            var argsVar = mm.param(1);
+
+            var planVar = mm.invoke(hashTerm.probeMethod()).invoke("scannerPlan", txnVar, argsVar);
+            Label applicable = mm.label();
+            mm.var(HashJoin.class).invoke("isApplicable", planVar).ifTrue(applicable);
+            mm.return_(null);
+            applicable.here();
+
+            var hashJoinVar = mm.new_(hashClass, mm.field(sourceName));
+            hashJoinVar.invoke("build", mm.invoke(buildMethod), txnVar, argsVar);
+            mm.return_(hashJoinVar);
+        }
+    }
+
+    /**
+     * For each source which can be merge joined, implements a method which returns a new
+     * MergeJoin instance if applicable.
+     */
+    private void addMergeJoinMethods() {
+        for (JoinScannerMaker.MergeTerm mergeTerm : mMergeTerms.values()) {
+            MethodMaker mm = mergeTerm.method();
+            mm.return_(mm.var(MergeJoin.class).invoke
+                       ("open", mm.invoke(mergeTerm.probeMethod()),
+                        mergeTerm.term().column().name, mm.param(0), mm.param(1)));
+        }
+    }
+
+    private static Class<?> makeHashJoinClass(JoinScannerMaker scannerMaker,
+                                              JoinScannerMaker.HashTerm hashTerm)
+    {
+        ClassMaker cm = scannerMaker.anotherClassMaker(JoinQueryLauncherMaker.class, "hash")
+            .extend(HashJoin.class).public_().final_();
+
+        ColumnInfo column = hashTerm.term().column();
+        Class<?> rowType = hashTerm.rowType();
+
+        {
+            MethodMaker mm = cm.addConstructor(Table.class).public_();
+
+            var projectionVar = mm.var(String[].class);
+            Set<String> projection = hashTerm.projection();
+            if (projection == null) {
+                projectionVar.set(null);
+            } else {
+                projectionVar.set(mm.new_(String[].class, projection.size()));
+                int i = 0;
+                for (String name : projection) {
+                    projectionVar.aset(i++, name);
+                }
+            }
+
+            mm.invokeSuperConstructor(mm.param(0), column.name, projectionVar,
+                                      hashTerm.longKeys());
+        }
+
+        {
+            MethodMaker mm = cm.addMethod(boolean.class, "isNull", Object.class).protected_();
+            if (column.isNullable()) {
+                mm.return_(mm.param(0).cast(rowType).invoke(column.name).eq(null));
+            } else {
+                mm.return_(false);
+            }
+        }
+
+        if (hashTerm.longKeys()) {
+            MethodMaker mm = cm.addMethod(long.class, "longKey", Object.class).protected_();
+            var keyVar = mm.param(0).cast(rowType).invoke(column.name);
+            if (column.isNullable()) {
+                keyVar = keyVar.unbox();
+            }
+            mm.return_(keyVar.cast(long.class));
+        } else {
+            MethodMaker mm = cm.addMethod(Object.class, "objectKey", Object.class).protected_();
+            mm.return_(mm.param(0).cast(rowType).invoke(column.name));
+        }
+
+        return cm.finish();
+    }
+
     private static Variable obtainQuery(Variable tableVar, QuerySpec spec) {
         if (spec.isFullScan()) {
             return tableVar.invoke("queryAll");
@@ -422,6 +538,22 @@ final class JoinQueryLauncherMaker {
             var txnVar = mm.param(0);
             var argsVar = mm.param(1);
             subPlanVar = mm.invoke(queryMethodFor(node)).invoke("scannerPlan", txnVar, argsVar);
+
+            JoinScannerMaker.MergeTerm mergeTerm = mMergeTerms.get(node.name());
+            if (mergeTerm != null) {
+                ColumnToArgFilter term = mergeTerm.term();
+                subPlanVar.set(mm.var(MergeJoin.class).invoke
+                               ("plan", subPlanVar, term.column().name, term.toString(),
+                                mm.invoke(mergeTerm.probeMethod()), txnVar));
+            }
+
+            JoinScannerMaker.HashTerm hashTerm = mHashTerms.get(node.name());
+            if (hashTerm != null) {
+                String expression = hashTerm.term().toString();
+                subPlanVar.set(mm.var(HashJoin.class).invoke
+                               ("plan", subPlanVar, expression,
+                                mm.invoke(node.name() + "_hq"), txnVar, argsVar));
+            }
         }
 
         final RowFilter remainder = node.remainder();
@@ -17,6 +17,8 @@
 
 package org.cojen.tupl.table.join;
 
+import java.io.IOException;
+
 import org.cojen.tupl.Scanner;
 
 import org.cojen.tupl.io.Utils;
@@ -38,6 +40,13 @@ public abstract class JoinScanner<J> implements Scanner<J> {
         return Long.MAX_VALUE;
     }
 
+    /**
+     * Is called by the close method, and it's overridden when any join levels are hash joined
+     * or merge joined.
+     */
+    protected void closeJoins() throws IOException {
+    }
+
     /**
      * @param cause required
      */
@@ -20,8 +20,10 @@ package org.cojen.tupl.table.join;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import java.util.function.IntUnaryOperator;
 
@@ -36,12 +38,15 @@ import org.cojen.tupl.Scanner;
 import org.cojen.tupl.Transaction;
 
 import org.cojen.tupl.table.ColumnInfo;
+import org.cojen.tupl.table.ConvertCallSite;
 import org.cojen.tupl.table.EmptyScanner;
 import org.cojen.tupl.table.RowGen;
 import org.cojen.tupl.table.RowInfo;
 import org.cojen.tupl.table.RowMaker;
 import org.cojen.tupl.table.WeakCache;
 
+import org.cojen.tupl.table.filter.AndFilter;
+import org.cojen.tupl.table.filter.ColumnFilter;
 import org.cojen.tupl.table.filter.ColumnToArgFilter;
 import org.cojen.tupl.table.filter.ColumnToColumnFilter;
 import org.cojen.tupl.table.filter.FalseFilter;
@@ -101,6 +106,8 @@ final class JoinScannerMaker {
 
     private ClassMaker mLauncherMaker;
     private Map<String, Map<QuerySpec, MethodMaker>> mQueryMethods;
+    private Map<String, HashTerm> mHashTerms;
+    private Map<String, MergeTerm> mMergeTerms;
 
     private MethodMaker mCtorMaker;
 
@@ -175,15 +182,23 @@ final class JoinScannerMaker {
      * methods. The first QuerySpec in the sub maps is the full one, which is used when no
      * arguments are null.
      *
+     * <p>Likewise, hash join and merge join methods are defined for the sources which can be
+     * hash joined or merge joined.
+     *
      * @param launcherMaker class being made by JoinQueryLauncherMaker
      * @param queryMethods maps source names to required query methods
+     * @param hashTerms maps source names to hash terms, which is filled in by this method
+     * @param mergeTerms maps source names to merge terms, which is filled in by this method
      * @see JoinScanner
      */
     Class<?> finish(ClassMaker launcherMaker,
-                    Map<String, Map<QuerySpec, MethodMaker>> queryMethods)
+                    Map<String, Map<QuerySpec, MethodMaker>> queryMethods,
+                    Map<String, HashTerm> hashTerms, Map<String, MergeTerm> mergeTerms)
     {
         mLauncherMaker = launcherMaker;
         mQueryMethods = queryMethods;
+        mHashTerms = hashTerms;
+        mMergeTerms = mergeTerms;
 
         buildProjectionMap();
 
@@ -211,6 +226,7 @@ final class JoinScannerMaker {
         });
 
         addLoopMethod();
+        addCloseJoinsMethod();
 
         // Call this after defining the loop method because it might have added more code into
         // constructor which must run before the super class constructor.
@@ -399,6 +415,198 @@ final class JoinScannerMaker {
         }).name();
     }
 
+    /**
+     * Describes a join level which can be hash joined instead of performing a full scan for
+     * each row of the outer levels.
+     *
+     * @param rowType row type of the join level
+     * @param term join column compared to the probe argument
+     * @param probeMethod name of the query method which is used when not hash joining
+     * @param build query which scans all the rows for the hash table
+     * @param projection columns projected by the join level; is null if all
+     * @param method launcher method to implement, which returns a HashJoin or null
+     */
+    record HashTerm(Class<?> rowType, ColumnToArgFilter term, String probeMethod,
+                    QuerySpec build, Set<String> projection, MethodMaker method) {
+        /**
+         * Returns true if the join column is integral, and so the hash table can be keyed
+         * by primitive long values.
+         */
+        boolean longKeys() {
+            return isLongKey(term.column().unboxedType());
+        }
+
+        private static boolean isLongKey(Class<?> type) {
+            return type == long.class || type == int.class || type == short.class
+                || type == byte.class || type == char.class;
+        }
+
+        static boolean isSupported(ColumnInfo column) {
+            return isLongKey(column.unboxedType()) || column.type == String.class;
+        }
+    }
+
+    /**
+     * Returns a HashTerm if the given source can be hash joined, which requires that exactly
+     * one filter term depends on the outer levels, and it must be an equality comparison.
+     *
+     * @param filter source filter with only positive arguments
+     * @param probe query spec which is used when not hash joining
+     * @return null if not applicable
+     */
+    private HashTerm hashTermFor(JoinSpec.Source source, RowFilter filter, QuerySpec probe) {
+        if (!(source instanceof JoinSpec.Column)) {
+            return null;
+        }
+
+        Map<String, JoinSpec.Source> argSources = source.argSources();
+        if (argSources == null || argSources.isEmpty()) {
+            return null;
+        }
+
+        // Arguments which are assigned by the outer levels.
+        Set<Integer> joinArgs = new HashSet<>();
+        for (JoinSpec.Source argSource : argSources.values()) {
+            Map<Integer, ColumnInfo> assignments = argSource.argAssignments();
+            if (assignments != null) {
+                for (Integer argNum : assignments.keySet()) {
+                    joinArgs.add(Math.abs(argNum));
+                }
+            }
+        }
+
+        RowFilter[] terms;
+        if (filter instanceof AndFilter af) {
+            terms = af.subFilters();
+        } else if (filter instanceof ColumnFilter) {
+            terms = new RowFilter[] {filter};
+        } else {
+            return null;
+        }
+
+        ColumnToArgFilter hashTerm = null;
+        RowFilter build = TrueFilter.THE;
+
+        for (RowFilter term : terms) {
+            if (!(term instanceof ColumnFilter)) {
+                return null;
+            }
+            if (term instanceof ColumnToArgFilter c2a && joinArgs.contains(c2a.argument())) {
+                if (hashTerm != null || c2a.operator() != ColumnFilter.OP_EQ) {
+                    return null;
+                }
+                ColumnInfo column = c2a.column();
+                if (column.prefix() != null || !HashTerm.isSupported(column)) {
+                    return null;
+                }
+                hashTerm = c2a;
+            } else {
+                build = build.and(term);
+            }
+        }
+
+        if (hashTerm == null) {
+            return null;
+        }
+
+        QuerySpec buildSpec = querySpecFor(source, build);
+
+        Map<String, ColumnInfo> projection = buildSpec.projection();
+        if (projection != null) {
+            // The join column is always needed to build the hash table.
+            var buildProjection = new LinkedHashMap<String, ColumnInfo>(projection);
+            buildProjection.put(hashTerm.column().name, hashTerm.column());
+            buildSpec = buildSpec.withProjection(buildProjection);
+        }
+
+        Class<?> rowType = ((JoinSpec.Column) source).column().type;
+
+        MethodMaker method = mLauncherMaker.addMethod
+            (HashJoin.class, source.name() + "_hash", Transaction.class, Object[].class);
+
+        return new HashTerm(rowType, hashTerm, queryMethodFor(source, probe), buildSpec,
+                            projection == null ? null : projection.keySet(), method);
+    }
+
+    /**
+     * Describes a join level which can be merge joined instead of starting a new range scan
+     * for each row of the outer level.
+     *
+     * @param term join column compared to the probe argument
+     * @param probeMethod name of the query method which finds the matching rows
+     * @param method launcher method to implement, which returns a MergeJoin or null
+     */
+    record MergeTerm(ColumnToArgFilter term, String probeMethod, MethodMaker method) { }
+
+    /**
+     * Returns a MergeTerm if the given source can be merge joined, which requires that the
+     * join column is the first primary key column, and that it's compared for equality to an
+     * argument assigned from the first primary key column of an outer level. The key columns
+     * must also be ordered in the same direction.
+     *
+     * @param filter source filter with only positive arguments
+     * @param probe query spec which finds the matching rows
+     * @return null if not applicable
+     */
+    private MergeTerm mergeTermFor(JoinSpec.Source source, RowFilter filter, QuerySpec probe) {
+        if (!(source instanceof JoinSpec.Column column)) {
+            return null;
+        }
+
+        ColumnInfo firstKey = firstKeyColumn(column);
+        if (firstKey == null) {
+            return null;
+        }
+
+        Map<String, JoinSpec.Source> argSources = source.argSources();
+        if (argSources == null || argSources.isEmpty()) {
+            return null;
+        }
+
+        // Arguments which are assigned from the first key column of an outer level.
+        Set<Integer> joinArgs = new HashSet<>();
+        for (JoinSpec.Source argSource : argSources.values()) {
+            Map<Integer, ColumnInfo> assignments = argSource.argAssignments();
+            if (assignments == null || !(argSource instanceof JoinSpec.Column outer)) {
+                continue;
+            }
+            ColumnInfo outerKey = firstKeyColumn(outer);
+            if (outerKey == null || outerKey.isDescending() != firstKey.isDescending()) {
+                continue;
+            }
+            for (Map.Entry<Integer, ColumnInfo> e : assignments.entrySet()) {
+                if (outerKey.name.equals(e.getValue().tail().name)) {
+                    joinArgs.add(Math.abs(e.getKey()));
+                }
+            }
+        }
+
+        RowFilter[] terms;
+        if (filter instanceof AndFilter af) {
+            terms = af.subFilters();
+        } else {
+            terms = new RowFilter[] {filter};
+        }
+
+        for (RowFilter term : terms) {
+            if (term instanceof ColumnToArgFilter c2a && joinArgs.contains(c2a.argument())
+                && c2a.operator() == ColumnFilter.OP_EQ
+                && firstKey.name.equals(c2a.column().name))
+            {
+                MethodMaker method = mLauncherMaker.addMethod
+                    (MergeJoin.class, source.name() + "_merge", Transaction.class, Object[].class);
+                return new MergeTerm(c2a, queryMethodFor(source, probe), method);
+            }
+        }
+
+        return null;
+    }
+
+    private static ColumnInfo firstKeyColumn(JoinSpec.Column column) {
+        Map<String, ColumnInfo> keyColumns = RowInfo.find(column.column().type).keyColumns;
+        return keyColumns.isEmpty() ? null : keyColumns.values().iterator().next();
+    }
+
     /**
      * Add the public row method and the bridge.
      */
@@ -465,6 +673,37 @@ final class JoinScannerMaker {
         MethodMaker mm = mClassMaker.addMethod(null, "close").public_().final_();
         mm.field("row").set(null);
         closeAll(mm, mSpec.root());
+        mm.invoke("closeJoins");
+    }
+
+    /**
+     * Overrides the closeJoins method if any hash join or merge join fields were defined by
+     * the ScannerMaker.
+     */
+    private void addCloseJoinsMethod() {
+        if (mHashTerms.isEmpty() && mMergeTerms.isEmpty()) {
+            return;
+        }
+
+        MethodMaker mm = mClassMaker.addMethod(null, "closeJoins").protected_();
+
+        for (String name : mHashTerms.keySet()) {
+            closeJoin(mm, name + "_hj");
+        }
+
+        for (String name : mMergeTerms.keySet()) {
+            closeJoin(mm, name + "_mj");
+        }
+    }
+
+    private static void closeJoin(MethodMaker mm, String fieldName) {
+        var fieldVar = mm.field(fieldName);
+        var joinVar = fieldVar.get();
+        Label next = mm.label();
+        joinVar.ifEq(null, next);
+        fieldVar.set(null);
+        joinVar.invoke("close");
+        next.here();
     }
 
     /**
@@ -1181,10 +1420,89 @@ final class JoinScannerMaker {
                 }
             }
 
+            if (filter == mFilter) {
+                // Only the branch which has no null arguments can be merge or hash joined.
+                MergeTerm mergeTerm = mergeTermFor(mSource, filter, spec);
+                if (mergeTerm != null) {
+                    makeMergeProbe(mergeTerm);
+                }
+                HashTerm hashTerm = hashTermFor(mSource, filter, spec);
+                if (hashTerm != null) {
+                    makeHashProbe(hashTerm);
+                }
+            }
+
             mMethodMaker.return_(mLauncherVar.invoke(queryMethod).invoke
                                  ("newScanner", levelRowVar(), mTxnVar, mArgsVar));
         }
 
+        /**
+         * Generates code which returns a scanner from a hash join. The hash join is created
+         * when first needed, but only if the query would perform a full scan. Otherwise, the
+         * code falls through.
+         */
+        private void makeHashProbe(HashTerm hashTerm) {
+            String name = mSource.name();
+            mHashTerms.put(name, hashTerm);
+
+            String fieldName = name + "_hj";
+            mClassMaker.addField(HashJoin.class, fieldName).private_();
+            mClassMaker.addField(boolean.class, name + "_hjc").private_();
+
+            String methodName = hashTerm.method().name();
+
+            MethodMaker mm = mMethodMaker;
+
+            var checkedField = mm.field(name + "_hjc");
+            Label checked = mm.label();
+            checkedField.ifTrue(checked);
+            checkedField.set(true);
+            mm.field(fieldName).set(mLauncherVar.invoke(methodName, mTxnVar, mArgsVar));
+            checked.here();
+
+            var hashJoinVar = mm.field(fieldName).get();
+            Label notHashed = mm.label();
+            hashJoinVar.ifEq(null, notHashed);
+            // Convert the probe argument to the join column type, just like the predicate
+            // of the query would. The hash join requires that the types exactly match.
+            ColumnToArgFilter term = hashTerm.term();
+            var keyVar = ConvertCallSite.make(mm, term.column().boxedType(),
+                                              mArgsVar.aget(term.argument() - 1));
+            mm.return_(hashJoinVar.invoke("newScanner", levelRowVar(), keyVar));
+            notHashed.here();
+        }
+
+        /**
+         * Generates code which returns a scanner from a merge join. The merge join is created
+         * when first needed, but only if the query would perform a range scan over the
+         * primary key. Otherwise, the code falls through.
+         */
+        private void makeMergeProbe(MergeTerm mergeTerm) {
+            String name = mSource.name();
+            mMergeTerms.put(name, mergeTerm);
+
+            String fieldName = name + "_mj";
+            mClassMaker.addField(MergeJoin.class, fieldName).private_();
+            mClassMaker.addField(boolean.class, name + "_mjc").private_();
+
+            String methodName = mergeTerm.method().name();
+
+            MethodMaker mm = mMethodMaker;
+
+            var checkedField = mm.field(name + "_mjc");
+            Label checked = mm.label();
+            checkedField.ifTrue(checked);
+            checkedField.set(true);
+            mm.field(fieldName).set(mLauncherVar.invoke(methodName, mTxnVar, mArgsVar));
+            checked.here();
+
+            var mergeJoinVar = mm.field(fieldName).get();
+            Label notMerged = mm.label();
+            mergeJoinVar.ifEq(null, notMerged);
+            mm.return_(mergeJoinVar.invoke("newScanner", levelRowVar(), mArgsVar));
+            notMerged.here();
+        }
+
         private Variable levelRowVar() {
             if (mSource instanceof JoinSpec.Column c) {
                 return mJoinRowVar.invoke(c.name());
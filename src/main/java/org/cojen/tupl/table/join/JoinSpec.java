@@ -29,6 +29,7 @@ import org.cojen.tupl.Table;
 
 import org.cojen.tupl.table.AggregatedTable;
 import org.cojen.tupl.table.ColumnInfo;
+import org.cojen.tupl.table.IndexStatistics;
 import org.cojen.tupl.table.RowInfo;
 import org.cojen.tupl.table.RowUtils;
 import org.cojen.tupl.table.SimpleParser;
@@ -873,6 +874,9 @@ public final class JoinSpec {
 
         private long mFilterScore;
 
+        // Estimated number of rows in the table, or -1 if unknown.
+        private long mRowCount = -1;
+
         PlannedColumn(Column column) {
             super(column.mTable, column.mColumn, column.mDefined, column.mNullable);
         }
@@ -894,6 +898,8 @@ public final class JoinSpec {
             }
 
             mFilterScore = fs.calculate(mFilter, available);
+
+            mRowCount = IndexStatistics.estimateRowCount(table());
         }
 
         @Override
@@ -935,6 +941,19 @@ public final class JoinSpec {
                 return -1;
             }
 
+            // If the statistics show that one table is much smaller than the other, then it
+            // should be first in the join order. Small tables aren't considered, since the
+            // order doesn't matter much.
+            long count1 = mRowCount;
+            long count2 = planned.mRowCount;
+            if (count1 >= 0 && count2 >= 0 && Math.max(count1, count2) >= 1000) {
+                if (count1 * 2 <= count2) {
+                    return 1;
+                } else if (count2 * 2 <= count1) {
+                    return -1;
+                }
+            }
+
             return cmp;
         }
 
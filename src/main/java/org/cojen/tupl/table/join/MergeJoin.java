@@ -0,0 +1,163 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table.join;
+
+import java.io.IOException;
+
+import org.cojen.tupl.Query;
+import org.cojen.tupl.Scanner;
+import org.cojen.tupl.Transaction;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+import org.cojen.tupl.table.QueryLauncher;
+import org.cojen.tupl.table.SeekScanner;
+
+/**
+ * Used by a join level when the outer level and the join level are both ordered by the join
+ * column, which is the first primary key column of each. Instead of starting a new range scan
+ * for each row of the outer level, a single cursor advances over the join level in lockstep
+ * with the outer level, skipping ahead using findNearby. If the outer rows aren't actually
+ * in order, the results are still correct, but the cursor might need to move backwards.
+ *
+ * @author Brian S O'Neill
+ * @see JoinQueryLauncherMaker
+ */
+public final class MergeJoin<R> {
+    /**
+     * Returns true if the given plan performs a forward range scan over the primary key, and
+     * the join column is the first key column.
+     *
+     * @param column name of the join column
+     */
+    public static boolean isApplicable(QueryPlan plan, String column) {
+        while (plan instanceof QueryPlan.Filter filter) {
+            plan = filter.source;
+        }
+        if (plan instanceof QueryPlan.RangeScan scan && !scan.reverse
+            && "primary key".equals(scan.which) && scan.keyColumns.length != 0)
+        {
+            return scan.keyColumns[0].substring(1).equals(column);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the given probe plan if a merge join isn't applicable, or else returns a plan
+     * which merges with it.
+     *
+     * @param column name of the join column
+     * @param expression join column compared to the probe argument
+     */
+    public static QueryPlan plan(QueryPlan probePlan, String column, String expression,
+                                 Query<?> probeQuery, Transaction txn)
+    {
+        if (!isApplicable(probePlan, column) || !isSupported(probeQuery, txn)) {
+            return probePlan;
+        }
+        return new QueryPlan.MergeJoin(expression, probePlan);
+    }
+
+    /**
+     * Returns a new MergeJoin if applicable, or else returns null.
+     *
+     * @param probeQuery query which finds the rows which match the outer row
+     * @param column name of the join column
+     * @param args arguments for the first outer row
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> MergeJoin<R> open(Query<R> probeQuery, String column,
+                                        Transaction txn, Object... args)
+        throws IOException
+    {
+        if (!isSupported(probeQuery, txn)
+            || !isApplicable(probeQuery.scannerPlan(txn, args), column))
+        {
+            return null;
+        }
+        SeekScanner<R> scanner = ((QueryLauncher<R>) probeQuery).newSeekScanner(txn);
+        return scanner == null ? null : new MergeJoin<>(scanner);
+    }
+
+    private static boolean isSupported(Query<?> probeQuery, Transaction txn) {
+        return probeQuery instanceof QueryLauncher
+            && (txn == null || txn.lockMode().noReadLock);
+    }
+
+    private final SeekScanner<R> mScanner;
+
+    private MergeJoin(SeekScanner<R> scanner) {
+        mScanner = scanner;
+    }
+
+    /**
+     * Returns a scanner over the rows which match the given probe query arguments. The
+     * scanner is invalid once this method is called again.
+     *
+     * @param row initial row; can be null
+     */
+    public Scanner<R> newScanner(R row, Object... args) throws IOException {
+        return new Probe<>(mScanner, mScanner.seek(row, args));
+    }
+
+    public void close() throws IOException {
+        mScanner.close();
+    }
+
+    /**
+     * Scans the current range of the SeekScanner, but closing it has no effect on the
+     * SeekScanner.
+     */
+    private static final class Probe<R> implements Scanner<R> {
+        private final SeekScanner<R> mScanner;
+        private R mRow;
+
+        Probe(SeekScanner<R> scanner, R row) {
+            mScanner = scanner;
+            mRow = row;
+        }
+
+        @Override
+        public R row() {
+            return mRow;
+        }
+
+        @Override
+        public R step(R row) throws IOException {
+            if (mRow == null) {
+                return null;
+            }
+            return mRow = mScanner.step(row);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return mScanner.characteristics();
+        }
+
+        @Override
+        public void close() {
+            mRow = null;
+        }
+    }
+}
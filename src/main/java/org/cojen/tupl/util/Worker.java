@@ -57,7 +57,8 @@ public class Worker {
         return new Worker(maxSize, keepAliveTime, unit, threadFactory);
     }
 
-    static final VarHandle cSizeHandle, cFirstHandle, cLastHandle, cStateHandle, cThreadHandle;
+    static final VarHandle cSizeHandle, cFirstHandle, cLastHandle, cStateHandle, cThreadHandle,
+        cCompletedHandle;
 
     static {
         try {
@@ -71,6 +72,7 @@ public class Worker {
             cLastHandle = lookup.findVarHandle(Worker.class, "mLast", Task.class);
             cStateHandle = lookup.findVarHandle(Worker.class, "mThreadState", int.class);
             cThreadHandle = lookup.findVarHandle(Worker.class, "mThread", Thread.class);
+            cCompletedHandle = lookup.findVarHandle(Worker.class, "mCompleted", long.class);
         } catch (Throwable e) {
             throw Utils.rethrow(e);
         }
@@ -95,6 +97,9 @@ public class Worker {
 
     private Thread mWaiter;
 
+    // Is only updated by the worker thread.
+    private long mCompleted;
+
     private Worker(int maxSize, long keepAliveTime, TimeUnit unit, ThreadFactory threadFactory) {
         mThreadFactory = threadFactory;
 
@@ -229,6 +234,22 @@ public class Worker {
         mWaiter = null;
     }
 
+    /**
+     * Returns the number of tasks which are enqueued or running. This method can be safely
+     * called by any thread, but the value is only a snapshot.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the total number of tasks which have finished running. This method can be
+     * safely called by any thread, but the value is only a snapshot.
+     */
+    public long completedCount() {
+        return (long) cCompletedHandle.getOpaque(this);
+    }
+
     /**
      * Interrupt the worker thread, if it exists. If the worker thread is idle, this forces it
      * to exit, but a new thread is started when new tasks are enqueued. This method can be
@@ -281,6 +302,8 @@ public class Worker {
                     Utils.uncaught(e);
                 }
 
+                cCompletedHandle.setOpaque(this, mCompleted + 1);
+
                 size = ((int) cSizeHandle.getAndAdd(this, -1)) - 1;
 
                 if (mThreadState == THREAD_BLOCKED) {
@@ -88,6 +88,30 @@ public abstract class WorkerGroup {
      */
     public abstract Worker enqueue(Worker.Task task);
 
+    /**
+     * Enqueue a task into the worker which is always selected for the given hash code,
+     * blocking if necessary until space is available. Tasks which are enqueued with the same
+     * hash code run in order, by the same thread. When the task object is enqueued, it must
+     * not be used again for any other tasks.
+     *
+     * @param hash well distributed hash code
+     * @return selected worker
+     */
+    public abstract Worker enqueue(int hash, Worker.Task task);
+
+    /**
+     * Returns the number of workers in this group.
+     */
+    public abstract int workerCount();
+
+    /**
+     * Returns a worker in this group. This method can be safely called by any thread, for
+     * examining the worker state.
+     *
+     * @param index must be in the range [0, workerCount)
+     */
+    public abstract Worker worker(int index);
+
     /**
      * Waits until all the worker queues are drained. If the worker threads are interrupted and
      * exit, new threads are started when new tasks are enqueued. The same mutual exclusion
@@ -121,6 +145,24 @@ public abstract class WorkerGroup {
             return mWorker;
         }
 
+        @Override
+        public Worker enqueue(int hash, Worker.Task task) {
+            return enqueue(task);
+        }
+
+        @Override
+        public int workerCount() {
+            return 1;
+        }
+
+        @Override
+        public Worker worker(int index) {
+            if (index != 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            return mWorker;
+        }
+
         @Override
         public void join(boolean interrupt) {
             mWorker.join(interrupt);
@@ -180,6 +222,24 @@ public abstract class WorkerGroup {
             return w;
         }
 
+        @Override
+        public Worker enqueue(int hash, Worker.Task task) {
+            // Map the hash code to a slot without the bias of a remainder operation.
+            Worker w = mWorkers[(int) (((hash & 0xffff_ffffL) * mWorkers.length) >>> 32)];
+            w.enqueue(task);
+            return w;
+        }
+
+        @Override
+        public int workerCount() {
+            return mWorkers.length;
+        }
+
+        @Override
+        public Worker worker(int index) {
+            return mWorkers[index];
+        }
+
         @Override
         public void join(boolean interrupt) {
             for (Worker w : mWorkers) {
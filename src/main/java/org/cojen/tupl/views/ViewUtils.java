@@ -19,6 +19,9 @@ package org.cojen.tupl.views;
 
 import java.io.IOException;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import java.util.concurrent.TimeUnit;
 
 import org.cojen.tupl.Cursor;
@@ -325,6 +328,49 @@ public class ViewUtils {
         }
     }
 
+    /**
+     * Returns the array indexes of the given keys, in the key order of the given view. If the
+     * view is unordered, the original order is returned.
+     */
+    public static Integer[] sortedOrder(View view, byte[][] keys) {
+        var order = new Integer[keys.length];
+        for (int i=0; i<order.length; i++) {
+            order[i] = i;
+        }
+        Comparator<byte[]> cmp = view.comparator();
+        if (cmp != null) {
+            Arrays.sort(order, (a, b) -> cmp.compare(keys[a], keys[b]));
+        }
+        return order;
+    }
+
+    /**
+     * Loads the values for the given keys using a single cursor, which visits the keys in
+     * the given order.
+     *
+     * @param order array indexes of the keys, as returned by sortedOrder
+     * @return the values, in the same order as the keys
+     */
+    public static byte[][] loadAll(View view, Transaction txn, byte[][] keys, Integer[] order)
+        throws IOException
+    {
+        var values = new byte[keys.length][];
+        if (keys.length == 1) {
+            values[0] = view.load(txn, keys[0]);
+        } else if (keys.length > 1) {
+            Cursor c = view.newCursor(txn);
+            try {
+                for (int i : order) {
+                    c.findNearby(keys[i]);
+                    values[i] = c.value();
+                }
+            } finally {
+                c.reset();
+            }
+        }
+        return values;
+    }
+
     /**
      * Returns a new transaction or enters a scope.
      */
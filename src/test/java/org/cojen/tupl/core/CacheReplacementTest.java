@@ -0,0 +1,143 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.diag.DatabaseStats;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ * 
+ *
+ * @author Brian S O'Neill
+ */
+public class CacheReplacementTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(CacheReplacementTest.class.getName());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        deleteTempDatabases(getClass());
+    }
+
+    @Test
+    public void scanLRU() throws Exception {
+        long misses = scan(CacheReplacementPolicy.LRU);
+        // Hot set was evicted by the scan.
+        assertTrue(misses > 0);
+    }
+
+    @Test
+    public void scanResistant() throws Exception {
+        long misses = scan(CacheReplacementPolicy.SCAN_RESISTANT);
+        // Hot set was retained.
+        assertEquals(0, misses);
+    }
+
+    @Test
+    public void scanReserved() throws Exception {
+        long misses = scan(config(CacheReplacementPolicy.LRU)
+                           .cacheQuota("hot", 1_000_000, Long.MAX_VALUE, true));
+        // Hot set was retained by the reservation.
+        assertEquals(0, misses);
+    }
+
+    @Test
+    public void scanCapped() throws Exception {
+        DatabaseConfig config = config(CacheReplacementPolicy.LRU)
+            .cacheQuota("big", 0, 1_000_000, false);
+
+        long misses = scan(config);
+        // Big index evicted its own nodes instead of the hot set.
+        assertEquals(0, misses);
+
+        DatabaseStats stats = mStats;
+        assertEquals(1, stats.indexCachePages.size());
+        assertTrue(stats.toString(), stats.indexCachePages.get("big") > 0);
+    }
+
+    private static DatabaseConfig config(CacheReplacementPolicy policy) {
+        return new DatabaseConfig()
+            .cacheSize(4_000_000)
+            .cacheReplacementPolicy(policy)
+            .durabilityMode(DurabilityMode.NO_FLUSH);
+    }
+
+    private DatabaseStats mStats;
+
+    private long scan(CacheReplacementPolicy policy) throws Exception {
+        return scan(config(policy));
+    }
+
+    /**
+     * @return cache misses when accessing the hot set after a large scan
+     */
+    private long scan(DatabaseConfig config) throws Exception {
+        Database db = newTempDatabase(getClass(), config);
+
+        Index big = db.openIndex("big");
+        var value = new byte[1000];
+        for (int i=0; i<20_000; i++) {
+            big.store(null, key(i), value);
+        }
+
+        Index hot = db.openIndex("hot");
+        for (int i=0; i<1000; i++) {
+            hot.store(null, key(i), key(i));
+        }
+
+        db.checkpoint();
+
+        for (int round=0; round<3; round++) {
+            for (int i=0; i<1000; i++) {
+                assertNotNull(hot.load(null, key(i)));
+            }
+        }
+
+        int count = 0;
+        try (Cursor c = big.newCursor(null)) {
+            for (c.first(); c.key() != null; c.next()) {
+                count++;
+            }
+        }
+        assertEquals(20_000, count);
+
+        DatabaseStats stats = db.stats();
+        assertTrue(stats.cacheMisses > 0);
+        assertTrue(stats.cacheHits > 0);
+        long misses = stats.cacheMisses;
+
+        for (int i=0; i<1000; i++) {
+            assertNotNull(hot.load(null, key(i)));
+        }
+
+        mStats = db.stats();
+
+        return mStats.cacheMisses - misses;
+    }
+
+    private static byte[] key(int i) {
+        return String.format("key-%08d", i).getBytes();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.diag.DatabaseStats;
+import org.cojen.tupl.diag.EventListener;
+import org.cojen.tupl.diag.EventType;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class CheckpointPaceTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(CheckpointPaceTest.class.getName());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        deleteTempDatabases(getClass());
+    }
+
+    @Test
+    public void paced() throws Exception {
+        var listener = new EventListener() {
+            volatile int mProgressCount;
+
+            @Override
+            public void notify(EventType type, String message, Object... args) {
+                if (type == EventType.CHECKPOINT_PROGRESS) {
+                    mProgressCount++;
+                }
+            }
+        };
+
+        DatabaseConfig config = new DatabaseConfig()
+            .cacheSize(50_000_000)
+            .durabilityMode(DurabilityMode.NO_FLUSH)
+            .checkpointRate(10, TimeUnit.MILLISECONDS)
+            .checkpointSizeThreshold(0)
+            .checkpointDelayThreshold(0, null)
+            .checkpointPaceRate(1_000_000)
+            .eventListener(listener);
+
+        Database db = newTempDatabase(getClass(), config);
+        db.suspendCheckpoints();
+
+        Index ix = db.openIndex("test");
+        var value = new byte[1000];
+        for (int i=0; i<3000; i++) {
+            ix.store(null, ("key-" + i).getBytes(), value);
+        }
+
+        // Let some time pass, which lowers the rate at which the redo log has grown. The pace
+        // rate is then the configured one, and so flushing the dirty pages takes at least two
+        // seconds. This is long enough for progress events to be generated.
+        Thread.sleep(4000);
+
+        long dirtyPages = db.stats().dirtyPages;
+        assertTrue(dirtyPages > 500);
+
+        db.resumeCheckpoints();
+
+        DatabaseStats stats;
+        while (true) {
+            stats = db.stats();
+            if (stats.dirtyPages == 0 && stats.checkpointPaceRate == 0
+                && stats.checkpointFlushedPages > 0)
+            {
+                break;
+            }
+            Thread.sleep(10);
+        }
+
+        assertTrue(stats.toString(), stats.checkpointPaceDelay > 0);
+        assertTrue(stats.toString(), stats.checkpointFlushedPages >= dirtyPages);
+        assertTrue(stats.toString(), listener.mProgressCount > 0);
+
+        // Explicit checkpoints aren't paced, and they hurry any paced checkpoint along.
+
+        for (int i=0; i<3000; i++) {
+            ix.store(null, ("key-" + i).getBytes(), "updated".getBytes());
+        }
+
+        db.checkpoint();
+        assertEquals(0, db.stats().dirtyPages);
+
+        db = reopenTempDatabase(getClass(), db, config);
+        ix = db.openIndex("test");
+        for (int i=0; i<3000; i++) {
+            fastAssertArrayEquals("updated".getBytes(), ix.load(null, ("key-" + i).getBytes()));
+        }
+    }
+
+    @Test
+    public void hurry() throws Exception {
+        var pacer = new CheckpointPacer(1_000_000, null);
+        var stats = new DatabaseStats();
+
+        // An explicit checkpoint which finishes without flushing anything must not leave
+        // pacing disabled for the next automatic checkpoint.
+        pacer.hurry();
+        pacer.endHurry();
+
+        pacer.begin(true, 10, 0);
+        pacer.addStats(stats);
+        assertEquals(1_000_000, stats.checkpointPaceRate);
+        pacer.end();
+
+        // Pacing is disabled while an explicit checkpoint is waiting.
+        pacer.hurry();
+        pacer.begin(true, 10, 0);
+        pacer.addStats(stats);
+        assertEquals(0, stats.checkpointPaceRate);
+        pacer.end();
+        pacer.endHurry();
+
+        pacer.begin(true, 10, 0);
+        pacer.addStats(stats);
+        assertEquals(1_000_000, stats.checkpointPaceRate);
+        pacer.end();
+    }
+}
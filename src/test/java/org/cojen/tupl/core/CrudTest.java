@@ -91,6 +91,43 @@ public class CrudTest {
         assertFalse(ix.exists(txn, "key".getBytes()));
     }
 
+    @Test
+    public void loadAll() throws Exception {
+        View ix = openIndex("test");
+
+        assertEquals(0, ix.loadAll(null, new byte[0][]).length);
+
+        for (int i=0; i<2000; i+=2) {
+            ix.store(null, ("key-" + i).getBytes(), ("value-" + i).getBytes());
+        }
+
+        var rnd = new Random(8675309);
+        var keys = new byte[500][];
+        for (int i=0; i<keys.length; i++) {
+            keys[i] = ("key-" + rnd.nextInt(2000)).getBytes();
+        }
+        keys[1] = keys[0].clone();
+
+        for (int mode=0; mode<3; mode++) {
+            Transaction txn = mode == 2 ? mDb.newTransaction() : null;
+            byte[][] values = ix.loadAll(txn, keys, mode == 1);
+            assertEquals(keys.length, values.length);
+            for (int i=0; i<keys.length; i++) {
+                fastAssertArrayEquals(ix.load(txn, keys[i]), values[i]);
+            }
+            if (txn != null) {
+                txn.exit();
+            }
+        }
+
+        try {
+            ix.loadAll(null, new byte[][] {"key-0".getBytes(), null});
+            fail();
+        } catch (NullPointerException e) {
+            // Expected.
+        }
+    }
+
     @Test
     public void existsLockWait() throws Exception {
         View ix = openIndex("test");
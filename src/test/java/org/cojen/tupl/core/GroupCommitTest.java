@@ -0,0 +1,117 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.diag.DatabaseStats;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class GroupCommitTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(GroupCommitTest.class.getName());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        deleteTempDatabases(getClass());
+    }
+
+    @Test
+    public void noDelay() throws Exception {
+        concurrentCommits(0);
+    }
+
+    @Test
+    public void withDelay() throws Exception {
+        concurrentCommits(1);
+    }
+
+    private void concurrentCommits(long delayMillis) throws Exception {
+        DatabaseConfig config = new DatabaseConfig()
+            .durabilityMode(DurabilityMode.SYNC)
+            .groupCommitDelay(delayMillis, TimeUnit.MILLISECONDS);
+
+        final Database db = newTempDatabase(getClass(), config);
+        final Index ix = db.openIndex("test");
+
+        final int threadCount = 16;
+        final int count = 200;
+
+        var threads = new Thread[threadCount];
+        var failures = new Throwable[threadCount];
+
+        for (int t=0; t<threadCount; t++) {
+            final int tid = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i=0; i<count; i++) {
+                        Transaction txn = db.newTransaction();
+                        ix.store(txn, key(tid, i), ("value-" + i).getBytes());
+                        txn.commit();
+                    }
+                } catch (Throwable e) {
+                    failures[tid] = e;
+                }
+            });
+        }
+
+        for (Thread t : threads) {
+            t.start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        for (Throwable e : failures) {
+            if (e != null) {
+                throw Utils.rethrow(e);
+            }
+        }
+
+        DatabaseStats stats = db.stats();
+        assertTrue(stats.toString(), stats.syncCommitCount >= threadCount * count);
+        assertTrue(stats.toString(), stats.redoSyncCount > 0);
+        assertTrue(stats.toString(), stats.redoSyncCount <= stats.syncCommitCount);
+
+        Database db2 = reopenTempDatabase(getClass(), db, config);
+        Index ix2 = db2.openIndex("test");
+
+        for (int t=0; t<threadCount; t++) {
+            for (int i=0; i<count; i++) {
+                fastAssertArrayEquals(("value-" + i).getBytes(), ix2.load(null, key(t, i)));
+            }
+        }
+    }
+
+    private static byte[] key(int tid, int i) {
+        return ("key-" + tid + "-" + i).getBytes();
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.diag.DatabaseStats;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class KeyPrefixTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(KeyPrefixTest.class.getName());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        deleteTempDatabases(getClass());
+    }
+
+    private static DatabaseConfig config(boolean enabled) {
+        return new DatabaseConfig()
+            .keyPrefixCompression(enabled)
+            .durabilityMode(DurabilityMode.NO_FLUSH);
+    }
+
+    @Test
+    public void ascending() throws Exception {
+        fill(0);
+    }
+
+    @Test
+    public void descending() throws Exception {
+        fill(1);
+    }
+
+    @Test
+    public void random() throws Exception {
+        fill(2);
+    }
+
+    private void fill(int order) throws Exception {
+        Database db = newTempDatabase(getClass(), config(true));
+        Index ix = db.openIndex("test");
+
+        final int count = 20_000;
+        var rnd = new Random(order);
+        int[] nums = new int[count];
+        for (int i=0; i<count; i++) {
+            nums[i] = order == 1 ? (count - i - 1) : i;
+        }
+        if (order == 2) {
+            for (int i=count; --i>0; ) {
+                int j = rnd.nextInt(i + 1);
+                int t = nums[i];
+                nums[i] = nums[j];
+                nums[j] = t;
+            }
+        }
+
+        for (int n : nums) {
+            ix.store(null, prefixedKey(n), value(n));
+        }
+
+        assertTrue(ix.verify(null, 1));
+        assertEquals(count, ix.count(null, null));
+
+        for (int i=0; i<count; i++) {
+            fastAssertArrayEquals(value(i), ix.load(null, prefixedKey(i)));
+        }
+
+        try (Cursor c = ix.newCursor(null)) {
+            int i = 0;
+            for (c.first(); c.key() != null; c.next()) {
+                fastAssertArrayEquals(prefixedKey(i), c.key());
+                fastAssertArrayEquals(value(i), c.value());
+                i++;
+            }
+            assertEquals(count, i);
+
+            i = count;
+            for (c.last(); c.key() != null; c.previous()) {
+                i--;
+                fastAssertArrayEquals(prefixedKey(i), c.key());
+            }
+            assertEquals(0, i);
+
+            c.findGe(prefixedKey(1234));
+            fastAssertArrayEquals(prefixedKey(1234), c.key());
+        }
+
+        // Keys which don't share the prefix are stored in separate nodes.
+        ix.store(null, "a".getBytes(), "a".getBytes());
+        ix.store(null, "z".getBytes(), "z".getBytes());
+        fastAssertArrayEquals("a".getBytes(), ix.load(null, "a".getBytes()));
+        fastAssertArrayEquals("z".getBytes(), ix.load(null, "z".getBytes()));
+        assertTrue(ix.verify(null, 1));
+
+        // Delete most of the entries, forcing nodes to merge.
+        for (int n : nums) {
+            if (n % 10 != 0) {
+                ix.delete(null, prefixedKey(n));
+            }
+        }
+
+        assertTrue(ix.verify(null, 1));
+
+        for (int i=0; i<count; i++) {
+            byte[] value = ix.load(null, prefixedKey(i));
+            if (i % 10 == 0) {
+                fastAssertArrayEquals(value(i), value);
+            } else {
+                assertNull(value);
+            }
+        }
+
+        // Reopening without the option still reads the compressed nodes.
+        db = reopenTempDatabase(getClass(), db, config(false));
+        ix = db.openIndex("test");
+        assertTrue(ix.verify(null, 1));
+        for (int i=0; i<count; i+=10) {
+            fastAssertArrayEquals(value(i), ix.load(null, prefixedKey(i)));
+        }
+    }
+
+    @Test
+    public void encodingVersion() throws Exception {
+        // Enabling key prefix compression changes the encoding version, which prevents
+        // older versions from opening the database. The version never changes back.
+
+        Database db = newTempDatabase(getClass(), config(false));
+        db.openIndex("test").store(null, prefixedKey(1), value(1));
+        db.checkpoint();
+        File baseFile = baseFileForTempDatabase(getClass(), db);
+        assertEquals(20130112, encodingVersion(db, baseFile));
+
+        db = reopenTempDatabase(getClass(), db, config(true));
+        db.openIndex("test").store(null, prefixedKey(2), value(2));
+        db.checkpoint();
+        assertEquals(20261016, encodingVersion(db, baseFile));
+
+        db = reopenTempDatabase(getClass(), db, config(false));
+        Index ix = db.openIndex("test");
+        ix.store(null, prefixedKey(3), value(3));
+        db.checkpoint();
+        assertEquals(20261016, encodingVersion(db, baseFile));
+
+        db = reopenTempDatabase(getClass(), db, config(false));
+        ix = db.openIndex("test");
+        for (int i=1; i<=3; i++) {
+            fastAssertArrayEquals(value(i), ix.load(null, prefixedKey(i)));
+        }
+    }
+
+    private static int encodingVersion(Database db, File baseFile) throws Exception {
+        db.close();
+        var bout = new ByteArrayOutputStream();
+        config(false).baseFile(baseFile).debugOpen(new PrintStream(bout, true), null);
+        String out = bout.toString();
+        String prefix = "ENCODING_VERSION: ";
+        int start = out.indexOf(prefix);
+        assertTrue(out, start >= 0);
+        start += prefix.length();
+        int end = start;
+        while (end < out.length() && Character.isDigit(out.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(out.substring(start, end));
+    }
+
+    @Test
+    public void smaller() throws Exception {
+        long disabled = usedPages(false);
+        long enabled = usedPages(true);
+        assertTrue(enabled + " < " + disabled, enabled < disabled);
+    }
+
+    private long usedPages(boolean enabled) throws Exception {
+        Database db = newTempDatabase(getClass(), config(enabled));
+        Index ix = db.openIndex("test");
+        for (int i=0; i<50_000; i++) {
+            ix.store(null, prefixedKey(i), "v".getBytes());
+        }
+        db.checkpoint();
+        DatabaseStats stats = db.stats();
+        return stats.totalPages - stats.freePages;
+    }
+
+    @Test
+    public void rollback() throws Exception {
+        Database db = newTempDatabase(getClass(), config(true));
+        Index ix = db.openIndex("test");
+
+        final int count = 5000;
+        for (int i=0; i<count; i+=2) {
+            ix.store(null, prefixedKey(i), value(i));
+        }
+
+        Transaction txn = db.newTransaction();
+        for (int i=0; i<count; i++) {
+            if ((i & 1) == 0) {
+                if (i % 4 == 0) {
+                    ix.delete(txn, prefixedKey(i));
+                } else {
+                    ix.store(txn, prefixedKey(i), "updated".getBytes());
+                }
+            } else {
+                ix.store(txn, prefixedKey(i), value(i));
+            }
+        }
+        txn.exit();
+
+        assertTrue(ix.verify(null, 1));
+        assertEquals(count / 2, ix.count(null, null));
+
+        for (int i=0; i<count; i++) {
+            byte[] value = ix.load(null, prefixedKey(i));
+            if ((i & 1) == 0) {
+                fastAssertArrayEquals(value(i), value);
+            } else {
+                assertNull(value);
+            }
+        }
+    }
+
+    @Test
+    public void largeEntries() throws Exception {
+        Database db = newTempDatabase(getClass(), config(true));
+        Index ix = db.openIndex("test");
+
+        var rnd = new Random(5309);
+        final int count = 2000;
+        byte[][] keys = new byte[count][];
+        byte[][] values = new byte[count][];
+
+        for (int i=0; i<count; i++) {
+            byte[] key = prefixedKey(i);
+            int mode = rnd.nextInt(10);
+            if (mode == 0) {
+                // Large key, which is fragmented.
+                key = Arrays.copyOf(key, 3000 + rnd.nextInt(2000));
+            } else if (mode == 1) {
+                key = Arrays.copyOf(key, 500 + rnd.nextInt(1000));
+            }
+            keys[i] = key;
+
+            int vlen = rnd.nextInt(10) == 0 ? (1000 + rnd.nextInt(10000)) : rnd.nextInt(100);
+            var value = new byte[vlen];
+            rnd.nextBytes(value);
+            values[i] = value;
+        }
+
+        for (int i=0; i<count; i++) {
+            ix.store(null, keys[i], values[i]);
+        }
+
+        assertTrue(ix.verify(null, 1));
+
+        for (int i=0; i<count; i++) {
+            fastAssertArrayEquals(values[i], ix.load(null, keys[i]));
+        }
+
+        // Grow some of the values in place.
+        for (int i=0; i<count; i+=3) {
+            values[i] = Arrays.copyOf(values[i], values[i].length + 2000);
+            ix.store(null, keys[i], values[i]);
+        }
+
+        assertTrue(ix.verify(null, 1));
+
+        Transaction txn = db.newTransaction();
+        for (int i=0; i<count; i+=2) {
+            ix.delete(txn, keys[i]);
+        }
+        txn.exit();
+
+        for (int i=0; i<count; i++) {
+            fastAssertArrayEquals(values[i], ix.load(null, keys[i]));
+        }
+
+        for (int i=0; i<count; i+=2) {
+            ix.delete(null, keys[i]);
+        }
+
+        assertTrue(ix.verify(null, 1));
+
+        for (int i=0; i<count; i++) {
+            byte[] value = ix.load(null, keys[i]);
+            if ((i & 1) == 0) {
+                assertNull(value);
+            } else {
+                fastAssertArrayEquals(values[i], value);
+            }
+        }
+    }
+
+    private static byte[] prefixedKey(int n) {
+        return String.format("customer/region-0001/account-%08d", n).getBytes();
+    }
+
+    private static byte[] value(int n) {
+        return ("value-" + n).getBytes();
+    }
+}
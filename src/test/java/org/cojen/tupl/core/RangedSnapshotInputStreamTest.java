@@ -0,0 +1,220 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import java.lang.reflect.Proxy;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import java.util.zip.CRC32C;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.repl.SnapshotReceiver;
+import org.cojen.tupl.repl.StreamReplicator;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ * Tests the recovery of RangedSnapshotInputStream from failed and corrupt range transfers.
+ * The sender is simulated, and so faults can be injected at specific pages.
+ *
+ * @author Brian S O'Neill
+ */
+public class RangedSnapshotInputStreamTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(RangedSnapshotInputStreamTest.class.getName());
+    }
+
+    private static final int PAGE_SIZE = 512;
+    private static final int PAGE_COUNT = 3000;
+
+    private static final SocketAddress SENDER = new InetSocketAddress("localhost", 1);
+
+    private byte[] mPages;
+
+    // Lists the "start..end" page ranges which were requested.
+    private List<String> mRequests;
+    private boolean mReleased;
+
+    // Page index at which the next range connection fails or is corrupt, or -1 if none.
+    private volatile long mDisconnectAt = -1, mCorruptAt = -1;
+
+    @Before
+    public void setup() {
+        mPages = new byte[PAGE_SIZE * PAGE_COUNT];
+        new Random(8675309).nextBytes(mPages);
+        mRequests = new ArrayList<>();
+    }
+
+    @Test
+    public void noFaults() throws Exception {
+        verify();
+        assertEquals(List.of("0..1024", "1024..2048", "2048..3000"), mRequests);
+    }
+
+    @Test
+    public void disconnect() throws Exception {
+        // The connection is dropped in the middle of page 1500, and so the range is requested
+        // again, resuming from that page.
+        mDisconnectAt = 1500;
+        verify();
+        assertEquals(List.of("0..1024", "1024..2048", "1500..2048", "2048..3000"), mRequests);
+    }
+
+    @Test
+    public void corrupt() throws Exception {
+        // Page 2100 fails the checksum, and so the range is requested again, resuming from
+        // the first page which wasn't verified.
+        mCorruptAt = 2100;
+        verify();
+        assertEquals(List.of("0..1024", "1024..2048", "2048..3000", "2100..3000"), mRequests);
+    }
+
+    private void verify() throws Exception {
+        var in = new RangedSnapshotInputStream(newReplicator(), newGrant(), null);
+
+        var received = new byte[mPages.length];
+        Utils.readFully(in, received, 0, received.length);
+        assertEquals(-1, in.read());
+        assertTrue(in.isFinished());
+        assertEquals(mPages.length, in.received());
+
+        fastAssertArrayEquals(mPages, received);
+
+        assertFalse(mReleased);
+        in.close();
+        assertTrue(mReleased);
+    }
+
+    private SnapshotReceiver newGrant() {
+        return new Receiver(Map.of("ranged", "CRC32C", "snapshot", "test",
+                                   "pageSize", String.valueOf(PAGE_SIZE)),
+                            mPages.length, new byte[0]);
+    }
+
+    /**
+     * Returns a replicator which only supports requesting snapshots from a specific sender.
+     */
+    @SuppressWarnings("unchecked")
+    private StreamReplicator newReplicator() {
+        return (StreamReplicator) Proxy.newProxyInstance
+            (getClass().getClassLoader(), new Class<?>[] {StreamReplicator.class},
+             (proxy, method, args) -> {
+                if (method.getName().equals("requestSnapshot") && args.length == 2) {
+                    assertEquals(SENDER, args[0]);
+                    return request((Map<String, String>) args[1]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private synchronized SnapshotReceiver request(Map<String, String> options) {
+        assertEquals("test", options.get("snapshot"));
+
+        if ("true".equals(options.get("release"))) {
+            mReleased = true;
+            return new Receiver(Map.of("snapshot", "test"), 0, new byte[0]);
+        }
+
+        int start = Integer.parseInt(options.get("start"));
+        int end = Integer.parseInt(options.get("end"));
+        mRequests.add(start + ".." + end);
+
+        int entrySize = PAGE_SIZE + 4;
+        var data = new byte[(end - start) * entrySize];
+        var crc = new CRC32C();
+
+        for (int i=start; i<end; i++) {
+            int offset = (i - start) * entrySize;
+            System.arraycopy(mPages, i * PAGE_SIZE, data, offset, PAGE_SIZE);
+            crc.reset();
+            crc.update(data, offset, PAGE_SIZE);
+            Utils.encodeIntLE(data, offset + PAGE_SIZE, (int) crc.getValue());
+        }
+
+        long length = data.length;
+
+        long at = mCorruptAt;
+        if (at >= start && at < end) {
+            mCorruptAt = -1;
+            data[(int) (at - start) * entrySize + 10] ^= 1;
+        }
+
+        at = mDisconnectAt;
+        if (at >= start && at < end) {
+            mDisconnectAt = -1;
+            // The connection ends in the middle of the page.
+            data = Arrays.copyOf(data, (int) (at - start) * entrySize + PAGE_SIZE / 2);
+        }
+
+        return new Receiver(Map.of("snapshot", "test"), length, data);
+    }
+
+    private static final class Receiver implements SnapshotReceiver {
+        private final Map<String, String> mOptions;
+        private final long mLength;
+        private final byte[] mData;
+
+        Receiver(Map<String, String> options, long length, byte[] data) {
+            mOptions = options;
+            mLength = length;
+            mData = data;
+        }
+
+        @Override
+        public SocketAddress senderAddress() {
+            return SENDER;
+        }
+
+        @Override
+        public Map<String, String> options() {
+            return mOptions;
+        }
+
+        @Override
+        public long length() {
+            return mLength;
+        }
+
+        @Override
+        public long position() {
+            return 0;
+        }
+
+        @Override
+        public InputStream inputStream() {
+            return new ByteArrayInputStream(mData);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cojen.tupl.core;
+
+import java.util.zip.CRC32C;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.ext.CipherCrypto;
+
+/**
+ * Runs the recovery tests with batched writes which pass through the checksum and encryption
+ * page array layers.
+ *
+ * @author Brian S O'Neill
+ */
+public class RecoverIoUringCryptoTest extends RecoverTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(RecoverIoUringCryptoTest.class.getName());
+    }
+
+    @Override
+    public void decorate(DatabaseConfig config) throws Exception {
+        byte[] key = {-83,64,-124,26,-124,-4,92,79,50,-54,-119,75,-93,-102,-113,-101};
+        config.ioUring(true).checksumPages(CRC32C::new).encrypt(CipherCrypto.factory(key));
+    }
+}
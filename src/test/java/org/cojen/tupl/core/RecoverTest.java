@@ -17,6 +17,8 @@
 
 package org.cojen.tupl.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.RandomAccessFile;
 
@@ -937,6 +939,52 @@ public class RecoverTest {
         assertFalse(primer.exists());
     }
 
+    @Test
+    public void cachePrimingLimit() throws Exception {
+        Index ix = mDb.openIndex("test");
+
+        for (int i=0; i<100_000; i++) {
+            ix.store(null, ("key-" + i).getBytes(), ("value-" + i).getBytes());
+        }
+
+        // Checkpoint now, or else recovery loads everything when the database is reopened.
+        mDb.checkpoint();
+
+        var bout = new ByteArrayOutputStream();
+        mDb.createCachePrimer(bout);
+        byte[] primer = bout.toByteArray();
+
+        mDb = reopenTempDatabase(getClass(), mDb, mConfig);
+        long full = applyCachePrimer(primer);
+        assertTrue(full > 10);
+
+        // Everything is already loaded.
+        assertEquals(0, applyCachePrimer(primer));
+
+        int pageSize = mDb.stats().pageSize;
+        mConfig.cachePrimingLimit(pageSize * 10L).cachePrimingThreads(2);
+
+        mDb = reopenTempDatabase(getClass(), mDb, mConfig);
+        long limited = applyCachePrimer(primer);
+        assertTrue(limited >= 10);
+        assertTrue(limited < full);
+
+        ix = mDb.openIndex("test");
+        for (int i=0; i<100_000; i++) {
+            byte[] value = ix.load(null, ("key-" + i).getBytes());
+            fastAssertArrayEquals(("value-" + i).getBytes(), value);
+        }
+    }
+
+    /**
+     * @return number of nodes which were loaded
+     */
+    private long applyCachePrimer(byte[] primer) throws Exception {
+        long misses = mDb.stats().cacheMisses;
+        mDb.applyCachePrimer(new ByteArrayInputStream(primer));
+        return mDb.stats().cacheMisses - misses;
+    }
+
     @Test
     public void trashDelete() throws Exception {
         Index ix = mDb.openIndex("trash");
@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.Random;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -201,6 +202,36 @@ public class ReplicationTest {
         fastAssertArrayEquals("!".getBytes(), rix.load(null, "k0".getBytes()));
     }
 
+    @Test
+    public void commitAsync() throws Exception {
+        Index lix = mLeader.openIndex("test");
+        byte[] key = "key".getBytes();
+
+        Transaction txn = mLeader.newTransaction(DurabilityMode.SYNC);
+        lix.store(txn, key, "value".getBytes());
+        mLeaderRepl.suspendCommit(true);
+        CompletableFuture<Void> future = txn.commitAsync();
+
+        // Commit isn't confirmed yet, so the future isn't done and the lock is still held.
+        assertFalse(future.isDone());
+        Transaction txn2 = mLeader.newTransaction();
+        try {
+            txn2.lockExclusive(lix.id(), key);
+            fail();
+        } catch (LockTimeoutException e) {
+            // Expected.
+        }
+        txn2.exit();
+
+        mLeaderRepl.suspendCommit(false);
+        future.get(10, TimeUnit.SECONDS);
+        txn.reset();
+
+        fence();
+        Index rix = mReplica.openIndex("test");
+        fastAssertArrayEquals("value".getBytes(), rix.load(null, key));
+    }
+
     @Test
     public void interruptCommit() throws Exception {
         Index lix = mLeader.openIndex("test");
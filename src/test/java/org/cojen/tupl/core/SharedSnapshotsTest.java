@@ -0,0 +1,117 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.core;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that shared snapshots aren't closed while they're still being sent.
+ *
+ * @author Brian S O'Neill
+ */
+public class SharedSnapshotsTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(SharedSnapshotsTest.class.getName());
+    }
+
+    private int mCloseCount;
+
+    @Test
+    public void closeIdle() throws Exception {
+        var shared = new SharedSnapshots();
+        String id = shared.register(newSnapshot());
+
+        assertNotNull(shared.acquire(id));
+        shared.release(id);
+        assertEquals(0, mCloseCount);
+
+        shared.close(id);
+        assertEquals(1, mCloseCount);
+        assertNull(shared.acquire(id));
+
+        shared.close(id);
+        assertEquals(1, mCloseCount);
+
+        shared.close();
+    }
+
+    @Test
+    public void closeActive() throws Exception {
+        var shared = new SharedSnapshots();
+        String id = shared.register(newSnapshot());
+
+        ReadableSnapshot s = shared.acquire(id);
+        assertNotNull(s);
+        assertSame(s, shared.acquire(id));
+
+        // Close is deferred until all acquisitions are released.
+        shared.close(id);
+        assertEquals(0, mCloseCount);
+        assertNull(shared.acquire(id));
+
+        shared.release(id);
+        assertEquals(0, mCloseCount);
+        shared.release(id);
+        assertEquals(1, mCloseCount);
+
+        shared.release(id);
+        assertEquals(1, mCloseCount);
+
+        shared.close();
+    }
+
+    @Test
+    public void closeAll() throws Exception {
+        var shared = new SharedSnapshots();
+        String id1 = shared.register(newSnapshot());
+        String id2 = shared.register(newSnapshot());
+
+        assertNotNull(shared.acquire(id2));
+
+        shared.close();
+        assertEquals(1, mCloseCount);
+        assertNull(shared.acquire(id1));
+        assertNull(shared.acquire(id2));
+
+        try {
+            shared.register(newSnapshot());
+            fail();
+        } catch (IllegalStateException e) {
+        }
+
+        shared.release(id2);
+        assertEquals(2, mCloseCount);
+    }
+
+    private ReadableSnapshot newSnapshot() {
+        return (ReadableSnapshot) Proxy.newProxyInstance
+            (getClass().getClassLoader(), new Class<?>[] {ReadableSnapshot.class},
+             (proxy, method, args) -> {
+                if (method.getName().equals("close")) {
+                    synchronized (this) {
+                        mCloseCount++;
+                    }
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
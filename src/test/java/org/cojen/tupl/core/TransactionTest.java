@@ -18,6 +18,8 @@
 package org.cojen.tupl.core;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.*;
@@ -68,6 +70,71 @@ public class TransactionTest {
         db2.close();
     }
 
+    @Test
+    public void commitAsync() throws Exception {
+        Index ix = mDb.openIndex("test");
+
+        Transaction txn = mDb.newTransaction(DurabilityMode.SYNC);
+        ix.store(txn, "k1".getBytes(), "v1".getBytes());
+        txn.enter();
+        ix.store(txn, "k2".getBytes(), "v2".getBytes());
+        // Nested scope commit is never durable by itself.
+        assertTrue(txn.commitAsync().isDone());
+        txn.exit();
+        txn.commitAsync().get(10, TimeUnit.SECONDS);
+        txn.reset();
+
+        fastAssertArrayEquals("v1".getBytes(), ix.load(null, "k1".getBytes()));
+        fastAssertArrayEquals("v2".getBytes(), ix.load(null, "k2".getBytes()));
+
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i=0; i<100; i++) {
+            txn = mDb.newTransaction(DurabilityMode.SYNC);
+            ix.store(txn, ("key-" + i).getBytes(), ("value-" + i).getBytes());
+            futures.add(txn.commitAsync());
+            txn.reset();
+        }
+
+        for (var future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        for (int i=0; i<100; i++) {
+            byte[] value = ix.load(null, ("key-" + i).getBytes());
+            fastAssertArrayEquals(("value-" + i).getBytes(), value);
+        }
+    }
+
+    @Test
+    public void commitAsyncSyncFailure() throws Exception {
+        Assume.assumeTrue(((LocalDatabase) mDb).mRedoWriter instanceof RedoLog);
+
+        Index ix = mDb.openIndex("test");
+
+        // Closing the redo log file handle causes the next sync to fail, but writes still
+        // succeed because they go through a separate stream.
+        var field = RedoLog.class.getDeclaredField("mFileIO");
+        field.setAccessible(true);
+        ((java.io.Closeable) field.get(((LocalDatabase) mDb).mRedoWriter)).close();
+
+        Transaction txn = mDb.newTransaction(DurabilityMode.SYNC);
+        ix.store(txn, "hello".getBytes(), "world".getBytes());
+        CompletableFuture<Void> future = txn.commitAsync();
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+        }
+
+        // The failure isn't recoverable, and so the database must be closed. Otherwise a
+        // later sync could report success over the lost commit.
+        for (int i=0; i<100 && !mDb.isClosed(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(mDb.isClosed());
+    }
+
     @Test
     public void basicRollback() throws Exception {
         basicRollback(mDb.newTransaction());
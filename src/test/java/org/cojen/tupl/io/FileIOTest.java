@@ -20,7 +20,12 @@ package org.cojen.tupl.io;
 import static org.junit.Assert.*;
 import static org.cojen.tupl.TestUtils.*;
 
+import java.io.EOFException;
 import java.io.File;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
 import java.util.EnumSet;
 
 import org.junit.*;
@@ -57,4 +62,62 @@ public class FileIOTest {
             }
         }
     }
+
+    @Test
+    public void batch() throws Exception {
+        batch(EnumSet.of(OpenOption.CREATE));
+    }
+
+    @Test
+    public void batchIoUring() throws Exception {
+        batch(EnumSet.of(OpenOption.CREATE, OpenOption.IO_URING));
+    }
+
+    private void batch(EnumSet<OpenOption> options) throws Exception {
+        final int pageSize = 4096;
+        final int count = 200; // more than the io_uring batch size
+
+        try (FileIO fio = FileIO.open(file, options); Arena a = Arena.ofConfined()) {
+            assertTrue(fio.batchSize() >= 1);
+
+            MemorySegment src = a.allocate(pageSize * (long) count, pageSize);
+            MemorySegment dst = a.allocate(pageSize * (long) count, pageSize);
+
+            var positions = new long[count];
+            var srcAddrs = new long[count];
+            var dstAddrs = new long[count];
+
+            for (int i=0; i<count; i++) {
+                // Write the pages in reverse order.
+                positions[i] = (count - i - 1) * (long) pageSize;
+                srcAddrs[i] = src.address() + i * (long) pageSize;
+                dstAddrs[i] = dst.address() + i * (long) pageSize;
+                src.asSlice(i * (long) pageSize, pageSize).fill((byte) i);
+            }
+
+            fio.writeBatch(positions, srcAddrs, count, pageSize);
+            assertEquals(pageSize * (long) count, fio.length());
+
+            fio.readBatch(positions, dstAddrs, count, pageSize);
+            assertEquals(-1, src.mismatch(dst));
+
+            var page = new byte[pageSize];
+            fio.read(0, page, 0, pageSize);
+            assertEquals((byte) (count - 1), page[0]);
+            assertEquals((byte) (count - 1), page[pageSize - 1]);
+
+            // Reading past the end fails.
+            positions[0] = pageSize * (long) count;
+            try {
+                fio.readBatch(positions, dstAddrs, 1, pageSize);
+                fail();
+            } catch (EOFException e) {
+            }
+            try {
+                fio.readBatch(positions, dstAddrs, 2, pageSize);
+                fail();
+            } catch (EOFException e) {
+            }
+        }
+    }
 }
@@ -130,6 +130,71 @@ public class RemoteCursorTest extends CursorTest {
         assertNull(c.key());
     }
 
+    @Test
+    public void readAhead() throws Exception {
+        View ix = openIndex("test");
+
+        for (int i=0; i<10_000; i++) {
+            ix.store(Transaction.BOGUS, key(i), value(i));
+        }
+
+        Cursor c = ix.newCursor(null);
+
+        int i = 0;
+        for (c.first(); c.key() != null; c.next()) {
+            fastAssertArrayEquals(key(i), c.key());
+            fastAssertArrayEquals(value(i), c.value());
+            i++;
+        }
+        assertEquals(10_000, i);
+
+        i = 5000;
+        for (c.findLe(key(i)); c.key() != null; c.previousGe(key(1000))) {
+            fastAssertArrayEquals(key(i), c.key());
+            i--;
+        }
+        assertEquals(999, i);
+
+        // Stepping in the other direction moves the remote cursor back first.
+        c.find(key(100));
+        for (i=0; i<50; i++) {
+            c.next();
+        }
+        c.previous();
+        fastAssertArrayEquals(key(149), c.key());
+        assertEquals(0, c.compareKeyTo(key(149)));
+
+        // Updates move the remote cursor back, and then read ahead is disabled.
+        for (i=0; i<50; i++) {
+            c.next();
+        }
+        fastAssertArrayEquals(key(199), c.key());
+        c.store(value(1));
+        c.next();
+        fastAssertArrayEquals(key(200), c.key());
+        fastAssertArrayEquals(value(1), ix.load(null, key(199)));
+
+        c.reset();
+        i = 300;
+        for (c.find(key(i)); c.key() != null; c.nextLt(key(320))) {
+            fastAssertArrayEquals(key(i), c.key());
+            i++;
+        }
+        assertEquals(320, i);
+
+        // Copies are positioned at the current key.
+
+        c.find(key(300));
+        for (i=0; i<50; i++) {
+            c.next();
+        }
+        Cursor copy = c.copy();
+        fastAssertArrayEquals(key(350), copy.key());
+        copy.reset();
+
+        c.reset();
+    }
+
     @Test
     @Override
     public void findNearby() throws Exception {
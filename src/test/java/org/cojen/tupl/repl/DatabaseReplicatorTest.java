@@ -44,6 +44,7 @@ import org.cojen.tupl.Transaction;
 import org.cojen.tupl.UnmodifiableReplicaException;
 
 import org.cojen.tupl.diag.EventListener;
+import org.cojen.tupl.diag.EventType;
 
 import org.cojen.tupl.ext.PrepareHandler;
 
@@ -94,6 +95,7 @@ public class DatabaseReplicatorTest {
     private StreamReplicator[] mReplicators;
     private DatabaseConfig[] mDbConfigs;
     private Database[] mDatabases;
+    private boolean mPartitionApply;
 
     /**
      * @return first is the leader
@@ -153,6 +155,10 @@ public class DatabaseReplicatorTest {
                 .eventListener(listener)
                 .lockTimeout(5, TimeUnit.SECONDS);
 
+            if (mPartitionApply) {
+                mDbConfigs[i].maxReplicaThreads(4).partitionReplicaApply(true);
+            }
+
             if (handlerSupplier != null) {
                 mDbConfigs[i].prepareHandlers(Map.of("TestHandler", handlerSupplier.get()));
             }
@@ -373,6 +379,150 @@ public class DatabaseReplicatorTest {
         }
     }
 
+    @Test
+    public void partitionedApply() throws Exception {
+        mPartitionApply = true;
+        Database[] dbs = startGroup(2);
+        Index ix0 = dbs[0].openIndex("test");
+
+        var rnd = new Random(8675309);
+
+        for (int i=0; i<10_000; i++) {
+            // Keys are updated many times, and so the last update must win.
+            byte[] key = ("key-" + rnd.nextInt(100)).getBytes();
+            byte[] value = ("value-" + i).getBytes();
+            if (i % 10 != 0) {
+                ix0.store(null, key, value);
+            } else {
+                Transaction txn = dbs[0].newTransaction();
+                ix0.store(txn, key, value);
+                ix0.store(txn, ("key-" + rnd.nextInt(100)).getBytes(), value);
+                txn.commit();
+            }
+        }
+
+        fence(dbs[0], dbs[1]);
+
+        Index ix1 = dbs[1].openIndex("test");
+        assertEquals(ix0.count(null, null), ix1.count(null, null));
+
+        try (Cursor c = ix0.newCursor(null)) {
+            for (c.first(); c.key() != null; c.next()) {
+                fastAssertArrayEquals(c.value(), ix1.load(null, c.key()));
+            }
+        }
+
+        var stats = dbs[1].stats();
+        assertTrue(stats.replicationApplyCount >= 10_000);
+        assertEquals(3, stats.replicationApplyWorkerCounts.length);
+        // All the workers were used.
+        for (long count : stats.replicationApplyWorkerCounts) {
+            assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    public void awaitPosition() throws Exception {
+        Database[] dbs = startGroup(2);
+        Index ix0 = dbs[0].openIndex("test");
+
+        // Wait for the index to be created on the replica.
+        assertTrue(dbs[1].awaitPosition(dbs[0].replicationPosition(), 10, TimeUnit.SECONDS));
+        Index ix1 = dbs[1].openIndex("test");
+
+        for (int t=0; t<10; t++) {
+            Transaction txn = dbs[0].newTransaction();
+            for (int i=0; i<100; i++) {
+                byte[] key = ("key-" + t + "-" + i).getBytes();
+                ix0.store(txn, key, key);
+            }
+            txn.commit();
+
+            long position = dbs[0].replicationPosition();
+            assertTrue(position > 0);
+            assertTrue(dbs[1].awaitPosition(position, 10, TimeUnit.SECONDS));
+
+            // Read your writes.
+            for (int i=0; i<100; i++) {
+                byte[] key = ("key-" + t + "-" + i).getBytes();
+                fastAssertArrayEquals(key, ix1.load(null, key));
+            }
+        }
+
+        // Catch up to what the group has committed.
+        long position = dbs[1].replicationPosition();
+        assertTrue(position >= dbs[0].replicationPosition());
+        assertTrue(dbs[1].awaitPosition(position, 10, TimeUnit.SECONDS));
+
+        // The leader has applied everything it has written.
+        assertTrue(dbs[0].awaitPosition(position, 0, TimeUnit.SECONDS));
+
+        assertFalse(dbs[1].awaitPosition(Long.MAX_VALUE, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void largeSnapshot() throws Exception {
+        // A new member receives a snapshot which is large enough to be transferred over
+        // several connections.
+
+        Database[] dbs = startGroup(1);
+        Index ix0 = dbs[0].openIndex("test");
+
+        var rnd = new Random(8675309);
+        var value = new byte[1000];
+
+        for (int i=0; i<30_000; i++) {
+            rnd.nextBytes(value);
+            ix0.store(null, ("key-" + i).getBytes(), value);
+        }
+
+        dbs[0].checkpoint();
+
+        mSockets = Arrays.copyOf(mSockets, 2);
+        mSockets[1] = TestUtils.newServerSocket();
+        File baseFile = TestUtils.newTempBaseFile(getClass());
+
+        StreamReplicator repl = StreamReplicator.open
+            (new ReplicatorConfig()
+             .groupToken(1)
+             .localSocket(mSockets[1])
+             .baseFile(baseFile)
+             .addSeed(mSockets[0].getLocalSocketAddress())
+             .failoverLagTimeoutMillis(-1));
+
+        var restoreEvents = new LinkedBlockingQueue<String>();
+        EventListener listener = (type, message, args) -> {
+            if (type == EventType.REPLICATION_RESTORE) {
+                restoreEvents.add(String.format(message, args));
+            }
+        };
+
+        mDatabases = Arrays.copyOf(mDatabases, 2);
+        mDatabases[1] = Database.open(new DatabaseConfig()
+                                      .baseFile(baseFile)
+                                      .replicate(repl)
+                                      .eventListener(listener)
+                                      .lockTimeout(5, TimeUnit.SECONDS));
+
+        assertTrue(mDatabases[1].awaitPosition
+                   (dbs[0].replicationPosition(), 10, TimeUnit.SECONDS));
+
+        // The snapshot must have been transferred as page ranges, and not as a single stream.
+        assertTrue(restoreEvents.toString(),
+                   restoreEvents.stream().anyMatch(e -> e.contains("as page ranges")));
+
+        Index ix1 = mDatabases[1].openIndex("test");
+
+        rnd = new Random(8675309);
+
+        for (int i=0; i<30_000; i++) {
+            rnd.nextBytes(value);
+            fastAssertArrayEquals(value, ix1.load(null, ("key-" + i).getBytes()));
+        }
+
+        assertTrue(mDatabases[1].verify(null, 1));
+    }
+
     @Test
     public void largeWrite() throws Exception {
         Database[] dbs = startGroup(1);
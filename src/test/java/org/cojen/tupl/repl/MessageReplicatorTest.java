@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 import org.junit.*;
 import static org.junit.Assert.*;
 
+import org.cojen.tupl.diag.DatabaseStats;
 import org.cojen.tupl.diag.EventListener;
 
 import org.cojen.tupl.TestUtils;
@@ -75,15 +76,16 @@ public class MessageReplicatorTest {
      * @return first is the leader
      */
     private MessageReplicator[] startGroup(int members) throws Exception {
-        return startGroup(members, Role.OBSERVER, true, false, 0);
+        return startGroup(members, Role.OBSERVER, true, false, 0, 0);
     }
 
     /**
      * @return first is the leader
      * @param withCRCs mod value to enable CRC checksum on sockets
+     * @param withCompression mod value to enable compression on sockets
      */
     private MessageReplicator[] startGroup(int members, Role replicaRole, boolean waitToJoin,
-                                           boolean proxy, int withCRCs)
+                                           boolean proxy, int withCRCs, int withCompression)
         throws Exception
     {
         if (members < 1) {
@@ -115,6 +117,10 @@ public class MessageReplicatorTest {
                 mConfigs[i].checksumSockets(i % withCRCs == 0);
             }
 
+            if (withCompression > 0) {
+                mConfigs[i].compressSockets(i % withCompression == 0);
+            }
+
             if (false) {
                 // Debug printing.
                 mConfigs[i].eventListener(EventListener.printTo(System.out));
@@ -266,21 +272,39 @@ public class MessageReplicatorTest {
 
     @Test
     public void variableMessageSizes() throws Exception {
-        variableMessageSizes(false, 0);
+        variableMessageSizes(false, 0, 0);
     }
 
     @Test
     public void variableMessageSizesPartial() throws Exception {
-        variableMessageSizes(true, 0);
+        variableMessageSizes(true, 0, 0);
     }
 
     @Test
     public void variableMessageSizesWithCRCs() throws Exception {
-        variableMessageSizes(true, 2); // CRCs for even members only
+        variableMessageSizes(true, 2, 0); // CRCs for even members only
     }
 
-    private void variableMessageSizes(boolean partial, int withCRCs) throws Exception {
-        MessageReplicator[] repls = startGroup(3, Role.OBSERVER, true, false, withCRCs);
+    @Test
+    public void variableMessageSizesWithCompression() throws Exception {
+        // Compression is only used between the even members, which both enable it.
+        variableMessageSizes(false, 0, 2);
+
+        var stats = new DatabaseStats();
+        mReplicators[0].addStats(stats);
+        assertTrue(stats.replicationCompressedBytes > 0);
+        assertTrue(stats.replicationUncompressedBytes > stats.replicationCompressedBytes);
+
+        stats = new DatabaseStats();
+        mReplicators[1].addStats(stats);
+        assertEquals(0, stats.replicationCompressedBytes);
+    }
+
+    private void variableMessageSizes(boolean partial, int withCRCs, int withCompression)
+        throws Exception
+    {
+        MessageReplicator[] repls = startGroup(3, Role.OBSERVER, true, false,
+                                               withCRCs, withCompression);
 
         int[] sizes = {
             0, 1, 10, 100, 127,
@@ -353,7 +377,7 @@ public class MessageReplicatorTest {
     private void largeGroupNoWaitToJoin(boolean proxy) throws Exception {
         final int count = 10;
 
-        MessageReplicator[] repls = startGroup(count, Role.PROXY, false, proxy, 0);
+        MessageReplicator[] repls = startGroup(count, Role.PROXY, false, proxy, 0, 0);
 
         Writer writer = repls[0].newWriter();
 
@@ -408,7 +432,7 @@ public class MessageReplicatorTest {
     }
 
     private void doExplicitFailover() throws Exception {
-        MessageReplicator[] repls = startGroup(3, Role.NORMAL, true, false, 0);
+        MessageReplicator[] repls = startGroup(3, Role.NORMAL, true, false, 0, 0);
         assertTrue(repls.length == 3);
 
         Writer writer = repls[0].newWriter();
@@ -493,7 +517,7 @@ public class MessageReplicatorTest {
     public void falseFailover() throws Exception {
         // Test that the new leader is lagging behind and loses leadership.
 
-        MessageReplicator[] repls = startGroup(2, Role.NORMAL, true, false, 0);
+        MessageReplicator[] repls = startGroup(2, Role.NORMAL, true, false, 0, 0);
         assertTrue(repls.length == 2);
 
         Writer writer = repls[0].newWriter();
@@ -17,7 +17,9 @@
 
 package org.cojen.tupl.table;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.TreeMap;
 
 import org.junit.*;
 import static org.junit.Assert.*;
@@ -327,12 +329,13 @@ public class AggregatedTest {
 
         QueryPlan plan = aggregated.queryAll().scannerPlan(null);
         assertEquals("""
-- aggregate: org.cojen.tupl.table.AggregatedTest$TestRowAggByName
-  operation: Aggregator1
-  group by: name
-  - sort: +name
-    - full scan over primary key: org.cojen.tupl.table.AggregatedTest$TestRow
-      key columns: +id
+- sort: +name
+  - aggregate: org.cojen.tupl.table.AggregatedTest$TestRowAggByName
+    operation: Aggregator1
+    group by: name
+    - hash group: name
+      - full scan over primary key: org.cojen.tupl.table.AggregatedTest$TestRow
+        key columns: +id
                      """,
                      plan.toString());
 
@@ -394,12 +397,13 @@ public class AggregatedTest {
         plan = aggregated.query(query).scannerPlan(null);
         assertEquals("""
 - filter: maxNum >= ?1 && maxNum <= ?2
-  - aggregate: org.cojen.tupl.table.AggregatedTest$TestRowAggByName
-    operation: Aggregator1
-    group by: name
-    - sort: +name
-      - full scan over primary key: org.cojen.tupl.table.AggregatedTest$TestRow
-        key columns: +id
+  - sort: +name
+    - aggregate: org.cojen.tupl.table.AggregatedTest$TestRowAggByName
+      operation: Aggregator1
+      group by: name
+      - hash group: name
+        - full scan over primary key: org.cojen.tupl.table.AggregatedTest$TestRow
+          key columns: +id
                      """,
                      plan.toString());
 
@@ -456,12 +460,13 @@ public class AggregatedTest {
         assertEquals("""
 - sort: -avgNum
   - filter: count >= ?1 && avgNum >= ?2
-    - aggregate: org.cojen.tupl.table.AggregatedTest$TestRowAggByName
-      operation: Aggregator1
-      group by: name
-      - sort: +name
-        - full scan over primary key: org.cojen.tupl.table.AggregatedTest$TestRow
-          key columns: +id
+    - sort: +name
+      - aggregate: org.cojen.tupl.table.AggregatedTest$TestRowAggByName
+        operation: Aggregator1
+        group by: name
+        - hash group: name
+          - full scan over primary key: org.cojen.tupl.table.AggregatedTest$TestRow
+            key columns: +id
                      """,
                      plan.toString());
 
@@ -529,6 +534,54 @@ public class AggregatedTest {
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void hashSpill() throws Exception {
+        Table<TestRowAggByName> aggregated =
+            mTable.aggregate(TestRowAggByName.class, new Agg1Factory<>());
+
+        var counts = new TreeMap<String, Long>();
+        for (int i=0; i<1000; i++) {
+            var row = mTable.newRow();
+            row.id(i);
+            String name = "name-" + (i * 7919 % 50);
+            row.name(name);
+            row.num(i);
+            mTable.insert(null, row);
+            counts.merge(name, 1L, Long::sum);
+        }
+
+        Comparator<TestRowAggByName> cmp = aggregated.comparator("+name");
+
+        // Only ten groups are kept in memory, and the rest are spilled.
+        for (int limit : new int[] {1000, 10, 0}) {
+            Scanner<TestRowAggByName> s = HashAggregator.aggregate
+                ((AggregatedTable<TestRow, TestRowAggByName>) aggregated,
+                 mTable.newScanner(null), cmp, null, "+name", limit);
+
+            var it = counts.entrySet().iterator();
+            for (var row = s.row(); row != null; row = s.step(row)) {
+                var e = it.next();
+                assertEquals(e.getKey(), row.name());
+                assertEquals((long) e.getValue(), row.count());
+            }
+            assertFalse(it.hasNext());
+        }
+
+        // Results are the same as stream aggregation.
+        var expect = new ArrayList<String>();
+        try (var s = mTable.aggregate(TestRowAggByName.class, new Agg1Factory<>())
+             .newScanner(null, "{+name, *} name >= ?", ""))
+        {
+            for (var row = s.row(); row != null; row = s.step()) {
+                expect.add(row.toString());
+            }
+        }
+        var actual = new ArrayList<String>();
+        aggregated.newStream(null).forEach(row -> actual.add(row.toString()));
+        assertEquals(expect, actual);
+    }
+
     private void fill() throws Exception {
         Object[][] data = {
             {1, "hello", 1},
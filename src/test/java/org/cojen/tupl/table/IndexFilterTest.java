@@ -0,0 +1,247 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class IndexFilterTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(IndexFilterTest.class.getName());
+    }
+
+    private static final String PROPERTY = "org.cojen.tupl.table.IndexFilterBits";
+
+    @BeforeClass
+    public static void enable() {
+        System.setProperty(PROPERTY, "10");
+    }
+
+    @AfterClass
+    public static void disable() {
+        System.clearProperty(PROPERTY);
+    }
+
+    @PrimaryKey("id")
+    @SecondaryIndex("customer")
+    @AlternateKey("code")
+    public interface Order {
+        long id();
+        void id(long id);
+
+        long customer();
+        void customer(long customer);
+
+        String code();
+        void code(String code);
+    }
+
+    @PrimaryKey("id")
+    public interface Customer {
+        long id();
+        void id(long id);
+    }
+
+    public interface CustomerOrder {
+        Customer customer();
+        void customer(Customer row);
+
+        Order order();
+        void order(Order row);
+    }
+
+    private Database mDb;
+    private StoredTable<Order> mOrders;
+
+    @Before
+    public void setup() throws Exception {
+        mDb = Database.open(new DatabaseConfig());
+        mOrders = (StoredTable<Order>) mDb.openTable(Order.class);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (mDb != null) {
+            mDb.close();
+            mDb = null;
+        }
+    }
+
+    @Test
+    public void lookups() throws Exception {
+        // Only the even customers have orders.
+        for (int i=0; i<5000; i++) {
+            insert(i, (i % 1000) * 2);
+        }
+
+        IndexFilter filter = awaitFilter("customer");
+
+        for (int i=0; i<2000; i++) {
+            int expect = (i & 1) == 0 ? 5 : 0;
+            assertEquals(expect, count(mOrders.newScanner(null, "customer == ?", i)));
+        }
+
+        assertEquals(10, count(mOrders.newScanner(null, "customer in ?",
+                                                  new long[] {1, 2, 3, 4, 5})));
+
+        // Keys which are added after the filter is built aren't filtered out.
+        insert(10_000, 1);
+        assertEquals(1, count(mOrders.newScanner(null, "customer == ?", 1)));
+
+        // Updates add keys too.
+        Order order = mOrders.newRow();
+        order.id(0);
+        mOrders.load(null, order);
+        order.customer(3);
+        mOrders.update(null, order);
+        assertEquals(1, count(mOrders.newScanner(null, "customer == ?", 3)));
+
+        // Rows are found when a delete rolls back.
+        Transaction txn = mDb.newTransaction();
+        mOrders.delete(txn, order);
+        assertEquals(0, count(mOrders.newScanner(txn, "customer == ?", 3)));
+        txn.reset();
+        assertEquals(1, count(mOrders.newScanner(null, "customer == ?", 3)));
+
+        // No false negatives.
+        Index ix = indexTable("customer").mSource;
+        try (Cursor c = ix.newCursor(null)) {
+            for (c.first(); c.key() != null; c.next()) {
+                assertTrue(filter.mightContain(c.key()));
+            }
+        }
+    }
+
+    @Test
+    public void falsePositives() throws Exception {
+        for (int i=0; i<5000; i++) {
+            insert(i, i * 2);
+        }
+
+        IndexFilter filter = awaitFilter("customer");
+
+        // Encode some keys which don't exist by inserting them into another database.
+        Database db2 = Database.open(new DatabaseConfig());
+        var orders2 = (StoredTable<Order>) db2.openTable(Order.class);
+        for (int i=0; i<5000; i++) {
+            Order order = orders2.newRow();
+            order.id(i);
+            order.customer(i * 2 + 1);
+            order.code("c" + i);
+            orders2.insert(null, order);
+        }
+
+        Index ix2 = orders2.viewSecondaryIndex("customer").mSource;
+
+        int positives = 0;
+        try (Cursor c = ix2.newCursor(null)) {
+            for (c.first(); c.key() != null; c.next()) {
+                if (filter.mightContain(c.key())) {
+                    positives++;
+                }
+            }
+        }
+
+        db2.close();
+
+        assertTrue("" + positives, positives < 500);
+    }
+
+    @Test
+    public void alternateKey() throws Exception {
+        for (int i=0; i<1000; i++) {
+            insert(i, i);
+        }
+
+        awaitFilter("code");
+
+        for (int i=0; i<2000; i++) {
+            assertEquals(i < 1000 ? 1 : 0, count(mOrders.newScanner(null, "code == ?", "c" + i)));
+        }
+
+        Table<Order> codes = mOrders.viewAlternateKey("code");
+        assertEquals(1, count(codes.newScanner(null, "code == ?", "c10")));
+        assertEquals(0, count(codes.newScanner(null, "code == ?", "x10")));
+    }
+
+    @Test
+    public void join() throws Exception {
+        Table<Customer> customers = mDb.openTable(Customer.class);
+
+        for (int i=0; i<1000; i++) {
+            Customer customer = customers.newRow();
+            customer.id(i);
+            customers.insert(null, customer);
+            if (i % 10 == 0) {
+                insert(i, i);
+            }
+        }
+
+        awaitFilter("customer");
+
+        Table<CustomerOrder> join = mDb.openJoinTable(CustomerOrder.class, "customer :: order");
+
+        assertEquals(100, count(join.newScanner(null, "order.customer == customer.id")));
+    }
+
+    private void insert(long id, long customer) throws Exception {
+        Order order = mOrders.newRow();
+        order.id(id);
+        order.customer(customer);
+        order.code("c" + id);
+        mOrders.insert(null, order);
+    }
+
+    private StoredTable<Order> indexTable(String name) throws Exception {
+        return name.equals("code") ? mOrders.viewAlternateKey(name)
+            : mOrders.viewSecondaryIndex(name);
+    }
+
+    private IndexFilter awaitFilter(String name) throws Exception {
+        StoredTable<Order> table = indexTable(name);
+        for (int i=0; i<1000; i++) {
+            IndexFilter filter = table.indexFilter();
+            if (filter != null && filter.isBuilt()) {
+                return filter;
+            }
+            Thread.sleep(10);
+        }
+        fail("Filter isn't built");
+        return null;
+    }
+
+    private static int count(Scanner<?> s) throws Exception {
+        int count = 0;
+        try (s) {
+            for (Object row = s.row(); row != null; row = s.step()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
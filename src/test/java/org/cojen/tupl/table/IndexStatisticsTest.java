@@ -0,0 +1,185 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.lang.reflect.Method;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.maker.ClassMaker;
+
+import org.cojen.tupl.*;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class IndexStatisticsTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(IndexStatisticsTest.class.getName());
+    }
+
+    @PrimaryKey("id")
+    @AlternateKey("code")
+    @SecondaryIndex("kind")
+    public interface TestRow {
+        long id();
+        void id(long id);
+
+        String code();
+        void code(String code);
+
+        int kind();
+        void kind(int kind);
+    }
+
+    private Database mDb;
+    private StoredTable<TestRow> mTable;
+
+    @Before
+    public void setup() throws Exception {
+        mDb = newTempDatabase(getClass());
+        mTable = (StoredTable<TestRow>) mDb.openTable(TestRow.class);
+
+        for (int i=0; i<5000; i++) {
+            TestRow row = mTable.newRow();
+            row.id(i);
+            row.code("c" + i);
+            row.kind(i & 1);
+            mTable.insert(null, row);
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        deleteTempDatabases(getClass());
+        mDb = null;
+        mTable = null;
+    }
+
+    @Test
+    public void collect() throws Exception {
+        TableManager<TestRow> manager = mTable.tableManager();
+        assertNull(manager.statistics());
+        assertEquals(-1, IndexStatistics.estimateRowCount(mTable));
+
+        manager.refreshStatistics();
+
+        IndexStatistics stats = manager.statistics();
+        assertNotNull(stats);
+        long rowCount = stats.rowCount();
+        assertTrue(stats.toString(), rowCount > 2500 && rowCount < 10000);
+        assertEquals(rowCount, IndexStatistics.estimateRowCount(mTable));
+        assertTrue(stats.toString(), stats.distinct(1) > 1000);
+        assertEquals(rowCount, stats.estimateRows(null, null));
+
+        RowInfo info = RowInfo.find(TestRow.class);
+
+        ColumnSet cs = info.secondaryIndexes.first();
+        IndexStatistics kindStats = manager.statistics(RowStore.secondaryDescriptor(cs, false));
+        assertNotNull(kindStats);
+        assertEquals(kindStats.toString(), 2, kindStats.distinct(1));
+        assertTrue(kindStats.toString(), kindStats.equalityRows(1) > 1000);
+
+        cs = info.alternateKeys.first();
+        IndexStatistics codeStats = manager.statistics(RowStore.secondaryDescriptor(cs, true));
+        assertNotNull(codeStats);
+        assertTrue(codeStats.toString(), codeStats.equalityRows(1) < 2);
+
+        // Statistics are persisted.
+        mDb.checkpoint();
+        mDb = reopenTempDatabase(getClass(), mDb, new DatabaseConfig());
+        mTable = (StoredTable<TestRow>) mDb.openTable(TestRow.class);
+        stats = mTable.tableManager().statistics();
+        assertNotNull(stats);
+        assertEquals(rowCount, stats.rowCount());
+    }
+
+    @Test
+    public void selection() throws Exception {
+        Query<TestRow> kindQuery = mTable.query("kind == ?");
+        Query<TestRow> codeQuery = mTable.query("code == ?");
+
+        // Without statistics, the low-selectivity secondary index is chosen.
+        String plan = kindQuery.scannerPlan(null, 1).toString();
+        assertTrue(plan, plan.contains("secondary index"));
+
+        mTable.tableManager().refreshStatistics();
+
+        // A full scan is cheaper than a join for half of the rows.
+        kindQuery = mTable.query("kind == ?");
+        plan = kindQuery.scannerPlan(null, 1).toString();
+        assertTrue(plan, plan.contains("full scan over primary key"));
+        assertEquals(2500, kindQuery.newStream(null, 1).count());
+
+        // Highly selective indexes are still chosen.
+        codeQuery = mTable.query("code == ?");
+        plan = codeQuery.scannerPlan(null, "c10").toString();
+        assertTrue(plan, plan.contains("alternate key"));
+        assertEquals(1, codeQuery.newStream(null, "c10").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void dropIndex() throws Exception {
+        final String typeName = RowTestUtils.newRowTypeName();
+
+        final Object[] spec = {
+            long.class, "+id",
+            int.class, "kind"
+        };
+
+        ClassMaker cm = RowTestUtils.newRowTypeMaker(typeName, spec);
+        RowTestUtils.addSecondaryIndex(cm, "kind");
+        Class t1 = cm.finish();
+        Method[] setters = RowTestUtils.access(spec, t1)[1];
+        var table1 = (StoredTable) mDb.openIndex("drop").asTable(t1);
+
+        for (int i=0; i<1000; i++) {
+            var row = table1.newRow();
+            setters[0].invoke(row, i); // id
+            setters[1].invoke(row, i & 3); // kind
+            table1.insert(null, row);
+        }
+
+        TableManager manager = table1.tableManager();
+        manager.refreshStatistics();
+
+        ColumnSet cs = RowInfo.find(t1).secondaryIndexes.first();
+        byte[] desc = RowStore.secondaryDescriptor(cs, false);
+        assertNotNull(manager.statistics(desc));
+
+        // Define the table again, but without the secondary index. Its statistics are
+        // removed when it's dropped.
+        Class t2 = RowTestUtils.newRowType(typeName, spec);
+        mDb.openIndex("drop").asTable(t2);
+        assertNull(manager.statistics(desc));
+        assertNotNull(manager.statistics());
+
+        // The removal is persisted.
+        mDb.checkpoint();
+        mDb = reopenTempDatabase(getClass(), mDb, new DatabaseConfig());
+        manager = ((StoredTable) mDb.openIndex("drop").asTable(t2)).tableManager();
+        assertNull(manager.statistics(desc));
+        assertNotNull(manager.statistics());
+    }
+}
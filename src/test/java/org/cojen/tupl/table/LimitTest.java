@@ -0,0 +1,207 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class LimitTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(LimitTest.class.getName());
+    }
+
+    @PrimaryKey("id")
+    public interface TestRow {
+        long id();
+        void id(long id);
+
+        int value();
+        void value(int value);
+
+        // Limit isn't a reserved word.
+        int limit();
+        void limit(int limit);
+    }
+
+    private Database mDb;
+    private Table<TestRow> mTable;
+
+    @Before
+    public void setup() throws Exception {
+        mDb = Database.open(new DatabaseConfig());
+        mTable = mDb.openTable(TestRow.class);
+
+        for (int i=0; i<1000; i++) {
+            TestRow row = mTable.newRow();
+            row.id(i);
+            row.value((i * 7919) % 1000);
+            row.limit(i % 10);
+            mTable.insert(null, row);
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (mDb != null) {
+            mDb.close();
+            mDb = null;
+        }
+    }
+
+    @Test
+    public void ordered() throws Exception {
+        Query<TestRow> query = mTable.query("{+id, *} limit 10 offset 5");
+        String plan = query.scannerPlan(null).toString();
+        assertTrue(plan, plan.contains("limit: 10, offset: 5"));
+        assertFalse(plan, plan.contains("sort"));
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L), ids(query));
+
+        query = mTable.query("{-id, *} id < ? limit ?");
+        plan = query.scannerPlan(null, 100, 3).toString();
+        assertTrue(plan, plan.contains("limit: ?2"));
+        assertEquals(List.of(99L, 98L, 97L), ids(query, 100, 3));
+        assertEquals(List.of(), ids(query, 100, 0));
+
+        // Null means unlimited.
+        assertEquals(100, ids(query, 100, null).size());
+
+        query = mTable.query("offset ?");
+        assertEquals(10, ids(query, 990).size());
+        assertEquals(0, ids(query, 2000).size());
+
+        try {
+            ids(query, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void topSort() throws Exception {
+        var expect = new ArrayList<Long>();
+        for (TestRow row : mTable.newStream(null, "{-value, *} id >= ?", 100).toList()) {
+            expect.add(row.id());
+        }
+
+        Query<TestRow> query = mTable.query("{-value, *} id >= ? limit ? offset ?");
+
+        String plan = query.scannerPlan(null, 100, 20, 10).toString();
+        assertTrue(plan, plan.contains("top sort: -value, count: 30"));
+        assertEquals(expect.subList(10, 30), ids(query, 100, 20, 10));
+
+        // A full sort is used when the limit is large.
+        plan = query.scannerPlan(null, 100, 1_000_000, 0).toString();
+        assertFalse(plan, plan.contains("top sort"));
+        assertTrue(plan, plan.contains("sort: -value"));
+        assertEquals(expect.subList(890, 900), ids(query, 100, 1_000_000, 890));
+    }
+
+    @Test
+    public void update() throws Exception {
+        try (Updater<TestRow> u = mTable.newUpdater(null, "{+id, *} limit 3")) {
+            for (TestRow row = u.row(); row != null; ) {
+                row = u.delete();
+            }
+        }
+
+        assertEquals(997, mTable.newStream(null).count());
+        assertEquals(3L, mTable.newStream(null).findFirst().get().id());
+
+        try (Updater<TestRow> u = mTable.newUpdater(null, "{-value, *} limit 2")) {
+            for (TestRow row = u.row(); row != null; ) {
+                row.value(-1);
+                row = u.update();
+            }
+        }
+
+        assertEquals(2, mTable.newStream(null, "value == ?", -1).count());
+    }
+
+    @Test
+    public void columnName() throws Exception {
+        assertEquals(100, mTable.newStream(null, "limit == ?", 3).count());
+        assertEquals(5, mTable.newStream(null, "limit == ? limit 5", 3).count());
+        assertEquals(5, mTable.newStream(null, "{limit, id} limit == 3 limit 5").count());
+    }
+
+    @Test
+    public void literals() throws Exception {
+        Query<TestRow> query = mTable.query("id > 5 && id < 20 limit ?");
+        assertEquals(4, query.newStream(null, 4).count());
+        assertEquals(14, query.newStream(null, 100).count());
+    }
+
+    @Test
+    public void mapped() throws Exception {
+        Table<TestRow> mapped = mTable.map(TestRow.class, (source, target) -> {
+            target.id(source.id());
+            target.value(source.value());
+            target.limit(source.limit());
+            return source.limit() == 0 ? null : target;
+        });
+
+        Query<TestRow> query = mapped.query("{+id, *} id < ? limit ?");
+        String plan = query.scannerPlan(null, 100, 5).toString();
+        assertTrue(plan, plan.contains("limit: ?2"));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(query, 100, 5));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 11L), ids(query, 100, 10));
+    }
+
+    @Test
+    public void unsupported() throws Exception {
+        try {
+            mTable.query("{v = value + 1} limit 2");
+            fail();
+        } catch (QueryException e) {
+            assertTrue(e.getMessage().contains("Limit"));
+        }
+
+        try {
+            mTable.derive("id > ? limit 2", 10);
+            fail();
+        } catch (QueryException e) {
+            assertTrue(e.getMessage().contains("Limit"));
+        }
+
+        try {
+            mTable.query("{*} limit -1");
+            fail();
+        } catch (QueryException e) {
+        }
+    }
+
+    private static List<Long> ids(Query<TestRow> query, Object... args) throws Exception {
+        var ids = new ArrayList<Long>();
+        try (Scanner<TestRow> s = query.newScanner(null, args)) {
+            for (TestRow row = s.row(); row != null; row = s.step(row)) {
+                ids.add(row.id());
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class ParallelQueryTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(ParallelQueryTest.class.getName());
+    }
+
+    private static final int COUNT = 20_000;
+
+    @Before
+    public void setup() throws Exception {
+        mDb = Database.open(new DatabaseConfig());
+        mTable = mDb.openTable(TestRow.class);
+
+        for (int i=1; i<=COUNT; i++) {
+            TestRow row = mTable.newRow();
+            row.id(i);
+            row.grp(i % 10);
+            row.num(i % 7);
+            mTable.insert(null, row);
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        mDb.close();
+        mDb = null;
+    }
+
+    private Database mDb;
+    private Table<TestRow> mTable;
+
+    @PrimaryKey("id")
+    public interface TestRow {
+        long id();
+        void id(long id);
+
+        int grp();
+        void grp(int grp);
+
+        int num();
+        void num(int num);
+    }
+
+    public interface Totals {
+        long count();
+        void count(long count);
+
+        long total();
+        void total(long total);
+    }
+
+    @PrimaryKey("grp")
+    public interface GroupTotals extends Totals {
+        int grp();
+        void grp(int grp);
+    }
+
+    public static class TotalsAggregator<T extends Totals> implements Aggregator<TestRow, T> {
+        long count, total;
+
+        @Override
+        public TestRow begin(TestRow source) {
+            count = 1;
+            total = source.num();
+            return source;
+        }
+
+        @Override
+        public TestRow accumulate(TestRow source) {
+            count++;
+            total += source.num();
+            return source;
+        }
+
+        @Override
+        public T finish(T target) {
+            target.count(count);
+            target.total(total);
+            return target;
+        }
+
+        @Override
+        public void combine(Aggregator<TestRow, T> other) {
+            var o = (TotalsAggregator<T>) other;
+            count += o.count;
+            total += o.total;
+        }
+    }
+
+    public record TotalsFactory<T extends Totals>(boolean combinable)
+        implements Aggregator.Factory<TestRow, T>
+    {
+        @Override
+        public Aggregator<TestRow, T> newAggregator() {
+            return new TotalsAggregator<T>();
+        }
+
+        @Override
+        public boolean isCombinable() {
+            return combinable;
+        }
+    }
+
+    @Test
+    public void scan() throws Exception {
+        for (String queryStr : new String[] {"{*} num >= ?", "{-id, *} num >= ?"}) {
+            Query<TestRow> query = mTable.query(queryStr);
+            Query<TestRow> parallel = query.parallel(4);
+
+            assertSame(query, parallel.parallel(1));
+            assertSame(parallel.getClass(), parallel.parallel(8).getClass());
+
+            String plan = parallel.scannerPlan(null, 3).toString();
+            assertTrue(plan, plan.startsWith("- parallel: 4\n"));
+
+            List<TestRow> expect = toList(query.newScanner(null, 3));
+            assertTrue(expect.size() > COUNT / 2);
+
+            // Rows are produced in the same order.
+            assertEquals(expect, toList(parallel.newScanner(null, 3)));
+
+            try (var stream = parallel.newStream(Transaction.BOGUS, 3)) {
+                assertEquals(expect.size(), stream.count());
+            }
+        }
+
+        // Closing early is fine.
+        try (Scanner<TestRow> s = mTable.queryAll().parallel(4).newScanner(null)) {
+            assertEquals(1, s.row().id());
+            assertEquals(2, s.step().id());
+        }
+
+        try {
+            mTable.queryAll().parallel(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void transaction() throws Exception {
+        Query<TestRow> parallel = mTable.query("num == ?").parallel(4);
+
+        // Transactions cannot be shared by threads, and so the query executes serially.
+        Transaction txn = mDb.newTransaction();
+        String plan = parallel.scannerPlan(txn, 1).toString();
+        assertFalse(plan, plan.contains("parallel"));
+
+        List<TestRow> rows = toList(parallel.newScanner(txn, 1));
+        assertEquals(toList(mTable.newScanner(null, "num == ?", 1)), rows);
+        txn.exit();
+    }
+
+    @Test
+    public void aggregate() throws Exception {
+        for (boolean combinable : new boolean[] {true, false}) {
+            Table<GroupTotals> grouped = mTable.aggregate
+                (GroupTotals.class, new TotalsFactory<GroupTotals>(combinable));
+
+            Query<GroupTotals> query = grouped.query("grp >= ?");
+            Query<GroupTotals> parallel = query.parallel(4);
+            assertSame(query, parallel.parallel(1));
+
+            String plan = parallel.scannerPlan(null, 2).toString();
+            assertTrue(plan, plan.contains("hash group: grp"));
+            assertTrue(plan, plan.contains("parallel: 4"));
+
+            List<GroupTotals> expect = toList(query.newScanner(null, 2));
+            assertEquals(8, expect.size());
+            assertEquals(expect.toString(), toList(parallel.newScanner(null, 2)).toString());
+
+            Table<Totals> totals = mTable.aggregate
+                (Totals.class, new TotalsFactory<Totals>(combinable));
+
+            List<Totals> all = toList(totals.queryAll().parallel(4).newScanner(null));
+            assertEquals(1, all.size());
+            assertEquals(COUNT, all.get(0).count());
+
+            long total = 0;
+            for (int i=1; i<=COUNT; i++) {
+                total += i % 7;
+            }
+            assertEquals(total, all.get(0).total());
+
+            // With a transaction, the aggregation is performed serially.
+            Transaction txn = mDb.newTransaction();
+            plan = parallel.scannerPlan(txn, 2).toString();
+            assertFalse(plan, plan.contains("parallel"));
+            assertEquals(expect.toString(), toList(parallel.newScanner(txn, 2)).toString());
+            txn.exit();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aggregateLimit() throws Exception {
+        Table<GroupTotals> grouped = mTable.aggregate
+            (GroupTotals.class, new TotalsFactory<GroupTotals>(true));
+
+        List<GroupTotals> expect = toList(grouped.newScanner(null, "grp >= ?", 0));
+        assertEquals(10, expect.size());
+
+        Comparator<GroupTotals> cmp = grouped.comparator("+grp");
+
+        // When the total amount of groups held by the workers exceeds the limit, the source
+        // rows are aggregated again by the serial spilling path.
+        for (int limit : new int[] {1000, 5, 0}) {
+            Scanner<GroupTotals> s = HashAggregator.aggregateParallel
+                ((AggregatedTable<TestRow, GroupTotals>) grouped, mTable.queryAll(),
+                 null, new Object[0], cmp, null, "+grp", 4, limit);
+            assertEquals(expect.toString(), toList(s).toString());
+        }
+    }
+
+    private static <R> List<R> toList(Scanner<R> s) throws Exception {
+        var list = new ArrayList<R>();
+        try (s) {
+            for (R row = s.row(); row != null; row = s.step()) {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.core.LocalDatabase;
+
+import static org.cojen.tupl.TestUtils.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class QueryPlanCacheTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(QueryPlanCacheTest.class.getName());
+    }
+
+    @PrimaryKey("id")
+    public interface TestRow {
+        long id();
+        void id(long id);
+
+        String name();
+        void name(String name);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        deleteTempDatabases(getClass());
+    }
+
+    @Test
+    public void normalize() {
+        assertEquals("a == ?", QueryPlanCache.normalize("a == ?"));
+        assertEquals("a == ?", QueryPlanCache.normalize("  a \t==\n ?  "));
+        assertEquals("a == 'x  y'", QueryPlanCache.normalize("a  ==  'x  y'"));
+        assertEquals("a == \"x\\\"  y\"", QueryPlanCache.normalize("a == \"x\\\"  y\""));
+        assertEquals("", QueryPlanCache.normalize(null));
+    }
+
+    @Test
+    public void basic() throws Exception {
+        Database db = newTempDatabase(getClass());
+        QueryPlanCache cache = ((LocalDatabase) db).queryPlanCache();
+        Table<TestRow> table = db.openTable(TestRow.class);
+
+        for (int i=0; i<10; i++) {
+            TestRow row = table.newRow();
+            row.id(i);
+            row.name("name-" + i);
+            table.insert(null, row);
+        }
+
+        Query<TestRow> q1 = table.query("id >= ?");
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+
+        Query<TestRow> q2 = table.query("  id   >= ? ");
+        assertSame(q1, q2);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        assertEquals(5, q1.newStream(null, 5).count());
+        assertTrue(q1.anyRows(null, 9));
+
+        try (Scanner<TestRow> s = q2.newScanner(null, 0)) {
+            assertNotNull(s.row());
+        }
+
+        Table<Row> derived = table.derive("{name} id == ?", 3);
+        try (Scanner<Row> s = derived.newScanner(null)) {
+            assertEquals("name-3", s.row().getString("name"));
+        }
+        table.derive("{name} id == ?", 4);
+
+        // Internal queries are also cached, but they don't have as many executions.
+        List<QueryPlanCache.Plan> plans = cache.plans();
+        assertTrue(plans.size() >= 2);
+
+        QueryPlanCache.Plan plan = plans.get(0);
+        assertEquals(TestRow.class.getName(), plan.tableName());
+        assertEquals("id >= ?", plan.query());
+        assertEquals(2, plan.lookups());
+        assertEquals(3, plan.executions());
+        assertTrue(plan.compileNanos() > 0);
+
+        plan = plans.get(1);
+        assertEquals("{name} id == ?", plan.query());
+        assertEquals(2, plan.lookups());
+        assertEquals(2, plan.executions());
+
+        assertTrue(cache.compileNanos() > 0);
+
+        // Closing the table removes its plans.
+        table.close();
+        for (QueryPlanCache.Plan p : cache.plans()) {
+            assertNotEquals(TestRow.class.getName(), p.tableName());
+        }
+
+        db.close();
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        Database db = newTempDatabase(getClass());
+        Table<TestRow> table = db.openTable(TestRow.class);
+
+        var cache = new QueryPlanCache(8);
+
+        var base = (BaseTable<TestRow>) table;
+        for (int i=0; i<100; i++) {
+            String queryStr = "id == " + i;
+            assertEquals(queryStr, cache.obtain(base, 1, queryStr, false, p -> queryStr));
+            assertTrue(cache.size() <= 8);
+        }
+
+        assertEquals(100, cache.misses());
+        assertTrue(cache.evictions() >= 92);
+
+        // Recently used plans get a second chance.
+        cache.clear();
+        for (int i=0; i<8; i++) {
+            String queryStr = "id == " + i;
+            cache.obtain(base, 1, queryStr, false, p -> queryStr);
+        }
+        cache.obtain(base, 1, "id == 0", false, p -> { throw new AssertionError(); });
+        cache.obtain(base, 1, "id == 100", false, p -> "id == 100");
+        cache.obtain(base, 1, "id == 0", false, p -> { throw new AssertionError(); });
+
+        db.close();
+    }
+
+    @Test
+    public void jmx() throws Exception {
+        Database db = newTempDatabase(getClass(), new DatabaseConfig().enableJMX(true));
+        Table<TestRow> table = db.openTable(TestRow.class);
+        table.query("id == ?");
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames
+            (new ObjectName("org.cojen.tupl:type=QueryPlanCache,*"), null);
+        assertFalse(names.isEmpty());
+
+        boolean found = false;
+        for (ObjectName name : names) {
+            var plans = (String[]) server.getAttribute(name, "Plans");
+            for (String plan : plans) {
+                if (plan.contains("query: id == ?")) {
+                    found = true;
+                    assertTrue((Long) server.getAttribute(name, "Misses") >= 1);
+                }
+            }
+        }
+        assertTrue(found);
+
+        db.close();
+    }
+}
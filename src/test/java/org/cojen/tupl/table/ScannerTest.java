@@ -17,6 +17,7 @@
 
 package org.cojen.tupl.table;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -155,6 +156,109 @@ public class ScannerTest {
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void parallel() throws Exception {
+        var table = mDb.openTable(TestRow.class);
+        final int count = 10_000;
+        fill(table, 1, count);
+
+        long expect = ((long) count * (count + 1)) / 2;
+
+        try (var stream = table.newStream(null).parallel()) {
+            assertEquals(expect, stream.mapToLong(TestRow::id).sum());
+        }
+
+        try (var stream = table.newStream(null, "{-id, *} id >= ? && id < ?", 100, 9000)) {
+            long sum = stream.parallel().mapToLong(TestRow::id).sum();
+            assertEquals(((8999L * 9000) / 2) - ((99L * 100) / 2), sum);
+        }
+
+        if (!(table instanceof StoredTable<TestRow> btable)) {
+            // Remaining checks require direct access to the index.
+            return;
+        }
+
+        try (var stream = btable.viewSecondaryIndex("state").newStream(null).parallel()) {
+            assertEquals(expect, stream.mapToLong(TestRow::id).sum());
+        }
+
+        // Verify that the split ranges are disjoint and cover everything, in order.
+
+        for (String query : new String[] {"{+id, *}", "{-id, *}"}) {
+            Scanner<TestRow> s = table.newScanner(null, query);
+            var parts = new ArrayList<Scanner<TestRow>>();
+            for (int i=0; i<8; i++) {
+                var split = s.trySplit();
+                if (split == null) {
+                    break;
+                }
+                parts.add((Scanner<TestRow>) split);
+            }
+            assertFalse(parts.isEmpty());
+            parts.add(s);
+
+            boolean reverse = query.startsWith("{-");
+            long prev = reverse ? (count + 1) : 0;
+            int total = 0;
+
+            // Each split is a prefix of the remaining range, and so the original scanner
+            // covers the last range.
+            for (var part : parts) {
+                for (TestRow row = part.row(); row != null; row = part.step()) {
+                    if (reverse) {
+                        assertTrue(row.id() < prev);
+                    } else {
+                        assertTrue(row.id() > prev);
+                    }
+                    prev = row.id();
+                    total++;
+                }
+            }
+
+            assertEquals(count, total);
+            s.close();
+        }
+    }
+
+    @Test
+    public void stepBatch() throws Exception {
+        var table = mDb.openTable(TestRow.class);
+        final int count = 1000;
+        fill(table, 1, count);
+
+        String[] queries = {
+            "{*}", "{-id, *}", "{+name, *}", "{id} state >= ?", "{id} id > ? && id < ?"
+        };
+
+        for (String query : queries) {
+            var expect = new ArrayList<Long>();
+            try (Scanner<TestRow> s = table.newScanner(null, query, 100, 900)) {
+                for (TestRow row = s.row(); row != null; row = s.step()) {
+                    expect.add(row.id());
+                }
+            }
+
+            var actual = new ArrayList<Long>();
+            var rows = new TestRow[7];
+            Scanner<TestRow> s = table.newScanner(null, query, 100, 900);
+            TestRow current = s.row();
+            int num;
+            while ((num = s.stepBatch(rows)) != 0) {
+                assertSame(current, rows[0]);
+                current = s.row();
+                for (int i=0; i<num; i++) {
+                    assertNotSame(current, rows[i]);
+                    actual.add(rows[i].id());
+                }
+            }
+            assertNull(s.row());
+            assertEquals(0, s.stepBatch(rows));
+
+            assertEquals(query, expect, actual);
+        }
+    }
+
     private void checkSecondary(StoredTable<TestRow> table) throws Exception {
         var ix = table.viewSecondaryIndex("state");
 
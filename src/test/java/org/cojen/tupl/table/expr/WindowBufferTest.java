@@ -893,6 +893,13 @@ public class WindowBufferTest {
         throws Exception
     {
         assertEquals(values.length, results.length);
+        assertArrayEquals(results, run(op, frameStart, frameEnd, values));
+    }
+
+    private Object[] run(String op, long frameStart, long frameEnd, Object[] values)
+        throws Exception
+    {
+        var results = new Object[values.length];
 
         Class<?> bufferClass = WindowBuffer.forType(mValueType);
         Class<?> valueClass = mValueType.clazz();
@@ -927,8 +934,7 @@ public class WindowBufferTest {
             }
 
             if (finished || frameEnd <= (int) endMethod.invoke(buffer)) {
-                Object result = opMethod.invoke(buffer, frameStart, frameEnd);
-                assertEquals(results[resultPos], result);
+                results[resultPos] = opMethod.invoke(buffer, frameStart, frameEnd);
 
                 if (frameStart == MIN) {
                     advanceMethod.invoke(buffer);
@@ -946,6 +952,78 @@ public class WindowBufferTest {
 
         assertEquals(values.length, valuePos);
         assertEquals(results.length, resultPos);
+
+        return results;
+    }
+
+    @Test
+    public void sliding() throws Exception {
+        // The sliding methods must produce the same results as the frame methods. The values
+        // are small multiples of 1/8, and so the floating point sums are exact.
+
+        var rnd = new java.util.Random(8675309);
+
+        mValueType = BasicType.make(long.class, Type.TYPE_LONG);
+        var longs = new Long[500];
+        for (int i=0; i<longs.length; i++) {
+            longs[i] = (long) rnd.nextInt(1000) - 500;
+        }
+        testSliding(longs, true);
+
+        mValueType = BasicType.make(long.class, Type.TYPE_LONG).nullable();
+        longs = longs.clone();
+        for (int i=0; i<longs.length; i+=7) {
+            longs[i] = null;
+        }
+        testSliding(longs, false);
+
+        mValueType = BasicType.make(double.class, Type.TYPE_DOUBLE);
+        var doubles = new Double[500];
+        for (int i=0; i<doubles.length; i++) {
+            doubles[i] = (rnd.nextInt(1000) + 1) / 8.0;
+        }
+        doubles[100] = Double.NaN;
+        testSliding(doubles, true);
+
+        // The sum must recover once the infinite value leaves the frame.
+        doubles = doubles.clone();
+        doubles[200] = Double.POSITIVE_INFINITY;
+        doubles[300] = -500.0;
+        testSliding(doubles, false);
+
+        mValueType = BasicType.make(double.class, Type.TYPE_DOUBLE).nullable();
+        doubles = doubles.clone();
+        for (int i=0; i<doubles.length; i+=5) {
+            doubles[i] = null;
+        }
+        testSliding(doubles, false);
+
+        mValueType = BasicType.make(BigDecimal.class, Type.TYPE_BIG_DECIMAL);
+        var decimals = new BigDecimal[100];
+        for (int i=0; i<decimals.length; i++) {
+            decimals[i] = BigDecimal.valueOf(rnd.nextInt(1000) - 500, rnd.nextInt(3));
+        }
+        testSliding(decimals, false);
+    }
+
+    private void testSliding(Object[] values, boolean minMax) throws Exception {
+        long[][] frames = {
+            {0, 0}, {-3, 0}, {-10, 2}, {MIN, 0}, {0, 5}, {2, 4}, {-5, -2}, {MIN, MAX}
+        };
+
+        var ops = new String[] {"Sum", "Average", "AverageOrNull"};
+        if (minMax) {
+            ops = new String[] {"Sum", "Average", "AverageOrNull",
+                                "Min", "MinOrNull", "Max", "MaxOrNull"};
+        }
+
+        for (long[] frame : frames) {
+            for (String op : ops) {
+                Object[] expect = run("frame" + op, frame[0], frame[1], values);
+                Object[] actual = run("sliding" + op, frame[0], frame[1], values);
+                assertArrayEquals(op + ", " + frame[0] + ".." + frame[1], expect, actual);
+            }
+        }
     }
 
     @Test
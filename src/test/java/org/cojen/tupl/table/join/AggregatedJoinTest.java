@@ -204,7 +204,7 @@ public class AggregatedJoinTest {
           key columns: +id
     assignments: ?1 = agg.companyId
   - join
-    - filter: companyId == ?1
+    - hash join: companyId == ?1
       - full scan over primary key: org.cojen.tupl.table.join.Department
         key columns: +id
             """;
@@ -251,7 +251,7 @@ public class AggregatedJoinTest {
           key columns: +id
     assignments: ?2 = agg.companyId
   - join
-    - filter: companyId == ?2
+    - hash join: companyId == ?2
       - full scan over primary key: org.cojen.tupl.table.join.Department
         key columns: +id
             """;
@@ -165,7 +165,7 @@ public class BasicJoinTest {
                   key columns: +id
                 assignments: ?1 = department.id
               - join
-                - filter: departmentId == ?1
+                - hash join: departmentId == ?1
                   - full scan over primary key: org.cojen.tupl.table.join.Employee
                     key columns: +id
             """;
@@ -211,7 +211,7 @@ public class BasicJoinTest {
                   key columns: +id
                 assignments: ?1 = department.id
               - outer join
-                - filter: departmentId == ?1
+                - hash join: departmentId == ?1
                   - full scan over primary key: org.cojen.tupl.table.join.Employee
                     key columns: +id
             """;
@@ -240,7 +240,7 @@ public class BasicJoinTest {
                   key columns: +id
                 assignments: ?1 = department.id
               - outer join
-                - filter: departmentId == ?1
+                - hash join: departmentId == ?1
                   - full scan over primary key: org.cojen.tupl.table.join.Employee
                     key columns: +id
             """;
@@ -334,7 +334,7 @@ public class BasicJoinTest {
                     key columns: +id
                   assignments: ?1 = department.id
                 - outer join
-                  - filter: departmentId == ?1
+                  - hash join: departmentId == ?1
                     - full scan over primary key: org.cojen.tupl.table.join.Employee
                       key columns: +id
               - nested loops join
@@ -417,7 +417,7 @@ public class BasicJoinTest {
                   filter: id == ?1
                 assignments: ?2 = department.id
               - join
-                - filter: departmentId == ?2
+                - hash join: departmentId == ?2
                   - full scan over primary key: org.cojen.tupl.table.join.Employee
                     key columns: +id
             """;
@@ -578,7 +578,7 @@ public class BasicJoinTest {
                     filter: id == ?1
                   assignments: ?2 = department.id
                 - outer join
-                  - filter: departmentId == ?2
+                  - hash join: departmentId == ?2
                     - full scan over primary key: org.cojen.tupl.table.join.Employee
                       key columns: +id
               - nested loops join
@@ -844,7 +844,7 @@ public class BasicJoinTest {
                     key columns: +id
                 assignments: ?1 = department.id
               - join
-                - filter: departmentId == ?1
+                - hash join: departmentId == ?1
                   - full scan over primary key: org.cojen.tupl.table.join.Employee
                     key columns: +id
             """;
@@ -907,7 +907,7 @@ public class BasicJoinTest {
                   range: .. id < ?1
                 assignments: ?2 = dept.id
               - join
-                - filter: departmentId == ?2
+                - hash join: departmentId == ?2
                   - full scan over primary key: org.cojen.tupl.table.join.Employee
                     key columns: +id
             """;
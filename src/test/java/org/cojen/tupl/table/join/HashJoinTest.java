@@ -0,0 +1,385 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table.join;
+
+import java.math.BigDecimal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+import org.cojen.tupl.diag.QueryPlan;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class HashJoinTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(HashJoinTest.class.getName());
+    }
+
+    @PrimaryKey("id")
+    public interface TestRow {
+        long id();
+        void id(long id);
+
+        @Nullable
+        Integer num();
+        void num(Integer num);
+
+        String str();
+        void str(String str);
+    }
+
+    @PrimaryKey("id")
+    public interface OtherRow {
+        long id();
+        void id(long id);
+
+        int num();
+        void num(int num);
+    }
+
+    public interface TestJoin {
+        TestRow test();
+        void test(TestRow row);
+
+        OtherRow other();
+        void other(OtherRow row);
+    }
+
+    private Database mDb;
+    private Table<TestRow> mTable;
+
+    @Before
+    public void setup() throws Exception {
+        mDb = Database.open(new DatabaseConfig());
+        mTable = mDb.openTable(TestRow.class);
+
+        for (int i=0; i<1000; i++) {
+            TestRow row = mTable.newRow();
+            row.id(i);
+            row.num((i % 10) == 9 ? null : (i % 37));
+            row.str("s" + (i % 23));
+            mTable.insert(null, row);
+        }
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (mDb != null) {
+            mDb.close();
+            mDb = null;
+        }
+    }
+
+    @Test
+    public void longKeys() throws Exception {
+        longKeys(Integer.MAX_VALUE);
+        // Spill to a temporary index.
+        longKeys(10);
+    }
+
+    private void longKeys(int maxRows) throws Exception {
+        var hj = new HashJoin<TestRow>(mTable, "num", null, true) {
+            @Override
+            protected boolean isNull(TestRow row) {
+                return row.num() == null;
+            }
+
+            @Override
+            protected long longKey(TestRow row) {
+                return row.num();
+            }
+        };
+
+        hj.build(mTable.query("str != ?"), maxRows, null, "s3");
+
+        for (int i=-1; i<40; i++) {
+            Object key = i < 0 ? null : (i & 1) == 0 ? i : (Object) (long) i;
+            verify(hj, "num == ? && str != ?", key, "s3");
+        }
+
+        hj.close();
+    }
+
+    @Test
+    public void stringKeys() throws Exception {
+        stringKeys(Integer.MAX_VALUE);
+        // Spill to a temporary index.
+        stringKeys(10);
+    }
+
+    private void stringKeys(int maxRows) throws Exception {
+        var hj = new HashJoin<TestRow>(mTable, "str", new String[] {"id"}, false) {
+            @Override
+            protected boolean isNull(TestRow row) {
+                return false;
+            }
+
+            @Override
+            protected Object objectKey(TestRow row) {
+                return row.str();
+            }
+        };
+
+        hj.build(mTable.query("{id, str}"), maxRows, null);
+
+        for (int i=0; i<30; i++) {
+            String key = "s" + i;
+            List<TestRow> rows = verify(hj, "{id} str == ?", key);
+            for (TestRow row : rows) {
+                // The join column isn't projected.
+                assertFalse(mTable.isSet(row, "str"));
+                assertTrue(mTable.isSet(row, "id"));
+            }
+        }
+
+        hj.close();
+    }
+
+    private List<TestRow> verify(HashJoin<TestRow> hj, String query, Object... args)
+        throws Exception
+    {
+        var expect = new ArrayList<String>();
+        try (var s = mTable.newScanner(null, query, args)) {
+            for (var row = s.row(); row != null; row = s.step()) {
+                expect.add(row.toString());
+            }
+        }
+
+        var actual = new ArrayList<TestRow>();
+        TestRow reuse = mTable.newRow();
+        try (var s = hj.newScanner(reuse, args[0])) {
+            for (var row = s.row(); row != null; row = s.step(row)) {
+                assertSame(reuse, row);
+                actual.add(mTable.cloneRow(row));
+            }
+        }
+
+        assertEquals(expect.size(), actual.size());
+        for (int i=0; i<expect.size(); i++) {
+            assertEquals(expect.get(i), actual.get(i).toString());
+        }
+
+        return actual;
+    }
+
+    @Test
+    public void join() throws Exception {
+        Table<OtherRow> other = mDb.openTable(OtherRow.class);
+        for (int i=0; i<50; i++) {
+            OtherRow row = other.newRow();
+            row.id(i);
+            row.num(i);
+            other.insert(null, row);
+        }
+
+        Table<TestJoin> join = mDb.openJoinTable(TestJoin.class, "other :: test");
+        Query<TestJoin> query = join.query("test.num == other.num && test.str == ?");
+
+        QueryPlan plan = query.scannerPlan(null, "s5");
+        assertTrue(plan.toString(), plan.toString().contains("hash join: num == ?2"));
+
+        int count = 0;
+        try (var s = query.newScanner(null, "s5")) {
+            for (var row = s.row(); row != null; row = s.step(row)) {
+                assertEquals(row.other().num(), (int) row.test().num());
+                assertEquals("s5", row.test().str());
+                count++;
+            }
+        }
+
+        assertEquals(mTable.query("num != ? && str == ?").newStream(null, null, "s5").count(),
+                     count);
+
+        // With a secondary index, a hash join isn't needed.
+
+        mDb.openTable(IndexedRow.class);
+        Table<IndexedJoin> join2 = mDb.openJoinTable(IndexedJoin.class, "other :: test");
+        plan = join2.query("test.num == other.num").scannerPlan(null);
+        assertFalse(plan.toString(), plan.toString().contains("hash join"));
+    }
+
+    @PrimaryKey("id")
+    public interface MixedRow {
+        long id();
+        void id(long id);
+
+        long num();
+        void num(long num);
+
+        String code();
+        void code(String code);
+    }
+
+    @PrimaryKey("id")
+    @SecondaryIndex("num")
+    @SecondaryIndex("code")
+    public interface IndexedMixedRow extends MixedRow {
+    }
+
+    @PrimaryKey("id")
+    public interface MixedOtherRow {
+        long id();
+        void id(long id);
+
+        int inum();
+        void inum(int inum);
+
+        long lnum();
+        void lnum(long lnum);
+
+        double dnum();
+        void dnum(double dnum);
+
+        String str();
+        void str(String str);
+
+        BigDecimal dec();
+        void dec(BigDecimal dec);
+    }
+
+    public interface MixedJoin {
+        MixedRow test();
+        void test(MixedRow row);
+
+        MixedOtherRow other();
+        void other(MixedOtherRow row);
+    }
+
+    public interface IndexedMixedJoin {
+        IndexedMixedRow test();
+        void test(IndexedMixedRow row);
+
+        MixedOtherRow other();
+        void other(MixedOtherRow row);
+    }
+
+    @Test
+    public void mixedTypes() throws Exception {
+        Table<MixedRow> table = mDb.openTable(MixedRow.class);
+        Table<IndexedMixedRow> indexed = mDb.openTable(IndexedMixedRow.class);
+
+        for (int i=0; i<200; i++) {
+            MixedRow row = table.newRow();
+            row.id(i);
+            row.num(i % 37);
+            row.code((i % 3) == 0 ? ((i % 37) + ".5") : String.valueOf(i % 37));
+            table.insert(null, row);
+
+            IndexedMixedRow irow = indexed.newRow();
+            irow.id(row.id());
+            irow.num(row.num());
+            irow.code(row.code());
+            indexed.insert(null, irow);
+        }
+
+        Table<MixedOtherRow> other = mDb.openTable(MixedOtherRow.class);
+        for (int i=0; i<50; i++) {
+            MixedOtherRow row = other.newRow();
+            row.id(i);
+            row.inum(i);
+            row.lnum(i);
+            row.dnum(i / 2.0);
+            row.str(String.valueOf(i));
+            row.dec(BigDecimal.valueOf(i * 5, 1));
+            other.insert(null, row);
+        }
+
+        Table<MixedJoin> join = mDb.openJoinTable(MixedJoin.class, "other :: test");
+        Table<IndexedMixedJoin> ijoin = mDb.openJoinTable(IndexedMixedJoin.class, "other :: test");
+
+        // An outer integral column is converted to the wider inner column type.
+        mixedTypes(join, ijoin, "test.num == other.inum", true);
+        // An outer numeric column is converted to the inner string column type.
+        mixedTypes(join, ijoin, "test.code == other.lnum", true);
+        mixedTypes(join, ijoin, "test.code == other.dnum", true);
+        mixedTypes(join, ijoin, "test.code == other.dec", true);
+
+        // These don't convert exactly to the inner column type, and so they're compared
+        // using the common type instead. A hash join cannot be used.
+        mixedTypes(join, ijoin, "test.num == other.dnum", false);
+        mixedTypes(join, ijoin, "test.num == other.str", false);
+        mixedTypes(join, ijoin, "test.num == other.dec", false);
+    }
+
+    /**
+     * Verifies that a join produces the same results as a nested loops join against an
+     * identical table which has secondary indexes.
+     */
+    private static void mixedTypes(Table<MixedJoin> join, Table<IndexedMixedJoin> ijoin,
+                                   String filter, boolean hashed)
+        throws Exception
+    {
+        Query<MixedJoin> query = join.query(filter);
+        String plan = query.scannerPlan(null).toString();
+        assertEquals(plan, hashed, plan.contains("hash join"));
+
+        Query<IndexedMixedJoin> loopQuery = ijoin.query(filter);
+        plan = loopQuery.scannerPlan(null).toString();
+        assertFalse(plan, plan.contains("hash join"));
+
+        var expect = new ArrayList<String>();
+        try (var s = loopQuery.newScanner(null)) {
+            for (var row = s.row(); row != null; row = s.step(row)) {
+                expect.add(row.other().id() + ":" + row.test().id());
+            }
+        }
+
+        var actual = new ArrayList<String>();
+        try (var s = query.newScanner(null)) {
+            for (var row = s.row(); row != null; row = s.step(row)) {
+                actual.add(row.other().id() + ":" + row.test().id());
+            }
+        }
+
+        if (hashed) {
+            assertFalse(expect.isEmpty());
+        }
+
+        expect.sort(null);
+        actual.sort(null);
+        assertEquals(expect, actual);
+    }
+
+    @PrimaryKey("id")
+    @SecondaryIndex("num")
+    public interface IndexedRow {
+        long id();
+        void id(long id);
+
+        @Nullable
+        Integer num();
+        void num(Integer num);
+    }
+
+    public interface IndexedJoin {
+        IndexedRow test();
+        void test(IndexedRow row);
+
+        OtherRow other();
+        void other(OtherRow row);
+    }
+}
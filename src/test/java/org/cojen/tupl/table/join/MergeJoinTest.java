@@ -0,0 +1,218 @@
+/*
+ *  Copyright (C) 2026 Cojen.org
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.cojen.tupl.table.join;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.cojen.tupl.*;
+
+/**
+ *
+ *
+ * @author Brian S O'Neill
+ */
+public class MergeJoinTest {
+    public static void main(String[] args) throws Exception {
+        org.junit.runner.JUnitCore.main(MergeJoinTest.class.getName());
+    }
+
+    @PrimaryKey("id")
+    public interface Parent {
+        long id();
+        void id(long id);
+
+        String name();
+        void name(String name);
+    }
+
+    @PrimaryKey({"parentId", "id"})
+    public interface Child {
+        long parentId();
+        void parentId(long id);
+
+        int id();
+        void id(int id);
+
+        String name();
+        void name(String name);
+    }
+
+    public interface Family {
+        Parent parent();
+        void parent(Parent row);
+
+        @Nullable
+        Child child();
+        void child(Child row);
+    }
+
+    private Database mDb;
+    private Table<Parent> mParents;
+    private Table<Child> mChildren;
+    private Table<Family> mFamilies;
+
+    @Before
+    public void setup() throws Exception {
+        mDb = Database.open(new DatabaseConfig());
+        mParents = mDb.openTable(Parent.class);
+        mChildren = mDb.openTable(Child.class);
+
+        for (int i=0; i<500; i++) {
+            Parent parent = mParents.newRow();
+            parent.id(i);
+            parent.name("p" + i);
+            mParents.insert(null, parent);
+
+            // Some parents have no children.
+            for (int j=0; j<(i % 4); j++) {
+                Child child = mChildren.newRow();
+                child.parentId(i);
+                child.id(j);
+                child.name("c" + i + "-" + j);
+                mChildren.insert(null, child);
+            }
+        }
+
+        // Children without parents.
+        for (int i=1000; i<1010; i++) {
+            Child child = mChildren.newRow();
+            child.parentId(i);
+            child.id(0);
+            child.name("orphan");
+            mChildren.insert(null, child);
+        }
+
+        // Use a straight join to prevent the levels from being reordered.
+        mFamilies = mDb.openJoinTable(Family.class, "parent :: child");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (mDb != null) {
+            mDb.close();
+            mDb = null;
+        }
+    }
+
+    @Test
+    public void plan() throws Exception {
+        Query<Family> query = mFamilies.query("child.parentId == parent.id");
+
+        String plan = query.scannerPlan(null).toString();
+        assertTrue(plan, plan.contains("merge join: parentId == ?1"));
+
+        // Not supported when predicate locks are required.
+        Transaction txn = mDb.newTransaction();
+        try {
+            plan = query.scannerPlan(txn).toString();
+            assertFalse(plan, plan.contains("merge join"));
+        } finally {
+            txn.reset();
+        }
+
+        // Not applicable when the join column isn't the first key column.
+        plan = mFamilies.query("child.id == parent.id").scannerPlan(null).toString();
+        assertFalse(plan, plan.contains("merge join"));
+    }
+
+    @Test
+    public void innerJoin() throws Exception {
+        verify("child.parentId == parent.id");
+        verify("child.parentId == parent.id && child.id != ?", 1);
+        verify("child.parentId == parent.id && parent.id >= ? && parent.id < ?", 100, 200);
+        verify("{parent.name, child.name} child.parentId == parent.id && child.name != ?",
+               "c3-0");
+    }
+
+    @Test
+    public void outerJoin() throws Exception {
+        mFamilies = mDb.openJoinTable(Family.class, "parent >: child");
+        verify("child.parentId == parent.id");
+    }
+
+    @Test
+    public void unordered() throws Exception {
+        Query<Child> query = mChildren.query("parentId == ?");
+        MergeJoin<Child> mj = MergeJoin.open(query, "parentId", null, 0L);
+        assertNotNull(mj);
+
+        // Probing out of order causes the cursor to move backwards, but the results are
+        // still correct.
+        long[] keys = {3, 7, 7, 5, 1000, 499, 0, 1009, 2000, 1, 2};
+        Child reuse = mChildren.newRow();
+
+        for (long key : keys) {
+            var expect = new ArrayList<String>();
+            collect(expect, query.newScanner(null, key));
+            var actual = new ArrayList<String>();
+            try (var s = mj.newScanner(reuse, key)) {
+                for (var row = s.row(); row != null; row = s.step(row)) {
+                    assertSame(reuse, row);
+                    actual.add(row.toString());
+                }
+            }
+            assertEquals(expect, actual);
+        }
+
+        mj.close();
+
+        // Not supported when predicate locks are required.
+        Transaction txn = mDb.newTransaction();
+        try {
+            assertNull(MergeJoin.open(query, "parentId", txn, 0L));
+        } finally {
+            txn.reset();
+        }
+    }
+
+    /**
+     * Compares the join results against results which are found without merging.
+     */
+    private void verify(String queryStr, Object... args) throws Exception {
+        var expect = new ArrayList<String>();
+        Transaction txn = mDb.newTransaction();
+        try {
+            assertFalse(mFamilies.query(queryStr).scannerPlan(txn, args)
+                        .toString().contains("merge join"));
+            collect(expect, mFamilies.newScanner(txn, queryStr, args));
+        } finally {
+            txn.reset();
+        }
+
+        assertTrue(mFamilies.query(queryStr).scannerPlan(null, args)
+                   .toString().contains("merge join"));
+
+        var actual = new ArrayList<String>();
+        collect(actual, mFamilies.newScanner(null, queryStr, args));
+
+        assertFalse(expect.isEmpty());
+        assertEquals(expect, actual);
+    }
+
+    private static <R> void collect(List<String> results, Scanner<R> s) throws Exception {
+        try (s) {
+            for (var row = s.row(); row != null; row = s.step(row)) {
+                results.add(row.toString());
+            }
+        }
+    }
+}